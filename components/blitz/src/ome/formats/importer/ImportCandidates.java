@@ -9,12 +9,20 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.ArrayDeque;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static omero.rtypes.rint;
 import static omero.rtypes.rstring;
@@ -40,7 +48,9 @@ import org.slf4j.LoggerFactory;
  * number and members of a given import. This facility permits iterating over a
  * directory.
  *
- * This class is NOT thread-safe.
+ * This class is NOT thread-safe, though it may use several threads of its
+ * own to read the files it finds. See
+ * {@link #ImportCandidates(int, OMEROWrapper, String[], IObserver, int)}.
  *
  * @since Beta4.1
  */
@@ -116,7 +126,9 @@ public class ImportCandidates extends DirectoryWalker
 
     final private IObserver observer;
     final private OMEROWrapper reader;
-    final private Set<String> allFiles = new HashSet<String>();
+    /** Used files of the accepted containers. Read by scanning threads. */
+    final private Set<String> allFiles =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
     final private Map<String, List<String>> usedBy = new LinkedHashMap<String, List<String>>();
     final private List<ImportContainer> containers = new ArrayList<ImportContainer>();
     final private long start = System.currentTimeMillis();
@@ -154,6 +166,57 @@ public class ImportCandidates extends DirectoryWalker
      */
     boolean cancelled = false;
 
+    /**
+     * Number of threads reading files at once during the second pass.
+     */
+    final private int threads;
+
+    /**
+     * Threads reading files during the second pass if {@link #threads} is
+     * greater than one, otherwise null.
+     */
+    private ExecutorService scanners;
+
+    /**
+     * Files being read by {@link #scanners}, in the order in which they
+     * were found.
+     */
+    final private Deque<Future<Scanned>> scanning = new ArrayDeque<Future<Scanned>>();
+
+    /**
+     * Reader of each of the {@link #scanners}.
+     */
+    final private ThreadLocal<OMEROWrapper> scannerReader = new ThreadLocal<OMEROWrapper>();
+
+    /**
+     * Events raised by each of the {@link #scanners} for the file it is
+     * reading. These are only passed on to {@link #observer} once the file is
+     * accepted, in the order in which the files were found.
+     */
+    final private ThreadLocal<List<ImportEvent>> scannerEvents =
+            new ThreadLocal<List<ImportEvent>>();
+
+    /**
+     * All the readers created for {@link #scanners}, to be closed at the end.
+     */
+    final private List<OMEROWrapper> scannerReaders =
+            Collections.synchronizedList(new ArrayList<OMEROWrapper>());
+
+    /**
+     * The result of reading a single file on one of the {@link #scanners}.
+     */
+    private static class Scanned {
+        final File file;
+        final ImportContainer info;
+        final List<ImportEvent> events;
+
+        Scanned(File file, ImportContainer info, List<ImportEvent> events) {
+            this.file = file;
+            this.info = info;
+            this.events = events;
+        }
+    }
+
     /**
      * Calls {@link #ImportCandidates(int, OMEROWrapper, String[], IObserver)}
      * with {@link #DEPTH} as the first argument.
@@ -192,12 +255,45 @@ public class ImportCandidates extends DirectoryWalker
      */
     public ImportCandidates(int depth, OMEROWrapper reader, String[] paths,
             IObserver observer)
+    {
+        this(depth, reader, paths, observer, 1);
+    }
+
+    /**
+     * Main constructor which starts depth-first descent into all the paths
+     * and permits a descent to the given depth, reading up to
+     * <code>threads</code> files at once. Each thread uses its own reader,
+     * created from the configuration of <code>reader</code>.
+     *
+     * The containers found are the same as for a single thread: files are
+     * accepted in the order in which they are found and a file whose path is
+     * among the used files of an accepted container is skipped. Files are
+     * handed to the threads as the directories are walked, so reading starts
+     * before the walk is complete.
+     *
+     * @param depth
+     *            number of directory levels to search down.
+     * @param reader
+     *            instance used for parsing each of the paths. Not used once the
+     *            constructor completes.
+     * @param paths
+     *            file paths which are searched. May be directories.
+     * @param observer
+     *            {@link IObserver} which will monitor any exceptions during
+     *            {@link OMEROWrapper#setId(String)}. Otherwise no error
+     *            reporting takes place.
+     * @param threads
+     *            number of files to read at once.
+     */
+    public ImportCandidates(int depth, OMEROWrapper reader, String[] paths,
+            IObserver observer, int threads)
     {
         super(TrueFileFilter.INSTANCE, depth);
         this.reader = reader;
         this.observer = observer;
-        log.info(String.format("Depth: %s Metadata Level: %s", depth,
-                METADATA_LEVEL));
+        this.threads = Math.max(1, threads);
+        log.info(String.format("Depth: %s Metadata Level: %s Threads: %s",
+                depth, METADATA_LEVEL, this.threads));
 
         if (paths != null && paths.length == 2 && "".equals(paths[0])
                 && "".equals(paths[1]))
@@ -219,7 +315,15 @@ public class ImportCandidates extends DirectoryWalker
             execute(paths);
             total = count;
             count = 0;
-            execute(paths);
+            if (this.threads > 1) {
+                scanners = Executors.newFixedThreadPool(this.threads);
+            }
+            try {
+                execute(paths);
+                acceptScanned(0);
+            } finally {
+                stopScanners();
+            }
             g = new Groups(usedBy);
             g.parse(containers);
             long totalElapsed = System.currentTimeMillis() - start;
@@ -396,20 +500,21 @@ public class ImportCandidates extends DirectoryWalker
             return null;
         }
 
+        final OMEROWrapper reader = currentReader();
         String format = null;
         String[] usedFiles = new String[] { path };
         long start = System.currentTimeMillis();
         try {
 
             try {
-                setids++;
+                countSetId();
                 reader.close();
                 reader.setMetadataStore(new ImageNameMetadataStore());
                 reader.setMetadataOptions(
                         new DefaultMetadataOptions(METADATA_LEVEL));
                 reader.setId(path);
                 format = reader.getFormat();
-                usedFiles = getOrderedFiles();
+                usedFiles = getOrderedFiles(reader);
                 String[] domains = reader.getReader().getDomains();
                 boolean isSPW = Arrays.asList(domains).contains(FormatTools.HCS_DOMAIN);
 
@@ -433,18 +538,18 @@ public class ImportCandidates extends DirectoryWalker
                 return ic;
             } finally
             {
-                readerTime += (System.currentTimeMillis() - start);
+                countReaderTime(System.currentTimeMillis() - start);
                 reader.close();
             }
 
         } catch (UnsupportedCompressionException uce)
         {
-            unknown++;
+            countUnknown();
             // Handling as UNKNOWN_FORMAT for 4.3.0
             safeUpdate(new ErrorHandler.UNKNOWN_FORMAT(path, uce, this));
         } catch (UnknownFormatException ufe)
         {
-            unknown++;
+            countUnknown();
             safeUpdate(new ErrorHandler.UNKNOWN_FORMAT(path, ufe, this));
         } catch (MissingLibraryException mle)
         {
@@ -470,6 +575,7 @@ public class ImportCandidates extends DirectoryWalker
      * @return a list of Image names, in the order of <i>series</i>.
      */
     private List<String> getImageNames() {
+        final OMEROWrapper reader = currentReader();
         List<String> toReturn = new ArrayList<String>();
         Map<Integer, String> imageNames = ((ImageNameMetadataStore)
                 reader.getMetadataStore()).getImageNames();
@@ -484,7 +590,7 @@ public class ImportCandidates extends DirectoryWalker
      * used files. All files which can be used to initialize a fileset are
      * returned first.
      */
-    private String[] getOrderedFiles() {
+    private String[] getOrderedFiles(OMEROWrapper reader) {
 
         FileInfo[] infos = reader.getAdvancedUsedFiles(false);
         String[] usedFiles = new String[infos.length];
@@ -503,6 +609,108 @@ public class ImportCandidates extends DirectoryWalker
         return usedFiles;
     }
 
+    /**
+     * @return the reader of the current scanning thread, or {@link #reader}
+     */
+    private OMEROWrapper currentReader() {
+        final OMEROWrapper scanner = scannerReader.get();
+        return scanner == null ? reader : scanner;
+    }
+
+    private synchronized void countSetId() {
+        setids++;
+    }
+
+    private synchronized void countReaderTime(long elapsed) {
+        readerTime += elapsed;
+    }
+
+    private synchronized void countUnknown() {
+        unknown++;
+    }
+
+    /**
+     * Read the given file on one of the {@link #scanners}, keeping the
+     * number of files in flight bounded.
+     */
+    private void scan(final File file) {
+        scanning.add(scanners.submit(new Callable<Scanned>() {
+            public Scanned call() {
+                if (allFiles.contains(file.getAbsolutePath())) {
+                    return new Scanned(file, null, null);
+                }
+                OMEROWrapper own = scannerReader.get();
+                if (own == null) {
+                    own = new OMEROWrapper(reader.getConfig());
+                    scannerReaders.add(own);
+                    scannerReader.set(own);
+                }
+                final List<ImportEvent> events = new ArrayList<ImportEvent>();
+                scannerEvents.set(events);
+                try {
+                    return new Scanned(file,
+                            singleFile(file, reader.getConfig()), events);
+                } finally {
+                    scannerEvents.remove();
+                }
+            }
+        }));
+        acceptScanned(threads * 4);
+    }
+
+    /**
+     * Accept the files read by the {@link #scanners}, in the order in which
+     * they were found, until no more than <code>maxPending</code> remain or
+     * the next has not yet been read.
+     */
+    private void acceptScanned(int maxPending) {
+        while (!scanning.isEmpty()) {
+            final Future<Scanned> next = scanning.peek();
+            if (scanning.size() <= maxPending && !next.isDone()) {
+                return;
+            }
+            final Scanned scanned;
+            try {
+                scanned = next.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while scanning", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+            scanning.remove();
+            if (allFiles.contains(scanned.file.getAbsolutePath())) {
+                continue; // Used by an earlier container.
+            }
+            if (scanned.events != null) {
+                for (ImportEvent event : scanned.events) {
+                    safeUpdate(event);
+                }
+            }
+            accept(scanned.file, scanned.info);
+        }
+    }
+
+    /**
+     * Stop the {@link #scanners}, if any, and close their readers.
+     */
+    private void stopScanners() {
+        if (scanners == null) {
+            return;
+        }
+        scanners.shutdownNow();
+        scanners = null;
+        scanning.clear();
+        for (OMEROWrapper scanner : scannerReaders) {
+            try {
+                scanner.close();
+            } catch (IOException e) {
+                log.warn("Failed to close scanning reader", e);
+            }
+        }
+        scannerReaders.clear();
+    }
+
     /**
      * @param f
      * @param d
@@ -522,6 +730,11 @@ public class ImportCandidates extends DirectoryWalker
      * @param event
      */
     private void safeUpdate(ImportEvent event) {
+        final List<ImportEvent> deferred = scannerEvents.get();
+        if (deferred != null) {
+            deferred.add(event);
+            return;
+        }
         try {
             observer.update(null, event);
         } catch (Exception ex) {
@@ -563,7 +776,19 @@ public class ImportCandidates extends DirectoryWalker
             return;
         }
 
-        ImportContainer info = singleFile(file, reader.getConfig());
+        if (scanners != null) {
+            scan(file);
+            return;
+        }
+
+        accept(file, singleFile(file, reader.getConfig()));
+    }
+
+    /**
+     * Add the container read from the given file, if any, claiming its used
+     * files.
+     */
+    private void accept(File file, ImportContainer info) {
         if (info == null) {
             return;
         }
@@ -143,6 +143,9 @@ public class ImportConfig {
     public final FileValue savedDirectory;
     public final StrValue readersPath;
     public final StrValue checksumAlgorithm;
+    public final IntValue parallelUpload;
+    public final IntValue parallelFileset;
+    public final IntValue parallelScan;
 
     public final BoolValue encryptedConnection;
     public final BoolValue autoClose;
@@ -294,6 +297,9 @@ public class ImportConfig {
 
         readersPath = new StrValue("readersPath", this);
         checksumAlgorithm = new StrValue("checksumAlgorithm", this);
+        parallelUpload = new IntValue("parallelUpload", this, 1);
+        parallelFileset = new IntValue("parallelFileset", this, 1);
+        parallelScan = new IntValue("parallelScan", this, 1);
     }
 
     public String getBioFormatsVersion() {
@@ -27,6 +27,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import loci.common.Location;
 import loci.formats.FormatException;
@@ -145,6 +155,12 @@ public class ImportLibrary implements IObservable
      */
     private final String category;
 
+    /**
+     * Number of files of a fileset which may be uploaded at once. Only
+     * applies if {@link #transfer} is an {@link UploadFileTransfer}.
+     */
+    private volatile int parallelUpload = 1;
+
     static {
         final Set<ChecksumType> availableTypes = checksumProviderFactory.getAvailableTypes();
         final ImmutableList.Builder<ChecksumAlgorithm> builder = ImmutableList.builder();
@@ -242,8 +258,29 @@ public class ImportLibrary implements IObservable
      */
     public void notifyObservers(ImportEvent event)
     {
-        for (IObserver observer : observers) {
-            observer.update(this, event);
+        // files may be uploaded from several threads
+        synchronized (observers) {
+            for (IObserver observer : observers) {
+                observer.update(this, event);
+            }
+        }
+    }
+
+    /**
+     * Set how many files of each fileset may be uploaded at once, each
+     * through its own uploader. When more than one, an
+     * {@link UploadFileTransfer} also {@link UploadFileTransfer#setPipelined
+     * pipelines} the single write each file has in flight with reading its
+     * next block. Other {@link FileTransfer} implementations always transfer one file at
+     * a time.
+     * @param parallelUpload the number of files to upload at once
+     */
+    public void setParallelUpload(int parallelUpload)
+    {
+        this.parallelUpload = Math.max(1, parallelUpload);
+        if (transfer instanceof UploadFileTransfer) {
+            ((UploadFileTransfer) transfer).setPipelined(
+                    this.parallelUpload > 1);
         }
     }
 
@@ -257,52 +294,26 @@ public class ImportLibrary implements IObservable
      * @param candidates Hosts information about the files to import.
      * @return if the import did not exit because of an error
      */
-    public boolean importCandidates(ImportConfig config, ImportCandidates candidates)
+    public boolean importCandidates(final ImportConfig config, ImportCandidates candidates)
     {
         List<ImportContainer> containers = candidates.getContainers();
         if (containers != null) {
+            final int total = containers.size();
+            final int threads = Math.min(config.parallelFileset.get(), total);
+            if (threads > 1) {
+                return importCandidates(config, containers, threads);
+            }
             int numDone = 0;
-            for (int index = 0; index < containers.size(); index++) {
+            for (int index = 0; index < total; index++) {
                 ImportContainer ic = containers.get(index);
-                ImportTarget target = config.getTarget();
-                if (target != null) {
-                    try {
-                        IObject obj = target.load(store, ic);
-                        if (!(obj instanceof Annotation)) {
-                            ic.setTarget(obj);
-                        } else {
-                            // This is likely a "post-processing" annotation
-                            // so that we don't have to resolve the target
-                            // until later.
-                            ic.getCustomAnnotationList().add((Annotation) obj);
-                        }
-                    } catch (Exception e) {
-                        log.error("Could not load target: {}", target);
-                        throw new RuntimeException("Failed to load target", e);
-                    }
-                }
-
-                if (config.checksumAlgorithm.get() != null) {
-                    ic.setChecksumAlgorithm(config.checksumAlgorithm.get());
-                }
+                prepareContainer(config, ic);
 
                 try {
-                    importImage(ic,index,numDone,containers.size());
+                    importImage(ic,index,numDone,total);
                     numDone++;
                 } catch (Throwable t) {
-                    String message = "Error on import";
-                    if (t instanceof ServerError) {
-                        final ServerError se = (ServerError) t;
-                        if (StringUtils.isNotBlank(se.message)) {
-                            message += ": " + se.message;
-                        }
-                    }
-                    log.error(message, t);
-                    if (!config.contOnError.get()) {
-                        log.info("Exiting on error");
+                    if (!continueAfterError(config, t)) {
                         return false;
-                    } else {
-                        log.info("Continuing after error");
                     }
                 }
             }
@@ -310,6 +321,128 @@ public class ImportLibrary implements IObservable
         return true;
     }
 
+    /**
+     * Import the containers with up to <code>threads</code> of them being
+     * uploaded and processed by the server at once. Targets are still
+     * resolved one after another, in order, so that any which are created
+     * on demand are only created once.
+     * @return if the import did not exit because of an error
+     */
+    private boolean importCandidates(final ImportConfig config,
+            final List<ImportContainer> containers, int threads)
+    {
+        final int total = containers.size();
+        final AtomicInteger numDone = new AtomicInteger();
+        final ExecutorService importers = Executors.newFixedThreadPool(threads);
+        final CompletionService<Void> imports =
+                new ExecutorCompletionService<Void>(importers);
+        final List<Future<Void>> submitted = new ArrayList<Future<Void>>(total);
+        boolean success = true;
+        try {
+            for (int index = 0; index < total; index++) {
+                final ImportContainer ic = containers.get(index);
+                final int i = index;
+                prepareContainer(config, ic);
+                submitted.add(imports.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        try {
+                            importImage(ic, i, numDone.get(), total);
+                        } catch (Throwable t) {
+                            if (t instanceof Exception) {
+                                throw (Exception) t;
+                            }
+                            throw new RuntimeException(t);
+                        }
+                        numDone.incrementAndGet();
+                        return null;
+                    }
+                }));
+            }
+            for (int done = 0; done < total; done++) {
+                try {
+                    imports.take().get();
+                } catch (ExecutionException e) {
+                    if (!continueAfterError(config, e.getCause())) {
+                        success = false;
+                        // imports which have started are left to finish
+                        for (Future<Void> future : submitted) {
+                            future.cancel(false);
+                        }
+                        break;
+                    }
+                } catch (CancellationException e) {
+                    // cancelled after an earlier error
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Interrupted while importing");
+            success = false;
+        } finally {
+            importers.shutdown();
+        }
+        try {
+            while (!importers.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.debug("Waiting on imports in progress");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return success;
+    }
+
+    /**
+     * Resolve the target of the given container and set its checksum
+     * algorithm from the configuration.
+     */
+    private void prepareContainer(ImportConfig config, ImportContainer ic)
+    {
+        ImportTarget target = config.getTarget();
+        if (target != null) {
+            try {
+                IObject obj = target.load(store, ic);
+                if (!(obj instanceof Annotation)) {
+                    ic.setTarget(obj);
+                } else {
+                    // This is likely a "post-processing" annotation
+                    // so that we don't have to resolve the target
+                    // until later.
+                    ic.getCustomAnnotationList().add((Annotation) obj);
+                }
+            } catch (Exception e) {
+                log.error("Could not load target: {}", target);
+                throw new RuntimeException("Failed to load target", e);
+            }
+        }
+
+        if (config.checksumAlgorithm.get() != null) {
+            ic.setChecksumAlgorithm(config.checksumAlgorithm.get());
+        }
+    }
+
+    /**
+     * Log the failure of an import.
+     * @return if the remaining imports should proceed
+     */
+    private boolean continueAfterError(ImportConfig config, Throwable t)
+    {
+        String message = "Error on import";
+        if (t instanceof ServerError) {
+            final ServerError se = (ServerError) t;
+            if (StringUtils.isNotBlank(se.message)) {
+                message += ": " + se.message;
+            }
+        }
+        log.error(message, t);
+        if (!config.contOnError.get()) {
+            log.info("Exiting on error");
+            return false;
+        } else {
+            log.info("Continuing after error");
+            return true;
+        }
+    }
+
     /**
      * Delete files from the managed repository.
      * @param container The current import container containing usedFiles to be
@@ -391,26 +524,82 @@ public class ImportLibrary implements IObservable
     public List<String> uploadFilesToRepository(
             final String[] srcFiles, final ImportProcessPrx proc)
     {
-        final byte[] buf = new byte[store.getDefaultBlockSize()];
         final int fileTotal = srcFiles.length;
         final List<String> checksums = new ArrayList<String>(fileTotal);
         // TODO Fix with proper code instead of 10000L
         final TimeEstimator estimator = new ProportionalTimeEstimatorImpl(10000L);
 
         log.debug("Used files created:");
-        for (int i = 0; i < fileTotal; i++) {
-            try {
+        try {
+            uploadFiles(proc, srcFiles, estimator, checksums);
+        } catch (ServerError e) {
+            log.error("Server error uploading file.", e);
+        } catch (IOException e) {
+            log.error("I/O error uploading file.", e);
+        }
+        return checksums;
+    }
+
+    /**
+     * Upload all the given files, adding their client-side hashes to
+     * <code>checksums</code> in order. If an upload fails, the hashes of the
+     * files before it will have been added.
+     */
+    private void uploadFiles(final ImportProcessPrx proc,
+            final String[] srcFiles, final TimeEstimator estimator,
+            final List<String> checksums) throws ServerError, IOException
+    {
+        final int threads = Math.min(parallelUpload, srcFiles.length);
+        if (threads <= 1 || !(transfer instanceof UploadFileTransfer)) {
+            final byte[] buf = new byte[store.getDefaultBlockSize()];
+            for (int i = 0; i < srcFiles.length; i++) {
                 checksums.add(uploadFile(proc, srcFiles, i,
                         checksumProviderFactory, estimator, buf));
-            } catch (ServerError e) {
-                log.error("Server error uploading file.", e);
-                break;
-            } catch (IOException e) {
-                log.error("I/O error uploading file.", e);
-                break;
             }
+            return;
+        }
+
+        final ExecutorService uploaders = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<String>> uploads =
+                    new ArrayList<Future<String>>(srcFiles.length);
+            for (int i = 0; i < srcFiles.length; i++) {
+                final int index = i;
+                uploads.add(uploaders.submit(new Callable<String>() {
+                    public String call() throws ServerError, IOException {
+                        // the shared estimator is not thread safe
+                        final File file =
+                                new File(Location.getMappedId(srcFiles[index]));
+                        return uploadFile(proc, srcFiles, index,
+                                checksumProviderFactory,
+                                new ProportionalTimeEstimatorImpl(file.length()),
+                                new byte[store.getDefaultBlockSize()]);
+                    }
+                }));
+            }
+            for (final Future<String> upload : uploads) {
+                try {
+                    checksums.add(upload.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted during upload", e);
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof ServerError) {
+                        throw (ServerError) cause;
+                    } else if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new RuntimeException(cause);
+                }
+            }
+        } finally {
+            uploaders.shutdownNow();
         }
-        return checksums;
     }
 
     public String uploadFile(final ImportProcessPrx proc,
@@ -500,7 +689,6 @@ public class ImportLibrary implements IObservable
         final ImportProcessPrx proc = createImport(container);
         final String[] srcFiles = container.getUsedFiles();
         final List<String> checksums = new ArrayList<String>();
-        final byte[] buf = new byte[store.getDefaultBlockSize()];
         final TimeEstimator estimator = new ProportionalTimeEstimatorImpl(
                 container.getUsedFilesTotalSize());
         Map<Integer, String> failingChecksums = new HashMap<Integer, String>();
@@ -508,10 +696,7 @@ public class ImportLibrary implements IObservable
         notifyObservers(new ImportEvent.FILESET_UPLOAD_START(
                 null, index, srcFiles.length, null, null, null));
 
-        for (int i = 0; i < srcFiles.length; i++) {
-            checksums.add(uploadFile(proc, srcFiles, i, checksumProviderFactory,
-                    estimator, buf));
-        }
+        uploadFiles(proc, srcFiles, estimator, checksums);
 
         try {
             handle = proc.verifyUpload(checksums);
@@ -145,7 +145,8 @@ public class CommandLineImporter {
         if (exclusions != null) {
             this.exclusions.addAll(exclusions);
         }
-        candidates = new ImportCandidates(reader, paths, handler);
+        candidates = new ImportCandidates(ImportCandidates.DEPTH, reader,
+                paths, handler, config.parallelScan.get());
 
         if (paths == null || paths.length == 0 || getUsedFiles) {
 
@@ -174,6 +175,7 @@ public class CommandLineImporter {
 
             library = new ImportLibrary(store, reader,
                     transfer, exclusions, minutesToWait);
+            library.setParallelUpload(config.parallelUpload.get());
         }
 
         Runtime.getRuntime().addShutdownHook(new Thread() {
@@ -430,6 +432,16 @@ public class CommandLineImporter {
             + "                            \t     SHA1-160 (slow, default)\n\n"
             + "  e.g. $ bin/omero import -- --checksum-algorithm=CRC-32 foo.tiff\n"
             + "       $ ./importer-cli --checksum-algorithm=Murmur3-128 bar.tiff\n\n"
+            + "    --parallel-upload=ARG\tNumber of files of a fileset to upload at once (default: 1),\n"
+            + "                            \teach reading ahead while its last block is written\n\n"
+            + "  e.g. $ bin/omero import -- --parallel-upload=4 plate_directory/\n"
+            + "       $ ./importer-cli --parallel-upload=8 plate_directory/\n\n"
+            + "    --parallel-fileset=ARG\tNumber of filesets to upload and import at once (default: 1)\n\n"
+            + "  e.g. $ bin/omero import -- --parallel-fileset=4 some_directory/\n"
+            + "       $ ./importer-cli --parallel-fileset=4 --parallel-upload=4 some_directory/\n\n"
+            + "    --parallel-scan=ARG\tNumber of files to read at once while scanning for filesets (default: 1)\n\n"
+            + "  e.g. $ bin/omero import -- --parallel-scan=8 some_directory/\n"
+            + "       $ ./importer-cli -f --parallel-scan=8 some_directory/\n\n"
             + "    --no-stats-info\t\tDisable calculation of minima and maxima"
             + " when as part of the Bio-Formats reader metadata\n\n"
             + "  e.g. $ bin/omero import -- --no-stats-info foo.tiff\n"
@@ -567,6 +579,12 @@ public class CommandLineImporter {
                 new LongOpt("no-stats-info", LongOpt.NO_ARGUMENT, null, 23);
         LongOpt noUpgradeCheck =
                 new LongOpt("no-upgrade-check", LongOpt.NO_ARGUMENT, null, 24);
+        LongOpt parallelUpload =
+                new LongOpt("parallel-upload", LongOpt.REQUIRED_ARGUMENT, null, 25);
+        LongOpt parallelFileset =
+                new LongOpt("parallel-fileset", LongOpt.REQUIRED_ARGUMENT, null, 26);
+        LongOpt parallelScan =
+                new LongOpt("parallel-scan", LongOpt.REQUIRED_ARGUMENT, null, 27);
 
         // DEPRECATED OPTIONS
         LongOpt plateName = new LongOpt(
@@ -592,7 +610,8 @@ public class CommandLineImporter {
                                 checksumAlgorithm, minutesWait,
                                 closeCompleted, waitCompleted, autoClose,
                                 exclude, target, noStatsInfo,
-                                noUpgradeCheck, qaBaseURL,
+                                noUpgradeCheck, qaBaseURL, parallelUpload,
+                                parallelFileset, parallelScan,
                                 plateName, plateDescription,
                                 noThumbnailsDeprecated,
                                 checksumAlgorithmDeprecated,
@@ -735,6 +754,24 @@ public class CommandLineImporter {
                 config.checkUpgrade.set(false);
                 break;
             }
+            case 25: {
+                String arg = g.getOptarg();
+                log.info("Setting parallel upload to {}", arg);
+                config.parallelUpload.set(Integer.parseInt(arg));
+                break;
+            }
+            case 26: {
+                String arg = g.getOptarg();
+                log.info("Setting parallel fileset to {}", arg);
+                config.parallelFileset.set(Integer.parseInt(arg));
+                break;
+            }
+            case 27: {
+                String arg = g.getOptarg();
+                log.info("Setting parallel scan to {}", arg);
+                config.parallelScan.set(Integer.parseInt(arg));
+                break;
+            }
             // ADVANCED END ---------------------------------------------------
             // DEPRECATED OPTIONS
             case 90: {
@@ -19,12 +19,20 @@
 
 package ome.formats.importer.exclusions;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
 import ome.formats.importer.transfers.AbstractFileTransfer.Transfers;
 import ome.formats.importer.transfers.FileTransfer;
 import ome.services.blitz.util.ChecksumAlgorithmMapper;
 import ome.util.checksum.ChecksumProvider;
 import ome.util.checksum.ChecksumProviderFactory;
 import ome.util.checksum.ChecksumProviderFactoryImpl;
+import ome.util.checksum.ChecksumType;
+import ome.util.checksum.CompositeChecksumProviderImpl;
 import omero.model.ChecksumAlgorithm;
 
 import org.slf4j.Logger;
@@ -83,4 +91,27 @@ public abstract class AbstractFileExclusion implements FileExclusion {
         return cp.checksumAsString();
     }
 
+    /**
+     * Calculates the checksums of the file for each of the given algorithms
+     * from a single reading of the file.
+     * @param filename the file to checksum
+     * @param checksumAlgorithms the algorithms, possibly repeated
+     * @return the checksum for each distinct type of the algorithms
+     */
+    protected Map<ChecksumType, String> checksums(String filename,
+            Collection<ChecksumAlgorithm> checksumAlgorithms) {
+        final Set<ChecksumType> types = new LinkedHashSet<ChecksumType>();
+        for (final ChecksumAlgorithm checksumAlgorithm : checksumAlgorithms) {
+            types.add(ChecksumAlgorithmMapper.getChecksumType(checksumAlgorithm));
+        }
+        if (types.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final CompositeChecksumProviderImpl cp = new CompositeChecksumProviderImpl(
+                new ChecksumProviderFactoryImpl(),
+                types.toArray(new ChecksumType[types.size()]));
+        cp.putFile(filename);
+        return cp.checksumsAsStrings();
+    }
+
 }
@@ -21,9 +21,13 @@ package ome.formats.importer.exclusions;
 
 import static omero.rtypes.rstring;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import ome.formats.importer.ImportContainer;
+import ome.services.blitz.util.ChecksumAlgorithmMapper;
+import ome.util.checksum.ChecksumType;
 import omero.ServerError;
 import omero.api.IQueryPrx;
 import omero.api.ServiceFactoryPrx;
@@ -57,6 +61,16 @@ public class FilenameExclusion extends AbstractFileExclusion {
                 + "join fetch o.hasher "
                 + "where o.name = :name",
                 new ParametersI().add("name", rstring(filename)));
+       /* hash the file once for the algorithms of all the files compared */
+       final List<ChecksumAlgorithm> algos = new ArrayList<ChecksumAlgorithm>();
+       for (IObject obj : files) {
+           OriginalFile ofile = (OriginalFile) obj;
+           if (ofile.getHasher() == null || ofile.getHash() == null) {
+               break;
+           }
+           algos.add(ofile.getHasher());
+       }
+       final Map<ChecksumType, String> checksums = checksums(fullpath, algos);
        for (IObject obj : files) {
            OriginalFile ofile = (OriginalFile) obj;
            log.debug("Found original file: {}", ofile.getId().getValue());
@@ -69,7 +83,8 @@ public class FilenameExclusion extends AbstractFileExclusion {
                log.debug("No hash: no vote");
                return null;
            } else {
-               String checksum = checksum(fullpath, algo);
+               String checksum = checksums.get(
+                       ChecksumAlgorithmMapper.getChecksumType(algo));
                if (checksum == null) {
                    log.debug("Null checksum: no vote");
                } else {
@@ -22,7 +22,14 @@ package ome.formats.importer.transfers;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import ome.util.checksum.ChecksumProvider;
 import omero.ServerError;
@@ -30,18 +37,71 @@ import omero.api.RawFileStorePrx;
 
 import org.apache.commons.lang.ArrayUtils;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+
 /**
  * Traditional file transfer mechanism which uploads
  * files using the API. This is done by reading from
  * {@link TransferState#getFile()} into {@link TransferState#getBuffer()}
  * and then {@link RawFileStorePrx#write(byte[], long, int) writing} to the
- * server. <em>Not thread safe</em>
+ * server. Each {@link TransferState} should have its own buffer, in
+ * which case several files may be transferred at once.
+ * <p>
+ * If {@link #setPipelined(boolean) pipelined}, each write is made on a
+ * separate thread while the next block is read and added to the checksum.
+ * A file never has more than one write in flight: its
+ * {@link RawFileStorePrx} is stateful and the server serves each service
+ * one call at a time, in the order of the file's offsets.
+ * </p>
  *
  * @since 5.0
  */
 public class UploadFileTransfer extends AbstractFileTransfer {
 
+    /**
+     * Threads shared by all transfers for making the writes of pipelined
+     * transfers. Daemon threads, so as not to keep an importer from exiting.
+     */
+    private static final ExecutorService writers =
+            Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                    .setDaemon(true).setNameFormat("upload-write-%d").build());
+
+    /** Writes a block of a file. */
+    private static class Write implements Callable<Void> {
+        final RawFileStorePrx rawFileStore;
+        final byte[] buf;
+        final long offset;
+        final int length;
+
+        Write(RawFileStorePrx rawFileStore, byte[] buf, long offset, int length) {
+            this.rawFileStore = rawFileStore;
+            this.buf = buf;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public Void call() throws ServerError {
+            rawFileStore.write(buf, offset, length);
+            return null;
+        }
+    }
+
+    private volatile boolean pipelined = false;
+
+    /**
+     * Set if each write should overlap with reading the next block. The
+     * default of <code>false</code> reads and writes each block in turn.
+     * @param pipelined if writes are made on a separate thread
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
     public String transfer(TransferState state) throws IOException, ServerError {
+        if (pipelined) {
+            return pipelinedTransfer(state);
+        }
 
         final RawFileStorePrx rawFileStore = start(state);
         final File file = state.getFile();
@@ -88,6 +148,95 @@ public class UploadFileTransfer extends AbstractFileTransfer {
         }
     }
 
+    /**
+     * Transfers the file with its current write made on one of the
+     * {@link #writers} while the next block is read into a second buffer.
+     * The next write is only started once the current one has returned.
+     */
+    private String pipelinedTransfer(TransferState state)
+            throws IOException, ServerError {
+
+        final RawFileStorePrx rawFileStore = start(state);
+        final File file = state.getFile();
+        final ChecksumProvider cp = state.getChecksumProvider();
+        byte[] buf = state.getBuffer();
+        byte[] spare = new byte[buf.length];
+        Future<Void> write = null;
+
+        FileInputStream stream = null;
+
+        try {
+            stream = new FileInputStream(file);
+            long offset = 0;
+
+            state.uploadStarted();
+
+            // "touch" the file otherwise zero-length files
+            rawFileStore.write(ArrayUtils.EMPTY_BYTE_ARRAY, offset, 0);
+            state.stop();
+            state.uploadBytes(offset);
+
+            while (true) {
+                state.start();
+                final int rlen = stream.read(buf);
+                if (rlen == -1) {
+                    break;
+                }
+                cp.putBytes(buf, 0, rlen);
+                final byte[] bufferToWrite;
+                if (rlen < buf.length) {
+                    bufferToWrite = Arrays.copyOf(buf, rlen);
+                } else {
+                    bufferToWrite = buf;
+                }
+                if (write != null) {
+                    write.get();
+                    state.uploadBytes(offset);
+                }
+                write = writers.submit(
+                        new Write(rawFileStore, bufferToWrite, offset, rlen));
+                offset += rlen;
+                state.stop(rlen);
+                // the buffer being written is read into again next time
+                final byte[] written = buf;
+                buf = spare;
+                spare = written;
+            }
+            if (write != null) {
+                final Future<Void> last = write;
+                write = null;
+                last.get();
+            }
+            state.uploadBytes(offset);
+
+            return finish(state, offset);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while uploading " + file);
+        } catch (ExecutionException e) {
+            write = null;
+            final Throwable cause = e.getCause();
+            if (cause instanceof ServerError) {
+                throw (ServerError) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            if (write != null) {
+                // the store must not be closed during its write
+                try {
+                    Uninterruptibles.getUninterruptibly(write);
+                } catch (ExecutionException e) {
+                    log.debug("write failed during failed upload", e.getCause());
+                }
+            }
+            cleanupUpload(rawFileStore, stream);
+        }
+    }
+
     /**
      * Since the {@link RawFileStorePrx} instances are cleaned up after each
      * transfer, there's no need to cleanup per {@link File}.
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.HashMap;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 
 import org.slf4j.Logger;
@@ -37,7 +38,10 @@ import ome.services.blitz.impl.AbstractCloseableAmdServant;
 import ome.services.blitz.impl.ServiceFactoryI;
 import ome.services.blitz.repo.PublicRepositoryI.AMD_submit;
 import ome.services.blitz.repo.path.FsFile;
+import ome.services.blitz.util.ChecksumAlgorithmMapper;
 import ome.services.blitz.util.ServiceFactoryAware;
+import ome.util.checksum.ChecksumProvider;
+import ome.util.checksum.ChecksumType;
 
 import omero.ServerError;
 import omero.api.RawFileStorePrx;
@@ -69,17 +73,73 @@ public class ManagedImportProcessI extends AbstractCloseableAmdServant
         final RawFileStorePrx prx;
         /** Next byte which should be written */
         long offset = 0;
+        /**
+         * Checksum of the bytes written so far, or null if no checksum
+         * algorithm was negotiated or a write did not follow on from the
+         * previous one.
+         */
+        private ChecksumProvider checksum;
+        /** Number of bytes passed to {@link #checksum} */
+        private long hashed = 0;
+        /** The checksum of the first {@link #hashed} bytes once closed */
+        private String hash;
 
         UploadState(RawFileStorePrx prx) {
+            this(prx, null);
+        }
+
+        UploadState(RawFileStorePrx prx, ChecksumProvider checksum) {
             if (prx == null) {
                 throw new RuntimeException("Null not allowed!");
             }
             this.prx = prx;
+            this.checksum = checksum;
         }
 
         void setOffset(long offset) {
             this.offset = offset;
         }
+
+        /**
+         * Records a successful write, adding its bytes to the checksum if
+         * they immediately follow those already hashed. Any other write
+         * abandons the checksum so that the file is re-read on verification.
+         */
+        synchronized void written(byte[] buf, long position, long length) {
+            setOffset(position + length);
+            if (checksum == null) {
+                return;
+            }
+            if (position != hashed) {
+                log.debug(String.format("write at %s after %s bytes hashed," +
+                        " will re-read for checksum", position, hashed));
+                checksum = null;
+                return;
+            }
+            checksum.putBytes(buf, 0, (int) length);
+            hashed += length;
+        }
+
+        /**
+         * Completes the checksum, if any, once no more bytes will be written.
+         * @return if a checksum of the first {@link #getHashedLength()} bytes
+         * of the file is available from {@link #getHash()}
+         */
+        synchronized boolean closed() {
+            if (checksum != null) {
+                hash = checksum.checksumAsString();
+                checksum = null;
+            }
+            return hash != null;
+        }
+
+        synchronized String getHash() {
+            return hash;
+        }
+
+        synchronized long getHashedLength() {
+            return hashed;
+        }
     }
 
     /**
@@ -132,6 +192,16 @@ public class ManagedImportProcessI extends AbstractCloseableAmdServant
      */
     private final Cache<Integer, UploadState> uploaders = CacheBuilder.newBuilder().build();
 
+    /**
+     * The closed {@link UploadState} instances whose checksum was calculated
+     * from the bytes as they were written. Entries are removed whenever a
+     * new uploader is opened for the same file so that
+     * {@link #verifyUpload(List, Current)} only relies upon the checksum of
+     * the last completed upload.
+     */
+    private final Map<Integer, UploadState> hashedUploads =
+            new ConcurrentHashMap<Integer, UploadState>();
+
     /**
      * Handle which is the initial first step of import.
      */
@@ -221,6 +291,7 @@ public class ManagedImportProcessI extends AbstractCloseableAmdServant
             @Override
             public UploadState call() throws ServerError {
                 final String path = location.sharedPath + FsFile.separatorChar + location.usedFiles.get(i);
+                hashedUploads.remove(i);
                 final RawFileStorePrx prx = repo.file(path, applicableMode, ManagedImportProcessI.this.current);
                 try {
                     registerCallback(prx, i);
@@ -232,7 +303,7 @@ public class ManagedImportProcessI extends AbstractCloseableAmdServant
                     }
                     throw re;
                 }
-                return new UploadState(prx);
+                return new UploadState(prx, newChecksumProvider());
             }
         };
 
@@ -248,6 +319,22 @@ public class ManagedImportProcessI extends AbstractCloseableAmdServant
         }
     }
 
+    /**
+     * @return a provider for the checksum algorithm of the import settings,
+     * or null if there is none
+     */
+    private ChecksumProvider newChecksumProvider() {
+        if (settings.checksumAlgorithm == null) {
+            return null;
+        }
+        final ChecksumType type =
+                ChecksumAlgorithmMapper.getChecksumType(settings.checksumAlgorithm);
+        if (type == null) {
+            return null;
+        }
+        return repo.checksumProviderFactory.getProvider(type);
+    }
+
     protected void registerCallback(RawFileStorePrx prx, final int idx) {
         Object servant = this.sf.getServant(prx.ice_getIdentity());
         if (servant instanceof Advised) {
@@ -264,7 +351,7 @@ public class ManagedImportProcessI extends AbstractCloseableAmdServant
 
             @Override
             public void onWrite(byte[] buf, long position, long length) {
-                proc.setOffset(idx, position+length);
+                proc.written(idx, buf, position, length);
             }
 
             /**
@@ -297,7 +384,13 @@ public class ManagedImportProcessI extends AbstractCloseableAmdServant
             String usedFile = location.sharedPath + FsFile.separatorChar + location.usedFiles.get(i);
             CheckedPath cp = repo.checkPath(usedFile, settings.checksumAlgorithm, this.current);
             final String clientHash = hashes.get(i);
-            final String serverHash = cp.hash();
+            final UploadState hashed = hashedUploads.get(i);
+            final String serverHash;
+            if (hashed != null && hashed.getHashedLength() == cp.size()) {
+                serverHash = hashed.getHash();
+            } else {
+                serverHash = cp.hash();
+            }
             if (!clientHash.equals(serverHash)) {
                 failingChecksums.put(i, serverHash);
             }
@@ -367,12 +460,29 @@ public class ManagedImportProcessI extends AbstractCloseableAmdServant
         }
     }
 
+    /**
+     * Records a successful write to the given uploader, both its new offset
+     * and, if written in order, its bytes for the checksum of the file.
+     */
+    public void written(int idx, byte[] buf, long position, long length) {
+        final UploadState state = uploaders.getIfPresent(idx);
+        if (state == null) {
+            log.warn(String.format("written(%s, %s) - no such object", idx, position));
+        } else {
+            state.written(buf, position, length);
+            log.debug(String.format("written(%s, %s, %s) successfully", idx, position, length));
+        }
+    }
+
     public void closeCalled(int idx) {
         final UploadState state = uploaders.getIfPresent(idx);
         if (state == null) {
             log.warn(String.format("closeCalled(%s) - no such object", idx));
         } else {
             uploaders.invalidate(idx);
+            if (state.closed()) {
+                hashedUploads.put(idx, state);
+            }
             log.debug(String.format("closeCalled(%s) successfully", idx));
         }
     }
@@ -59,6 +59,7 @@ import ome.util.checksum.ChecksumProvider;
 import ome.util.checksum.ChecksumProviderFactory;
 import ome.util.checksum.ChecksumProviderFactoryImpl;
 import ome.util.checksum.ChecksumType;
+import ome.util.checksum.CompositeChecksumProviderImpl;
 import omero.ResourceError;
 import omero.ServerError;
 import omero.grid.ImportLocation;
@@ -382,7 +383,7 @@ public class ManagedRepositoryI extends PublicRepositoryI
             /* check the file's existing hasher */
             final ome.model.enums.ChecksumAlgorithm fromHasher = file.getHasher();
             final String fromHash = file.getHash();
-            ChecksumProvider fromProvider = null;
+            ChecksumType fromType = null;
             if (fromHasher != null && fromHash != null) {
                 /* already has a valid hash */
                 if (toHasherName.equals(fromHasher.getValue())) {
@@ -390,19 +391,17 @@ public class ManagedRepositoryI extends PublicRepositoryI
                     continue;
                 } else {
                     /* hashed with a different hasher */
-                    fromProvider = checksumProviderFactory.getProvider(ChecksumAlgorithmMapper.getChecksumType(fromHasher));
+                    fromType = ChecksumAlgorithmMapper.getChecksumType(fromHasher);
                 }
             }
-            /* find the new hash */
-            final ChecksumProvider toProvider = checksumProviderFactory.getProvider(toType);
-            toProvider.putFile(osPath);
-            final String toHash = toProvider.checksumAsString();
-            if (fromProvider != null) {
-                /* check old hash after new one is calculated */
-                fromProvider.putFile(osPath);
-                if (!fromProvider.checksumAsString().equals(fromHash)) {
-                    throw new ServerError(null, null, "hash mismatch on file ID " + id);
-                }
+            /* find the new hash, and the old one to check, from one reading of the file */
+            final CompositeChecksumProviderImpl provider = fromType == null
+                    ? new CompositeChecksumProviderImpl(checksumProviderFactory, toType)
+                    : new CompositeChecksumProviderImpl(checksumProviderFactory, toType, fromType);
+            provider.putFile(osPath);
+            final String toHash = provider.checksumAsString();
+            if (fromType != null && !provider.checksumAsString(fromType).equals(fromHash)) {
+                throw new ServerError(null, null, "hash mismatch on file ID " + id);
             }
             /* update the file's checksum */
             file.setHasher(toHasher);
@@ -9,7 +9,10 @@ package ome.formats.utests;
 import java.io.File;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import junit.framework.TestCase;
 import ome.formats.OMEROMetadataStoreClient;
@@ -107,6 +110,65 @@ public class ImportCandidatesTest extends TestCase {
         assertTrue(c.wasCancelled());
     }
 
+    /**
+     * Scans a directory in which some files use others, returning the
+     * paths of the containers and their used files.
+     */
+    private List<String> scan(File dir, final Map<String, String[]> uses,
+            int threads) {
+        c = new ImportCandidates(ImportCandidates.DEPTH, w,
+                new String[] { dir.getAbsolutePath() }, o, threads) {
+            @Override
+            protected ImportContainer singleFile(File file, ImportConfig config) {
+                String[] used = uses.get(file.getName());
+                if (used == null) {
+                    return null;
+                }
+                String[] paths = new String[used.length];
+                for (int i = 0; i < used.length; i++) {
+                    paths[i] = new File(file.getParentFile(), used[i]).getAbsolutePath();
+                }
+                ImportContainer ic = container(paths);
+                ic.setFile(file);
+                return ic;
+            }
+        };
+        List<String> found = new ArrayList<String>();
+        for (ImportContainer ic : c.getContainers()) {
+            found.add(ic.getFile().getName() + Arrays.toString(ic.getUsedFiles()));
+        }
+        return found;
+    }
+
+    @Test
+    public void testParallelScanMatchesSequential() throws Exception {
+        File dir = File.createTempFile("scan", "");
+        dir.delete();
+        dir.mkdir();
+        Map<String, String[]> uses = new HashMap<String, String[]>();
+        for (int i = 0; i < 40; i++) {
+            new File(dir, i + ".tiff").createNewFile();
+            new File(dir, i + ".log").createNewFile();
+            // every third image also claims the next image
+            if (i % 3 == 0) {
+                uses.put(i + ".tiff", new String[] { i + ".tiff", i + ".log", (i + 1) + ".tiff" });
+            } else {
+                uses.put(i + ".tiff", new String[] { i + ".tiff", i + ".log" });
+            }
+            uses.put(i + ".log", new String[] { i + ".log" });
+        }
+        try {
+            List<String> expected = scan(dir, uses, 1);
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, scan(dir, uses, 4));
+        } finally {
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
     @Test
     public void testOrderedReturns() {
         c = new ImportCandidates(w, new String[]{"a","b"}, o) {
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * Use is subject to license terms supplied in LICENSE.txt
+ */
+package ome.formats.utests;
+
+import static omero.rtypes.rlong;
+import static omero.rtypes.rstring;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import ome.formats.importer.transfers.TransferState;
+import ome.formats.importer.transfers.UploadFileTransfer;
+import ome.formats.importer.util.ProportionalTimeEstimatorImpl;
+import ome.util.checksum.ChecksumProviderFactory;
+import ome.util.checksum.ChecksumProviderFactoryImpl;
+import ome.util.checksum.ChecksumType;
+import omero.ServerError;
+import omero.api.RawFileStorePrx;
+import omero.model.OriginalFile;
+import omero.model.OriginalFileI;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.Test;
+
+/**
+ * Checks that a pipelined {@link UploadFileTransfer} writes each file in
+ * order with at most one write in flight on its {@link RawFileStorePrx}.
+ *
+ * @since 5.2.3
+ */
+public class UploadFileTransferTest extends TestCase {
+
+    private static final int BLOCK = 1024;
+
+    private final ChecksumProviderFactory cpf = new ChecksumProviderFactoryImpl();
+
+    /** Records the writes made to a stateful store. */
+    private static class Store implements InvocationHandler {
+
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+        final AtomicInteger inFlight = new AtomicInteger();
+
+        volatile String failure;
+
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            final String name = method.getName();
+            if ("write".equals(name)) {
+                if (inFlight.incrementAndGet() > 1) {
+                    failure = "concurrent write";
+                }
+                try {
+                    final byte[] buf = (byte[]) args[0];
+                    final long offset = (Long) args[1];
+                    final int length = (Integer) args[2];
+                    if (offset != written.size()) {
+                        failure = "write at " + offset + " after "
+                                + written.size() + " bytes";
+                    }
+                    // give a following write the chance to overlap
+                    Thread.sleep(1);
+                    written.write(buf, 0, length);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+                return null;
+            } else if ("save".equals(name)) {
+                OriginalFile ofile = new OriginalFileI();
+                ofile.setId(rlong(1L));
+                ofile.setPath(rstring("/"));
+                ofile.setName(rstring("upload"));
+                ofile.setHash(rstring(""));
+                return ofile;
+            } else if ("toString".equals(name)) {
+                return "Store";
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            } else if ("equals".equals(name)) {
+                return proxy == args[0];
+            }
+            return null;
+        }
+    }
+
+    private TransferState state(File file, final RawFileStorePrx prx)
+            throws Exception {
+        return new TransferState(file, 0, 1, null, null,
+                new ProportionalTimeEstimatorImpl(file.length()),
+                cpf.getProvider(ChecksumType.SHA1), new byte[BLOCK]) {
+            @Override
+            public RawFileStorePrx getUploader(String mode) {
+                return prx;
+            }
+            @Override
+            public void uploadStarted() {
+            }
+            @Override
+            public void uploadBytes(long offset) {
+            }
+            @Override
+            public void uploadComplete(long offset) {
+            }
+        };
+    }
+
+    private String upload(File file, Store store, boolean pipelined)
+            throws Exception {
+        RawFileStorePrx prx = (RawFileStorePrx) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class[] { RawFileStorePrx.class }, store);
+        UploadFileTransfer transfer = new UploadFileTransfer();
+        transfer.setPipelined(pipelined);
+        return transfer.transfer(state(file, prx));
+    }
+
+    private File file(int length) throws Exception {
+        File file = File.createTempFile("UploadFileTransferTest", ".bin");
+        file.deleteOnExit();
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        FileUtils.writeByteArrayToFile(file, data);
+        return file;
+    }
+
+    private void assertUploaded(File file, Store store, String checksum)
+            throws Exception {
+        assertNull(store.failure, store.failure);
+        assertTrue(Arrays.equals(FileUtils.readFileToByteArray(file),
+                store.written.toByteArray()));
+        assertEquals(cpf.getProvider(ChecksumType.SHA1)
+                .putFile(file.getAbsolutePath()).checksumAsString(), checksum);
+    }
+
+    @Test
+    public void testPipelinedWritesInOrderOneAtATime() throws Exception {
+        File file = file(20 * BLOCK + 100);
+        Store store = new Store();
+        String checksum = upload(file, store, true);
+        assertUploaded(file, store, checksum);
+    }
+
+    @Test
+    public void testPipelinedWholeBlocks() throws Exception {
+        File file = file(3 * BLOCK);
+        Store store = new Store();
+        String checksum = upload(file, store, true);
+        assertUploaded(file, store, checksum);
+    }
+
+    @Test
+    public void testPipelinedEmptyFile() throws Exception {
+        File file = file(0);
+        Store store = new Store();
+        String checksum = upload(file, store, true);
+        assertUploaded(file, store, checksum);
+    }
+
+    @Test
+    public void testPipelinedMatchesBlocking() throws Exception {
+        File file = file(5 * BLOCK + 1);
+        Store pipelined = new Store();
+        Store blocking = new Store();
+        assertEquals(upload(file, blocking, false),
+                upload(file, pipelined, true));
+        assertTrue(Arrays.equals(blocking.written.toByteArray(),
+                pipelined.written.toByteArray()));
+    }
+
+    @Test
+    public void testPipelinedWriteFailureIsThrown() throws Exception {
+        File file = file(4 * BLOCK);
+        Store store = new Store() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args)
+                    throws Throwable {
+                if ("write".equals(method.getName())
+                        && ((Long) args[1]) == 2 * BLOCK) {
+                    throw new ServerError();
+                }
+                return super.invoke(proxy, method, args);
+            }
+        };
+        try {
+            upload(file, store, true);
+            fail("expected ServerError");
+        } catch (ServerError e) {
+            // expected
+        }
+        assertEquals(2 * BLOCK, store.written.size());
+        assertNull(store.failure, store.failure);
+    }
+}
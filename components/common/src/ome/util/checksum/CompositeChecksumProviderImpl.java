@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package ome.util.checksum;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+
+/**
+ * Checksum provider which calculates the checksums of several algorithms
+ * from a single pass over the data. The methods of {@link ChecksumProvider}
+ * return the checksum of the first of the given types, the others are
+ * available from {@link #checksumAsString(ChecksumType)} and
+ * {@link #checksumsAsStrings()}.
+ *
+ * Unlike the single algorithm providers, this provider accepts direct and
+ * memory-mapped {@link ByteBuffer}s, and reads files through a chunked
+ * memory mapping so that each file is read only once whatever the number of
+ * algorithms.
+ *
+ * @since 5.2.3
+ */
+public class CompositeChecksumProviderImpl implements ChecksumProvider {
+
+    /** The size of the regions of a file which are mapped in turn. */
+    static final int MAP_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    /** The size of the array through which non-array buffers are copied. */
+    private static final int COPY_SIZE = 64 * 1024;
+
+    private final ChecksumProviderFactory factory;
+
+    private final List<ChecksumType> types;
+
+    private ChecksumProvider[] providers;
+
+    /** The size of the regions mapped by {@link #putFile(String)}. */
+    int mapChunkSize = MAP_CHUNK_SIZE;
+
+    private byte[] copyBuffer;
+
+    private Map<ChecksumType, HashCode> checksums;
+
+    /**
+     * Create a provider for the given checksum types.
+     * @param factory the source of a provider for each of the types
+     * @param types the checksum types to calculate, the first of which is
+     * returned by {@link #checksumAsBytes()} and {@link #checksumAsString()}
+     */
+    public CompositeChecksumProviderImpl(ChecksumProviderFactory factory,
+            ChecksumType... types) {
+        if (types.length == 0) {
+            throw new IllegalArgumentException("no checksum types given");
+        }
+        this.factory = factory;
+        this.types = ImmutableList.copyOf(types);
+        this.providers = newProviders();
+    }
+
+    private ChecksumProvider[] newProviders() {
+        final ChecksumProvider[] newProviders = new ChecksumProvider[types.size()];
+        for (int i = 0; i < newProviders.length; i++) {
+            newProviders[i] = factory.getProvider(types.get(i));
+        }
+        return newProviders;
+    }
+
+    /**
+     * @return the checksum types which this provider calculates
+     */
+    public List<ChecksumType> getTypes() {
+        return types;
+    }
+
+    /**
+     * @see ChecksumProvider#putBytes(byte[])
+     */
+    public ChecksumProvider putBytes(byte[] byteArray) {
+        return this.putBytes(byteArray, 0, byteArray.length);
+    }
+
+    /**
+     * @see ChecksumProvider#putBytes(byte[], int, int)
+     */
+    public ChecksumProvider putBytes(byte[] byteArray, int offset, int length) {
+        this.verifyState();
+        if (offset < 0 || length < 0 || offset + length > byteArray.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (length == 0) {
+            return this;
+        }
+        for (final ChecksumProvider provider : providers) {
+            provider.putBytes(byteArray, offset, length);
+        }
+        return this;
+    }
+
+    /**
+     * Updates the checksums with the bytes from the position to the limit of
+     * the given buffer, which may be direct or memory-mapped. The position of
+     * the buffer is not changed.
+     * @see ChecksumProvider#putBytes(ByteBuffer)
+     */
+    public ChecksumProvider putBytes(ByteBuffer byteBuffer) {
+        this.verifyState();
+        if (byteBuffer.hasArray()) {
+            this.putBytes(byteBuffer.array(),
+                    byteBuffer.arrayOffset() + byteBuffer.position(),
+                    byteBuffer.remaining());
+        } else {
+            final ByteBuffer source = byteBuffer.duplicate();
+            if (copyBuffer == null) {
+                copyBuffer = new byte[COPY_SIZE];
+            }
+            while (source.hasRemaining()) {
+                final int length = Math.min(copyBuffer.length, source.remaining());
+                source.get(copyBuffer, 0, length);
+                for (final ChecksumProvider provider : providers) {
+                    provider.putBytes(copyBuffer, 0, length);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Calculates the checksums of the file, reading it once through
+     * memory-mapped regions of at most {@link #MAP_CHUNK_SIZE} bytes.
+     * Input previous to this method does not affect the calculated checksums.
+     * @see ChecksumProvider#putFile(String)
+     */
+    public ChecksumProvider putFile(String filePath) {
+        this.verifyState();
+        this.providers = newProviders();
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(filePath, "r");
+            final FileChannel channel = file.getChannel();
+            final long size = channel.size();
+            for (long position = 0; position < size; position += mapChunkSize) {
+                final long length = Math.min(mapChunkSize, size - position);
+                this.putBytes(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+            }
+            return this;
+        } catch (IOException io) {
+            throw new RuntimeException(io);
+        } finally {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException io) {
+                    // already read
+                }
+            }
+        }
+    }
+
+    /**
+     * @see ChecksumProvider#checksumAsBytes()
+     */
+    public byte[] checksumAsBytes() {
+        return this.pickChecksums().get(types.get(0)).asBytes();
+    }
+
+    /**
+     * @see ChecksumProvider#checksumAsString()
+     */
+    public String checksumAsString() {
+        return this.checksumAsString(types.get(0));
+    }
+
+    /**
+     * Returns the checksum of the given type in hex form. After calling this
+     * method any invocation of the mutating methods (<code>put*</code>) will
+     * cause it to throw IllegalStateException.
+     * @param type one of the types passed to the constructor
+     * @return the checksum of the given type
+     */
+    public String checksumAsString(ChecksumType type) {
+        final HashCode checksum = this.pickChecksums().get(type);
+        if (checksum == null) {
+            throw new IllegalArgumentException("checksum type not calculated: " + type);
+        }
+        return checksum.toString();
+    }
+
+    /**
+     * Returns all the checksums in hex form, in the order of the types given
+     * to the constructor. After calling this method any invocation of the
+     * mutating methods (<code>put*</code>) will cause it to throw
+     * IllegalStateException.
+     * @return the checksum of each type
+     */
+    public Map<ChecksumType, String> checksumsAsStrings() {
+        final Map<ChecksumType, String> strings = new LinkedHashMap<ChecksumType, String>();
+        for (final Map.Entry<ChecksumType, HashCode> checksum : this.pickChecksums().entrySet()) {
+            strings.put(checksum.getKey(), checksum.getValue().toString());
+        }
+        return strings;
+    }
+
+    private Map<ChecksumType, HashCode> pickChecksums() {
+        if (checksums == null) {
+            checksums = new LinkedHashMap<ChecksumType, HashCode>();
+            for (int i = 0; i < providers.length; i++) {
+                /* each provider may only complete its checksum once */
+                checksums.put(types.get(i), HashCode.fromBytes(providers[i].checksumAsBytes()));
+            }
+        }
+        return checksums;
+    }
+
+    private void verifyState() {
+        if (checksums != null) {
+            throw new IllegalStateException("Checksum state already set. " +
+                    "Mutation illegal.");
+        }
+    }
+}
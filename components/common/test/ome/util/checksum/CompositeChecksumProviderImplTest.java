@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package ome.util.checksum;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import org.springframework.util.ResourceUtils;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for the {@link CompositeChecksumProviderImpl} class, comparing
+ * its checksums with those of the single algorithm providers.
+ *
+ * @since 5.2.3
+ */
+public class CompositeChecksumProviderImplTest {
+
+    private static final ChecksumType[] TYPES = new ChecksumType[] {
+        ChecksumType.SHA1, ChecksumType.MURMUR128, ChecksumType.FILE_SIZE };
+
+    private final ChecksumProviderFactory cpf = new ChecksumProviderFactoryImpl();
+
+    private CompositeChecksumProviderImpl composite;
+
+    @BeforeMethod
+    public void setUp() {
+        this.composite = new CompositeChecksumProviderImpl(this.cpf, TYPES);
+    }
+
+    private void assertChecksums(byte[] expected) {
+        final Map<ChecksumType, String> actual = this.composite.checksumsAsStrings();
+        Assert.assertEquals(actual.size(), TYPES.length);
+        for (final ChecksumType type : TYPES) {
+            Assert.assertEquals(actual.get(type),
+                    this.cpf.getProvider(type).putBytes(expected).checksumAsString());
+        }
+        Assert.assertEquals(this.composite.checksumAsString(), actual.get(TYPES[0]));
+    }
+
+    @Test
+    public void testPutBytesWithByteArrays() {
+        this.composite.putBytes("defab".getBytes(), 3, 2).putBytes("c".getBytes());
+        assertChecksums("abc".getBytes());
+    }
+
+    @Test
+    public void testPutBytesWithDirectByteBuffer() {
+        final byte[] data = new byte[200 * 1024 + 7];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        final ByteBuffer direct = ByteBuffer.allocateDirect(data.length + 5);
+        direct.put(new byte[5]).put(data).position(5);
+        this.composite.putBytes(direct);
+        Assert.assertEquals(direct.position(), 5);
+        assertChecksums(data);
+    }
+
+    @Test
+    public void testPutBytesWithEmptyArray() {
+        this.composite.putBytes(new byte[0]);
+        assertChecksums(new byte[0]);
+    }
+
+    @Test
+    public void testPutFileInChunks() throws FileNotFoundException {
+        final File file = ResourceUtils.getFile("classpath:test.bmp");
+        this.composite.mapChunkSize = 1000;
+        final String expected = this.cpf.getProvider(ChecksumType.SHA1)
+                .putFile(file.getAbsolutePath()).checksumAsString();
+        final Map<ChecksumType, String> actual = this.composite
+                .putBytes("ignored".getBytes())
+                .putFile(file.getAbsolutePath())
+                .checksumsAsStrings();
+        Assert.assertEquals(actual.get(ChecksumType.SHA1), expected);
+        Assert.assertEquals(actual.get(ChecksumType.MURMUR128),
+                this.cpf.getProvider(ChecksumType.MURMUR128)
+                .putFile(file.getAbsolutePath()).checksumAsString());
+        Assert.assertEquals(actual.get(ChecksumType.FILE_SIZE),
+                this.cpf.getProvider(ChecksumType.FILE_SIZE)
+                .putFile(file.getAbsolutePath()).checksumAsString());
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testPutBytesAfterChecksumShouldThrowISE() {
+        this.composite.checksumAsString(ChecksumType.MURMUR128);
+        this.composite.putBytes("abc".getBytes());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testChecksumOfOtherTypeShouldThrowIAE() {
+        this.composite.checksumAsString(ChecksumType.MD5);
+    }
+}
@@ -10,6 +10,7 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -432,6 +433,17 @@ public interface SqlAction {
 
     void insertLogs(List<Object[]> batchData);
 
+    /**
+     * Inserts a new row into the event table, looking up the event type by
+     * its value. Used to write an {@link ome.model.meta.Event} whose id was
+     * handed out earlier without going through Hibernate.
+     *
+     * @return the number of rows inserted, which will be zero if no event
+     *         type has the given value.
+     */
+    int insertEvent(long id, long permissions, Timestamp time,
+            long experimenterId, long groupId, Long sessionId, String type);
+
     List<Map<String, Object>> roiByImage(final long imageId);
 
     List<Long> getShapeIds(long roiId);
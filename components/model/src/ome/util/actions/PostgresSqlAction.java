@@ -8,6 +8,7 @@ package ome.util.actions;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
@@ -233,6 +234,12 @@ public class PostgresSqlAction extends SqlAction.Impl {
         _jdbc().batchUpdate(_lookup("insert_logs"), batchData); //$NON-NLS-1$
     }
 
+    public int insertEvent(long id, long permissions, Timestamp time,
+            long experimenterId, long groupId, Long sessionId, String type) {
+        return _jdbc().update(_lookup("insert_event"), //$NON-NLS-1$
+                id, permissions, time, experimenterId, groupId, sessionId, type);
+    }
+
     public List<Map<String, Object>> roiByImage(final long imageId) {
         String queryString;
         queryString = _lookup("roi_by_image"); //$NON-NLS-1$
@@ -13,9 +13,12 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,9 +45,12 @@ import omeis.providers.re.quantum.QuantumStrategy;
  * each wavelength is mapped to a color. All these things are specified by the
  * rendering context.
  * <p>
- * This strategy renders the in "regions", dividing the planar data up based
- * on {@link #maxTasks} and assigning each task to its own thread. This should
- * result in parallel rendering on multi-processor machines.
+ * This strategy renders the in "regions", dividing the planar data up into
+ * row bands based on {@link #maxTasks} and the size of the plane. One band is
+ * rendered by the calling thread, the others are handed to the executor of
+ * the {@link Renderer} or, if none was configured, to a bounded pool shared
+ * by all the strategies of the JVM. This should result in parallel rendering
+ * on multi-processor machines without creating threads per plane.
  * </p>
  * <p>
  * Thread-safety relies on the fact that the rendering context is not going to
@@ -66,20 +72,59 @@ class HSBStrategy extends RenderingStrategy {
     /** The logger for this particular class */
     private static Logger log = LoggerFactory.getLogger(HSBStrategy.class);
     
+    /**
+     * The minimum number of pixels a rendering task should work on. Splitting
+     * smaller planes costs more in hand-off than it saves in rendering.
+     */
+    private static final int MIN_PIXELS_PER_TASK = 128 * 128;
+
+    /**
+     * Lazily initialized holder of the pool used when the renderer has not
+     * been configured with an executor.
+     */
+    private static class DefaultExecutorHolder {
+
+        /** Counter used to name the threads of the pool. */
+        private static final AtomicInteger count = new AtomicInteger();
+
+        /** The shared pool, sized on the number of processors. */
+        static final ExecutorService executor = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r,
+                                "HSBStrategy-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
     /**
      * Retrieves the maximum number of reasonable tasks to schedule based on
      * image size and <i>maxTasks</i>.
      * 
-     * @param size The width along the X2 axis.
+     * @param sizeX1 The width along the X1 axis.
+     * @param sizeX2 The width along the X2 axis.
      * @return the number of tasks to schedule.
      */
-    private int numTasks(int size) {
-        for (int i = maxTasks; i > 0; i--) {
-            if (size % i == 0) {
-                return i;
-            }
+    private int numTasks(int sizeX1, int sizeX2) {
+        int bySize = (int) ((long) sizeX1 * sizeX2 / MIN_PIXELS_PER_TASK);
+        int n = Math.min(maxTasks, Math.min(bySize, sizeX2));
+        return Math.max(n, 1);
+    }
+
+    /**
+     * Returns the executor to hand the forked rendering tasks to.
+     *
+     * @return See above.
+     */
+    private ExecutorService getExecutor() {
+        ExecutorService executor = renderer.getRenderingExecutor();
+        if (executor == null) {
+            executor = DefaultExecutorHolder.executor;
         }
-        return 1;
+        return executor;
     }
 
     /**
@@ -217,16 +262,20 @@ class HSBStrategy extends RenderingStrategy {
         List<Plane2D> wData = getWavelengthData(def);
         List<int[]> colors = getColors();
         List<QuantumStrategy> strategies = getStrategies();
-        // Create a number of rendering tasks.
-        int taskCount = numTasks(sizeX2);
+        // Create a number of rendering tasks, one per row band. The first
+        // bands absorb the remainder so that every row is rendered.
+        int taskCount = numTasks(sizeX1, sizeX2);
         int delta = sizeX2/taskCount;
+        int remainder = sizeX2 % taskCount;
         int x1Start = 0;
         int x1End = sizeX1;
-        int x2Start, x2End;
-        log.info("taskCount: "+taskCount+" delta: "+delta);
+        int x2Start, x2End = 0;
+        if (log.isDebugEnabled()) {
+            log.debug("taskCount: "+taskCount+" delta: "+delta);
+        }
         for (int i = 0; i < taskCount; i++) {
-            x2Start = i*delta;
-            x2End = (i+1)*delta;
+            x2Start = x2End;
+            x2End = x2Start + delta + (i < remainder ? 1 : 0);
             tasks.add(new RenderHSBRegionTask(buf, wData, strategies, cc,
             		colors, renderer.getOptimizations(),
             		x1Start, x1End, x2Start, x2End));
@@ -313,32 +362,44 @@ class HSBStrategy extends RenderingStrategy {
         performanceStats.startRendering();
         int n = tasks.length;
         Future[] rndTskFutures = new Future[n]; // [0] unused.
-        ExecutorService processor = Executors.newCachedThreadPool();
-
-        while (0 < --n) {
-            rndTskFutures[n] = processor.submit(tasks[n]);
+        if (n > 1) {
+            ExecutorService processor = getExecutor();
+            while (0 < --n) {
+                rndTskFutures[n] = processor.submit(tasks[n]);
+            }
         }
 
-        // Call the task in the current thread.
-        if (n == 0) {
+        try {
+            // Call the first task in the current thread.
             tasks[0].call();
-        }
 
-        // Wait for all forked tasks (if any) to complete.
-        for (n = 1; n < rndTskFutures.length; ++n) {
-            try {
-                rndTskFutures[n].get();
-            } catch (Exception e) {
-                if (e instanceof QuantizationException) {
-                    throw (QuantizationException) e;
+            // Wait for all forked tasks (if any) to complete.
+            for (n = 1; n < rndTskFutures.length; ++n) {
+                try {
+                    rndTskFutures[n].get();
+                } catch (ExecutionException e) {
+                    Throwable t = e.getCause();
+                    if (t instanceof QuantizationException) {
+                        throw (QuantizationException) t;
+                    }
+                    if (t instanceof RuntimeException) {
+                        throw (RuntimeException) t;
+                    }
+                    throw new RuntimeException(t);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+        } finally {
+            // Do not leave work queued on the shared executor if we failed.
+            for (n = 1; n < rndTskFutures.length; ++n) {
+                if (rndTskFutures[n] != null) {
+                    rndTskFutures[n].cancel(false);
                 }
-                throw new RuntimeException(e);
             }
         }
 
-        // Shutdown the task processor
-        processor.shutdown();
-
         // End the performance metrics for this rendering event.
         performanceStats.endRendering();
     }
@@ -7,6 +7,8 @@
 
 package omeis.providers.re;
 
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -18,6 +20,7 @@ import omeis.providers.re.codomain.CodomainChain;
 import omeis.providers.re.data.Plane2D;
 import omeis.providers.re.quantum.BinaryMaskQuantizer;
 import omeis.providers.re.quantum.QuantizationException;
+import omeis.providers.re.quantum.Quantization_8_16_bit;
 import omeis.providers.re.quantum.QuantumStrategy;
 
 /**
@@ -69,6 +72,119 @@ class RenderHSBRegionTask implements RenderingTask {
     /** The optimizations that the renderer has turned on for us. */
     private Optimizations optimizations;
 
+    /**
+     * Quantizes the rows of the region of a plane. When the plane is an
+     * <i>XY</i> plane of an 8 or 16 bit integral type quantized by a
+     * {@link Quantization_8_16_bit} strategy, the raw values are read from a
+     * typed view of the backing buffer and looked up directly in the table of
+     * the strategy; otherwise each value goes through
+     * {@link QuantumStrategy#quantize(double)}.
+     */
+    private static class RowQuantizer {
+
+        /** The plane to quantize. */
+        private final Plane2D plane;
+
+        /** How to quantize a pixel intensity value. */
+        private final QuantumStrategy qs;
+
+        /** The table covering the pixels type or <code>null</code>. */
+        private byte[] lut;
+
+        /** The 8 bit view of the backing buffer when using the table. */
+        private ByteBuffer bytes;
+
+        /** The 16 bit view of the backing buffer when using the table. */
+        private ShortBuffer shorts;
+
+        /** Offset of a raw value into the table. */
+        private int lutOffset;
+
+        /** Mask keeping an offset raw value within the table. */
+        private int lutMask;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param plane The plane to quantize.
+         * @param qs How to quantize a pixel intensity value.
+         * @throws QuantizationException
+         *             If an error occurs while building the table.
+         */
+        RowQuantizer(Plane2D plane, QuantumStrategy qs)
+            throws QuantizationException {
+            this.plane = plane;
+            this.qs = qs;
+            if (!plane.isXYPlanar()
+                    || !(qs instanceof Quantization_8_16_bit)) {
+                return;
+            }
+            PixelData data = plane.getData();
+            int type = data.javaType();
+            if (type != PixelData.BYTE && type != PixelData.SHORT) {
+                return;
+            }
+            byte[] table = ((Quantization_8_16_bit) qs).getPixelsTypeLUT();
+            if (table == null
+                    || table.length != 1 << (8 * data.bytesPerPixel())) {
+                return;
+            }
+            // Absolute indexes of the views must match the offsets used by
+            // PixelData, whatever the position and order of the buffer.
+            ByteBuffer buf = data.getData().duplicate();
+            buf.clear();
+            buf.order(data.getOrder());
+            if (type == PixelData.SHORT) {
+                shorts = buf.asShortBuffer();
+            } else {
+                bytes = buf;
+            }
+            lut = table;
+            lutMask = table.length - 1;
+            lutOffset = data.isSigned() ? table.length / 2 : 0;
+        }
+
+        /**
+         * Quantizes a row of the region.
+         *
+         * @param x2 The <i>X2</i>-axis coordinate of the row.
+         * @param x1Start The <i>X1</i>-axis start.
+         * @param x1End The <i>X1</i>-axis end.
+         * @param row The buffer to quantize into, indexed from
+         *            <code>x1Start</code>.
+         * @throws QuantizationException
+         *             If an error occurs while quantizing a value.
+         */
+        void quantize(int x2, int x1Start, int x1End, int[] row)
+            throws QuantizationException {
+            int width = x1End - x1Start;
+            int pix = width * x2;
+            int i = 0;
+            if (shorts != null) {
+                for (int x1 = x1Start; x1 < x1End; ++x1) {
+                    row[i++] = lut[(shorts.get(pix + x1) + lutOffset)
+                                   & lutMask] & 0xFF;
+                }
+            } else if (bytes != null) {
+                for (int x1 = x1Start; x1 < x1End; ++x1) {
+                    row[i++] = lut[(bytes.get(pix + x1) + lutOffset)
+                                   & lutMask] & 0xFF;
+                }
+            } else if (plane.isXYPlanar()) {
+                PixelData data = plane.getData();
+                int bytesPerPixel = data.bytesPerPixel();
+                for (int x1 = x1Start; x1 < x1End; ++x1) {
+                    row[i++] = qs.quantize(data.getPixelValueDirect(
+                            (pix + x1) * bytesPerPixel));
+                }
+            } else {
+                for (int x1 = x1Start; x1 < x1End; ++x1) {
+                    row[i++] = qs.quantize(plane.getPixelValue(x1, x2));
+                }
+            }
+        }
+    }
+
     /**
      * Creates a new instance to render a wavelength.
      * 
@@ -143,9 +259,11 @@ class RenderHSBRegionTask implements RenderingTask {
         byte[] r = dataBuffer.getRedBand();
         byte[] g = dataBuffer.getGreenBand();
         byte[] b = dataBuffer.getBlueBand();
+        int[] row = new int[width];
         for (Plane2D plane : wData) {
             int[] color = colors.get(i);
             QuantumStrategy qs = strategies.get(i);
+            RowQuantizer quantizer = new RowQuantizer(plane, qs);
             int rColor = color[ColorsFactory.RED_INDEX];
             int gColor = color[ColorsFactory.GREEN_INDEX];
             int bColor = color[ColorsFactory.BLUE_INDEX];
@@ -153,10 +271,10 @@ class RenderHSBRegionTask implements RenderingTask {
             float alpha = new Float(
             		color[ColorsFactory.ALPHA_INDEX]).floatValue() / 65025;// 255*255
             for (int x2 = x2Start; x2 < x2End; ++x2) {
+                quantizer.quantize(x2, x1Start, x1End, row);
                 for (int x1 = x1Start; x1 < x1End; ++x1) {
                     pix = width * x2 + x1;
-                    discreteValue = qs.quantize(plane.getPixelValue(x1, x2));
-                    discreteValue = cc.transform(discreteValue);
+                    discreteValue = cc.transform(row[x1 - x1Start]);
 
                     // Pre-multiply the alpha component and add the existing
                     // colour value to the new colour value.
@@ -204,6 +322,7 @@ class RenderHSBRegionTask implements RenderingTask {
         int width = x1End - x1Start;
         int i = 0;
         int[] buf = ((RGBIntBuffer) dataBuffer).getDataBuffer();
+        int[] row = new int[width];
         boolean isPrimaryColor = optimizations.isPrimaryColorEnabled();
         boolean isAlphaless = optimizations.isAlphalessRendering();
         for (Plane2D plane : wData) {
@@ -216,9 +335,7 @@ class RenderHSBRegionTask implements RenderingTask {
             		color[ColorsFactory.GREEN_INDEX] / 255.0 : 0.0;
             blueRatio = color[ColorsFactory.BLUE_INDEX] > 0 ? 
             		color[ColorsFactory.BLUE_INDEX] / 255.0 : 0.0;
-            boolean isXYPlanar = plane.isXYPlanar();
-            PixelData data = plane.getData();
-            int bytesPerPixel = data.bytesPerPixel();
+            RowQuantizer quantizer = new RowQuantizer(plane, qs);
 
             // Get our color offset if we've got the primary color optimization
             // enabled.
@@ -228,15 +345,10 @@ class RenderHSBRegionTask implements RenderingTask {
             float alpha = new Integer(
             		color[ColorsFactory.ALPHA_INDEX]).floatValue() / 255;
             for (int x2 = x2Start; x2 < x2End; ++x2) {
+                quantizer.quantize(x2, x1Start, x1End, row);
                 for (int x1 = x1Start; x1 < x1End; ++x1) {
                     pix = width * x2 + x1;
-                    if (isXYPlanar)
-                    	discreteValue = 
-                    		qs.quantize(
-                    			data.getPixelValueDirect(pix * bytesPerPixel));
-                    else
-                    	discreteValue = 
-                    		qs.quantize(plane.getPixelValue(x1, x2));
+                    discreteValue = row[x1 - x1Start];
                     
                     // Right now we have no transforms being used so it's safe to
                     // comment this out for the time being.
@@ -326,6 +438,7 @@ class RenderHSBRegionTask implements RenderingTask {
         int width = x1End - x1Start;
         int i = 0;
         int[] buf = ((RGBAIntBuffer) dataBuffer).getDataBuffer();
+        int[] row = new int[width];
         boolean isPrimaryColor = optimizations.isPrimaryColorEnabled();
         boolean isAlphaless = optimizations.isAlphalessRendering();
         for (Plane2D plane : wData) {
@@ -337,9 +450,7 @@ class RenderHSBRegionTask implements RenderingTask {
             		color[ColorsFactory.GREEN_INDEX] / 255.0 : 0.0;
             blueRatio = color[ColorsFactory.BLUE_INDEX] > 0 ? 
             		color[ColorsFactory.BLUE_INDEX] / 255.0 : 0.0;
-            boolean isXYPlanar = plane.isXYPlanar();
-            PixelData data = plane.getData();
-            int bytesPerPixel = data.bytesPerPixel();
+            RowQuantizer quantizer = new RowQuantizer(plane, qs);
 
             // Get our color offset if we've got the primary color optimization
             // enabled.
@@ -348,15 +459,10 @@ class RenderHSBRegionTask implements RenderingTask {
 
             float alpha = new Integer(color[ColorsFactory.ALPHA_INDEX]).floatValue() / 255;
             for (int x2 = x2Start; x2 < x2End; ++x2) {
+                quantizer.quantize(x2, x1Start, x1End, row);
                 for (int x1 = x1Start; x1 < x1End; ++x1) {
                     pix = width * x2 + x1;
-                    if (isXYPlanar)
-                    	discreteValue = 
-                    		qs.quantize(
-                    			data.getPixelValueDirect(pix * bytesPerPixel));
-                    else
-                    	discreteValue = 
-                    		qs.quantize(plane.getPixelValue(x1, x2));
+                    discreteValue = row[x1 - x1Start];
                     // Right now we have no transforms being used so it's safe to
                     // comment this out for the time being.
                     //discreteValue = cc.transform(discreteValue);
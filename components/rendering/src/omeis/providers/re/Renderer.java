@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -136,6 +137,12 @@ public class Renderer {
     /** Map of overlays we've currently been told to render. */
     private Map<byte[], Integer> overlays;
 
+    /**
+     * The executor used to run the rendering tasks of a plane concurrently.
+     * If <code>null</code> the strategy falls back to a shared, bounded pool.
+     */
+    private ExecutorService renderingExecutor;
+
     /**
      * Returns a copy of a list of channel bindings with one element removed;
      * the so called "other" channel bindings for the image.
@@ -799,6 +806,28 @@ public class Renderer {
     	return optimizations;
     }
 
+    /**
+     * Sets the executor used to run the rendering tasks of a plane
+     * concurrently. The executor is expected to be shared and bounded; it is
+     * never shut down by the renderer.
+     * @param renderingExecutor The executor to use or <code>null</code> to
+     * use the shared default pool.
+     */
+    public void setRenderingExecutor(ExecutorService renderingExecutor)
+    {
+        this.renderingExecutor = renderingExecutor;
+    }
+
+    /**
+     * Returns the executor used to run the rendering tasks of a plane
+     * concurrently.
+     * @return See above. May be <code>null</code>.
+     */
+    public ExecutorService getRenderingExecutor()
+    {
+        return renderingExecutor;
+    }
+
 	/**
      * Closes the buffer, cleaning up file state.
      * 
@@ -9,6 +9,7 @@ package omeis.providers.re.quantum;
 
 import ome.model.core.Pixels;
 import ome.model.display.QuantumDef;
+import omeis.providers.re.data.PlaneFactory;
 
 /**
  * Quantization process. In charge of building a look-up table for each active
@@ -73,6 +74,12 @@ public class Quantization_8_16_bit extends QuantumStrategy {
      */
     private int cdStart, cdEnd;
 
+    /**
+     * The look-up table covering every value of the storage type of the
+     * pixels. Lazily built and discarded whenever the LUT is rebuilt.
+     */
+    private byte[] typeLUT;
+
     /**
      * Initializes the LUT. Comparable getGlobalMin and getGlobalMax assumed to
      * be Integer, QuantumStrategy enforces min &lt; max. QuantumFactory makes
@@ -220,6 +227,9 @@ public class Quantization_8_16_bit extends QuantumStrategy {
      * gof.
      */
     private void buildLUT() {
+        synchronized (this) {
+            typeLUT = null;
+        }
     	double dStart = getWindowStart(), dEnd = getWindowEnd();
         if (LUT == null) {
             initLUT((int) dStart, (int) dEnd);
@@ -315,4 +325,43 @@ public class Quantization_8_16_bit extends QuantumStrategy {
         return i & 0xFF;
     }
 
+    /**
+     * Returns a look-up table mapping every value the storage type of the
+     * pixels can hold onto the codomain, so that callers can quantize raw
+     * 8 or 16 bit values without converting them to <code>double</code>.
+     * The value <code>v</code> is found at index <code>v</code> for unsigned
+     * types and at index <code>v + table.length / 2</code> for signed types.
+     * Each entry is the value returned by {@link #quantize(double)}, as an
+     * unsigned byte.
+     *
+     * @return See above or <code>null</code> if the pixels type is not an
+     *         8 or 16 bit integral type.
+     * @throws QuantizationException
+     *             If an error occurs while quantizing a value of the table.
+     */
+    public synchronized byte[] getPixelsTypeLUT()
+            throws QuantizationException {
+        if (typeLUT != null || LUT == null) {
+            return typeLUT;
+        }
+        int size;
+        if (PlaneFactory.in(pixels.getPixelsType(),
+                new String[] { PlaneFactory.INT8, PlaneFactory.UINT8 })) {
+            size = 0x100;
+        } else if (PlaneFactory.in(pixels.getPixelsType(),
+                new String[] { PlaneFactory.INT16, PlaneFactory.UINT16 })) {
+            size = 0x10000;
+        } else {
+            return null;
+        }
+        int offset = PlaneFactory.isTypeSigned(pixels.getPixelsType()) ?
+                -size / 2 : 0;
+        byte[] table = new byte[size];
+        for (int i = 0; i < size; i++) {
+            table[i] = (byte) quantize(i + offset);
+        }
+        typeLUT = table;
+        return typeLUT;
+    }
+
 }
@@ -0,0 +1,198 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+package omeis.providers.re.benchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.concurrent.TimeUnit;
+
+import ome.model.core.Pixels;
+import ome.util.PixelData;
+import omeis.providers.re.quantum.Quantization_8_16_bit;
+import omeis.providers.re.quantum.QuantumFactory;
+import omeis.providers.re.quantum.QuantumStrategy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the quantization strategies on their own: rebuilding the look-up
+ * table when the input window changes, and quantizing a plane either value
+ * by value through {@link QuantumStrategy#quantize(double)} or, for 8 and 16
+ * bit types, through the table returned by
+ * {@link Quantization_8_16_bit#getPixelsTypeLUT()}.
+ * <p>
+ * Run with <code>ant benchmark -DBENCHMARK=QuantizationBenchmark</code>.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuantizationBenchmark
+{
+
+    /** The size of the plane to quantize. */
+    private static final int SIZE = 512;
+
+    /**
+     * Creates a strategy configured the way the rendering engine does for
+     * the first channel of an image.
+     *
+     * @param image The image.
+     * @return See above.
+     */
+    static QuantumStrategy createStrategy(SyntheticImage image)
+    {
+        Pixels pixels = image.getPixels();
+        double[] range = image.getRange();
+        QuantumFactory factory =
+            new QuantumFactory(SyntheticImage.getFamilies());
+        QuantumStrategy qs =
+            factory.getStrategy(SyntheticImage.createQuantumDef(), pixels);
+        qs.setExtent(range[0], range[1]);
+        qs.setMapping(factory.getFamily(QuantumFactory.LINEAR), 1.0, false);
+        qs.setWindow(range[0], range[1]);
+        return qs;
+    }
+
+    /** State for the strategies of every pixels type. */
+    @State(Scope.Thread)
+    public static class StrategyState
+    {
+
+        @Param({ "uint8", "int16", "uint16", "int32", "float", "double" })
+        public String pixelsType;
+
+        QuantumStrategy qs;
+
+        double[] values;
+
+        double start;
+
+        double end;
+
+        @Setup
+        public void setup()
+        {
+            SyntheticImage image =
+                new SyntheticImage(pixelsType, SIZE, SIZE, 1);
+            qs = createStrategy(image);
+            PixelData data = new PixelData(pixelsType,
+                    ByteBuffer.wrap(image.getPlane(0)));
+            values = new double[SIZE * SIZE];
+            for (int i = 0; i < values.length; i++)
+            {
+                values[i] = data.getPixelValue(i);
+            }
+            double[] range = image.getRange();
+            start = range[0] + (range[1] - range[0]) / 4;
+            end = range[1] - (range[1] - range[0]) / 4;
+        }
+    }
+
+    /** State for the table of the 8 and 16 bit pixels types. */
+    @State(Scope.Thread)
+    public static class TableState
+    {
+
+        @Param({ "uint8", "int8", "int16", "uint16" })
+        public String pixelsType;
+
+        byte[] table;
+
+        int offset;
+
+        ShortBuffer shorts;
+
+        ByteBuffer bytes;
+
+        @Setup
+        public void setup() throws Exception
+        {
+            SyntheticImage image =
+                new SyntheticImage(pixelsType, SIZE, SIZE, 1);
+            Quantization_8_16_bit qs =
+                (Quantization_8_16_bit) createStrategy(image);
+            table = qs.getPixelsTypeLUT();
+            offset = pixelsType.startsWith("u") ? 0 : table.length / 2;
+            ByteBuffer buf = ByteBuffer.wrap(image.getPlane(0));
+            if (SyntheticImage.bytesPerPixel(pixelsType) == 2)
+            {
+                shorts = buf.asShortBuffer();
+            }
+            else
+            {
+                bytes = buf;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the look-up table by alternating between two windows.
+     */
+    @Benchmark
+    public QuantumStrategy setWindow(StrategyState s)
+    {
+        s.qs.setWindow(s.start, s.end);
+        s.qs.setWindow(s.start, s.end + 1);
+        return s.qs;
+    }
+
+    /**
+     * Quantizes a plane value by value.
+     */
+    @Benchmark
+    public int quantize(StrategyState s) throws Exception
+    {
+        int sum = 0;
+        double[] values = s.values;
+        for (int i = 0; i < values.length; i++)
+        {
+            sum += s.qs.quantize(values[i]);
+        }
+        return sum;
+    }
+
+    /**
+     * Quantizes a plane by looking raw values up in the pixels type table.
+     */
+    @Benchmark
+    public int pixelsTypeLUT(TableState s)
+    {
+        int sum = 0;
+        byte[] table = s.table;
+        int mask = table.length - 1;
+        if (s.shorts != null)
+        {
+            ShortBuffer shorts = s.shorts;
+            for (int i = 0; i < shorts.capacity(); i++)
+            {
+                sum += table[(shorts.get(i) + s.offset) & mask] & 0xFF;
+            }
+        }
+        else
+        {
+            ByteBuffer bytes = s.bytes;
+            for (int i = 0; i < bytes.capacity(); i++)
+            {
+                sum += table[(bytes.get(i) + s.offset) & mask] & 0xFF;
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+package omeis.providers.re.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import omeis.providers.re.RGBBuffer;
+import omeis.providers.re.Renderer;
+import omeis.providers.re.data.PlaneDef;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the rendering of a whole tile by {@link Renderer}, quantization
+ * and colour compositing of every active channel included. The tile is an
+ * in memory plane of the given size. The optimizations parameter selects
+ * channel colours for which the renderer enables primary colour rendering,
+ * alphaless rendering only, or neither; primary colour rendering is never
+ * enabled beyond three channels.
+ * <p>
+ * Run with <code>ant benchmark -DBENCHMARK=RendererBenchmark</code>, and
+ * restrict the parameters with e.g.
+ * <code>-Dbenchmark.args="-prof gc -p pixelsType=uint16"</code>.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RendererBenchmark
+{
+
+    @Param({ "uint8", "int16", "uint16", "int32", "float" })
+    public String pixelsType;
+
+    @Param({ "1", "2", "3", "4", "8" })
+    public int channels;
+
+    @Param({ "256", "512", "1024" })
+    public int tileSize;
+
+    @Param({ SyntheticImage.PRIMARY, SyntheticImage.ALPHALESS,
+             SyntheticImage.BLENDED })
+    public String optimizations;
+
+    private Renderer renderer;
+
+    private PlaneDef planeDef;
+
+    @Setup
+    public void setup()
+    {
+        SyntheticImage image =
+            new SyntheticImage(pixelsType, tileSize, tileSize, channels);
+        renderer = image.createRenderer(optimizations);
+        planeDef = new PlaneDef(PlaneDef.XY, 0);
+        planeDef.setZ(0);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        renderer.close();
+    }
+
+    @Benchmark
+    public int[] renderAsPackedInt() throws Exception
+    {
+        return renderer.renderAsPackedInt(planeDef, null);
+    }
+
+    @Benchmark
+    public RGBBuffer render() throws Exception
+    {
+        return renderer.render(planeDef);
+    }
+}
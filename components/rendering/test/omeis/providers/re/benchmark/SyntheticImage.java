@@ -0,0 +1,295 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+package omeis.providers.re.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import ome.io.nio.InMemoryPlanarPixelBuffer;
+import ome.io.nio.PixelBuffer;
+import ome.model.core.Channel;
+import ome.model.core.Pixels;
+import ome.model.display.ChannelBinding;
+import ome.model.display.QuantumDef;
+import ome.model.display.RenderingDef;
+import ome.model.enums.Family;
+import ome.model.enums.PixelsType;
+import ome.model.enums.RenderingModel;
+import ome.model.stats.StatsInfo;
+import omeis.providers.re.Renderer;
+import omeis.providers.re.quantum.QuantumFactory;
+
+/**
+ * Builds synthetic, in memory images and the rendering settings to go with
+ * them so that the rendering pipeline can be benchmarked without a server.
+ */
+public class SyntheticImage
+{
+
+    /** Channels colours which enable the primary colour optimization. */
+    public static final String PRIMARY = "primary";
+
+    /** Opaque, non primary channel colours: alphaless rendering only. */
+    public static final String ALPHALESS = "alphaless";
+
+    /** Translucent channel colours: no optimizations. */
+    public static final String BLENDED = "blended";
+
+    /** Colours cycled through for {@link #PRIMARY}. */
+    private static final int[][] PRIMARY_COLORS = new int[][] {
+        { 255, 0, 0 }, { 0, 255, 0 }, { 0, 0, 255 } };
+
+    /** Colours cycled through for {@link #ALPHALESS} and {@link #BLENDED}. */
+    private static final int[][] MIXED_COLORS = new int[][] {
+        { 255, 128, 0 }, { 0, 255, 128 }, { 128, 0, 255 }, { 255, 0, 255 } };
+
+    /** Upper bound of the generated values for floating point types. */
+    private static final double FLOAT_RANGE = 1000.0;
+
+    /** Fixed seed so that runs are comparable. */
+    private final Random random = new Random(20160516L);
+
+    /** The pixels set describing the image. */
+    private final Pixels pixels;
+
+    /** The planes of the image, ZCT ordered. */
+    private final byte[][][][] planes;
+
+    /** The minimum and maximum of the generated values. */
+    private final double[] range;
+
+    /**
+     * Creates a single Z and T image with random values.
+     *
+     * @param type The OME pixels type.
+     * @param sizeX The width of the plane.
+     * @param sizeY The height of the plane.
+     * @param sizeC The number of channels.
+     */
+    public SyntheticImage(String type, int sizeX, int sizeY, int sizeC)
+    {
+        PixelsType pixelsType = new PixelsType(type);
+        int bytesPerPixel = bytesPerPixel(type);
+        pixelsType.setBitSize(bytesPerPixel * 8);
+        range = range(type);
+        pixels = new Pixels();
+        pixels.setSizeX(sizeX);
+        pixels.setSizeY(sizeY);
+        pixels.setSizeZ(1);
+        pixels.setSizeC(sizeC);
+        pixels.setSizeT(1);
+        pixels.setPixelsType(pixelsType);
+        planes = new byte[1][sizeC][1][];
+        for (int c = 0; c < sizeC; c++)
+        {
+            planes[0][c][0] = createPlane(type, sizeX * sizeY, bytesPerPixel);
+            StatsInfo si = new StatsInfo();
+            si.setGlobalMin(range[0]);
+            si.setGlobalMax(range[1]);
+            Channel channel = new Channel();
+            channel.setStatsInfo(si);
+            pixels.addChannel(channel);
+        }
+    }
+
+    /**
+     * Returns the number of bytes per pixel of a pixels type.
+     *
+     * @param type The OME pixels type.
+     * @return See above.
+     */
+    static int bytesPerPixel(String type)
+    {
+        if (type.endsWith("8")) return 1;
+        if (type.endsWith("16")) return 2;
+        if (type.endsWith("32") || type.equals("float")) return 4;
+        return 8;
+    }
+
+    /**
+     * Returns the range of the values generated for a pixels type.
+     *
+     * @param type The OME pixels type.
+     * @return See above.
+     */
+    static double[] range(String type)
+    {
+        if (type.equals("float") || type.equals("double"))
+            return new double[] { 0, FLOAT_RANGE };
+        int bits = bytesPerPixel(type) * 8;
+        if (type.startsWith("u"))
+            return new double[] { 0, Math.pow(2, bits) - 1 };
+        return new double[] { -Math.pow(2, bits - 1),
+                              Math.pow(2, bits - 1) - 1 };
+    }
+
+    /**
+     * Creates a plane of random values spanning the range of the type.
+     *
+     * @param type The OME pixels type.
+     * @param size The number of pixels.
+     * @param bytesPerPixel The number of bytes per pixel.
+     * @return See above.
+     */
+    private byte[] createPlane(String type, int size, int bytesPerPixel)
+    {
+        byte[] plane = new byte[size * bytesPerPixel];
+        if (type.equals("float"))
+        {
+            ByteBuffer buf = ByteBuffer.wrap(plane);
+            for (int i = 0; i < size; i++)
+                buf.putFloat((float) (random.nextDouble() * FLOAT_RANGE));
+        }
+        else if (type.equals("double"))
+        {
+            ByteBuffer buf = ByteBuffer.wrap(plane);
+            for (int i = 0; i < size; i++)
+                buf.putDouble(random.nextDouble() * FLOAT_RANGE);
+        }
+        else
+        {
+            random.nextBytes(plane);
+        }
+        return plane;
+    }
+
+    /**
+     * Returns the pixels set describing the image.
+     *
+     * @return See above.
+     */
+    public Pixels getPixels()
+    {
+        return pixels;
+    }
+
+    /**
+     * Returns the minimum and maximum of the generated values.
+     *
+     * @return See above.
+     */
+    public double[] getRange()
+    {
+        return range;
+    }
+
+    /**
+     * Returns the raw data of a plane.
+     *
+     * @param c The channel.
+     * @return See above.
+     */
+    public byte[] getPlane(int c)
+    {
+        return planes[0][c][0];
+    }
+
+    /**
+     * Returns a read-only pixel buffer over the image.
+     *
+     * @return See above.
+     */
+    public PixelBuffer getPixelBuffer()
+    {
+        return new InMemoryPlanarPixelBuffer(pixels, planes);
+    }
+
+    /**
+     * Returns all the families, as would be loaded from the database.
+     *
+     * @return See above.
+     */
+    public static List<Family> getFamilies()
+    {
+        List<Family> families = new ArrayList<Family>();
+        families.add(new Family(QuantumFactory.LINEAR));
+        families.add(new Family(QuantumFactory.POLYNOMIAL));
+        families.add(new Family(QuantumFactory.EXPONENTIAL));
+        families.add(new Family(QuantumFactory.LOGARITHMIC));
+        return families;
+    }
+
+    /**
+     * Returns all the rendering models, as would be loaded from the database.
+     *
+     * @return See above.
+     */
+    public static List<RenderingModel> getRenderingModels()
+    {
+        List<RenderingModel> models = new ArrayList<RenderingModel>();
+        models.add(new RenderingModel(Renderer.MODEL_GREYSCALE));
+        models.add(new RenderingModel(Renderer.MODEL_RGB));
+        return models;
+    }
+
+    /**
+     * Returns a quantum definition mapping onto the full device space.
+     *
+     * @return See above.
+     */
+    public static QuantumDef createQuantumDef()
+    {
+        QuantumDef qd = new QuantumDef();
+        qd.setCdStart(0);
+        qd.setCdEnd(QuantumFactory.DEPTH_8BIT);
+        qd.setBitResolution(QuantumFactory.DEPTH_8BIT);
+        return qd;
+    }
+
+    /**
+     * Creates colour rendering settings with every channel active, the
+     * window spanning the generated values and the channel colours chosen
+     * so that the {@link Renderer} enables the requested optimizations.
+     *
+     * @param optimizations One of {@link #PRIMARY}, {@link #ALPHALESS} or
+     *                      {@link #BLENDED}.
+     * @return See above.
+     */
+    public RenderingDef createRenderingDef(String optimizations)
+    {
+        RenderingDef def = new RenderingDef();
+        def.setDefaultZ(0);
+        def.setDefaultT(0);
+        def.setModel(new RenderingModel(Renderer.MODEL_RGB));
+        def.setQuantization(createQuantumDef());
+        int[][] colors = PRIMARY.equals(optimizations) ?
+                PRIMARY_COLORS : MIXED_COLORS;
+        int alpha = BLENDED.equals(optimizations) ? 128 : 255;
+        for (int c = 0; c < pixels.getSizeC(); c++)
+        {
+            int[] color = colors[c % colors.length];
+            ChannelBinding cb = new ChannelBinding();
+            cb.setFamily(new Family(QuantumFactory.LINEAR));
+            cb.setCoefficient(1.0);
+            cb.setNoiseReduction(false);
+            cb.setInputStart(range[0]);
+            cb.setInputEnd(range[1]);
+            cb.setActive(true);
+            cb.setRed(color[0]);
+            cb.setGreen(color[1]);
+            cb.setBlue(color[2]);
+            cb.setAlpha(alpha);
+            def.addChannelBinding(cb);
+        }
+        return def;
+    }
+
+    /**
+     * Creates a renderer over the image.
+     *
+     * @param optimizations See {@link #createRenderingDef(String)}.
+     * @return See above.
+     */
+    public Renderer createRenderer(String optimizations)
+    {
+        return new Renderer(new QuantumFactory(getFamilies()),
+                getRenderingModels(), pixels,
+                createRenderingDef(optimizations), getPixelBuffer());
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+
+package ome.io.nio;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import loci.formats.FormatTools;
+import ome.model.stats.StatsInfo;
+
+/**
+ * Accumulates the global minimum and maximum of a channel, and optionally its
+ * histogram, from blocks of pixel data streamed through
+ * {@link #update(ByteBuffer, int)}. Each pixel type is handled by its own
+ * primitive loop rather than by reading every pixel as a <code>double</code>.
+ * <p>
+ * Histograms are only kept for integer pixel types. Their bins evenly divide
+ * the whole range of the pixel type, so that they can be accumulated without
+ * knowing the minimum and maximum beforehand.
+ * </p>
+ * Instances are not thread safe.
+ *
+ * @see PixelsService#setHistogramBins(int)
+ */
+public class ChannelStatistics {
+
+    private final int type;
+
+    /** The mask applied to 8 and 16 bit values, -1 for signed types. */
+    private final int mask;
+
+    /** The smallest value of the pixel type, the start of the first bin. */
+    private final long typeMinimum;
+
+    /** Shift from a value less {@link #typeMinimum} to its bin. */
+    private final int histogramShift;
+
+    /** The histogram or <code>null</code> if none is kept. */
+    private final long[] histogram;
+
+    private double minimum = Double.POSITIVE_INFINITY;
+
+    private double maximum = Double.NEGATIVE_INFINITY;
+
+    private long count;
+
+    /**
+     * Creates statistics for a channel.
+     *
+     * @param pixelsType The OME pixels type of the channel.
+     * @param histogramBins The number of bins of the histogram, rounded down
+     * to a power of two and to the number of values of the pixel type, or
+     * <code>0</code> not to keep one.
+     */
+    public ChannelStatistics(String pixelsType, int histogramBins) {
+        type = FormatTools.pixelTypeFromString(pixelsType);
+        boolean signed = FormatTools.isSigned(type);
+        int bits = FormatTools.getBytesPerPixel(type) * 8;
+        mask = signed ? -1 : (bits == 8 ? 0xFF : 0xFFFF);
+        typeMinimum = signed ? -(1L << (bits - 1)) : 0;
+        if (histogramBins > 0 && !FormatTools.isFloatingPoint(type)) {
+            int binBits = Math.min(bits,
+                    31 - Integer.numberOfLeadingZeros(histogramBins));
+            histogramShift = bits - binBits;
+            histogram = new long[1 << binBits];
+        } else {
+            histogramShift = 0;
+            histogram = null;
+        }
+    }
+
+    /**
+     * Adds a block of pixels to the statistics.
+     *
+     * @param data Big-endian pixel data, starting at position <code>0</code>.
+     * @param pixels The number of pixels of <code>data</code> to add.
+     */
+    public void update(ByteBuffer data, int pixels) {
+        if (pixels <= 0) {
+            return;
+        }
+        count += pixels;
+        switch (type) {
+            case FormatTools.BIT:
+            case FormatTools.INT8:
+            case FormatTools.UINT8:
+                updateBytes(data, pixels);
+                break;
+            case FormatTools.INT16:
+            case FormatTools.UINT16:
+                updateShorts(data.asShortBuffer(), pixels);
+                break;
+            case FormatTools.INT32:
+            case FormatTools.UINT32:
+                updateInts(data.asIntBuffer(), pixels);
+                break;
+            case FormatTools.FLOAT:
+                updateFloats(data.asFloatBuffer(), pixels);
+                break;
+            case FormatTools.DOUBLE:
+                updateDoubles(data.asDoubleBuffer(), pixels);
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "Unsupported pixel type: " + type);
+        }
+    }
+
+    private void updateBytes(ByteBuffer data, int pixels) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < pixels; i++) {
+            int value = data.get(i) & mask;
+            if (value < min) {
+                min = value;
+            }
+            if (value > max) {
+                max = value;
+            }
+            if (histogram != null) {
+                histogram[(int) ((value - typeMinimum) >>> histogramShift)]++;
+            }
+        }
+        merge(min, max);
+    }
+
+    private void updateShorts(ShortBuffer data, int pixels) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < pixels; i++) {
+            int value = data.get(i) & mask;
+            if (value < min) {
+                min = value;
+            }
+            if (value > max) {
+                max = value;
+            }
+            if (histogram != null) {
+                histogram[(int) ((value - typeMinimum) >>> histogramShift)]++;
+            }
+        }
+        merge(min, max);
+    }
+
+    private void updateInts(IntBuffer data, int pixels) {
+        long intMask = typeMinimum < 0 ? -1L : 0xFFFFFFFFL;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < pixels; i++) {
+            long value = data.get(i) & intMask;
+            if (value < min) {
+                min = value;
+            }
+            if (value > max) {
+                max = value;
+            }
+            if (histogram != null) {
+                histogram[(int) ((value - typeMinimum) >>> histogramShift)]++;
+            }
+        }
+        merge(min, max);
+    }
+
+    private void updateFloats(FloatBuffer data, int pixels) {
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < pixels; i++) {
+            float value = data.get(i);
+            if (value < min) {
+                min = value;
+            }
+            if (value > max) {
+                max = value;
+            }
+        }
+        merge(min, max);
+    }
+
+    private void updateDoubles(DoubleBuffer data, int pixels) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < pixels; i++) {
+            double value = data.get(i);
+            if (value < min) {
+                min = value;
+            }
+            if (value > max) {
+                max = value;
+            }
+        }
+        merge(min, max);
+    }
+
+    private void merge(double min, double max) {
+        minimum = Math.min(minimum, min);
+        maximum = Math.max(maximum, max);
+    }
+
+    /**
+     * Returns the number of pixels added.
+     *
+     * @return See above.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the smallest value added.
+     *
+     * @return See above or positive infinity if none was added.
+     */
+    public double getMinimum() {
+        return minimum;
+    }
+
+    /**
+     * Returns the largest value added.
+     *
+     * @return See above or negative infinity if none was added.
+     */
+    public double getMaximum() {
+        return maximum;
+    }
+
+    /**
+     * Returns the histogram of the values added. Bin <code>i</code> counts
+     * the values from <code>typeMinimum + i * binWidth</code>.
+     *
+     * @return See above or <code>null</code> if none is kept.
+     */
+    public long[] getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Returns a new {@link StatsInfo} holding the minimum and maximum.
+     *
+     * @return See above.
+     */
+    public StatsInfo createStatsInfo() {
+        StatsInfo statsInfo = new StatsInfo();
+        statsInfo.setGlobalMin(minimum);
+        statsInfo.setGlobalMax(maximum);
+        return statsInfo;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+
+package ome.io.nio;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.HashMap;
+import java.util.Map;
+
+import ome.util.PixelData;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-only memory mapping of a whole ROMIO pixels file. As a single mapping
+ * cannot exceed 2GB, the file is mapped in segments of
+ * {@link #DEFAULT_SEGMENT_SHIFT} bytes. A mapping is shared by all the
+ * {@link RomioPixelBuffer}s reading the same pixels file and is reference
+ * counted: it is unmapped as soon as the last of them releases it rather
+ * than whenever the garbage collector finalizes the buffers.
+ * <p>
+ * Regions returned by {@link #getRegion(long, int)} are slices of the
+ * mapping and must not be used once it has been released.
+ * </p>
+ *
+ * @see RomioPixelBuffer
+ */
+public class PixelsFileMapping {
+
+    /** The logger for this particular class */
+    private static Logger log = LoggerFactory.getLogger(PixelsFileMapping.class);
+
+    /** Segments are 1GB. */
+    public static final int DEFAULT_SEGMENT_SHIFT = 30;
+
+    /** The mappings in use by path, guarded by itself. */
+    private static final Map<String, PixelsFileMapping> MAPPINGS =
+        new HashMap<String, PixelsFileMapping>();
+
+    /** The path of the pixels file. */
+    private final String path;
+
+    /** The number of bytes mapped. */
+    private final long length;
+
+    /** log2 of the size of a segment. */
+    private final int segmentShift;
+
+    /** The mapped segments, the last of which may be shorter. */
+    private final MappedByteBuffer[] segments;
+
+    /** The number of readers of the mapping, guarded by {@link #MAPPINGS}. */
+    private int references;
+
+    /**
+     * Maps a pixels file.
+     *
+     * @param path The path of the pixels file.
+     * @param segmentShift log2 of the size of a segment.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private PixelsFileMapping(String path, int segmentShift)
+            throws IOException {
+        this.path = path;
+        this.segmentShift = segmentShift;
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            length = channel.size();
+            long segmentSize = 1L << segmentShift;
+            int count = (int) ((length + segmentSize - 1) >>> segmentShift);
+            segments = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long position = (long) i << segmentShift;
+                segments[i] = channel.map(MapMode.READ_ONLY, position,
+                        Math.min(segmentSize, length - position));
+            }
+        } finally {
+            // Mappings remain valid once the channel is closed.
+            file.close();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Mapped %s: %d bytes in %d segment(s)",
+                    path, length, segments.length));
+        }
+    }
+
+    /**
+     * Returns the mapping of a pixels file, mapping it if it is not already
+     * in use, with segments of {@link #DEFAULT_SEGMENT_SHIFT} bytes.
+     * Each call must be matched by a call to {@link #release()}.
+     *
+     * @param path The path of the pixels file.
+     * @return See above.
+     * @throws IOException If the file cannot be mapped.
+     */
+    public static PixelsFileMapping acquire(String path) throws IOException {
+        return acquire(path, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    /**
+     * Returns the mapping of a pixels file, mapping it with segments of
+     * <code>2^segmentShift</code> bytes if it is not already in use.
+     * Each call must be matched by a call to {@link #release()}.
+     *
+     * @param path The path of the pixels file.
+     * @param segmentShift log2 of the size of a segment if the file is to be
+     * mapped, at most 30.
+     * @return See above.
+     * @throws IOException If the file cannot be mapped.
+     */
+    public static PixelsFileMapping acquire(String path, int segmentShift)
+            throws IOException {
+        if (segmentShift < 0 || segmentShift > DEFAULT_SEGMENT_SHIFT) {
+            throw new IllegalArgumentException(
+                    "Invalid segment shift: " + segmentShift);
+        }
+        synchronized (MAPPINGS) {
+            PixelsFileMapping mapping = MAPPINGS.get(path);
+            if (mapping == null) {
+                mapping = new PixelsFileMapping(path, segmentShift);
+                MAPPINGS.put(path, mapping);
+            }
+            mapping.references++;
+            return mapping;
+        }
+    }
+
+    /**
+     * Releases the mapping, unmapping it if this was its last reader.
+     */
+    public void release() {
+        synchronized (MAPPINGS) {
+            if (references == 0) {
+                throw new IllegalStateException("Mapping already released.");
+            }
+            if (--references > 0) {
+                return;
+            }
+            MAPPINGS.remove(path);
+        }
+        for (int i = 0; i < segments.length; i++) {
+            // Unmaps the segment if omero.pixeldata.dispose permits it.
+            new PixelData("uint8", segments[i]).dispose();
+            segments[i] = null;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Released mapping of " + path);
+        }
+    }
+
+    /**
+     * Returns the number of bytes mapped, the length of the pixels file
+     * when it was mapped.
+     *
+     * @return See above.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the number of readers of the mapping.
+     *
+     * @return See above.
+     */
+    public int getReferences() {
+        synchronized (MAPPINGS) {
+            return references;
+        }
+    }
+
+    /**
+     * Returns a region of the pixels file. Regions within a segment are
+     * slices of the mapping; the rare regions spanning segments are copied.
+     *
+     * @param offset The offset of the region in the file.
+     * @param size The size of the region.
+     * @return See above or <code>null</code> if the region lies beyond the
+     * mapped length.
+     */
+    public ByteBuffer getRegion(long offset, int size) {
+        if (offset < 0 || size < 0 || offset + size > length) {
+            return null;
+        }
+        if (size == 0) {
+            return ByteBuffer.allocate(0);
+        }
+        int index = (int) (offset >>> segmentShift);
+        int position = (int) (offset - ((long) index << segmentShift));
+        MappedByteBuffer segment = segments[index];
+        if ((long) position + size <= segment.capacity()) {
+            // Never alter the position or limit of a shared segment.
+            ByteBuffer region = segment.duplicate();
+            region.position(position);
+            region.limit(position + size);
+            return region.slice();
+        }
+        ByteBuffer region = ByteBuffer.allocate(size);
+        while (region.hasRemaining()) {
+            ByteBuffer part = segments[index++].duplicate();
+            part.position(position);
+            part.limit(Math.min(part.capacity(),
+                    position + region.remaining()));
+            region.put(part);
+            position = 0;
+        }
+        region.flip();
+        return region;
+    }
+}
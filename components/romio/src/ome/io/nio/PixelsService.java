@@ -8,12 +8,28 @@
 package ome.io.nio;
 
 import java.awt.Dimension;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import loci.formats.ChannelFiller;
 import loci.formats.ChannelSeparator;
@@ -65,6 +81,9 @@ public class PixelsService extends AbstractFileSystemService
 	/** Suffix for an the image pyramid of a given pixels set. */
 	public static final String PYRAMID_SUFFIX = "_pyramid";
 
+	/** Suffix for the channel histograms of a given pixels set. */
+	public static final String HISTOGRAM_SUFFIX = "_histogram";
+
 	/** Null plane size constant. */
 	public static final int NULL_PLANE_SIZE = 64;
 
@@ -96,6 +115,25 @@ public class PixelsService extends AbstractFileSystemService
 	
 	private IQuery iQuery;
 
+	/**
+	 * Whether or not read-only ROMIO pixel buffers share a mapping of the
+	 * whole pixels file.
+	 */
+	private boolean sharedMappings;
+
+	/**
+	 * Number of threads reading the tiles of a pyramid, or the channels whose
+	 * statistics are calculated, in parallel, each with its own pixel buffer.
+	 * <code>1</code> reads them on the caller.
+	 */
+	private int pyramidThreads = 1;
+
+	/**
+	 * Number of bins of the channel histograms saved along with the
+	 * statistics of a pixels set. <code>0</code> saves no histograms.
+	 */
+	private int histogramBins;
+
 	/** Null plane byte array. */
 	public static final byte[] nullPlane = new byte[] { -128, 127, -128, 127,
 			-128, 127, -128, 127, -128, 127, // 10
@@ -188,6 +226,45 @@ public class PixelsService extends AbstractFileSystemService
         this.minmaxTimes = metrics.timer(this, "minmaxTimes");
     }
 
+    /**
+     * Sets whether or not read-only ROMIO pixel buffers read from a mapping
+     * of the whole pixels file shared by all the readers of a pixels set
+     * instead of mapping every region read.
+     *
+     * @param sharedMappings See above.
+     * @see PixelsFileMapping
+     */
+    public void setSharedMappings(boolean sharedMappings) {
+        this.sharedMappings = sharedMappings;
+    }
+
+    /**
+     * Sets the number of threads reading the tiles of a pyramid in parallel.
+     * Each has its own pixel buffer and tiles are still written to the
+     * pyramid one at a time in their usual order. Pixels sets which do not
+     * require a pyramid have the statistics of their channels calculated
+     * by as many threads.
+     *
+     * @param pyramidThreads See above. Values less than <code>2</code> read
+     * the tiles on the thread creating the pyramid.
+     */
+    public void setPyramidThreads(int pyramidThreads) {
+        this.pyramidThreads = Math.max(1, pyramidThreads);
+    }
+
+    /**
+     * Sets the number of bins of the histograms of each channel saved when
+     * the statistics of a pixels set which does not require a pyramid are
+     * calculated.
+     *
+     * @param histogramBins See above, rounded down to a power of two.
+     * <code>0</code> saves no histograms.
+     * @see #getHistograms(Pixels)
+     */
+    public void setHistogramBins(int histogramBins) {
+        this.histogramBins = Math.max(0, histogramBins);
+    }
+
     public long getMemoizerWait() {
         return memoizerWait;
     }
@@ -250,33 +327,9 @@ public class PixelsService extends AbstractFileSystemService
         if (!requirePyramid)
         {
             log.debug("Creating only StatsInfo.");
-            int series = getSeries(pixels);
-            final PixelsPyramidMinMaxStore minMaxStore =
-                new PixelsPyramidMinMaxStore(pixels.getSizeC());
-            BfPixelBuffer bfPixelBuffer = createMinMaxBfPixelBuffer(
-                    originalFilePath, series, minMaxStore);
-
             try
             {
-                for (int t = 0; t < pixels.getSizeT(); t++)
-                {
-                    for (int c = 0; c < pixels.getSizeC(); c++)
-                    {
-                        for (int z = 0; z < pixels.getSizeZ(); z++)
-                        {
-                            Timer.Context ctx = minmaxTimes == null ?
-                                null : minmaxTimes.time();
-                            try {
-                                bfPixelBuffer.getPlane(z, c, t);
-                            } finally {
-                                if (ctx != null) {
-                                    ctx.stop();
-                                }
-                            }
-                        }
-                    }
-                }
-                return minMaxStore.createStatsInfo();
+                return calculateStatsInfo(pixels, originalFilePath);
             }
             catch (IOException e)
             {
@@ -351,8 +404,13 @@ public class PixelsService extends AbstractFileSystemService
         {
             minMaxStore = new PixelsPyramidMinMaxStore(pixels.getSizeC());
             int series = getSeries(pixels);
-            BfPixelBuffer bfPixelBuffer = createMinMaxBfPixelBuffer(
-                    originalFilePath, series, minMaxStore);
+            // Tiles read in parallel are spread over several readers, none
+            // of which sees every plane, so their min/max is merged from the
+            // tiles instead.
+            BfPixelBuffer bfPixelBuffer = pyramidThreads > 1 ?
+                    createBfPixelBuffer(originalFilePath, series) :
+                    createMinMaxBfPixelBuffer(
+                            originalFilePath, series, minMaxStore);
             pixelsPyramid.setByteOrder(
                     bfPixelBuffer.isLittleEndian()? ByteOrder.LITTLE_ENDIAN
                             : ByteOrder.BIG_ENDIAN);
@@ -399,6 +457,14 @@ public class PixelsService extends AbstractFileSystemService
                 (Math.ceil(source.getSizeX() / tileSize.getWidth())) *
                 (Math.ceil(source.getSizeY() / tileSize.getHeight()));
             final int tenPercent = Math.max((int) totalTiles / 10, 1);
+            if (pyramidThreads > 1)
+            {
+                writeTilesInParallel(pixels, pixelsPyramidFile, pixelsPyramid,
+                        source, pixelsFile.exists() ? pixelsFilePath : null,
+                        originalFilePath, minMaxStore, tileSize, tenPercent,
+                        totalTiles);
+                return minMaxStore;
+            }
             Utils.forEachTile(new TileLoopIteration() {
                 public void run(int z, int c, int t, int x, int y, int w,
                             int h, int tileCount)
@@ -428,16 +494,7 @@ public class PixelsService extends AbstractFileSystemService
                 catch (IOException e1)
                 {
                     log.error("FAIL -- Error during tile population", e1);
-                    try
-                    {
-                        pixelsPyramidFile.delete();
-                        FileUtils.touch(pixelsPyramidFile); // ticket:5189
-                    }
-                    catch (Exception e2)
-                    {
-                        log.warn("Error clearing empty or incomplete pixel " +
-                                 "buffer.", e2);
-                    }
+                    clearPyramid(pixelsPyramidFile);
                     return;
                 }
             }
@@ -464,6 +521,345 @@ public class PixelsService extends AbstractFileSystemService
         return minMaxStore;
     }
 
+    /**
+     * Calculates the global min/max of each channel of a pixels set from its
+     * original file in a single pass, reading tiles into one reused buffer
+     * per thread. Channels are spread over {@link #pyramidThreads} threads,
+     * each with its own reader. If {@link #histogramBins} is set, the
+     * histograms of the channels are saved as well.
+     * @param pixels Pixels set to calculate the statistics of.
+     * @param originalFilePath Path of the original file.
+     * @return The statistics of each channel.
+     * @throws IOException If the pixel data cannot be read.
+     * @see #getHistograms(Pixels)
+     */
+    protected StatsInfo[] calculateStatsInfo(final Pixels pixels,
+            final String originalFilePath) throws IOException
+    {
+        final int sizeC = pixels.getSizeC();
+        final int series = getSeries(pixels);
+        final String pixelsType = pixels.getPixelsType().getValue();
+        final ChannelStatistics[] statistics = new ChannelStatistics[sizeC];
+        for (int c = 0; c < sizeC; c++)
+        {
+            statistics[c] = new ChannelStatistics(pixelsType, histogramBins);
+        }
+        final int threads = Math.max(1, Math.min(pyramidThreads, sizeC));
+        if (threads == 1)
+        {
+            calculateChannelStatistics(
+                    originalFilePath, series, 0, 1, statistics);
+        }
+        else
+        {
+            final List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+            for (int i = 0; i < threads; i++)
+            {
+                final int first = i;
+                workers.add(new Callable<Void>() {
+                    public Void call() throws IOException {
+                        calculateChannelStatistics(originalFilePath, series,
+                                first, threads, statistics);
+                        return null;
+                    }
+                });
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try
+            {
+                for (Future<Void> future : executor.invokeAll(workers))
+                {
+                    future.get();
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted calculating min/max.", e);
+            }
+            catch (ExecutionException e)
+            {
+                if (e.getCause() instanceof IOException)
+                {
+                    throw (IOException) e.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException)
+                {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+        }
+
+        final StatsInfo[] statsInfo = new StatsInfo[sizeC];
+        for (int c = 0; c < sizeC; c++)
+        {
+            statsInfo[c] = statistics[c].createStatsInfo();
+        }
+        if (histogramBins > 0)
+        {
+            saveHistograms(pixels, statistics);
+        }
+        return statsInfo;
+    }
+
+    /**
+     * Streams the channels <code>first, first + step, ...</code> through
+     * their statistics with a reader of their own.
+     * @param originalFilePath Path of the original file.
+     * @param series Series of the pixels set in the original file.
+     * @param first The first channel.
+     * @param step The step between channels.
+     * @param statistics The statistics of every channel.
+     * @throws IOException If the pixel data cannot be read.
+     */
+    private void calculateChannelStatistics(String originalFilePath,
+            int series, int first, int step, ChannelStatistics[] statistics)
+            throws IOException
+    {
+        BfPixelBuffer reader = createBfPixelBuffer(originalFilePath, series);
+        try
+        {
+            for (int c = first; c < statistics.length; c += step)
+            {
+                calculateChannelStatistics(reader, c, statistics[c]);
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Streams every plane of a channel through its statistics, tile by tile.
+     * @param reader Reader of the original file, used by this thread only.
+     * @param c The channel.
+     * @param statistics The statistics of the channel.
+     * @throws IOException If the pixel data cannot be read.
+     */
+    private void calculateChannelStatistics(BfPixelBuffer reader, int c,
+            ChannelStatistics statistics) throws IOException
+    {
+        final int sizeX = reader.getSizeX();
+        final int sizeY = reader.getSizeY();
+        final Dimension tileSize = reader.getTileSize();
+        final int tileWidth = Math.max(1,
+                Math.min(sizeX, (int) tileSize.getWidth()));
+        final int tileHeight = Math.max(1,
+                Math.min(sizeY, (int) tileSize.getHeight()));
+        // getTileDirect() returns big-endian data.
+        final byte[] buffer =
+            new byte[tileWidth * tileHeight * reader.getByteWidth()];
+        final ByteBuffer data = ByteBuffer.wrap(buffer);
+        for (int t = 0; t < reader.getSizeT(); t++)
+        {
+            for (int z = 0; z < reader.getSizeZ(); z++)
+            {
+                Timer.Context ctx = minmaxTimes == null ?
+                    null : minmaxTimes.time();
+                try
+                {
+                    for (int y = 0; y < sizeY; y += tileHeight)
+                    {
+                        final int h = Math.min(tileHeight, sizeY - y);
+                        for (int x = 0; x < sizeX; x += tileWidth)
+                        {
+                            final int w = Math.min(tileWidth, sizeX - x);
+                            reader.getTileDirect(z, c, t, x, y, w, h, buffer);
+                            statistics.update(data, w * h);
+                        }
+                    }
+                }
+                finally
+                {
+                    if (ctx != null)
+                    {
+                        ctx.stop();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the histograms of the channels of a pixels set next to its
+     * pixels file. A failure is only logged since the histograms are
+     * optional.
+     * @param pixels Pixels set the histograms are for.
+     * @param statistics The statistics of each channel.
+     */
+    private void saveHistograms(Pixels pixels, ChannelStatistics[] statistics)
+    {
+        final String path = getPixelsPath(pixels.getId()) + HISTOGRAM_SUFFIX;
+        try
+        {
+            createSubpath(path);
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(path)));
+            try
+            {
+                out.writeInt(statistics.length);
+                for (ChannelStatistics channel : statistics)
+                {
+                    long[] histogram = channel.getHistogram();
+                    if (histogram == null)
+                    {
+                        out.writeInt(0);
+                        continue;
+                    }
+                    out.writeInt(histogram.length);
+                    for (long bin : histogram)
+                    {
+                        out.writeLong(bin);
+                    }
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        catch (IOException e)
+        {
+            log.warn("Error saving histograms: " + path, e);
+            new File(path).delete();
+        }
+    }
+
+    /**
+     * Returns the histograms of each channel of a pixels set saved when its
+     * statistics were calculated. Bin <code>i</code> of a histogram counts
+     * the pixels from <code>typeMinimum + i * binWidth</code>, the bins
+     * evenly dividing the range of the pixel type.
+     * @param pixels Pixels set to retrieve the histograms of.
+     * @return The histogram of each channel, <code>null</code> for channels
+     * of a floating point type, or <code>null</code> if no histograms were
+     * saved.
+     * @throws IOException If the histograms cannot be read.
+     * @see #setHistogramBins(int)
+     */
+    public long[][] getHistograms(Pixels pixels) throws IOException
+    {
+        final File file =
+            new File(getPixelsPath(pixels.getId()) + HISTOGRAM_SUFFIX);
+        if (!file.exists())
+        {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)));
+        try
+        {
+            final long[][] histograms = new long[in.readInt()][];
+            for (int c = 0; c < histograms.length; c++)
+            {
+                int bins = in.readInt();
+                if (bins == 0)
+                {
+                    continue;
+                }
+                histograms[c] = new long[bins];
+                for (int i = 0; i < bins; i++)
+                {
+                    histograms[c][i] = in.readLong();
+                }
+            }
+            return histograms;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Leaves an empty pyramid file behind after a failure so that further
+     * requests get an exception rather than being told to try indefinitely.
+     * (see ticket:5189)
+     * @param pixelsPyramidFile The pyramid file being written.
+     */
+    private void clearPyramid(File pixelsPyramidFile)
+    {
+        try
+        {
+            pixelsPyramidFile.delete();
+            FileUtils.touch(pixelsPyramidFile); // ticket:5189
+        }
+        catch (Exception e)
+        {
+            log.warn("Error clearing empty or incomplete pixel buffer.", e);
+        }
+    }
+
+    /**
+     * Populates a pyramid with tiles read by {@link #pyramidThreads} threads,
+     * each with its own pixel buffer.
+     * @param pixels Pixels set the pyramid is for.
+     * @param pixelsPyramidFile The pyramid file, cleared on failure.
+     * @param pixelsPyramid The pyramid to populate.
+     * @param source The pixel buffer of the first reader.
+     * @param pixelsFilePath Path of the ROMIO pixels file or
+     * <code>null</code> if the tiles are read from the original file.
+     * @param originalFilePath Path of the original file.
+     * @param minMaxStore Store the min/max of the tiles read from the
+     * original file are merged into, <code>null</code> for a ROMIO source.
+     * @param tileSize Size of the tiles.
+     * @param tenPercent Number of tiles between progress messages.
+     * @param totalTiles Total number of tiles.
+     */
+    private void writeTilesInParallel(Pixels pixels, File pixelsPyramidFile,
+            BfPyramidPixelBuffer pixelsPyramid, PixelBuffer source,
+            String pixelsFilePath, String originalFilePath,
+            PixelsPyramidMinMaxStore minMaxStore, Dimension tileSize,
+            int tenPercent, double totalTiles)
+    {
+        final int threads = pyramidThreads;
+        final BlockingQueue<PixelBuffer> readers =
+            new ArrayBlockingQueue<PixelBuffer>(threads);
+        final List<PixelBuffer> opened = new ArrayList<PixelBuffer>();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            readers.add(source);
+            for (int i = 1; i < threads; i++)
+            {
+                PixelBuffer reader = pixelsFilePath != null ?
+                        createRomioPixelBuffer(pixelsFilePath, pixels, false) :
+                        createBfPixelBuffer(
+                                originalFilePath, getSeries(pixels));
+                opened.add(reader);
+                readers.add(reader);
+            }
+            ParallelTileWriter writer = new ParallelTileWriter(pixels,
+                    pixelsPyramidFile, pixelsPyramid, executor, readers,
+                    2 * threads, pixelsFilePath != null, minMaxStore,
+                    tenPercent, totalTiles);
+            Utils.forEachTile(writer, source,
+                    (int) tileSize.getWidth(), (int) tileSize.getHeight());
+            writer.finish();
+        }
+        finally
+        {
+            executor.shutdownNow();
+            for (PixelBuffer reader : opened)
+            {
+                try
+                {
+                    reader.close();
+                }
+                catch (IOException e)
+                {
+                    log.error("Error closing pixel buffer.", e);
+                }
+            }
+        }
+    }
+
     /**
      * Returns a pixel buffer for a given set of pixels. Either a proprietary
      * ROMIO pixel buffer or a specific pixel buffer implementation.
@@ -855,7 +1251,8 @@ public class PixelsService extends AbstractFileSystemService
      */
     protected PixelBuffer createRomioPixelBuffer(String pixelsFilePath,
         Pixels pixels, boolean allowModification) {
-        return new RomioPixelBuffer(pixelsFilePath, pixels, allowModification);
+        return new RomioPixelBuffer(pixelsFilePath, pixels, allowModification,
+                sharedMappings);
     }
 
     /**
@@ -890,29 +1287,239 @@ public class PixelsService extends AbstractFileSystemService
 		}
 	}
 
+    /**
+     * Reads tiles on an executor, each with one of a pool of pixel buffers,
+     * and hands them to a pyramid in the order they were submitted by
+     * {@link Utils#forEachTile(TileLoopIteration, PixelBuffer, int, int)}
+     * since the pyramid writer is sequential. At most <code>window</code>
+     * tiles are read ahead of the pyramid. Once a tile fails the pyramid is
+     * cleared and no further tiles are read.
+     */
+    private class ParallelTileWriter implements TileLoopIteration
+    {
+        private final Pixels pixels;
+
+        private final File pixelsPyramidFile;
+
+        private final BfPyramidPixelBuffer pixelsPyramid;
+
+        private final ExecutorService executor;
+
+        private final BlockingQueue<PixelBuffer> readers;
+
+        private final int window;
+
+        private final boolean romio;
+
+        private final PixelsPyramidMinMaxStore minMaxStore;
+
+        private final int tenPercent;
+
+        private final double totalTiles;
+
+        /** The tiles being read, in the order they must be written. */
+        private final Deque<PendingTile> pending = new ArrayDeque<PendingTile>();
+
+        private boolean failed;
+
+        ParallelTileWriter(Pixels pixels, File pixelsPyramidFile,
+                BfPyramidPixelBuffer pixelsPyramid, ExecutorService executor,
+                BlockingQueue<PixelBuffer> readers, int window, boolean romio,
+                PixelsPyramidMinMaxStore minMaxStore, int tenPercent,
+                double totalTiles)
+        {
+            this.pixels = pixels;
+            this.pixelsPyramidFile = pixelsPyramidFile;
+            this.pixelsPyramid = pixelsPyramid;
+            this.executor = executor;
+            this.readers = readers;
+            this.window = window;
+            this.romio = romio;
+            this.minMaxStore = minMaxStore;
+            this.tenPercent = tenPercent;
+            this.totalTiles = totalTiles;
+        }
+
+        public void run(int z, int c, int t, int x, int y, int w, int h,
+                int tileCount)
+        {
+            if (failed)
+            {
+                return;
+            }
+            if (log.isInfoEnabled()
+                && tileCount % tenPercent == 0)
+            {
+                log.info(String.format(
+                        "Pyramid creation for Pixels:%d %d/%d (%d%%).",
+                        pixels.getId(), tileCount + 1, (int) totalTiles,
+                        (int) (tileCount / totalTiles * 100)));
+            }
+            PendingTile tile = new PendingTile(z, c, t, x, y, w, h);
+            tile.data = executor.submit(tile);
+            pending.add(tile);
+            if (pending.size() >= window)
+            {
+                writeTile();
+            }
+        }
+
+        /**
+         * Writes the tiles still being read.
+         */
+        void finish()
+        {
+            while (!failed && !pending.isEmpty())
+            {
+                writeTile();
+            }
+        }
+
+        /**
+         * Waits for the oldest tile being read and writes it.
+         */
+        private void writeTile()
+        {
+            PendingTile tile = pending.poll();
+            try
+            {
+                pixelsPyramid.setTile(tile.data.get(), tile.z, tile.c, tile.t,
+                        tile.x, tile.y, tile.w, tile.h);
+                return;
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                log.error("FAIL -- Interrupted during tile population");
+            }
+            catch (ExecutionException e)
+            {
+                log.error("FAIL -- Error during tile population", e.getCause());
+            }
+            catch (IOException e)
+            {
+                log.error("FAIL -- Error during tile population", e);
+            }
+            failed = true;
+            for (PendingTile remaining : pending)
+            {
+                remaining.data.cancel(true);
+            }
+            pending.clear();
+            clearPyramid(pixelsPyramidFile);
+        }
+
+        /**
+         * A tile read on the executor.
+         */
+        private class PendingTile implements Callable<byte[]>
+        {
+            final int z, c, t, x, y, w, h;
+
+            Future<byte[]> data;
+
+            PendingTile(int z, int c, int t, int x, int y, int w, int h)
+            {
+                this.z = z;
+                this.c = c;
+                this.t = t;
+                this.x = x;
+                this.y = y;
+                this.w = w;
+                this.h = h;
+            }
+
+            public byte[] call() throws Exception
+            {
+                PixelBuffer reader = readers.take();
+                Timer.Context ctx = tileTimes == null ? null : tileTimes.time();
+                try {
+                    if (romio) {
+                        // Positional reads rather than mapping the plane.
+                        return reader.getTileDirect(z, c, t, x, y, w, h,
+                                new byte[w * h * reader.getByteWidth()]);
+                    }
+                    PixelData tile = reader.getTile(z, c, t, x, y, w, h);
+                    minMaxStore.updateChannelMinMax(c, tile);
+                    return tile.getData().array();
+                } finally {
+                    if (ctx != null) {
+                        ctx.stop();
+                    }
+                    readers.add(reader);
+                }
+            }
+        }
+    }
+
     class PixelsPyramidMinMaxStore implements IMinMaxStore
     {
         final double[][] channelGlobalMinMax;
 
         final int sizeC;
 
+        /** Whether tiles of each channel have been merged in yet. */
+        final boolean[] channelUpdated;
+
         public PixelsPyramidMinMaxStore(int sizeC)
         {
             this.sizeC = sizeC;
             channelGlobalMinMax = new double[sizeC][2];
+            channelUpdated = new boolean[sizeC];
+        }
+
+        /**
+         * Merges the min/max of a tile into the global min/max of its
+         * channel. Used in place of a {@link MinMaxCalculator} when tiles
+         * are read by several readers.
+         * @param channel Channel of the tile.
+         * @param tile Pixel data of the tile.
+         */
+        public void updateChannelMinMax(int channel, PixelData tile)
+        {
+            int size = tile.size();
+            if (size == 0)
+            {
+                return;
+            }
+            double min = tile.getPixelValue(0);
+            double max = min;
+            for (int i = 1; i < size; i++)
+            {
+                double value = tile.getPixelValue(i);
+                if (value < min)
+                {
+                    min = value;
+                }
+                else if (value > max)
+                {
+                    max = value;
+                }
+            }
+            synchronized (this)
+            {
+                if (channelUpdated[channel])
+                {
+                    min = Math.min(min, channelGlobalMinMax[channel][0]);
+                    max = Math.max(max, channelGlobalMinMax[channel][1]);
+                }
+                channelUpdated[channel] = true;
+                channelGlobalMinMax[channel][0] = min;
+                channelGlobalMinMax[channel][1] = max;
+            }
         }
 
         /* (non-Javadoc)
          * @see loci.formats.meta.IMinMaxStore#setChannelGlobalMinMax(int, double, double, int)
          */
-        public void setChannelGlobalMinMax(int channel, double minimum,
+        public synchronized void setChannelGlobalMinMax(int channel, double minimum,
                                            double maximum, int series)
         {
             channelGlobalMinMax[channel][0] = minimum;
             channelGlobalMinMax[channel][1] = maximum;
         }
 
-        public StatsInfo[] createStatsInfo()
+        public synchronized StatsInfo[] createStatsInfo()
         {
             StatsInfo[] statsInfo = new StatsInfo[sizeC];
             for (int c = 0; c < sizeC; c++)
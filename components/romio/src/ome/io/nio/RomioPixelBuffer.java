@@ -80,6 +80,23 @@ public class RomioPixelBuffer extends AbstractBuffer implements PixelBuffer {
      */
     private final boolean permitModification;
 
+    /**
+     * Whether or not regions are read from a {@link PixelsFileMapping} shared
+     * with the other read-only buffers of the same pixels file instead of
+     * being mapped on every call.
+     */
+    private final boolean sharedMapping;
+
+    /** The shared mapping once acquired, released on {@link #close()}. */
+    private PixelsFileMapping mapping;
+
+    /**
+     * Per thread buffer into which the rows of hypercubes strided along X
+     * are read, grown as needed.
+     */
+    private static final ThreadLocal<byte[]> ROW_BUFFER =
+        new ThreadLocal<byte[]>();
+
     /**
      * Creates a new instance. {@link #permitModification} defaults to false.
      * 
@@ -97,6 +114,23 @@ public class RomioPixelBuffer extends AbstractBuffer implements PixelBuffer {
      * @param pixels The pixels object to handle.
      */
     public RomioPixelBuffer(String path, Pixels pixels, boolean permitModification) {
+        this(path, pixels, permitModification, false);
+    }
+
+    /**
+     * Creates a new instance, with manual setting of
+     * {@link #permitModification} and {@link #sharedMapping}. A shared
+     * mapping is only used if modification is not permitted since it is
+     * read-only.
+     *
+     * @param path The path to the file.
+     * @param pixels The pixels object to handle.
+     * @param permitModification Whether or not data can be written.
+     * @param sharedMapping Whether or not to read regions from a mapping of
+     * the whole file shared with other buffers.
+     */
+    public RomioPixelBuffer(String path, Pixels pixels,
+            boolean permitModification, boolean sharedMapping) {
         super(path);
         if (pixels == null) {
             throw new NullPointerException(
@@ -104,6 +138,7 @@ public class RomioPixelBuffer extends AbstractBuffer implements PixelBuffer {
         }
         this.pixels = pixels;
         this.permitModification = permitModification;
+        this.sharedMapping = sharedMapping && !permitModification;
     }
 
     private void throwIfReadOnly() {
@@ -172,12 +207,37 @@ public class RomioPixelBuffer extends AbstractBuffer implements PixelBuffer {
     }
 
     /**
-     * Closes the buffer, cleaning up file state.
+     * Returns the shared mapping of the pixels file, acquiring it on first
+     * use.
+     *
+     * @return See above.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private PixelsFileMapping getMapping() throws IOException {
+        if (mapping == null) {
+            mapping = PixelsFileMapping.acquire(getPath());
+        }
+        return mapping;
+    }
+
+    /**
+     * Closes the buffer, cleaning up file state. Regions read from a shared
+     * mapping must not be used once the buffer is closed.
      * 
      * @throws IOException
      *             if an I/O error occurs.
      */
     public void close() throws IOException {
+        if (mapping != null) {
+            try {
+                mapping.release();
+            } catch (Exception e) {
+                log.error("Error releasing mapping", e);
+            } finally {
+                mapping = null;
+            }
+        }
+
         if (channel != null) {
             try {
                 channel.close();
@@ -335,6 +395,13 @@ public class RomioPixelBuffer extends AbstractBuffer implements PixelBuffer {
 	 */
     public PixelData getRegion(Integer size, Long offset)
             throws IOException {
+        if (sharedMapping) {
+            ByteBuffer b = getMapping().getRegion(offset, size);
+            if (b != null) {
+                return new PixelData(pixels.getPixelsType().getValue(), b);
+            }
+            // Beyond the length of the file when it was mapped.
+        }
         FileChannel fileChannel = getFileChannel();
 
         /*
@@ -355,12 +422,59 @@ public class RomioPixelBuffer extends AbstractBuffer implements PixelBuffer {
     {
 		if (buffer.length != size)
 			throw new ApiUsageException("Buffer size incorrect.");
-		final PixelData pd = getRegion(size, offset);
-		pd.getData().get(buffer);
-		pd.dispose();
+		readRegion(offset, ByteBuffer.wrap(buffer));
 		return buffer;
     }
 
+    /**
+     * Reads a region of the pixels file straight into the remaining bytes
+     * of a heap buffer with positional reads, or copies it from the shared
+     * mapping if there is one. Bytes beyond the end of the file, which have
+     * not been written yet, are read as zeros.
+     *
+     * @param offset The offset of the region in the file.
+     * @param dst The buffer to read into, its position is advanced to its
+     * limit.
+     * @throws IOException If there is a problem reading from the file.
+     */
+    private void readRegion(long offset, ByteBuffer dst) throws IOException {
+        if (sharedMapping) {
+            ByteBuffer region = getMapping().getRegion(offset, dst.remaining());
+            if (region != null) {
+                dst.put(region);
+                return;
+            }
+        }
+        FileChannel fileChannel = getFileChannel();
+        long position = offset;
+        while (dst.hasRemaining()) {
+            int read = fileChannel.read(dst, position);
+            if (read < 0) {
+                Arrays.fill(dst.array(), dst.arrayOffset() + dst.position(),
+                        dst.arrayOffset() + dst.limit(), (byte) 0);
+                dst.position(dst.limit());
+                break;
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Returns this thread's row buffer, at least <code>size</code> bytes
+     * long.
+     *
+     * @param size The minimum size.
+     * @return See above.
+     */
+    private static byte[] getRowBuffer(int size) {
+        byte[] buffer = ROW_BUFFER.get();
+        if (buffer == null || buffer.length < size) {
+            buffer = new byte[size];
+            ROW_BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+
     /**
      * Implemented as specified by {@link PixelBuffer} I/F.
      * @see PixelBuffer#getRow(Integer, Integer, Integer, Integer)
@@ -407,9 +521,7 @@ public class RomioPixelBuffer extends AbstractBuffer implements PixelBuffer {
     {
 		if (buffer.length != getRowSize())
 			throw new ApiUsageException("Buffer size incorrect.");
-		final PixelData pd = getRow(y, z, c, t);
-		pd.getData().get(buffer);
-		pd.dispose();
+		readRegion(getRowOffset(y, z, c, t), ByteBuffer.wrap(buffer));
 		return buffer;
     }
     
@@ -472,11 +584,9 @@ public class RomioPixelBuffer extends AbstractBuffer implements PixelBuffer {
 			Integer count, Integer offset, byte[] buffer)
 		throws IOException, DimensionsOutOfBoundsException
 	{
-		final PixelData pd = getPlane(z, c, t);
-		final ByteBuffer b = pd.getData();
-		b.position(offset * getByteWidth());
-		b.get(buffer, 0, count * getByteWidth());
-		pd.dispose();
+		int byteWidth = getByteWidth();
+		readRegion(getPlaneOffset(z, c, t) + (long) offset * byteWidth,
+				ByteBuffer.wrap(buffer, 0, count * byteWidth));
 		return buffer;
 	}
 
@@ -563,9 +673,7 @@ public class RomioPixelBuffer extends AbstractBuffer implements PixelBuffer {
     {
 		if (buffer.length != getPlaneSize())
 			throw new ApiUsageException("Buffer size incorrect.");
-		final PixelData pd = getPlane(z, c, t);
-		pd.getData().get(buffer);
-		pd.dispose();
+		readRegion(getPlaneOffset(z, c, t), ByteBuffer.wrap(buffer));
 		return buffer;
     }
 
@@ -590,9 +698,7 @@ public class RomioPixelBuffer extends AbstractBuffer implements PixelBuffer {
     {
 		if (buffer.length != getStackSize())
 			throw new ApiUsageException("Buffer size incorrect.");
-		final PixelData pd = getStack(c, t);
-		pd.getData().get(buffer);
-		pd.dispose();
+		readRegion(getStackOffset(c, t), ByteBuffer.wrap(buffer));
 		return buffer;
     }
 
@@ -617,9 +723,7 @@ public class RomioPixelBuffer extends AbstractBuffer implements PixelBuffer {
     {
 		if (buffer.length != getTimepointSize())
 			throw new ApiUsageException("Buffer size incorrect.");
-		final PixelData pd = getTimepoint(t);
-		pd.getData().get(buffer);
-		pd.dispose();
+		readRegion(getTimepointOffset(t), ByteBuffer.wrap(buffer));
 		return buffer;
     }
 
@@ -979,56 +1083,83 @@ public class RomioPixelBuffer extends AbstractBuffer implements PixelBuffer {
         return cubeSize;
     }
 
-    /*
-     * Temporary helpers. May be factored out.
-     * This code is repeated in bfPixelWrapper and so needs refactoring.
+    /**
+     * Reads a hypercube straight into <code>cube</code>. Rows which follow
+     * each other in the file, e.g. those of full width tiles or whole planes,
+     * are coalesced into a single positional read. Rows strided along X are
+     * read into this thread's row buffer and their pixels picked from it.
      */
     private byte[] getWholeHypercube(List<Integer> offset, List<Integer> size,
-            List<Integer> step, byte[] cube) throws IOException {
-        int cubeOffset = 0;
-        int xStripes = (size.get(0) + step.get(0) - 1) / step.get(0);
+            List<Integer> step, byte[] cube)
+            throws IOException, DimensionsOutOfBoundsException {
         int pixelSize = getByteWidth();
+        int rowSize = getRowSize();
+        int xStep = step.get(0);
+        int xStripes = (size.get(0) + xStep - 1) / xStep;
         int tileRowSize = pixelSize * xStripes;
-        byte[] plane = new byte[safeLongToInteger(getPlaneSize())];
+        // Bytes from the first to the last pixel of a row strided along X.
+        int rowSpan = ((xStripes - 1) * xStep + 1) * pixelSize;
+        ByteBuffer dst = ByteBuffer.wrap(cube);
+        // Pending run of contiguous rows, read at dst's position.
+        long runOffset = 0;
+        int runSize = 0;
         for(int t = offset.get(4); t < size.get(4)+offset.get(4); t += step.get(4))
         {
             for(int c = offset.get(3); c < size.get(3)+offset.get(3); c += step.get(3))
             {
                 for(int z = offset.get(2); z < size.get(2)+offset.get(2); z += step.get(2))
                 {
-                    getPlaneDirect(z,c,t,plane);
-                    int rowOffset = offset.get(1)*getRowSize();
-                    if(step.get(0)==1)
+                    long planeOffset = getPlaneOffset(z, c, t);
+                    for(int y = offset.get(1); y < size.get(1)+offset.get(1); y += step.get(1))
                     {
-                        int byteOffset = rowOffset + offset.get(0)*pixelSize;
-                        for(int y = offset.get(1); y < size.get(1)+offset.get(1); y += step.get(1))
+                        long rowOffset = planeOffset + (long) y * rowSize
+                            + (long) offset.get(0) * pixelSize;
+                        if (xStep == 1)
                         {
-                            System.arraycopy(plane, byteOffset, cube, cubeOffset, tileRowSize);
-                            cubeOffset += tileRowSize;
-                            byteOffset += getRowSize()*step.get(1);
+                            if (runSize > 0 && runOffset + runSize == rowOffset)
+                            {
+                                runSize += tileRowSize;
+                                continue;
+                            }
+                            readRun(runOffset, runSize, dst);
+                            runOffset = rowOffset;
+                            runSize = tileRowSize;
                         }
-                    }
-                    else
-                    {
-                        for(int y = offset.get(1); y < size.get(1)+offset.get(1); y += step.get(1))
+                        else
                         {
-                            int byteOffset = offset.get(0)*pixelSize;
-                            for(int x = offset.get(0); x < size.get(0)+offset.get(0); x += step.get(0))
+                            byte[] row = getRowBuffer(rowSpan);
+                            readRegion(rowOffset, ByteBuffer.wrap(row, 0, rowSpan));
+                            int cubeOffset = dst.position();
+                            for (int i = 0; i < rowSpan; i += xStep * pixelSize)
                             {
-                                System.arraycopy(plane, rowOffset+byteOffset, cube, cubeOffset, pixelSize);
+                                System.arraycopy(row, i, cube, cubeOffset, pixelSize);
                                 cubeOffset += pixelSize;
-                                byteOffset += step.get(0)*pixelSize;
                             }
-                            rowOffset += getRowSize()*step.get(1);
+                            dst.position(cubeOffset);
                         }
                     }
-
                 }
             }
         }
+        readRun(runOffset, runSize, dst);
         return cube;
     }
-    
+
+    /**
+     * Reads a run of contiguous bytes at the position of <code>dst</code>,
+     * advancing it.
+     */
+    private void readRun(long offset, int size, ByteBuffer dst)
+            throws IOException {
+        if (size == 0)
+        {
+            return;
+        }
+        dst.limit(dst.position() + size);
+        readRegion(offset, dst);
+        dst.limit(dst.capacity());
+    }
+
     private void checkCubeBounds(List<Integer> offset, List<Integer> size, List<Integer> step)
             throws DimensionsOutOfBoundsException {
         // At the moment the array must contain 5 values
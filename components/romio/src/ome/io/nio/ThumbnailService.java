@@ -11,12 +11,20 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
 import ome.conditions.ResourceError;
 import ome.model.display.Thumbnail;
+import ome.system.metrics.Counter;
+import ome.system.metrics.Metrics;
+import ome.system.metrics.NullMetrics;
 import ome.util.Utils;
 
 /**
@@ -29,12 +37,128 @@ public class ThumbnailService extends AbstractFileSystemService {
     private transient static Logger log = LoggerFactory
             .getLogger(ThumbnailService.class);
 
+    /**
+     * Compressed thumbnail bytes as last read from or written to disk.
+     */
+    private static class CachedThumbnail {
+
+        /** The version of the thumbnail metadata the bytes were read for. */
+        final Integer version;
+
+        /** The compressed thumbnail. */
+        final byte[] buf;
+
+        CachedThumbnail(Integer version, byte[] buf) {
+            this.version = version;
+            this.buf = buf;
+        }
+
+        boolean isVersion(Integer version) {
+            return this.version == null ?
+                    version == null : this.version.equals(version);
+        }
+    }
+
+    /**
+     * Least recently used thumbnails by ID, bounded by their total size;
+     * <code>null</code> if caching is disabled.
+     */
+    private Cache<Long, CachedThumbnail> cache;
+
+    /**
+     * Incremented on every invalidation so that a read racing a write to the
+     * same thumbnail does not cache what it read.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private Counter cacheHits;
+
+    private Counter cacheMisses;
+
     /**
      * Constructor
      * @param path
      */
     public ThumbnailService(String path) {
         super(path);
+        setMetrics(new NullMetrics());
+    }
+
+    /**
+     * Sets the maximum total size of the thumbnails kept in memory.
+     *
+     * @param cacheSize the size in bytes, 0 disables caching.
+     */
+    public void setCacheSize(long cacheSize) {
+        if (cacheSize <= 0) {
+            cache = null;
+            return;
+        }
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(cacheSize)
+                .weigher(new Weigher<Long, CachedThumbnail>() {
+                    public int weigh(Long id, CachedThumbnail thumbnail) {
+                        return thumbnail.buf.length;
+                    }
+                })
+                .build();
+        log.info("Caching up to " + cacheSize + " bytes of thumbnails");
+    }
+
+    public void setMetrics(Metrics metrics) {
+        this.cacheHits = metrics.counter(this, "cacheHits");
+        this.cacheMisses = metrics.counter(this, "cacheMisses");
+    }
+
+    /**
+     * Returns a copy of the cached bytes of a thumbnail if the cached version
+     * is that of the thumbnail metadata, counting hits and misses.
+     *
+     * @param thumbnail the thumbnail metadata.
+     * @return See above or <code>null</code> on a miss.
+     */
+    private byte[] getCachedThumbnail(Thumbnail thumbnail) {
+        Cache<Long, CachedThumbnail> cache = this.cache;
+        if (cache == null) {
+            return null;
+        }
+        CachedThumbnail cached = cache.getIfPresent(thumbnail.getId());
+        if (cached != null && cached.isVersion(thumbnail.getVersion())) {
+            cacheHits.inc();
+            return cached.buf.clone();
+        }
+        cacheMisses.inc();
+        return null;
+    }
+
+    /**
+     * Caches a copy of the bytes of a thumbnail unless it has been written
+     * or removed since <code>since</code> was obtained from
+     * {@link #generation}.
+     *
+     * @param thumbnail the thumbnail metadata.
+     * @param buf the compressed thumbnail.
+     * @param since the generation before the thumbnail was read.
+     */
+    private void cacheThumbnail(Thumbnail thumbnail, byte[] buf, long since) {
+        Cache<Long, CachedThumbnail> cache = this.cache;
+        if (cache != null && generation.get() == since) {
+            cache.put(thumbnail.getId(),
+                    new CachedThumbnail(thumbnail.getVersion(), buf.clone()));
+        }
+    }
+
+    /**
+     * Discards the cached bytes of a thumbnail.
+     *
+     * @param id the thumbnail ID.
+     */
+    private void invalidate(Long id) {
+        generation.incrementAndGet();
+        Cache<Long, CachedThumbnail> cache = this.cache;
+        if (cache != null) {
+            cache.invalidate(id);
+        }
     }
 
     /**
@@ -49,9 +173,14 @@ public class ThumbnailService extends AbstractFileSystemService {
         String path = getThumbnailPath(thumbnail.getId());
         createSubpath(path);
 
+        invalidate(thumbnail.getId());
         FileOutputStream stream = new FileOutputStream(path);
-        stream.write(buf);
-        stream.close();
+        try {
+            stream.write(buf);
+        } finally {
+            stream.close();
+            invalidate(thumbnail.getId());
+        }
     }
 
     /**
@@ -72,8 +201,15 @@ public class ThumbnailService extends AbstractFileSystemService {
      * @throws IOException
      */
     public byte[] getThumbnail(Thumbnail thumbnail) throws IOException {
-        byte[] buf = new byte[(int) getThumbnailLength(thumbnail)];
-        return getThumbnail(thumbnail, buf);
+        byte[] buf = getCachedThumbnail(thumbnail);
+        if (buf != null) {
+            return buf;
+        }
+        long since = generation.get();
+        buf = new byte[(int) getThumbnailLength(thumbnail)];
+        readThumbnail(thumbnail, buf);
+        cacheThumbnail(thumbnail, buf, since);
+        return buf;
     }
 
     /**
@@ -86,6 +222,24 @@ public class ThumbnailService extends AbstractFileSystemService {
      */
     public byte[] getThumbnail(Thumbnail thumbnail, byte[] buf)
             throws IOException {
+        byte[] cached = getCachedThumbnail(thumbnail);
+        if (cached != null && cached.length == buf.length) {
+            System.arraycopy(cached, 0, buf, 0, buf.length);
+            return buf;
+        }
+        return readThumbnail(thumbnail, buf);
+    }
+
+    /**
+     * Reads a thumbnail from disk into the given byte array.
+     *
+     * @param thumbnail the thumbnail metadata.
+     * @param buf the byte array to read into.
+     * @return <code>buf</code>.
+     * @throws IOException
+     */
+    private byte[] readThumbnail(Thumbnail thumbnail, byte[] buf)
+            throws IOException {
         String path = getThumbnailPath(thumbnail.getId());
         FileInputStream stream = new FileInputStream(path);
         try {
@@ -105,9 +259,22 @@ public class ThumbnailService extends AbstractFileSystemService {
      */
     public FileOutputStream getThumbnailOutputStream(Thumbnail thumbnail)
             throws IOException {
-        String path = getThumbnailPath(thumbnail.getId());
+        final Long id = thumbnail.getId();
+        String path = getThumbnailPath(id);
         createSubpath(path);
-        return new FileOutputStream(path);
+        invalidate(id);
+        return new FileOutputStream(path) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    // Anything read while the thumbnail was being written
+                    // has not been cached, see cacheThumbnail().
+                    invalidate(id);
+                }
+            }
+        };
     }
 
     /**
@@ -136,6 +303,7 @@ public class ThumbnailService extends AbstractFileSystemService {
 
         for (Long id : thumbnailIds)
         {
+            invalidate(id);
             String thumbnailPath = getThumbnailPath(id);
             file = new File(thumbnailPath);
             if (file.exists())
@@ -0,0 +1,164 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+package ome.io.nio.utests;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import loci.formats.ImageReader;
+import ome.io.bioformats.BfPixelBuffer;
+import ome.io.nio.AbstractFileSystemService;
+import ome.io.nio.ChannelStatistics;
+import ome.io.nio.FilePathResolver;
+import ome.io.nio.PixelsService;
+import ome.model.core.Pixels;
+import ome.model.enums.PixelsType;
+import ome.model.stats.StatsInfo;
+import ome.util.PixelData;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ * Checks the streaming statistics of {@link ChannelStatistics} and their use
+ * by {@link PixelsService} for pixels sets which do not require a pyramid.
+ */
+public class ChannelStatisticsUnitTest {
+
+    private static final String ROOT =
+        PathUtil.getInstance().getTemporaryDataFilePath();
+
+    @AfterClass
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(new File(ROOT));
+    }
+
+    @Test
+    public void testSignedBytes() {
+        ChannelStatistics stats = new ChannelStatistics("int8", 4);
+        stats.update(ByteBuffer.wrap(new byte[] { -128, -1, 0, 5, 127, 99 }), 5);
+        assertEquals(-128.0, stats.getMinimum());
+        assertEquals(127.0, stats.getMaximum());
+        assertEquals(5, stats.getCount());
+        // Bins of 64 values from -128.
+        long[] histogram = stats.getHistogram();
+        assertEquals(4, histogram.length);
+        assertEquals(1, histogram[0]);
+        assertEquals(1, histogram[1]);
+        assertEquals(2, histogram[2]);
+        assertEquals(1, histogram[3]);
+    }
+
+    @Test
+    public void testUnsignedShortsAcrossUpdates() {
+        ChannelStatistics stats = new ChannelStatistics("uint16", 0);
+        ByteBuffer data = ByteBuffer.allocate(6);
+        data.asShortBuffer().put(new short[] { 1000, (short) 65535, 7 });
+        stats.update(data, 3);
+        data.asShortBuffer().put(new short[] { 3, 4, 5 });
+        stats.update(data, 2);
+        assertEquals(3.0, stats.getMinimum());
+        assertEquals(65535.0, stats.getMaximum());
+        assertNull(stats.getHistogram());
+    }
+
+    @Test
+    public void testUnsignedInts() {
+        ChannelStatistics stats = new ChannelStatistics("uint32", 2);
+        ByteBuffer data = ByteBuffer.allocate(8);
+        data.asIntBuffer().put(new int[] { -1, 12 });
+        stats.update(data, 2);
+        assertEquals(12.0, stats.getMinimum());
+        assertEquals(4294967295.0, stats.getMaximum());
+        assertEquals(1, stats.getHistogram()[0]);
+        assertEquals(1, stats.getHistogram()[1]);
+    }
+
+    @Test
+    public void testFloatsHaveNoHistogram() {
+        ChannelStatistics stats = new ChannelStatistics("float", 256);
+        ByteBuffer data = ByteBuffer.allocate(12);
+        data.asFloatBuffer().put(new float[] { -2.5f, 0.25f, 8f });
+        stats.update(data, 3);
+        assertEquals(-2.5, stats.getMinimum());
+        assertEquals(8.0, stats.getMaximum());
+        assertNull(stats.getHistogram());
+    }
+
+    @Test
+    public void testMakePyramidStatsInfo() throws Exception {
+        final String fake = new File(ROOT, "test&sizeX=50&sizeY=40&sizeZ=3"
+                + "&sizeC=3&sizeT=2&pixelType=uint16&.fake").getAbsolutePath();
+        new File(ROOT).mkdirs();
+        PixelsType type = new PixelsType();
+        type.setValue("uint16");
+        Pixels pixels = new Pixels();
+        pixels.setId(1L);
+        pixels.setSizeX(50);
+        pixels.setSizeY(40);
+        pixels.setSizeZ(3);
+        pixels.setSizeC(3);
+        pixels.setSizeT(2);
+        pixels.setPixelsType(type);
+
+        // Expected values from whole planes.
+        BfPixelBuffer reader = new BfPixelBuffer(fake, new ImageReader());
+        double[][] expected = new double[3][];
+        try {
+            for (int c = 0; c < 3; c++) {
+                double min = Double.MAX_VALUE;
+                double max = -Double.MAX_VALUE;
+                for (int t = 0; t < 2; t++) {
+                    for (int z = 0; z < 3; z++) {
+                        PixelData plane = reader.getPlane(z, c, t);
+                        for (int i = 0; i < plane.size(); i++) {
+                            min = Math.min(min, plane.getPixelValue(i));
+                            max = Math.max(max, plane.getPixelValue(i));
+                        }
+                    }
+                }
+                expected[c] = new double[] { min, max };
+            }
+        } finally {
+            reader.close();
+        }
+
+        for (int threads : new int[] { 1, 2 }) {
+            PixelsService service = new PixelsService(ROOT + threads,
+                    new FilePathResolver() {
+                        public String getOriginalFilePath(
+                                AbstractFileSystemService service,
+                                Pixels pixels) {
+                            return fake;
+                        }
+                    }) {
+                public boolean requiresPixelsPyramid(Pixels pixels) {
+                    return false;
+                }
+            };
+            service.setPyramidThreads(threads);
+            service.setHistogramBins(16);
+            StatsInfo[] statsInfo = service.makePyramid(pixels);
+            long[][] histograms = service.getHistograms(pixels);
+            assertEquals(3, statsInfo.length);
+            assertEquals(3, histograms.length);
+            for (int c = 0; c < 3; c++) {
+                assertEquals(expected[c][0], statsInfo[c].getGlobalMin());
+                assertEquals(expected[c][1], statsInfo[c].getGlobalMax());
+                long total = 0;
+                for (long bin : histograms[c]) {
+                    total += bin;
+                }
+                assertEquals(50 * 40 * 3 * 2, total);
+            }
+        }
+    }
+}
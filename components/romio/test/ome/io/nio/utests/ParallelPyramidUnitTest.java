@@ -0,0 +1,128 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+package ome.io.nio.utests;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import ome.io.nio.PixelBuffer;
+import ome.io.nio.PixelsService;
+import ome.io.nio.TileLoopIteration;
+import ome.io.nio.Utils;
+import ome.model.core.Pixels;
+import ome.model.enums.PixelsType;
+import ome.util.PixelData;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Checks that a pyramid whose tiles are read by several threads matches the
+ * pyramid created by reading them one by one.
+ */
+public class ParallelPyramidUnitTest {
+
+    private static final String ROOT =
+        PathUtil.getInstance().getTemporaryDataFilePath();
+
+    // Uneven tile sizes along both X and Y.
+    private static final int SIZE_X = 600;
+
+    private static final int SIZE_Y = 520;
+
+    private static final int SIZE_Z = 2;
+
+    private static final int SIZE_C = 2;
+
+    private Pixels pixels;
+
+    private byte[] data;
+
+    @BeforeClass
+    public void setUp() {
+        PixelsType type = new PixelsType();
+        type.setValue("uint16");
+        pixels = new Pixels();
+        pixels.setId(1L);
+        pixels.setSizeX(SIZE_X);
+        pixels.setSizeY(SIZE_Y);
+        pixels.setSizeZ(SIZE_Z);
+        pixels.setSizeC(SIZE_C);
+        pixels.setSizeT(1);
+        pixels.setPixelsType(type);
+        data = new byte[SIZE_X * SIZE_Y * SIZE_Z * SIZE_C * 2];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 251);
+        }
+    }
+
+    @AfterClass
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(new File(ROOT));
+    }
+
+    /**
+     * Creates the pyramid of {@link #pixels} under its own root.
+     */
+    private PixelsService makePyramid(String name, int threads)
+            throws IOException {
+        PixelsService service = new PixelsService(ROOT + name) {
+            public boolean requiresPixelsPyramid(Pixels pixels) {
+                return true;
+            }
+        };
+        service.setPyramidThreads(threads);
+        FileUtils.writeByteArrayToFile(
+                new File(service.getPixelsPath(pixels.getId())), data);
+        // No StatsInfo from a ROMIO pixels file.
+        assertNull(service.makePyramid(pixels));
+        return service;
+    }
+
+    /**
+     * Reads every tile of the full resolution level of a pyramid.
+     */
+    private List<PixelData> readTiles(PixelsService service)
+            throws IOException {
+        final PixelBuffer pyramid = service.getPixelBuffer(pixels, false);
+        final List<PixelData> tiles = new ArrayList<PixelData>();
+        try {
+            pyramid.setResolutionLevel(pyramid.getResolutionLevels() - 1);
+            Utils.forEachTile(new TileLoopIteration() {
+                public void run(int z, int c, int t, int x, int y, int w,
+                        int h, int tileCount) {
+                    try {
+                        tiles.add(pyramid.getTile(z, c, t, x, y, w, h));
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }, pyramid, 256, 256);
+        } finally {
+            pyramid.close();
+        }
+        return tiles;
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws Exception {
+        List<PixelData> expected = readTiles(makePyramid("sequential", 1));
+        List<PixelData> actual = readTiles(makePyramid("parallel", 3));
+        assertEquals(3 * 3 * SIZE_Z * SIZE_C, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("Tile " + i,
+                    expected.get(i).getData(), actual.get(i).getData());
+        }
+    }
+}
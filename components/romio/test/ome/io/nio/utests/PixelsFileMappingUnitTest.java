@@ -0,0 +1,173 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+package ome.io.nio.utests;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import ome.io.nio.PixelsFileMapping;
+import ome.io.nio.RomioPixelBuffer;
+import ome.model.core.Pixels;
+import ome.model.enums.PixelsType;
+import ome.util.PixelData;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Checks that reads through a {@link PixelsFileMapping} shared by
+ * {@link RomioPixelBuffer}s match reads which map every region.
+ */
+public class PixelsFileMappingUnitTest {
+
+    private static final String ROOT =
+        PathUtil.getInstance().getTemporaryDataFilePath();
+
+    private static final int SIZE_X = 24;
+
+    private static final int SIZE_Y = 16;
+
+    private static final int SIZE_Z = 3;
+
+    private String path;
+
+    private Pixels pixels;
+
+    private byte[] data;
+
+    @BeforeClass
+    public void setUp() throws IOException {
+        PixelsType type = new PixelsType();
+        type.setValue("uint16");
+        pixels = new Pixels();
+        pixels.setId(1L);
+        pixels.setSizeX(SIZE_X);
+        pixels.setSizeY(SIZE_Y);
+        pixels.setSizeZ(SIZE_Z);
+        pixels.setSizeC(1);
+        pixels.setSizeT(1);
+        pixels.setPixelsType(type);
+        data = new byte[SIZE_X * SIZE_Y * SIZE_Z * 2];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        path = ROOT + "1";
+        FileUtils.writeByteArrayToFile(new File(path), data);
+    }
+
+    @AfterClass
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(new File(ROOT));
+    }
+
+    private void assertRegion(int offset, int size, ByteBuffer region) {
+        assertNotNull(region);
+        assertEquals(size, region.remaining());
+        for (int i = 0; i < size; i++) {
+            assertEquals(data[offset + i], region.get(i));
+        }
+    }
+
+    @Test
+    public void testSharedBetweenReaders() throws IOException {
+        PixelsFileMapping a = PixelsFileMapping.acquire(path);
+        PixelsFileMapping b = PixelsFileMapping.acquire(path);
+        try {
+            assertSame(a, b);
+            assertEquals(2, a.getReferences());
+            assertEquals(data.length, a.getLength());
+        } finally {
+            a.release();
+        }
+        assertEquals(1, b.getReferences());
+        b.release();
+        PixelsFileMapping c = PixelsFileMapping.acquire(path);
+        try {
+            assertNotSame(a, c);
+        } finally {
+            c.release();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testReleaseTwice() throws IOException {
+        PixelsFileMapping a = PixelsFileMapping.acquire(path);
+        a.release();
+        a.release();
+    }
+
+    @Test
+    public void testRegionsAcrossSegments() throws IOException {
+        // 64 byte segments
+        PixelsFileMapping mapping = PixelsFileMapping.acquire(path, 6);
+        try {
+            assertRegion(0, 64, mapping.getRegion(0, 64));
+            assertRegion(10, 40, mapping.getRegion(10, 40));
+            assertRegion(60, 8, mapping.getRegion(60, 8));
+            assertRegion(30, 300, mapping.getRegion(30, 300));
+            assertRegion(data.length - 5, 5,
+                    mapping.getRegion(data.length - 5, 5));
+            assertNull(mapping.getRegion(data.length - 5, 6));
+        } finally {
+            mapping.release();
+        }
+    }
+
+    @Test
+    public void testRomioPixelBufferPlanes() throws Exception {
+        RomioPixelBuffer mapped =
+            new RomioPixelBuffer(path, pixels, false, true);
+        RomioPixelBuffer unmapped = new RomioPixelBuffer(path, pixels);
+        try {
+            for (int z = 0; z < SIZE_Z; z++) {
+                PixelData expected = unmapped.getPlane(z, 0, 0);
+                PixelData actual = mapped.getPlane(z, 0, 0);
+                assertEquals(expected.getData(), actual.getData());
+                expected.dispose();
+                actual.dispose();
+            }
+            byte[] tile = new byte[4 * 5 * 2];
+            byte[] expected = new byte[tile.length];
+            unmapped.getTileDirect(1, 0, 0, 3, 7, 4, 5, expected);
+            mapped.getTileDirect(1, 0, 0, 3, 7, 4, 5, tile);
+            assertTrue(Arrays.equals(expected, tile));
+        } finally {
+            mapped.close();
+            unmapped.close();
+        }
+        // Released on close.
+        PixelsFileMapping mapping = PixelsFileMapping.acquire(path);
+        try {
+            assertEquals(1, mapping.getReferences());
+        } finally {
+            mapping.release();
+        }
+    }
+
+    @Test
+    public void testWritableBufferDoesNotMap() throws Exception {
+        RomioPixelBuffer writable =
+            new RomioPixelBuffer(path, pixels, true, true);
+        try {
+            writable.getPlane(0, 0, 0).dispose();
+            PixelsFileMapping mapping = PixelsFileMapping.acquire(path);
+            try {
+                assertEquals(1, mapping.getReferences());
+            } finally {
+                mapping.release();
+            }
+        } finally {
+            writable.close();
+        }
+    }
+}
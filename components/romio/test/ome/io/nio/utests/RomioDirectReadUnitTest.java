@@ -0,0 +1,187 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+package ome.io.nio.utests;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import ome.io.nio.RomioPixelBuffer;
+import ome.model.core.Pixels;
+import ome.model.enums.PixelsType;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Checks the positional reads of the <code>*Direct</code> methods of
+ * {@link RomioPixelBuffer} against the bytes written to the pixels file.
+ */
+public class RomioDirectReadUnitTest {
+
+    private static final String ROOT =
+        PathUtil.getInstance().getTemporaryDataFilePath();
+
+    private static final int SIZE_X = 17;
+
+    private static final int SIZE_Y = 11;
+
+    private static final int SIZE_Z = 3;
+
+    private static final int SIZE_C = 2;
+
+    private static final int BYTE_WIDTH = 2;
+
+    private Pixels pixels;
+
+    private String path;
+
+    private byte[] data;
+
+    @BeforeClass
+    public void setUp() throws IOException {
+        PixelsType type = new PixelsType();
+        type.setValue("uint16");
+        pixels = new Pixels();
+        pixels.setId(1L);
+        pixels.setSizeX(SIZE_X);
+        pixels.setSizeY(SIZE_Y);
+        pixels.setSizeZ(SIZE_Z);
+        pixels.setSizeC(SIZE_C);
+        pixels.setSizeT(1);
+        pixels.setPixelsType(type);
+        data = new byte[SIZE_X * SIZE_Y * SIZE_Z * SIZE_C * BYTE_WIDTH];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 13 + 7);
+        }
+        path = ROOT + "1";
+        FileUtils.writeByteArrayToFile(new File(path), data);
+    }
+
+    @AfterClass
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(new File(ROOT));
+    }
+
+    /**
+     * Returns the expected hypercube, copied pixel by pixel.
+     */
+    private byte[] expectedHypercube(int[] offset, int[] size, int[] step) {
+        byte[] cube = new byte[4096];
+        int i = 0;
+        for (int c = offset[3]; c < offset[3] + size[3]; c += step[3]) {
+            for (int z = offset[2]; z < offset[2] + size[2]; z += step[2]) {
+                for (int y = offset[1]; y < offset[1] + size[1]; y += step[1]) {
+                    for (int x = offset[0]; x < offset[0] + size[0]; x += step[0]) {
+                        int pixel = ((c * SIZE_Z + z) * SIZE_Y + y) * SIZE_X + x;
+                        for (int b = 0; b < BYTE_WIDTH; b++) {
+                            cube[i++] = data[pixel * BYTE_WIDTH + b];
+                        }
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(cube, i);
+    }
+
+    private static List<Integer> list(int[] values, int t) {
+        return Arrays.asList(values[0], values[1], values[2], values[3], t);
+    }
+
+    @DataProvider(name = "hypercubes")
+    public Object[][] hypercubes() {
+        return new Object[][] {
+            // tile within a row
+            { new int[] { 3, 2, 1, 0 }, new int[] { 5, 4, 1, 1 }, new int[] { 1, 1, 1, 1 } },
+            // full width tile, a single read
+            { new int[] { 0, 2, 0, 1 }, new int[] { SIZE_X, 6, 1, 1 }, new int[] { 1, 1, 1, 1 } },
+            // whole planes across Z and C, a single read
+            { new int[] { 0, 0, 0, 0 }, new int[] { SIZE_X, SIZE_Y, SIZE_Z, SIZE_C }, new int[] { 1, 1, 1, 1 } },
+            // strided along Y and Z
+            { new int[] { 0, 1, 0, 0 }, new int[] { SIZE_X, 9, 3, 2 }, new int[] { 1, 3, 2, 1 } },
+            // strided along X
+            { new int[] { 1, 0, 2, 1 }, new int[] { 16, 11, 1, 1 }, new int[] { 3, 2, 1, 1 } },
+            // single pixel
+            { new int[] { 16, 10, 2, 1 }, new int[] { 1, 1, 1, 1 }, new int[] { 1, 1, 1, 1 } },
+        };
+    }
+
+    @Test(dataProvider = "hypercubes")
+    public void testHypercubeDirect(int[] offset, int[] size, int[] step)
+            throws Exception {
+        byte[] expected = expectedHypercube(offset, size, step);
+        for (boolean sharedMapping : new boolean[] { false, true }) {
+            RomioPixelBuffer buffer =
+                new RomioPixelBuffer(path, pixels, false, sharedMapping);
+            try {
+                byte[] actual = new byte[expected.length];
+                buffer.getHypercubeDirect(
+                        list(offset, 0), list(size, 1), list(step, 1), actual);
+                assertTrue(Arrays.equals(expected, actual));
+            } finally {
+                buffer.close();
+            }
+        }
+    }
+
+    @Test
+    public void testTileAndPlaneDirect() throws Exception {
+        RomioPixelBuffer buffer = new RomioPixelBuffer(path, pixels);
+        try {
+            byte[] tile = new byte[4 * 3 * BYTE_WIDTH];
+            buffer.getTileDirect(2, 1, 0, 5, 6, 4, 3, tile);
+            assertTrue(Arrays.equals(expectedHypercube(
+                    new int[] { 5, 6, 2, 1 }, new int[] { 4, 3, 1, 1 },
+                    new int[] { 1, 1, 1, 1 }), tile));
+            byte[] plane = new byte[SIZE_X * SIZE_Y * BYTE_WIDTH];
+            buffer.getPlaneDirect(1, 1, 0, plane);
+            int planeOffset = (SIZE_Z + 1) * plane.length;
+            assertTrue(Arrays.equals(Arrays.copyOfRange(data,
+                    planeOffset, planeOffset + plane.length), plane));
+            byte[] row = new byte[SIZE_X * BYTE_WIDTH];
+            buffer.getRowDirect(3, 0, 0, 0, row);
+            assertTrue(Arrays.equals(Arrays.copyOfRange(data,
+                    3 * row.length, 4 * row.length), row));
+        } finally {
+            buffer.close();
+        }
+    }
+
+    @Test
+    public void testUnwrittenPlaneReadsAsZeros() throws Exception {
+        Pixels taller = new Pixels();
+        taller.setId(2L);
+        taller.setSizeX(SIZE_X);
+        taller.setSizeY(SIZE_Y);
+        taller.setSizeZ(SIZE_Z + 1);
+        taller.setSizeC(1);
+        taller.setSizeT(1);
+        taller.setPixelsType(pixels.getPixelsType());
+        String shortPath = ROOT + "2";
+        int written = SIZE_X * SIZE_Y * SIZE_Z * BYTE_WIDTH + 5;
+        FileUtils.writeByteArrayToFile(new File(shortPath),
+                Arrays.copyOf(data, written));
+        RomioPixelBuffer buffer = new RomioPixelBuffer(shortPath, taller);
+        try {
+            byte[] plane = new byte[SIZE_X * SIZE_Y * BYTE_WIDTH];
+            buffer.getPlaneDirect(SIZE_Z, 0, 0, plane);
+            for (int i = 0; i < plane.length; i++) {
+                assertEquals(i < 5 ? data[written - 5 + i] : 0, plane[i]);
+            }
+            // Reading does not extend the file.
+            assertEquals(written, new File(shortPath).length());
+        } finally {
+            buffer.close();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *   Copyright 2016 University of Dundee. All rights reserved.
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+package ome.io.nio.utests;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import ome.io.nio.ThumbnailService;
+import ome.model.display.Thumbnail;
+import ome.system.metrics.DefaultMetrics;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Checks that thumbnails read through the cache of {@link ThumbnailService}
+ * are never stale.
+ */
+public class ThumbnailServiceCacheUnitTest {
+
+    private static final String ROOT =
+        PathUtil.getInstance().getTemporaryDataFilePath();
+
+    private ThumbnailService service;
+
+    private Thumbnail thumbnail;
+
+    private DefaultMetrics metrics;
+
+    @AfterClass
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(new File(ROOT));
+    }
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        new File(ROOT).mkdirs();
+        metrics = new DefaultMetrics();
+        service = new ThumbnailService(ROOT);
+        service.setCacheSize(1024 * 1024);
+        service.setMetrics(metrics);
+        thumbnail = new Thumbnail();
+        thumbnail.setId(1L);
+        thumbnail.setVersion(0);
+        service.createThumbnail(thumbnail, new byte[] { 1, 2, 3 });
+    }
+
+    private long count(String name) {
+        return metrics.counter(service, name).getCount();
+    }
+
+    @Test
+    public void testHit() throws Exception {
+        assertTrue(Arrays.equals(new byte[] { 1, 2, 3 },
+                service.getThumbnail(thumbnail)));
+        assertEquals(0, count("cacheHits"));
+        assertEquals(1, count("cacheMisses"));
+        byte[] cached = service.getThumbnail(thumbnail);
+        assertTrue(Arrays.equals(new byte[] { 1, 2, 3 }, cached));
+        assertEquals(1, count("cacheHits"));
+        // Modifying what is returned does not modify the cache.
+        cached[0] = 9;
+        assertEquals(1, service.getThumbnail(thumbnail)[0]);
+    }
+
+    @Test
+    public void testNewVersionMisses() throws Exception {
+        service.getThumbnail(thumbnail);
+        thumbnail.setVersion(1);
+        service.getThumbnail(thumbnail);
+        assertEquals(0, count("cacheHits"));
+        assertEquals(2, count("cacheMisses"));
+    }
+
+    @Test
+    public void testCreateThumbnailInvalidates() throws Exception {
+        service.getThumbnail(thumbnail);
+        service.createThumbnail(thumbnail, new byte[] { 4, 5 });
+        assertTrue(Arrays.equals(new byte[] { 4, 5 },
+                service.getThumbnail(thumbnail)));
+    }
+
+    @Test
+    public void testOutputStreamInvalidates() throws Exception {
+        service.getThumbnail(thumbnail);
+        FileOutputStream stream = service.getThumbnailOutputStream(thumbnail);
+        try {
+            stream.write(new byte[] { 6, 7, 8, 9 });
+            // Read while being written: not cached.
+            service.getThumbnail(thumbnail);
+        } finally {
+            stream.close();
+        }
+        assertTrue(Arrays.equals(new byte[] { 6, 7, 8, 9 },
+                service.getThumbnail(thumbnail)));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testRemoveThumbnailsInvalidates() throws Exception {
+        service.getThumbnail(thumbnail);
+        service.removeThumbnails(Collections.singletonList(1L));
+        service.getThumbnail(thumbnail);
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        service.setCacheSize(0);
+        service.getThumbnail(thumbnail);
+        service.getThumbnail(thumbnail);
+        assertEquals(0, count("cacheHits"));
+        assertEquals(0, count("cacheMisses"));
+    }
+}
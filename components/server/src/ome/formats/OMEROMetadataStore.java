@@ -63,6 +63,7 @@ import ome.model.stats.StatsInfo;
 import ome.system.ServiceFactory;
 import ome.conditions.ApiUsageException;
 import ome.conditions.ValidationException;
+import ome.tools.hibernate.ScopedBatcherFactory;
 import ome.util.LSID;
 import ome.util.SqlAction;
 
@@ -2271,21 +2272,29 @@ public class OMEROMetadataStore
     	linkFileset(link);
     	
     	// Save the entire Image rooted graph using the "insert only"
-    	// saveAndReturnIds(). DISABLED until we can find out what is causing
-    	// the extreme memory usage on the graph reload.
+    	// saveAndReturnIds(). The graph is saved in place rather than being
+    	// merged into a copy and is not reloaded afterwards, so the Pixels
+    	// returned are those of imageList, now carrying their ids. Only
+    	// this save groups its inserts into JDBC batches.
     	StopWatch s1 = new Slf4JStopWatch("omero.saveImportGraph");
     	Image[] imageArray = 
     		imageList.values().toArray(new Image[imageList.size()]);
-    	IObject[] saved = sf.getUpdateService().saveAndReturnArray(imageArray);
+    	final boolean wasBatching = ScopedBatcherFactory.setBatching(true);
+    	try
+    	{
+    		sf.getUpdateService().saveAndReturnIds(imageArray);
+    	}
+    	finally
+    	{
+    		ScopedBatcherFactory.setBatching(wasBatching);
+    	}
     	s1.stop();
     	
     	List<Pixels> toReturn = new ArrayList<Pixels>();
-    	Image image;
     	Pixels pixels;
-    	for (int i = 0; i < saved.length; i++)
+    	for (int i = 0; i < imageArray.length; i++)
     	{
-    		image = (Image) saved[i];
-    		pixels = image.getPrimaryPixels();
+    		pixels = imageArray[i].getPrimaryPixels();
     		pixelsList.put(i, pixels);
     		toReturn.add(pixels);
     	}
@@ -64,6 +64,12 @@ public class BasicEventContext extends SimpleEventContext {
 
     private Event event;
 
+    /**
+     * Whether {@link #event} has been given an id but not yet been written
+     * to the database.
+     */
+    private boolean eventPending;
+
     private Experimenter owner;
 
     private ExperimenterGroup group;
@@ -94,6 +100,7 @@ public class BasicEventContext extends SimpleEventContext {
         owner = null;
         group = null;
         event = null;
+        eventPending = false;
     }
 
     /**
@@ -237,6 +244,24 @@ public class BasicEventContext extends SimpleEventContext {
         }
     }
 
+    public boolean isEventPending() {
+        return eventPending;
+    }
+
+    /**
+     * Returns <code>null</code>, as for a read-only event, while the event is
+     * pending so that copies of this context, e.g. those sent to clients, do
+     * not refer to an event which may never be written.
+     */
+    @Override
+    public Long getCurrentEventId() {
+        return eventPending ? null : super.getCurrentEventId();
+    }
+
+    public void setEventPending(boolean eventPending) {
+        this.eventPending = eventPending;
+    }
+
     public Experimenter getOwner() {
         return owner;
     }
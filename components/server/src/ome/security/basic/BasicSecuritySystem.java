@@ -9,7 +9,9 @@ package ome.security.basic;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import ome.api.local.LocalAdmin;
 import ome.api.local.LocalQuery;
@@ -52,6 +54,7 @@ import ome.system.Principal;
 import ome.system.Roles;
 import ome.system.ServiceFactory;
 import ome.tools.hibernate.ExtendedMetadata;
+import ome.tools.hibernate.SessionFactory;
 
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
@@ -107,6 +110,13 @@ public class BasicSecuritySystem implements SecuritySystem,
 
     protected/* final */ShareStore store;
 
+    /**
+     * If set, the {@link Event} of a write transaction is given an id from
+     * this factory's id generators and only written once the transaction
+     * first writes. Otherwise, it is saved on login.
+     */
+    protected SessionFactory eventIds;
+
     /**
      * Simplified factory method which generates all the security primitives
      * internally. Primarily useful for generated testing instances.
@@ -160,6 +170,15 @@ public class BasicSecuritySystem implements SecuritySystem,
         this.sf = sf;
     }
 
+    /**
+     * Enables deferred saving of events, with ids taken from the
+     * {@link ome.util.TableIdGenerator} blocks of the given factory.
+     * @param omeroSessionFactory the OMERO session factory
+     */
+    public void setEventIds(SessionFactory omeroSessionFactory) {
+        this.eventIds = omeroSessionFactory;
+    }
+
     public void setApplicationContext(ApplicationContext arg0)
             throws BeansException {
         this.ctx = (OmeroContext) arg0;
@@ -439,12 +458,17 @@ public class BasicSecuritySystem implements SecuritySystem,
         tokenHolder.setToken(event.getGraphHolder());
 
         // If this event is not read only, then lets save this event to prevent
-        // flushing issues later.
+        // flushing issues later. When deferred, the event is only written by
+        // OmeroInterceptor before the first statement which modifies the DB.
         if (!isReadOnly) {
             if (event.getExperimenterGroup().getId() < 0) {
                 event.setExperimenterGroup(eventGroup);
             }
-            cd.updateEvent(update.saveAndReturnObject(event)); // TODO use merge
+            if (eventIds != null) {
+                cd.setPendingEvent(event, eventIds.nextId(Event.class));
+            } else {
+                cd.updateEvent(update.saveAndReturnObject(event)); // TODO use merge
+            }
         }
     }
 
@@ -485,14 +509,24 @@ public class BasicSecuritySystem implements SecuritySystem,
         if (!logs.isEmpty()) {
 
             boolean foundAdminType = false;
+            boolean foundMembership = false;
+            final Set<Long> experimenterIds = new HashSet<Long>();
+            final Set<Long> groupIds = new HashSet<Long>();
             final Multimap<String, EventLog> map = ArrayListMultimap.create();
 
             for (EventLog el : getLogs()) {
                 String t = el.getEntityType();
-                if (Experimenter.class.getName().equals(t)
-                        || ExperimenterGroup.class.getName().equals(t)
-                        || GroupExperimenterMap.class.getName().equals(t)) {
+                if (Experimenter.class.getName().equals(t)) {
+                    foundAdminType = true;
+                    experimenterIds.add(el.getEntityId());
+                } else if (ExperimenterGroup.class.getName().equals(t)) {
+                    foundAdminType = true;
+                    groupIds.add(el.getEntityId());
+                } else if (GroupExperimenterMap.class.getName().equals(t)) {
+                    // The log does not say which user and group the
+                    // membership linked, so any session may be affected.
                     foundAdminType = true;
+                    foundMembership = true;
                 }
                 map.put(t, el);
             }
@@ -501,8 +535,11 @@ public class BasicSecuritySystem implements SecuritySystem,
                 log.error("No context found for publishing");
             } else {
                 // publish message if administrative type is modified
-                if (foundAdminType) {
+                if (foundMembership) {
                     this.ctx.publishEvent(new UserGroupUpdateEvent(this));
+                } else if (foundAdminType) {
+                    this.ctx.publishEvent(new UserGroupUpdateEvent(this,
+                            experimenterIds, groupIds));
                 }
                 this.ctx.publishEvent(new EventLogsMessage(this, map));
             }
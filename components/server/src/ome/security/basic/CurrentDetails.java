@@ -47,6 +47,8 @@ import ome.system.EventContext;
 import ome.system.Principal;
 import ome.system.Roles;
 import ome.tools.hibernate.HibernateUtils;
+import ome.util.SqlAction;
+import ome.util.Utils;
 
 /**
  * Stores information related to the security context of the current thread.
@@ -461,6 +463,53 @@ public class CurrentDetails implements PrincipalHolder {
         current().setEvent(event);
     }
 
+    /**
+     * Gives the current {@link Event} an id without writing it to the
+     * database. It will be written by {@link #savePendingEvent(SqlAction)}
+     * before the first write of the transaction, if any.
+     */
+    void setPendingEvent(Event event, long id) {
+        BasicEventContext c = current();
+        event.setId(id);
+        c.setEvent(event);
+        c.setEventPending(true);
+    }
+
+    /**
+     * Whether the current {@link Event} has been given an id by
+     * {@link #setPendingEvent(Event, long)} but has not yet been saved.
+     */
+    public boolean isEventPending() {
+        LinkedList<BasicEventContext> list = list();
+        return !list.isEmpty() && list.getLast().isEventPending();
+    }
+
+    /**
+     * Writes the current {@link Event} to the database if it is still
+     * pending and makes it the event used by database triggers for the rest
+     * of the transaction. Does nothing otherwise, so may be called before
+     * every write.
+     */
+    public void savePendingEvent(SqlAction sql) {
+        if (!isEventPending()) {
+            return; // EARLY EXIT
+        }
+        final BasicEventContext c = current();
+        final Event e = c.getEvent();
+        c.setEventPending(false);
+        final int count = sql.insertEvent(e.getId(),
+                (Long) Utils.internalForm(e.getDetails().getPermissions()),
+                e.getTime(), e.getExperimenter().getId(),
+                e.getExperimenterGroup().getId(), e.getSession().getId(),
+                e.getType().getValue());
+        if (count != 1) {
+            throw new InternalException("Failed to save event " + e.getId()
+                    + " of type " + e.getType().getValue());
+        }
+        sql.prepareSession(e.getId(), c.getCurrentUserId(),
+                c.getCurrentGroupId());
+    }
+
     // ~ Cleanups
     // =========================================================================
 
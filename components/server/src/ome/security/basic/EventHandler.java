@@ -170,7 +170,11 @@ public class EventHandler implements MethodInterceptor, ApplicationListener<Cont
                 // stateful services should NOT be flushed, because that's part
                 // of the state that should hang around.
                 else if (stateful) {
-                    // we don't want to do anything, really.
+                    // but any changes will be flushed on commit, after the
+                    // event context is gone, so a deferred event is saved now.
+                    if (!readOnly) {
+                        secSys.cd.savePendingEvent(sql);
+                    }
                 }
 
                 // read-only sessions should not have anything changed.
@@ -224,7 +228,8 @@ public class EventHandler implements MethodInterceptor, ApplicationListener<Cont
 
         // now the user can be considered to be logged in.
         EventContext ec = secSys.getEventContext();
-        if (!readOnly) {
+        // A deferred event is prepared for triggers once it is saved.
+        if (!readOnly && !secSys.cd.isEventPending()) {
             sql.prepareSession(
                     ec.getCurrentEventId(),
                     ec.getCurrentUserId(),
@@ -299,6 +304,10 @@ public class EventHandler implements MethodInterceptor, ApplicationListener<Cont
             throw new InternalException(sb.toString());
         }
 
+        // The logs reference the event, which is still pending if the call
+        // only wrote through SQL, e.g. to change a password.
+        secSys.cd.savePendingEvent(sql);
+
         try {
             long lastValue = sql.nextValue("seq_eventlog", logs.size());
             long id = lastValue - logs.size() + 1;
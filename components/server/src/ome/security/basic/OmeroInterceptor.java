@@ -13,6 +13,7 @@ import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.util.Iterator;
 import java.util.List;
+import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,6 +60,7 @@ import ome.system.EventContext;
 import ome.system.Roles;
 import ome.tools.hibernate.ExtendedMetadata;
 import ome.tools.hibernate.HibernateUtils;
+import ome.util.SqlAction;
 
 /**
  * implements {@link org.hibernate.Interceptor} for controlling various aspects
@@ -83,6 +85,13 @@ public class OmeroInterceptor implements Interceptor {
 
     private final Interceptor EMPTY = EmptyInterceptor.INSTANCE;
 
+    /**
+     * Statements which modify the database, possibly after a comment.
+     */
+    private final static Pattern WRITE = Pattern.compile(
+            "\\s*(/\\*.*?\\*/\\s*)?(insert|update|delete)\\s.*",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
     private final SystemTypes sysTypes;
 
     private final CurrentDetails currentUser;
@@ -95,6 +104,8 @@ public class OmeroInterceptor implements Interceptor {
 
     private final Roles roles;
 
+    private SqlAction sql;
+
     public OmeroInterceptor(Roles roles, SystemTypes sysTypes, ExtendedMetadata em,
             CurrentDetails cd, TokenHolder tokenHolder, SessionStats stats) {
         Assert.notNull(tokenHolder);
@@ -111,6 +122,15 @@ public class OmeroInterceptor implements Interceptor {
         this.em = em;
     }
 
+    /**
+     * Sets the {@link SqlAction} used to save a pending {@link ome.model.meta.Event}
+     * before the first statement which modifies the database.
+     * @param sql the SQL action
+     */
+    public void setSqlAction(SqlAction sql) {
+        this.sql = sql;
+    }
+
     /**
      * default logic, but we may want to use them eventually for
      * dependency-injection.
@@ -330,6 +350,13 @@ public class OmeroInterceptor implements Interceptor {
     }
 
     public String onPrepareStatement(String sql) {
+        // Events of write transactions are saved only when first needed
+        if (this.sql != null && currentUser != null
+                && currentUser.isEventPending()
+                && WRITE.matcher(sql).matches()) {
+            currentUser.savePendingEvent(this.sql);
+        }
+
         // start
         if (!log.isDebugEnabled()) {
             return sql;
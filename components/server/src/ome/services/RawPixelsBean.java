@@ -32,6 +32,7 @@ import ome.io.nio.PixelsService;
 import ome.io.nio.RomioPixelBuffer;
 import ome.model.core.Pixels;
 import ome.parameters.Parameters;
+import ome.services.util.RenderedTileCache;
 import ome.util.PixelData;
 import ome.util.ShallowCopy;
 import ome.util.SqlAction;
@@ -91,6 +92,9 @@ public class RawPixelsBean extends AbstractStatefulBean implements
     /** The server's OMERO data directory. */
     private transient String omeroDataDir;
 
+    /** The cache of rendered tiles to invalidate on writes. */
+    private transient RenderedTileCache tileCache;
+
     /**
      * default constructor
      */
@@ -142,6 +146,15 @@ public class RawPixelsBean extends AbstractStatefulBean implements
         this.sql = sql;
     }
 
+    /**
+     * Rendered tile cache Bean injector
+     * @param tileCache a <code>RenderedTileCache</code>
+     */
+    public synchronized final void setTileCache(RenderedTileCache tileCache) {
+        getBeanHelper().throwIfAlreadySet(this.tileCache, tileCache);
+        this.tileCache = tileCache;
+    }
+
     // ~ Lifecycle methods
     // =========================================================================
 
@@ -213,6 +226,19 @@ public class RawPixelsBean extends AbstractStatefulBean implements
         }
     }
 
+    /**
+     * Also discards any rendered tiles of the pixels, since their data has
+     * changed.
+     */
+    @Override
+    protected void modified() {
+        super.modified();
+        if (tileCache != null && pixelsInstance != null
+                && pixelsInstance.getId() != null) {
+            tileCache.invalidate(pixelsInstance.getId());
+        }
+    }
+
     public synchronized void clean() {
         dataService = null;
         pixelsInstance = null;
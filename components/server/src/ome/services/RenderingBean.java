@@ -15,6 +15,7 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import ome.annotations.RolesAllowed;
@@ -42,6 +43,7 @@ import ome.model.roi.Mask;
 import ome.parameters.Parameters;
 import ome.security.SecuritySystem;
 import ome.services.util.Executor;
+import ome.services.util.RenderedTileCache;
 import ome.system.EventContext;
 import ome.system.ServiceFactory;
 import ome.system.SimpleEventContext;
@@ -146,6 +148,21 @@ public class RenderingBean implements RenderingEngine, Serializable {
     /** Reference to the compression service. */
     private final LocalCompress compressionSrv;
 
+    /** The executor shared by all renderers to render planes concurrently. */
+    private transient ExecutorService renderingExecutor;
+
+    /**
+     * The cache of compressed tiles shared by all renderers, or
+     * <code>null</code> if none.
+     */
+    private transient RenderedTileCache tileCache;
+
+    /**
+     * True when the codomain maps have been changed since the renderer was
+     * loaded. Such tiles are not cached as the maps are not in the key.
+     */
+    private transient boolean codomainMapsChanged = false;
+
     /** Notification that the bean has just returned from passivation. */
     private transient boolean wasPassivated = false;
 
@@ -180,6 +197,28 @@ public class RenderingBean implements RenderingEngine, Serializable {
         this.compressionSrv = compress;
     }
 
+    /**
+     * Rendering executor Bean injector.
+     *
+     * @param renderingExecutor
+     *          The executor shared by all renderers. If <code>null</code>
+     *          the renderer uses its own default pool.
+     */
+    public void setRenderingExecutor(ExecutorService renderingExecutor) {
+        this.renderingExecutor = renderingExecutor;
+    }
+
+    /**
+     * Tile cache Bean injector.
+     *
+     * @param tileCache
+     *          The cache of compressed tiles shared by all renderers. If
+     *          <code>null</code> no tiles are cached.
+     */
+    public void setTileCache(RenderedTileCache tileCache) {
+        this.tileCache = tileCache;
+    }
+
     @RolesAllowed("user")
     public long getRenderingDefId() {
         if (rendDefObj == null || rendDefObj.getId() == null) {
@@ -405,6 +444,8 @@ public class RenderingBean implements RenderingEngine, Serializable {
             PixelBuffer buffer = getPixelBuffer();
             renderer = new Renderer(quantumFactory, renderingModels, pixelsObj,
                     rendDefObj, buffer);
+            renderer.setRenderingExecutor(renderingExecutor);
+            codomainMapsChanged = false;
         } finally {
             rwl.writeLock().unlock();
         }
@@ -520,6 +561,15 @@ public class RenderingBean implements RenderingEngine, Serializable {
 
         ByteArrayOutputStream byteStream = null;
         try {
+            final RenderedTileCache.Key key = tileKey(pd);
+            long since = 0;
+            if (key != null) {
+                byte[] cached = tileCache.get(key);
+                if (cached != null) {
+                    return cached.clone();
+                }
+                since = tileCache.generation();
+            }
             final Map<byte[], Integer> overlays = getMasks(pd);
             if (overlays.size() > 0) {
                 renderer.setOverlays(overlays);
@@ -541,7 +591,11 @@ public class RenderingBean implements RenderingEngine, Serializable {
                     sizeY);
             byteStream = new ByteArrayOutputStream();
             compressionSrv.compressToStream(image, byteStream);
-            return byteStream.toByteArray();
+            byte[] tile = byteStream.toByteArray();
+            if (key != null) {
+                tileCache.put(key, tile.clone(), since);
+            }
+            return tile;
         } catch (IOException e) {
             log.error("Could not compress rendered image.", e);
             throw new ResourceError(e.getMessage());
@@ -1189,6 +1243,7 @@ public class RenderingBean implements RenderingEngine, Serializable {
         try {
             errorIfInvalidState();
             renderer.getCodomainChain().add(mapCtx.copy());
+            codomainMapsChanged = true;
         } finally {
             rwl.writeLock().unlock();
         }
@@ -1201,6 +1256,7 @@ public class RenderingBean implements RenderingEngine, Serializable {
         try {
             errorIfInvalidState();
             renderer.getCodomainChain().remove(mapCtx.copy());
+            codomainMapsChanged = true;
         } finally {
             rwl.writeLock().unlock();
         }
@@ -1214,6 +1270,7 @@ public class RenderingBean implements RenderingEngine, Serializable {
         try {
             errorIfInvalidState();
             renderer.getCodomainChain().update(mapCtx.copy());
+            codomainMapsChanged = true;
         } finally {
             rwl.writeLock().unlock();
         }
@@ -1574,6 +1631,32 @@ public class RenderingBean implements RenderingEngine, Serializable {
         }
     }
 
+    /**
+     * Returns the key of the tile for the plane definition in the shared
+     * cache, or <code>null</code> if it is not to be cached: when there is no
+     * cache, when masks are rendered over the plane or when the codomain maps
+     * may differ from those saved. Must be called with the write lock held.
+     *
+     * @param pd The plane definition.
+     * @return See above.
+     */
+    private RenderedTileCache.Key tileKey(PlaneDef pd) {
+        if (tileCache == null || !tileCache.isEnabled()
+                || pd.getRenderShapes()) {
+            return null;
+        }
+        errorIfInvalidState();
+        Map<byte[], Integer> overlays = renderer.getOverlays();
+        if (codomainMapsChanged
+                || (overlays != null && overlays.size() > 0)
+                || rendDefObj.sizeOfSpatialDomainEnhancement() != 0) {
+            return null;
+        }
+        return tileCache.key(pixelsObj.getId(), renderer.getRenderingDef(),
+                pd, resolutionLevel == null ? -1 : resolutionLevel,
+                compressionSrv.getCompressionLevel());
+    }
+
     /**
      * Close the active renderer, cleaning up any potential messes left by the
      * included pixel buffer.
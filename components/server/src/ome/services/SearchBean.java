@@ -255,23 +255,30 @@ public class SearchBean extends AbstractStatefulBean implements Search {
     @RolesAllowed("user")
     public boolean hasNext() {
 
-        while (results.size() > 0) {
-            List<IObject> first = results.get(0);
-            if (first == null || first.size() < 1) {
-                results.remove(0);
-            } else {
-                return true;
+        while (true) {
+            while (results.size() > 0) {
+                List<IObject> first = results.get(0);
+                if (first == null || first.size() < 1) {
+                    results.remove(0);
+                } else {
+                    return true;
+                }
             }
-        }
 
-        // There are no current results, we now need to execute an action
-        if (actions.size() == 0) {
-            return false;
+            // There are no current results, we now need to execute an action.
+            // A filtered page may come back empty, in which case the next
+            // page or action is tried until one has results.
+            if (actions.size() == 0) {
+                return false;
+            }
+            SearchAction action = actions.popFirst();
+            action.setPaged(true);
+            List<IObject> list = (List<IObject>) executor.execute(null, action);
+            results.add(list);
+            if (action.hasNextPage()) {
+                actions.pushFirst(action);
+            }
         }
-        SearchAction action = actions.popFirst();
-        List<IObject> list = (List<IObject>) executor.execute(null, action);
-        results.add(list);
-        return hasNext(); // recursive call
     }
 
     @Transactional
@@ -753,6 +760,10 @@ public class SearchBean extends AbstractStatefulBean implements Search {
             return actions.remove(0);
         }
 
+        synchronized void pushFirst(SearchAction a) {
+            actions.add(0, a);
+        }
+
         synchronized SearchAction popLast() {
             assertNonZero();
             return actions.remove(actions.size() - 1);
@@ -19,6 +19,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import ome.annotations.RolesAllowed;
@@ -151,6 +155,15 @@ public class ThumbnailBean extends AbstractLevel2Service
     /** The in-progress image resource we'll use for in progress images. */
     private Resource inProgressImageResource;
 
+    /** The executor shared by all renderers to render planes concurrently. */
+    private transient ExecutorService renderingExecutor;
+
+    /**
+     * The bounded executor on which the thumbnails of a set that are missing
+     * or out of date are rendered, scaled and compressed.
+     */
+    private transient ExecutorService thumbnailExecutor;
+
     /** The default X-width for a thumbnail. */
     public static final int DEFAULT_X_WIDTH = 48;
 
@@ -342,6 +355,7 @@ public class ThumbnailBean extends AbstractLevel2Service
         PixelBuffer buffer = pixelDataService.getPixelBuffer(pixels, false);
         renderer = new Renderer(quantumFactory, renderingModels, pixels,
                 settings, buffer);
+        renderer.setRenderingExecutor(renderingExecutor);
         dirty = false;
     }
 
@@ -371,6 +385,27 @@ public class ThumbnailBean extends AbstractLevel2Service
         this.inProgressImageResource = inProgressImageResource;
     }
 
+    /**
+     * Rendering executor Bean injector.
+     * @param renderingExecutor The executor shared by all renderers.
+     */
+    public void setRenderingExecutor(ExecutorService renderingExecutor) {
+        getBeanHelper().throwIfAlreadySet(
+                this.renderingExecutor, renderingExecutor);
+        this.renderingExecutor = renderingExecutor;
+    }
+
+    /**
+     * Thumbnail executor Bean injector.
+     * @param thumbnailExecutor The executor on which the thumbnails of a set
+     * are created.
+     */
+    public void setThumbnailExecutor(ExecutorService thumbnailExecutor) {
+        getBeanHelper().throwIfAlreadySet(
+                this.thumbnailExecutor, thumbnailExecutor);
+        this.thumbnailExecutor = thumbnailExecutor;
+    }
+
     /**
      * Pixels data service Bean injector.
      *
@@ -567,7 +602,29 @@ public class ThumbnailBean extends AbstractLevel2Service
         {
             return null;
         }
+        return createScaledImage(renderer, pixels, settings,
+                thumbnailMetadata, theZ, theT);
+    }
 
+    /**
+     * Creates a scaled buffered image with the given renderer. Only the
+     * arguments and the stateless scaling service are used so that this can
+     * be called from worker threads, each with its own renderer.
+     *
+     * @param renderer the renderer loaded for the pixels set.
+     * @param pixels the pixels set.
+     * @param settings the rendering settings used by the renderer.
+     * @param thumbnailMetadata the metadata of the thumbnail to create.
+     * @param theZ the optical section (offset across the Z-axis) requested.
+     * <pre>null</pre> signifies the rendering engine default.
+     * @param theT the timepoint (offset across the T-axis) requested.
+     * <pre>null</pre> signifies the rendering engine default.
+     * @return a scaled buffered image.
+     */
+    private BufferedImage createScaledImage(Renderer renderer, Pixels pixels,
+            RenderingDef settings, Thumbnail thumbnailMetadata,
+            Integer theZ, Integer theT)
+    {
         // Retrieve our rendered data
         if (theZ == null)
             theZ = settings.getDefaultZ();
@@ -800,6 +857,24 @@ public class ThumbnailBean extends AbstractLevel2Service
     /** Actually does the work specified by {@link createThumbnail()}.*/
     private Thumbnail _createThumbnail() {
         StopWatch s1 = new Slf4JStopWatch("omero._createThumbnail");
+        prepareThumbnailMetadata();
+
+        BufferedImage image = createScaledImage(null, null);
+        try {
+            compressThumbnailToDisk(thumbnailMetadata, image);
+            s1.stop();
+            return thumbnailMetadata;
+        } catch (IOException e) {
+            log.error("Thumbnail could not be compressed.", e);
+            throw new ResourceError(e.getMessage());
+        }
+    }
+
+    /**
+     * Prepares the thumbnail metadata for the creation of a new thumbnail,
+     * incrementing its version if the rendering settings have changed.
+     */
+    private void prepareThumbnailMetadata() {
         if (thumbnailMetadata == null) {
             throw new ValidationException("Missing thumbnail metadata.");
         } else if (ctx.dirtyMetadata(pixels.getId())) {
@@ -830,16 +905,6 @@ public class ThumbnailBean extends AbstractLevel2Service
         // dirtyMetadata is left false here because we may be creating a
         // thumbnail for the first time and the Thumbnail object has just been
         // created upstream of us.
-
-        BufferedImage image = createScaledImage(null, null);
-        try {
-            compressThumbnailToDisk(thumbnailMetadata, image);
-            s1.stop();
-            return thumbnailMetadata;
-        } catch (IOException e) {
-            log.error("Thumbnail could not be compressed.", e);
-            throw new ResourceError(e.getMessage());
-        }
     }
 
     private static void _setMetadataVersion(Thumbnail tb, boolean inProgress) {
@@ -944,6 +1009,8 @@ public class ThumbnailBean extends AbstractLevel2Service
         Map<Long, byte[]> toReturn = new HashMap<Long, byte[]>();
 
         List<Thumbnail> toSave = new ArrayList<Thumbnail>();
+        // Thumbnails being created on the thumbnail executor.
+        List<ThumbnailTask> tasks = new ArrayList<ThumbnailTask>();
         for (Long pixelsId : pixelsIds)
         {
             // Ensure that the renderer has been made dirty otherwise the
@@ -982,6 +1049,12 @@ public class ThumbnailBean extends AbstractLevel2Service
                     // that we want to use, but retrieveThumbnail likes to
                     // re-generate. For the moment, we're saving and restoring
                     // that value to prevent creating a new one.
+                    ThumbnailTask task = submitThumbnailTask(pixelsId);
+                    if (task != null)
+                    {
+                        tasks.add(task);
+                        continue;
+                    }
                     byte[] thumbnail = retrieveThumbnail(false);
                     toReturn.put(pixelsId, thumbnail);
                     if (dirtyMetadata)
@@ -1001,6 +1074,7 @@ public class ThumbnailBean extends AbstractLevel2Service
                 toReturn.put(pixelsId, null);
             }
         }
+        collectThumbnailTasks(tasks, toReturn, toSave);
         // We're doing the update or creation and save as a two step
         // process due to the possible unloaded Pixels. If we do not,
         // Pixels will be unloaded and we will hit
@@ -1013,6 +1087,212 @@ public class ThumbnailBean extends AbstractLevel2Service
         return toReturn;
     }
 
+    /**
+     * Hands the creation of the current thumbnail over to the thumbnail
+     * executor if it is missing or out of date. The metadata and the
+     * renderer are prepared on the calling thread, which owns the Hibernate
+     * session, so that the task only renders, scales and compresses.
+     * @param pixelsId The ID of the current Pixels set, which the task's
+     * thumbnail is returned under.
+     * @return The submitted task or <code>null</code> if the thumbnail is to
+     * be retrieved in-line, i.e. it is cached, its pyramid is in progress or
+     * there is no thumbnail executor.
+     * @throws IOException If the thumbnail cannot be opened for writing.
+     */
+    private ThumbnailTask submitThumbnailTask(Long pixelsId)
+        throws IOException
+    {
+        if (thumbnailExecutor == null || inProgress
+            || ctx.isThumbnailCached(pixels.getId()))
+        {
+            return null;
+        }
+        if (log.isDebugEnabled())
+        {
+            log.debug("Cache miss, thumbnail missing or out of date.");
+        }
+        prepareThumbnailMetadata();
+        // Ensure that we have a valid state for rendering
+        errorIfInvalidState();
+        if (inProgress)
+        {
+            // Pyramid generation started since the settings were loaded,
+            // write the in-progress image as _createThumbnail() would.
+            compressThumbnailToDisk(thumbnailMetadata, null);
+            return new ThumbnailTask(pixelsId, thumbnailMetadata,
+                    dirtyMetadata, ioService.getThumbnail(thumbnailMetadata));
+        }
+        if (diskSpaceChecking) {
+            iRepositoryInfo.sanityCheckRepository();
+        }
+        ThumbnailTask task = new ThumbnailTask(pixelsId, thumbnailMetadata,
+                dirtyMetadata, renderer, pixels, settings,
+                ioService.getThumbnailOutputStream(thumbnailMetadata));
+        // The renderer now belongs to the task which closes it.
+        renderer = null;
+        dirty = true;
+        task.submit(thumbnailExecutor);
+        return task;
+    }
+
+    /**
+     * Waits for the thumbnail tasks of a set, in submission order, and
+     * gathers their thumbnails and the metadata to save.
+     * @param tasks The submitted tasks.
+     * @param toReturn Map of Pixels ID vs. thumbnail bytes to populate.
+     * @param toSave Thumbnail metadata to save to populate.
+     */
+    private void collectThumbnailTasks(List<ThumbnailTask> tasks,
+            Map<Long, byte[]> toReturn, List<Thumbnail> toSave)
+    {
+        boolean interrupted = false;
+        for (ThumbnailTask task : tasks)
+        {
+            // Every task closes its renderer once run so none are cancelled;
+            // interruption is deferred until all of them have completed.
+            while (true)
+            {
+                try
+                {
+                    toReturn.put(task.pixelsId, task.get());
+                    if (task.dirtyMetadata)
+                    {
+                        toSave.add(task.thumbnail);
+                    }
+                    break;
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+                catch (ExecutionException e)
+                {
+                    log.warn("Retrieving thumbnail in set for " +
+                            "Pixels ID " + task.pixelsId + " failed.",
+                            e.getCause());
+                    toReturn.put(task.pixelsId, null);
+                    break;
+                }
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Renders, scales and compresses a thumbnail of a set with its own
+     * renderer, then writes it to the thumbnail's already opened stream.
+     */
+    private class ThumbnailTask implements Callable<byte[]>
+    {
+        /** The Pixels ID the thumbnail is for. */
+        final Long pixelsId;
+
+        /** The thumbnail metadata. */
+        final Thumbnail thumbnail;
+
+        /** Whether the thumbnail metadata needs saving. */
+        final boolean dirtyMetadata;
+
+        /** The renderer, closed once the thumbnail has been created. */
+        private final Renderer renderer;
+
+        /** The pixels set. */
+        private final Pixels pixels;
+
+        /** The rendering settings used by the renderer. */
+        private final RenderingDef settings;
+
+        /** The stream to write the thumbnail to. */
+        private final FileOutputStream stream;
+
+        /** The thumbnail bytes if they were available on creation. */
+        private final byte[] value;
+
+        /** The pending thumbnail bytes once submitted. */
+        private Future<byte[]> future;
+
+        ThumbnailTask(Long pixelsId, Thumbnail thumbnail,
+                boolean dirtyMetadata, Renderer renderer, Pixels pixels,
+                RenderingDef settings, FileOutputStream stream)
+        {
+            this.pixelsId = pixelsId;
+            this.thumbnail = thumbnail;
+            this.dirtyMetadata = dirtyMetadata;
+            this.renderer = renderer;
+            this.pixels = pixels;
+            this.settings = settings;
+            this.stream = stream;
+            this.value = null;
+        }
+
+        ThumbnailTask(Long pixelsId, Thumbnail thumbnail,
+                boolean dirtyMetadata, byte[] value)
+        {
+            this.pixelsId = pixelsId;
+            this.thumbnail = thumbnail;
+            this.dirtyMetadata = dirtyMetadata;
+            this.renderer = null;
+            this.pixels = null;
+            this.settings = null;
+            this.stream = null;
+            this.value = value;
+        }
+
+        void submit(ExecutorService executor)
+        {
+            try
+            {
+                future = executor.submit(this);
+            }
+            catch (RuntimeException e)
+            {
+                close();
+                throw e;
+            }
+        }
+
+        byte[] get() throws InterruptedException, ExecutionException
+        {
+            return future == null ? value : future.get();
+        }
+
+        public byte[] call() throws IOException
+        {
+            StopWatch s1 = new Slf4JStopWatch("omero._createThumbnail");
+            try
+            {
+                BufferedImage image = createScaledImage(
+                        renderer, pixels, settings, thumbnail, null, null);
+                ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+                compressionService.compressToStream(image, byteStream);
+                byte[] bytes = byteStream.toByteArray();
+                stream.write(bytes);
+                s1.stop();
+                return bytes;
+            }
+            finally
+            {
+                close();
+            }
+        }
+
+        private void close()
+        {
+            renderer.close();
+            try
+            {
+                stream.close();
+            }
+            catch (IOException e)
+            {
+                log.error("Could not close thumbnail stream.", e);
+            }
+        }
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -46,6 +46,7 @@ public class PixelsFileDeletions extends AbstractFileDeletions {
             final String filePath = afs.getPixelsPath(id);
             final File file = new File(filePath);
             final File pyrFile = new File(filePath + PixelsService.PYRAMID_SUFFIX);
+            final File histFile = new File(filePath + PixelsService.HISTOGRAM_SUFFIX);
             final File dir = file.getParentFile();
             final File lockFile = new File(dir, "." + id + PixelsService.PYRAMID_SUFFIX
                 + BfPyramidPixelBuffer.PYR_LOCK_EXT);
@@ -54,6 +55,8 @@ public class PixelsFileDeletions extends AbstractFileDeletions {
             addLocalFile(file, id);
             // Try to remove a _pyramid file if it exists
             addLocalFile(pyrFile, id);
+            // And a _histogram file
+            addLocalFile(histFile, id);
             // Now any lock file
             addLocalFile(lockFile, id);
 
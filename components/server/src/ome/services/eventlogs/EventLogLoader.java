@@ -230,6 +230,15 @@ public abstract class EventLogLoader implements Iterator<EventLog>,
      */
     public abstract long more();
 
+    /**
+     * Gives implementations which hold {@link EventLog} instances in memory a
+     * chance to look for newer ones before what they hold has been consumed.
+     * Does nothing by default.
+     */
+    public void refresh() {
+        // no-op
+    }
+
     /**
      * Returns the {@link EventLog} with the next id after the given argument or
      * null if none exists. This method will only return "true" {@link EventLog}
@@ -128,6 +128,14 @@ public class EventLogQueue extends PersistentEventLogLoader {
 
         State state = State.OPEN;
 
+        /**
+         * Whether this entry was queued as a priority because more
+         * {@link EventLog} instances were found for it. Its id may then be
+         * newer than that of regular entries still to be processed.
+         * @see EventLogQueue#setPrioritizeRepeated(boolean)
+         */
+        boolean promoted;
+
         Entry(long log, String type, long id, String action, int skipped) {
             this.eventLog = log;
             this.objType = type;
@@ -239,6 +247,19 @@ public class EventLogQueue extends PersistentEventLogLoader {
                 priorityQ.add(entry);
                 priorityCount.inc();
             }
+
+            /**
+             * Moves an entry from the regular to the priority queue if it is
+             * still waiting in the former.
+             */
+            private void promote(Entry entry) {
+                if (regularQ.remove(entry)) {
+                    regularCount.dec();
+                    entry.promoted = true;
+                    priorityQ.add(entry);
+                    priorityCount.inc();
+                }
+            }
         }
 
         /**
@@ -381,6 +402,17 @@ public class EventLogQueue extends PersistentEventLogLoader {
 
     private int batchCount;
 
+    /**
+     * Whether objects with more than one {@link EventLog} are processed
+     * before the others.
+     */
+    private boolean prioritizeRepeated;
+
+    /**
+     * Id of the newest {@link EventLog} loaded.
+     */
+    private long lastLoaded = -1;
+
     /**
      * Last {@link Entry} which was returned by the {@link #next()} method. If a
      * {@link EventLogFailure} is received, then this should be marked as such.
@@ -426,14 +458,28 @@ public class EventLogQueue extends PersistentEventLogLoader {
                 this.types);
     }
 
+    /**
+     * Sets whether objects for which more than one {@link EventLog} is found,
+     * either in one lookup or in a {@link #refresh()} while they are still
+     * queued, are processed before the others. For PIXELDATA, each request
+     * for a missing pyramid adds an {@link EventLog}, so repeated ones
+     * denote images a user is waiting for rather than a backlog from import.
+     */
+    public void setPrioritizeRepeated(boolean prioritizeRepeated) {
+        this.prioritizeRepeated = prioritizeRepeated;
+    }
+
     //
     // HELPERS
     //
 
     protected List<Object[]> lookup() {
+        return lookup(getCurrentId());
+    }
+
+    protected List<Object[]> lookup(long current) {
         final Timer.Context ctx = lookupTime.time();
         try {
-            final long current = getCurrentId();
             List<Object[]> rv = sql.getEventLogPartitions(types, actions,
                     current, max);
             log.debug(String.format("objects found searching " +
@@ -473,12 +519,21 @@ public class EventLogQueue extends PersistentEventLogLoader {
         boolean added = false;
         final Data.Entries entries = data.entries(type);
         Entry entry = entries.get(objId);
+        lastLoaded = Math.max(lastLoaded, eventLogId);
         if (entry == null) {
             entry = new Entry(eventLogId, type, objId, action, skipped);
-            entries.addRegular(entry);
+            if (prioritizeRepeated && skipped > 1) {
+                entry.promoted = true;
+                entries.addPriority(entry);
+            } else {
+                entries.addRegular(entry);
+            }
             added = true;
         } else {
             entry.update(eventLogId, action,  skipped);
+            if (prioritizeRepeated) {
+                entries.promote(entry);
+            }
         }
         return added;
     }
@@ -510,7 +565,7 @@ public class EventLogQueue extends PersistentEventLogLoader {
             this.lastReturned.timer.stop(); // In case of success
             Entry last = this.lastReturned.entry;
             last.pass();
-            if (last.eventLog >= 0) {
+            if (last.eventLog >= 0 && !last.promoted) {
                 setCurrentId(last.eventLog);
             }
             log.debug(String.format("Successfully handled %s. Skipped: %s",
@@ -553,6 +608,18 @@ public class EventLogQueue extends PersistentEventLogLoader {
         return load(lookup()) > 0;
     }
 
+    /**
+     * If repeated objects are prioritized, loads the {@link EventLog}
+     * instances added since the last lookup so that objects requested again
+     * while still queued need not wait for the rest of the queue.
+     */
+    @Override
+    public void refresh() {
+        if (prioritizeRepeated && data.hasNext() && !isStopSet()) {
+            load(lookup(Math.max(getCurrentId(), lastLoaded)));
+        }
+    }
+
     /**
      * Return a wrapped version of {@link ome.services.eventlogs.EventLogQueue.Data#next()} which could possibly be
      * null.
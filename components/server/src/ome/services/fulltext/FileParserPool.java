@@ -0,0 +1,468 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+
+package ome.services.fulltext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ome.io.nio.OriginalFilesService;
+import ome.model.IAnnotated;
+import ome.model.IObject;
+import ome.model.annotations.Annotation;
+import ome.model.annotations.FileAnnotation;
+import ome.model.core.OriginalFile;
+import ome.services.messages.ParserOpenFileMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Parses the contents of {@link OriginalFile}s into text on a bounded pool of
+ * worker threads so that large attachments, PDFs in particular, are parsed
+ * while the indexer is busy with other objects rather than one at a time
+ * within {@link FullTextBridge}.
+ *
+ * {@link FullTextIndexer} calls {@link #prefetch(IObject)} for each object of
+ * a batch before indexing it and {@link #release()} once the batch is
+ * written. {@link FullTextBridge} then takes the text of each file from
+ * {@link #parse(OriginalFile)}, waiting at most the configured time for it.
+ * The text of files which have a hash is kept in a bounded cache so that
+ * unchanged files are not parsed again when their owners are reindexed.
+ * Files are only prefetched while the text expected from those not yet
+ * taken stays within {@link #setMaxPrefetchSize(Long) a total size}; the
+ * text of the others is streamed from their {@link FileParser} when
+ * {@link FullTextBridge} asks for it, as without a pool.
+ *
+ * As an {@link ApplicationListener}, the pool collects the
+ * {@link ParserOpenFileMessage}s published while one of its parses runs
+ * and closes those files once the parse is done, rather than leaving them
+ * to the {@link ParserSession} of the indexer.
+ *
+ * @since 5.2.3
+ * @see FileParser
+ */
+public class FileParserPool implements ApplicationListener {
+
+    private final static Logger log = LoggerFactory.getLogger(FileParserPool.class);
+
+    /** Number of queued files per worker before the caller parses inline. */
+    private final static int QUEUE_PER_THREAD = 16;
+
+    private final static int BUFFER_SIZE = 8192;
+
+    final protected OriginalFilesService files;
+
+    final protected Map<String, FileParser> parsers;
+
+    final protected ThreadPoolExecutor executor;
+
+    final protected long timeout;
+
+    /** The text of hashed files, by {@link #cacheKey(OriginalFile)}. */
+    final protected Cache<String, String> parsed;
+
+    /** Files submitted by {@link #prefetch(OriginalFile)}, by id. */
+    final protected ConcurrentMap<Long, ParseTask> pending =
+            new ConcurrentHashMap<Long, ParseTask>();
+
+    /** Characters reserved by the files in {@link #pending}. */
+    final protected AtomicLong prefetched = new AtomicLong();
+
+    /**
+     * The files opened by the {@link ParseTask} running on the current
+     * thread, if any.
+     */
+    private final static ThreadLocal<List<ParserOpenFileMessage>> opened =
+            new ThreadLocal<List<ParserOpenFileMessage>>();
+
+    /** Guards {@link #running}. */
+    private final Object runningLock = new Object();
+
+    /** Number of tasks being run by a worker or by the caller. */
+    private int running = 0;
+
+    protected long maxFileSize = 10000L;
+
+    protected long maxPrefetchSize = 16777216L;
+
+    /**
+     * @param files
+     *            {@link OriginalFilesService} for finding the files on disk.
+     * @param parsers
+     *            {@link FileParser} instances by mimetype, with "*" as the
+     *            wildcard, as given to {@link FullTextBridge}.
+     * @param threads
+     *            number of files parsed at once.
+     * @param timeout
+     *            milliseconds to wait for the text of a single file before
+     *            indexing it without its contents.
+     * @param cacheSize
+     *            number of characters of parsed text kept for reuse, or
+     *            <code>0</code> not to keep any.
+     */
+    public FileParserPool(OriginalFilesService files,
+            Map<String, FileParser> parsers, int threads, long timeout,
+            long cacheSize) {
+        this.files = files;
+        this.parsers = parsers;
+        this.timeout = timeout;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * QUEUE_PER_THREAD),
+                new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("FileParserPool-%d").build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.parsed = CacheBuilder.newBuilder()
+                .maximumWeight(cacheSize)
+                .weigher(new Weigher<String, String>() {
+                    public int weigh(String key, String value) {
+                        return value.length();
+                    }
+                }).build();
+    }
+
+    /**
+     * Limits the text kept for any one file. Files larger than this on disk
+     * are skipped by their {@link FileParser} in any case.
+     */
+    public void setMaxFileSize(Long size) {
+        this.maxFileSize = size;
+    }
+
+    /**
+     * Limits the number of characters of text which may be held for files
+     * prefetched but not yet taken by {@link #parse(OriginalFile)}. Each
+     * file reserves its size on disk, up to {@link #maxFileSize}. At least
+     * one file is always prefetched.
+     */
+    public void setMaxPrefetchSize(Long size) {
+        this.maxPrefetchSize = size;
+    }
+
+    /**
+     * Starts parsing the files which {@link FullTextBridge} will index for
+     * the given object: the object itself if it is an {@link OriginalFile},
+     * otherwise the files of it or its linked {@link FileAnnotation}s.
+     */
+    public void prefetch(IObject object) {
+        if (object instanceof OriginalFile) {
+            prefetch((OriginalFile) object);
+        }
+        if (object instanceof FileAnnotation) {
+            prefetch(((FileAnnotation) object).getFile());
+        }
+        if (object instanceof IAnnotated) {
+            for (Annotation annotation : ((IAnnotated) object).linkedAnnotationList()) {
+                if (annotation instanceof FileAnnotation) {
+                    prefetch(((FileAnnotation) annotation).getFile());
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts parsing the given file unless its text is already available.
+     */
+    public void prefetch(OriginalFile file) {
+        if (file == null || file.getId() == null
+                || pending.containsKey(file.getId())) {
+            return;
+        }
+        String key = cacheKey(file);
+        if (key != null && parsed.getIfPresent(key) != null) {
+            return;
+        }
+        final long size = expectedSize(file);
+        final long reserved = prefetched.get();
+        if (reserved > 0 && reserved + size > maxPrefetchSize) {
+            return;
+        }
+        ParseTask task = newTask(file, size);
+        if (task != null && pending.putIfAbsent(file.getId(), task) == null) {
+            prefetched.addAndGet(size);
+            executor.execute(task);
+        }
+    }
+
+    /**
+     * @return if the current thread is parsing a file for a pool, which
+     *         closes the files it opens itself.
+     */
+    public static boolean isParsing() {
+        return opened.get() != null;
+    }
+
+    /**
+     * Collects the files opened by the parse running on the current thread
+     * so that they are closed when it is done.
+     */
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ParserOpenFileMessage) {
+            final List<ParserOpenFileMessage> openFiles = opened.get();
+            if (openFiles != null) {
+                openFiles.add((ParserOpenFileMessage) event);
+            }
+        }
+    }
+
+    /**
+     * Cancels the parsing of any files which were not used and waits, at
+     * most the timeout, for the workers to stop so that no parser is still
+     * opening files once this returns. The text of used files remains in
+     * the cache if they have a hash.
+     */
+    public void release() {
+        for (Iterator<ParseTask> it = pending.values().iterator(); it.hasNext();) {
+            ParseTask task = it.next();
+            task.cancel(true);
+            prefetched.addAndGet(-task.reserved);
+            it.remove();
+        }
+        final long end = System.currentTimeMillis() + timeout;
+        synchronized (runningLock) {
+            while (running > 0) {
+                final long wait = end - System.currentTimeMillis();
+                if (wait <= 0) {
+                    log.warn(running + " parsers still running after "
+                            + timeout + "ms");
+                    return;
+                }
+                try {
+                    runningLock.wait(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the text of the given file, waiting for it if the file was
+     * {@link #prefetch(OriginalFile) prefetched}. The text of other files is
+     * not held by the pool but read from their {@link FileParser} as the
+     * returned {@link Reader}s are. As with {@link FileParser#parse(File)},
+     * failures return the {@link FileParser#EMPTY} {@link Iterable}, as does
+     * a prefetched file whose parsing takes longer than the timeout.
+     *
+     * @param file
+     *            Can be null.
+     * @return will not be null.
+     */
+    public Iterable<Reader> parse(OriginalFile file) {
+        if (file == null || file.getId() == null) {
+            return FileParser.EMPTY;
+        }
+        String key = cacheKey(file);
+        String text = key == null ? null : parsed.getIfPresent(key);
+        if (text == null) {
+            ParseTask task = pending.remove(file.getId());
+            if (task == null) {
+                FileParser parser = parserFor(file);
+                if (parser == null) {
+                    return FileParser.EMPTY;
+                }
+                return parser.parse(new File(files.getFilesPath(file.getId())));
+            }
+            try {
+                text = await(file, task);
+            } finally {
+                prefetched.addAndGet(-task.reserved);
+            }
+            if (text == null) {
+                return FileParser.EMPTY;
+            }
+            if (key != null) {
+                parsed.put(key, text);
+            }
+        }
+        return wrap(text);
+    }
+
+    private Iterable<Reader> wrap(final String text) {
+        return new Iterable<Reader>() {
+            public Iterator<Reader> iterator() {
+                return Collections.<Reader>singletonList(
+                        new StringReader(text)).iterator();
+            }
+        };
+    }
+
+    private String await(OriginalFile file, Future<String> future) {
+        try {
+            return future.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            log.warn("Parsing took longer than " + timeout
+                    + "ms. Skipping contents of file " + file.getId());
+        } catch (CancellationException e) {
+            log.debug("Parsing cancelled for file " + file.getId());
+        } catch (ExecutionException e) {
+            log.warn("Error parsing file " + file.getId(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /**
+     * @return the key of the file's text in {@link #parsed} or
+     *         <code>null</code> if it cannot be reused.
+     */
+    protected String cacheKey(OriginalFile file) {
+        if (file.getHash() == null || file.getMimetype() == null) {
+            return null;
+        }
+        return file.getMimetype() + ":" + file.getSize() + ":" + file.getHash();
+    }
+
+    /**
+     * @return the number of characters reserved for the text of the file
+     *         while it is {@link #pending}.
+     */
+    private long expectedSize(OriginalFile file) {
+        if (file.getSize() == null || file.getSize() < 0) {
+            return maxFileSize;
+        }
+        return Math.min(file.getSize(), maxFileSize);
+    }
+
+    /**
+     * @return the parser for the given file or <code>null</code> if the
+     *         file will not be parsed.
+     */
+    private FileParser parserFor(OriginalFile file) {
+        if (files == null || parsers == null || file.getMimetype() == null) {
+            return null;
+        }
+        if (file.getSize() != null && file.getSize() > maxFileSize) {
+            return null;
+        }
+        FileParser parser = parsers.get(file.getMimetype());
+        if (parser == null) {
+            parser = parsers.get("*");
+        }
+        return parser;
+    }
+
+    /**
+     * Creates the task parsing the given file. Only the path and parser are
+     * passed to the worker thread, not the possibly lazy {@link OriginalFile}.
+     *
+     * @return <code>null</code> if the file will not be parsed.
+     */
+    private ParseTask newTask(OriginalFile file, long reserved) {
+        final FileParser fileParser = parserFor(file);
+        if (fileParser == null) {
+            return null;
+        }
+        final File path = new File(files.getFilesPath(file.getId()));
+        return new ParseTask(new Callable<String>() {
+            public String call() throws IOException {
+                return read(fileParser, path);
+            }
+        }, reserved);
+    }
+
+    /**
+     * Counts itself as {@link #running} while run so that {@link #release()}
+     * can wait for it. A task cancelled before it is counted does not parse.
+     * The files opened while it runs are closed when it is done, even those
+     * which closing the parser's {@link Reader}s leaves open, e.g. an
+     * encrypted PDF.
+     */
+    protected class ParseTask extends FutureTask<String> {
+
+        /** Characters reserved in {@link #prefetched}. */
+        final long reserved;
+
+        ParseTask(Callable<String> callable, long reserved) {
+            super(callable);
+            this.reserved = reserved;
+        }
+
+        @Override
+        public void run() {
+            synchronized (runningLock) {
+                running++;
+            }
+            final List<ParserOpenFileMessage> openFiles =
+                    new ArrayList<ParserOpenFileMessage>();
+            opened.set(openFiles);
+            try {
+                if (!isCancelled()) {
+                    super.run();
+                }
+            } finally {
+                opened.remove();
+                for (ParserOpenFileMessage file : openFiles) {
+                    log.debug("Closing file: " + file);
+                    file.close();
+                }
+                synchronized (runningLock) {
+                    running--;
+                    runningLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads all the text returned by the parser for the given file, up to
+     * {@link #maxFileSize} characters, closing each {@link Reader}.
+     */
+    protected String read(FileParser parser, File path) throws IOException {
+        final int maxChars = (int) Math.min(maxFileSize, Integer.MAX_VALUE);
+        final StringBuilder text = new StringBuilder();
+        final char[] buf = new char[BUFFER_SIZE];
+        for (Reader reader : parser.parse(path)) {
+            try {
+                int read;
+                while (text.length() < maxChars
+                        && (read = reader.read(buf, 0,
+                                Math.min(buf.length, maxChars - text.length()))) != -1) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException(path.toString());
+                    }
+                    text.append(buf, 0, read);
+                }
+                text.append('\n');
+            } finally {
+                reader.close();
+            }
+        }
+        return text.toString();
+    }
+}
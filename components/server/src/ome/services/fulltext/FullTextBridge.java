@@ -59,6 +59,7 @@ public class FullTextBridge extends BridgeHelper {
     final protected OriginalFilesService files;
     final protected Map<String, FileParser> parsers;
     final protected Class<FieldBridge>[] classes;
+    protected FileParserPool pool;
 
     /**
      * Since this constructor provides the instance with no way of parsing
@@ -103,6 +104,29 @@ public class FullTextBridge extends BridgeHelper {
         this.classes = bridgeClasses == null ? new Class[] {} : bridgeClasses;
     }
 
+    /**
+     * Sets the {@link FileParserPool} from which the contents of files are
+     * taken, ahead of indexing, rather than parsing them within {@link #set}.
+     * If null, the files are parsed by the {@link FileParser}s directly.
+     */
+    public void setFileParserPool(FileParserPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Takes the contents of the file from the {@link FileParserPool} if one
+     * is set, otherwise parses it as {@link BridgeHelper} does.
+     */
+    @Override
+    protected Iterable<Reader> parse(final OriginalFile file,
+            final OriginalFilesService files,
+            final Map<String, FileParser> parsers) {
+        if (pool != null && files == this.files && parsers == this.parsers) {
+            return pool.parse(file);
+        }
+        return super.parse(file, files, parsers);
+    }
+
     /**
      * Default implementation of the
      * {@link #set(String, Object, Document, LuceneOptions)}
@@ -246,6 +270,9 @@ public class FullTextBridge extends BridgeHelper {
         Details details = object.getDetails();
         if (details != null) {
             Experimenter e = details.getOwner();
+            if (e != null && e.getId() != null) {
+                addId(document, "details.owner.id", e.getId());
+            }
             if (e != null && e.isLoaded()) {
                 String omename = e.getOmeName();
                 String firstName = e.getFirstName();
@@ -256,6 +283,9 @@ public class FullTextBridge extends BridgeHelper {
             }
 
             ExperimenterGroup g = details.getGroup();
+            if (g != null && g.getId() != null) {
+                addId(document, "details.group.id", g.getId());
+            }
             if (g != null && g.isLoaded()) {
                 String groupName = g.getName();
                 add(document, "details.group.name", groupName, stored);
@@ -293,6 +323,19 @@ public class FullTextBridge extends BridgeHelper {
 
     }
 
+    /**
+     * Stores an id as a single untokenized term for use by the filters of
+     * {@link ome.services.search.FullText}. Unlike
+     * {@link #add(Document, String, String, LuceneOptions)} the value is not
+     * copied to {@link #COMBINED}, so that searching for a number does not
+     * match every object owned by the user or group with that id.
+     */
+    private void addId(final Document document, final String field,
+            final Long id) {
+        document.add(new Field(field, id.toString(), Store.YES,
+                Index.NOT_ANALYZED));
+    }
+
     /**
      * Walks the various {@link Folder} instances attached to the object
      * argument so that it may be found via its immediate parent folder.
@@ -20,6 +20,14 @@
 package ome.services.fulltext;
 
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import ome.model.IAnnotated;
 import ome.model.IGlobal;
 import ome.model.IMutable;
@@ -31,6 +39,7 @@ import ome.services.eventlogs.PersistentEventLogLoader;
 import ome.services.util.Executor.SimpleWork;
 import ome.system.OmeroContext;
 import ome.system.ServiceFactory;
+import ome.system.metrics.Counter;
 import ome.system.metrics.Histogram;
 import ome.system.metrics.Metrics;
 import ome.system.metrics.NullMetrics;
@@ -67,10 +76,23 @@ public class FullTextIndexer extends SimpleWork implements ApplicationContextAwa
      */
     public final static int DEFAULT_REPORTING_LOOPS = 100;
 
+    /**
+     * Maximum number of ids passed to a single query when loading the
+     * entities of a batch.
+     */
+    public final static int BULK_LOAD_SIZE = 1000;
+
+    /**
+     * Maximum number of actions written to the index at once, after which
+     * the files parsed for them are closed.
+     */
+    public final static int INDEX_FLUSH_SIZE = 100;
+
     abstract class Action {
         Class type;
         long id;
         IObject obj;
+        EventLog eventLog;
 
         abstract void go(FullTextSession session);
 
@@ -86,7 +108,6 @@ public class FullTextIndexer extends SimpleWork implements ApplicationContextAwa
         @Override
         void go(FullTextSession session) {
             session.purge(type, id);
-            session.flushToIndexes();
         }
 
         @Override
@@ -106,7 +127,6 @@ public class FullTextIndexer extends SimpleWork implements ApplicationContextAwa
         @Override
         void go(FullTextSession session) {
             session.index(obj);
-            session.flushToIndexes();
         }
 
         @Override
@@ -121,10 +141,18 @@ public class FullTextIndexer extends SimpleWork implements ApplicationContextAwa
 
     final protected ParserSession parserSession;
 
+    protected FileParserPool fileParserPool;
+
     final protected Timer batchTimer;
 
     final protected Histogram completeSlow, completeFast;
 
+    /**
+     * Count of {@link EventLog}s not acted upon since a later one in the same
+     * batch was for the same entity.
+     */
+    final protected Counter collapsed;
+
     protected int reps = 5;
 
     protected long batch;
@@ -158,6 +186,15 @@ public class FullTextIndexer extends SimpleWork implements ApplicationContextAwa
         this.context = (OmeroContext) ctx;
     }
 
+    /**
+     * Sets the {@link FileParserPool} which parses the files of each batch
+     * while it is being indexed. It should be the same instance as is used by
+     * the {@link FullTextBridge}.
+     */
+    public void setFileParserPool(FileParserPool pool) {
+        this.fileParserPool = pool;
+    }
+
     public FullTextIndexer(EventLogLoader ll) {
         this(ll, new NullMetrics());
     }
@@ -172,6 +209,8 @@ public class FullTextIndexer extends SimpleWork implements ApplicationContextAwa
                 metrics.histogram(this, "percentCompleteSlow");
         this.completeFast =
                 metrics.histogram(this, "percentCompleteFast");
+        this.collapsed =
+                metrics.counter(this, "collapsed");
     }
 
     /**
@@ -258,9 +297,18 @@ public class FullTextIndexer extends SimpleWork implements ApplicationContextAwa
         return rc;
     }
 
+    /**
+     * Indexes one batch of {@link EventLog}s from the {@link #loader}. The
+     * batch is first collapsed so that only the last indexing action for each
+     * entity is performed, then the entities to index are loaded in bulk per
+     * type and the index is flushed every {@link #INDEX_FLUSH_SIZE} actions.
+     *
+     * @return the number of {@link EventLog}s consumed
+     */
     public int doIndexing(FullTextSession session) {
 
         int count = 0;
+        final Map<String, EventLog> latest = new LinkedHashMap<String, EventLog>();
 
         for (EventLog eventLog : loader) {
 
@@ -269,59 +317,172 @@ public class FullTextIndexer extends SimpleWork implements ApplicationContextAwa
             }
 
             if (eventLog != null) {
-                handleEventLog(session, eventLog);
                 count++;
+                if (isIndexingAction(eventLog.getAction())) {
+                    final String key = eventLog.getEntityType() + ":"
+                            + eventLog.getEntityId();
+                    // Keep the ordering of the latest log for each entity.
+                    if (latest.remove(key) != null) {
+                        collapsed.inc();
+                    }
+                    latest.put(key, eventLog);
+                } else if (log.isDebugEnabled()) {
+                    // Likely CHGRP-VALIDATION, PIXELDATA or similar.
+                    log.debug("Unknown action type: " + eventLog.getAction());
+                }
             }
-            session.flush();
-            parserSession.closeParsedFiles();
+        }
 
+        if (!latest.isEmpty()) {
+            handleEventLogs(session, latest.values());
         }
         return count;
     }
 
+    protected boolean isIndexingAction(String act) {
+        return "DELETE".equals(act) || "REINDEX".equals(act)
+                || "UPDATE".equals(act) || "INSERT".equals(act);
+    }
+
     protected void handleEventLog(FullTextSession session, EventLog eventLog) {
-        String act = eventLog.getAction();
-        Class type = asClassOrNull(eventLog.getEntityType());
-        if (type != null) {
-            long id = eventLog.getEntityId();
+        if (isIndexingAction(eventLog.getAction())) {
+            handleEventLogs(session, Collections.singletonList(eventLog));
+        } else if (log.isDebugEnabled()) {
+            log.debug("Unknown action type: " + eventLog.getAction());
+        }
+    }
 
-            Action action = null;
-            if ("DELETE".equals(act)) {
-                action = new Purge(type, id);
-            } else if ("REINDEX".equals(act) || "UPDATE".equals(act) || "INSERT".equals(act)) {
-                IObject obj = get(session, type, id);
-                if (obj == null) {
-                    // This object was deleted before the indexer caught up with
-                    // the INSERT/UDPDATE log. Though this isn't a problem itself,
-                    // this does mean that the indexer is likely going too slow.
-                    log.debug(String.format("Null returned! Purging "
-                            + "since cannot index %s:Id_%s for %s", type
-                            .getName(), id, eventLog));
-                    action = new Purge(type, id);
-                } else {
-                    action = new Index(obj);
+    /**
+     * Performs the actions of the given {@link EventLog}s, which should be
+     * for distinct entities, and flushes them to the index.
+     */
+    protected void handleEventLogs(FullTextSession session,
+            Collection<EventLog> eventLogs) {
+
+        // Group the entities to be indexed by type for loading.
+        final Map<Class, List<Long>> toLoad = new LinkedHashMap<Class, List<Long>>();
+        for (EventLog eventLog : eventLogs) {
+            Class type = asClassOrNull(eventLog.getEntityType());
+            if (type != null && !"DELETE".equals(eventLog.getAction())) {
+                List<Long> ids = toLoad.get(type);
+                if (ids == null) {
+                    ids = new ArrayList<Long>();
+                    toLoad.put(type, ids);
                 }
-            } else {
-                // Likely CHGRP-VALIDATION, PIXELDATA or similar.
-                if (log.isDebugEnabled()) {
-                    log.debug("Unknown action type: " + act);
+                ids.add(eventLog.getEntityId());
+            }
+        }
+        final Map<Class, Map<Long, IObject>> loaded = new HashMap<Class, Map<Long, IObject>>();
+        for (Map.Entry<Class, List<Long>> entry : toLoad.entrySet()) {
+            loaded.put(entry.getKey(), get(session, entry.getKey(), entry.getValue()));
+        }
+
+        if (fileParserPool != null) {
+            for (Map<Long, IObject> objects : loaded.values()) {
+                for (IObject obj : objects.values()) {
+                    fileParserPool.prefetch(obj);
                 }
             }
+        }
 
-            if (action != null) {
+        final List<Action> done = new ArrayList<Action>(INDEX_FLUSH_SIZE);
+        try {
+            for (EventLog eventLog : eventLogs) {
+                Action action = newAction(eventLog, loaded);
+                if (action == null) {
+                    continue;
+                }
                 try {
                     action.go(session);
+                    done.add(action);
                 } catch (Exception e) {
-                    try {
-                        this.context.publishMessage(new EventLogFailure(loader, eventLog, e));
-                    } catch (RuntimeException re) {
-                        throw re;
-                    } catch (Throwable e1) {
-                        throw new RuntimeException(e1);
-                    }
+                    publishFailure(eventLog, e);
                 }
                 action.log(log);
+                if (done.size() >= INDEX_FLUSH_SIZE) {
+                    flush(session, done);
+                }
+            }
+            flush(session, done);
+        } finally {
+            // Stop the parser workers before closing what they opened.
+            if (fileParserPool != null) {
+                fileParserPool.release();
             }
+            parserSession.closeParsedFiles();
+        }
+    }
+
+    /**
+     * Creates the action for the given {@link EventLog}.
+     *
+     * @return <code>null</code> if the entity type is unknown.
+     */
+    private Action newAction(EventLog eventLog,
+            Map<Class, Map<Long, IObject>> loaded) {
+        Class type = asClassOrNull(eventLog.getEntityType());
+        if (type == null) {
+            return null;
+        }
+        long id = eventLog.getEntityId();
+
+        Action action = null;
+        if ("DELETE".equals(eventLog.getAction())) {
+            action = new Purge(type, id);
+        } else {
+            IObject obj = loaded.get(type).get(id);
+            if (obj == null) {
+                // This object was deleted before the indexer caught up with
+                // the INSERT/UDPDATE log. Though this isn't a problem itself,
+                // this does mean that the indexer is likely going too slow.
+                log.debug(String.format("Null returned! Purging "
+                        + "since cannot index %s:Id_%s for %s", type
+                        .getName(), id, eventLog));
+                action = new Purge(type, id);
+            } else {
+                action = new Index(obj);
+            }
+        }
+        action.eventLog = eventLog;
+        return action;
+    }
+
+    /**
+     * Writes the given actions to the index and flushes the session, then
+     * closes the files parsed for them. Since it cannot be told which of the
+     * actions caused a failure, an {@link EventLogFailure} is published for
+     * each of them. A failure of the session flush is then rethrown.
+     */
+    private void flush(FullTextSession session, List<Action> done) {
+        try {
+            try {
+                session.flushToIndexes();
+            } catch (Exception e) {
+                for (Action action : done) {
+                    publishFailure(action.eventLog, e);
+                }
+            }
+            try {
+                session.flush();
+            } catch (RuntimeException e) {
+                for (Action action : done) {
+                    publishFailure(action.eventLog, e);
+                }
+                throw e;
+            }
+        } finally {
+            done.clear();
+            parserSession.closeParsedFiles();
+        }
+    }
+
+    private void publishFailure(EventLog eventLog, Exception e) {
+        try {
+            this.context.publishMessage(new EventLogFailure(loader, eventLog, e));
+        } catch (RuntimeException re) {
+            throw re;
+        } catch (Throwable e1) {
+            throw new RuntimeException(e1);
         }
     }
 
@@ -355,6 +516,36 @@ public class FullTextIndexer extends SimpleWork implements ApplicationContextAwa
     }
 
     protected IObject get(Session session, Class type, long id) {
+        return get(session, type, Collections.singletonList(id)).get(id);
+    }
+
+    /**
+     * Loads the entities of the given type and ids, along with the
+     * annotations and details which are indexed, in queries of at most
+     * {@link #BULK_LOAD_SIZE} ids.
+     *
+     * @return the entities found by id. Missing entities are not included.
+     */
+    protected Map<Long, IObject> get(Session session, Class type, List<Long> ids) {
+        final Map<Long, IObject> found = new HashMap<Long, IObject>();
+        for (int from = 0; from < ids.size(); from += BULK_LOAD_SIZE) {
+            final List<Long> some = ids.subList(from,
+                    Math.min(ids.size(), from + BULK_LOAD_SIZE));
+            // Fetch joins return each entity once per row.
+            for (Object result : load(session, type, some)) {
+                final IObject obj = (IObject) result;
+                found.put(obj.getId(), obj);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Runs a single query for the entities of the given type and ids.
+     *
+     * @return the rows of the query, possibly with repeated entities.
+     */
+    protected List<?> load(Session session, Class type, List<Long> ids) {
         QueryBuilder qb = new QueryBuilder();
         qb.select("this").from(type.getName(), "this");
         if (IAnnotated.class.isAssignableFrom(type)) {
@@ -371,9 +562,8 @@ public class FullTextIndexer extends SimpleWork implements ApplicationContextAwa
             qb.join("this.details.owner", "owner", false, true);
             qb.join("this.details.group", "group", false, true);
         }
-        qb.where().and("this.id = :id");
-        qb.param("id", id);
-
-        return (IObject) qb.query(session).uniqueResult();
+        qb.where().and("this.id in (:ids)");
+        qb.paramList("ids", new ArrayList<Long>(ids));
+        return qb.query(session).list();
     }
 }
@@ -7,8 +7,10 @@
 
 package ome.services.fulltext;
 
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Set;
-import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import ome.services.messages.ParserOpenFileMessage;
 
@@ -32,20 +34,24 @@ public class ParserSession implements ApplicationListener {
     private final Set<ParserOpenFileMessage> openFiles;
 
     public ParserSession() {
-        openFiles = new HashSet<ParserOpenFileMessage>();
+        openFiles = Collections.newSetFromMap(
+                new ConcurrentHashMap<ParserOpenFileMessage, Boolean>());
     }
 
     public void onApplicationEvent(ApplicationEvent event) {
-        if (event instanceof ParserOpenFileMessage) {
+        // FileParserPool closes the files of its own parses.
+        if (event instanceof ParserOpenFileMessage
+                && !FileParserPool.isParsing()) {
             openFiles.add((ParserOpenFileMessage)event);
         }
     }
 
     public void closeParsedFiles() {
-        for (ParserOpenFileMessage file : openFiles) {
+        for (Iterator<ParserOpenFileMessage> it = openFiles.iterator(); it.hasNext();) {
+            ParserOpenFileMessage file = it.next();
+            it.remove();
             log.debug("Closing file: " + file);
             file.close();
         }
-        openFiles.clear();
     }
 }
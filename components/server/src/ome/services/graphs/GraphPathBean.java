@@ -54,6 +54,8 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
 
 import ome.model.IObject;
+import ome.system.metrics.Metrics;
+import ome.system.metrics.NullMetrics;
 import ome.tools.spring.OnContextRefreshedEventListener;
 
 /**
@@ -140,6 +142,24 @@ public class GraphPathBean extends OnContextRefreshedEventListener {
     /* the properties of classes that have simple values, with only the top-level name */
     private final SetMultimap<String, String> simplePropertiesDirect = HashMultimap.create();
 
+    /* for reporting the timings of graph traversals */
+    private Metrics metrics = new NullMetrics();
+
+    /**
+     * Set the metrics with which graph traversals using this bean report their timings.
+     * @param metrics the metrics, may not be {@code null}
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the metrics with which graph traversals using this bean report their timings, never {@code null}
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * The application context after refresh should contain a usable Hibernate session factory.
      * If not already done, process the Hibernate domain object model from that bean.
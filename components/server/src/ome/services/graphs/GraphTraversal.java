@@ -19,6 +19,7 @@
 
 package ome.services.graphs;
 
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -32,6 +33,8 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,6 +66,8 @@ import ome.services.graphs.GraphPolicy.Action;
 import ome.services.graphs.GraphPolicy.Details;
 import ome.services.graphs.GraphPolicy.Orphan;
 import ome.system.EventContext;
+import ome.system.metrics.Metrics;
+import ome.system.metrics.Timer;
 
 /**
  * An alternative implementation of model object graph traversal, relying on SELECTing in advance for making decisions,
@@ -145,12 +150,23 @@ public class GraphTraversal {
     /**
      * An immutable tuple of class name, instance ID.
      * Within this class, equality and hash code is determined wholly by these values.
+     * The class name is interned to a small class ID which, with the instance ID, is packed into a single {@code long}
+     * {@link #key} so that sets and maps of instances can be held in primitive collections.
      * @author m.t.b.carroll@dundee.ac.uk
      * @since 5.1.0
      */
-    private static final class CI {
+    static final class CI {
+        /* the low bits of a key hold the instance ID, the high bits the class ID */
+        private static final int ID_BITS = 53;
+        private static final long ID_MASK = (1L << ID_BITS) - 1;
+
+        /* class names by class ID, written only when holding the monitor of CLASS_IDS */
+        private static final String[] CLASS_NAMES = new String[1 << (Long.SIZE - 1 - ID_BITS)];
+        private static final ConcurrentMap<String, Integer> CLASS_IDS = new ConcurrentHashMap<String, Integer>();
+
         final String className;
         final long id;
+        final long key;
 
         /**
          * Construct an instance with the given field values.
@@ -158,8 +174,13 @@ public class GraphTraversal {
          * @param id an instance ID
          */
         CI(String className, long id) {
-            this.className = className;
+            if (id < 0 || id > ID_MASK) {
+                throw new IllegalArgumentException("instance ID out of range: " + id);
+            }
+            final int classId = getClassId(className);
+            this.className = CLASS_NAMES[classId];
             this.id = id;
+            this.key = (long) classId << ID_BITS | id;
         }
 
         /**
@@ -167,12 +188,41 @@ public class GraphTraversal {
          * @param object a persisted object instance
          */
         CI(IObject object) {
-            if (object instanceof HibernateProxy) {
-                this.className = Hibernate.getClass(object).getName();
-            } else {
-                this.className = object.getClass().getName();
+            this(object instanceof HibernateProxy ? Hibernate.getClass(object).getName() : object.getClass().getName(),
+                    object.getId());
+        }
+
+        /**
+         * Construct an instance from its {@link #key}.
+         * @param key a key from an existing instance
+         */
+        CI(long key) {
+            this.className = CLASS_NAMES[(int) (key >>> ID_BITS)];
+            this.id = key & ID_MASK;
+            this.key = key;
+        }
+
+        /**
+         * Find the class ID for the given class name, assigning a new one if necessary.
+         * @param className a class name
+         * @return the class ID
+         */
+        private static int getClassId(String className) {
+            Integer classId = CLASS_IDS.get(className);
+            if (classId == null) {
+                synchronized (CLASS_IDS) {
+                    classId = CLASS_IDS.get(className);
+                    if (classId == null) {
+                        classId = CLASS_IDS.size();
+                        if (classId == CLASS_NAMES.length) {
+                            throw new IllegalStateException("too many classes to track " + className);
+                        }
+                        CLASS_NAMES[classId] = className.intern();
+                        CLASS_IDS.put(className, classId);
+                    }
+                }
             }
-            this.id = object.getId();
+            return classId;
         }
 
         /**
@@ -196,8 +246,7 @@ public class GraphTraversal {
                 return true;
             } else if (object instanceof CI) {
                 final CI other = (CI) object;
-                return this.id == other.id &&
-                        this.className.equals(other.className);
+                return this.key == other.key;
             } else {
                 return false;
             }
@@ -205,7 +254,7 @@ public class GraphTraversal {
 
         @Override
         public int hashCode() {
-            return Objects.hashCode(getClass(), className, id);
+            return (int) (key ^ (key >>> 32));
         }
 
         @Override
@@ -220,7 +269,7 @@ public class GraphTraversal {
      * @author m.t.b.carroll@dundee.ac.uk
      * @since 5.1.0
      */
-    private static final class CP {
+    static final class CP {
         final String className;
         final String propertyName;
 
@@ -273,7 +322,7 @@ public class GraphTraversal {
      * @author m.t.b.carroll@dundee.ac.uk
      * @since 5.1.0
      */
-    private static final class CPI {
+    static final class CPI {
         final String className;
         final String propertyName;
         final long id;
@@ -330,6 +379,235 @@ public class GraphTraversal {
         }
     }
 
+    /**
+     * A set of {@link CI}s held as their keys in a {@link LongHashSet}.
+     * The {@link CI} instances returned by iteration are constructed afresh.
+     * @author m.t.b.carroll@dundee.ac.uk
+     * @since 5.2.3
+     */
+    static class CISet extends AbstractSet<CI> {
+        final LongHashSet keys;
+
+        /**
+         * Construct an empty set.
+         */
+        CISet() {
+            this.keys = new LongHashSet();
+        }
+
+        /**
+         * Construct a set with the same members as the given set.
+         * @param other the set to copy
+         */
+        CISet(CISet other) {
+            this.keys = new LongHashSet(other.keys);
+        }
+
+        /**
+         * Construct a view of the given keys as a set of {@link CI}s.
+         * @param keys the keys of the members of the set
+         */
+        CISet(LongHashSet keys) {
+            this.keys = keys;
+        }
+
+        /**
+         * Called after the membership of the set changes. Does nothing unless overridden.
+         * @param key the key of the {@link CI} that was added or removed
+         */
+        void changed(long key) {
+        }
+
+        /**
+         * @return a member of the set, or {@code null} if the set is empty
+         */
+        CI any() {
+            final long key = keys.any();
+            return key < 0 ? null : new CI(key);
+        }
+
+        @Override
+        public int size() {
+            return keys.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return keys.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object object) {
+            return object instanceof CI && keys.contains(((CI) object).key);
+        }
+
+        @Override
+        public boolean add(CI object) {
+            if (keys.add(object.key)) {
+                changed(object.key);
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends CI> objects) {
+            if (!(objects instanceof CISet)) {
+                return super.addAll(objects);
+            }
+            boolean isChanged = false;
+            final LongHashSet.Cursor cursor = ((CISet) objects).keys.cursor();
+            while (cursor.hasNext()) {
+                final long key = cursor.next();
+                if (keys.add(key)) {
+                    changed(key);
+                    isChanged = true;
+                }
+            }
+            return isChanged;
+        }
+
+        @Override
+        public boolean containsAll(Collection<?> objects) {
+            if (objects instanceof CISet) {
+                return keys.containsAll(((CISet) objects).keys);
+            } else {
+                return super.containsAll(objects);
+            }
+        }
+
+        @Override
+        public boolean remove(Object object) {
+            if (object instanceof CI && keys.remove(((CI) object).key)) {
+                changed(((CI) object).key);
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public void clear() {
+            final LongHashSet.Cursor cursor = keys.cursor();
+            while (cursor.hasNext()) {
+                final long key = cursor.next();
+                cursor.remove();
+                changed(key);
+            }
+            keys.clear();
+        }
+
+        @Override
+        public Iterator<CI> iterator() {
+            final LongHashSet.Cursor cursor = keys.cursor();
+            return new Iterator<CI>() {
+                private long current;
+
+                @Override
+                public boolean hasNext() {
+                    return cursor.hasNext();
+                }
+
+                @Override
+                public CI next() {
+                    current = cursor.next();
+                    return new CI(current);
+                }
+
+                @Override
+                public void remove() {
+                    cursor.remove();
+                    changed(current);
+                }
+            };
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (object instanceof CISet) {
+                return keys.equals(((CISet) object).keys);
+            } else {
+                return super.equals(object);
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return keys.hashCode();
+        }
+    }
+
+    /**
+     * A multimap from {@link CI} to {@link CI} held as their keys in primitive collections.
+     * @author m.t.b.carroll@dundee.ac.uk
+     * @since 5.2.3
+     */
+    static final class CIMultimap {
+        private final LongObjectHashMap<LongHashSet> values = new LongObjectHashMap<LongHashSet>();
+
+        /**
+         * Add a value for the given key.
+         * @param key a key
+         * @param value a value
+         */
+        void put(CI key, CI value) {
+            LongHashSet keyValues = values.get(key.key);
+            if (keyValues == null) {
+                keyValues = new LongHashSet(1);
+                values.put(key.key, keyValues);
+            }
+            keyValues.add(value.key);
+        }
+
+        /**
+         * @param key a key
+         * @return a view of the values for the key, not to be modified
+         */
+        Set<CI> get(CI key) {
+            final LongHashSet keyValues = values.get(key.key);
+            return keyValues == null ? Collections.<CI>emptySet() : new CISet(keyValues);
+        }
+    }
+
+    /**
+     * A multimap from {@link CPI} to {@link CI} held as a primitive multimap for each {@link CP}.
+     * @author m.t.b.carroll@dundee.ac.uk
+     * @since 5.2.3
+     */
+    static final class CPIMultimap {
+        private final Map<CP, LongObjectHashMap<LongHashSet>> values = new HashMap<CP, LongObjectHashMap<LongHashSet>>();
+
+        /**
+         * Add a value for the given key.
+         * @param key a key
+         * @param value a value
+         */
+        void put(CPI key, CI value) {
+            LongObjectHashMap<LongHashSet> propertyValues = values.get(key.toCP());
+            if (propertyValues == null) {
+                propertyValues = new LongObjectHashMap<LongHashSet>();
+                values.put(key.toCP(), propertyValues);
+            }
+            LongHashSet keyValues = propertyValues.get(key.id);
+            if (keyValues == null) {
+                keyValues = new LongHashSet(1);
+                propertyValues.put(key.id, keyValues);
+            }
+            keyValues.add(value.key);
+        }
+
+        /**
+         * @param key a key
+         * @return a view of the values for the key, not to be modified
+         */
+        Set<CI> get(CPI key) {
+            final LongObjectHashMap<LongHashSet> propertyValues = values.get(key.toCP());
+            final LongHashSet keyValues = propertyValues == null ? null : propertyValues.get(key.id);
+            return keyValues == null ? Collections.<CI>emptySet() : new CISet(keyValues);
+        }
+    }
+
     /**
      * Track the progress of method calls to ensure that the sequencing makes sense.
      * @author m.t.b.carroll@dundee.ac.uk
@@ -344,6 +622,60 @@ public class GraphTraversal {
         PROCESSED;
     }
 
+    /**
+     * An immutable tuple of class name, owner ID, group ID, permissions: the inputs to the {@link ACLVoter}'s decisions
+     * about updating and deleting an instance, so that those decisions need be made only once for many instances.
+     * Within this class, equality and hash code is determined wholly by these values.
+     * @author m.t.b.carroll@dundee.ac.uk
+     * @since 5.2.3
+     */
+    private static final class PermissionsKey {
+        final String className;
+        final Long ownerId;
+        final Long groupId;
+        final String permissions;
+
+        /**
+         * Construct an instance from the given object details.
+         * @param className a class name
+         * @param details the details of an instance of the class
+         */
+        PermissionsKey(String className, ome.model.internal.Details details) {
+            final Experimenter owner = details.getOwner();
+            final ExperimenterGroup group = details.getGroup();
+            final Permissions permissions = details.getPermissions();
+            this.className = className;
+            this.ownerId = owner == null ? null : owner.getId();
+            this.groupId = group == null ? null : group.getId();
+            this.permissions = permissions == null ? null : permissions.toString();
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (this == object) {
+                return true;
+            } else if (object instanceof PermissionsKey) {
+                final PermissionsKey other = (PermissionsKey) object;
+                return this.className.equals(other.className) &&
+                        Objects.equal(this.ownerId, other.ownerId) &&
+                        Objects.equal(this.groupId, other.groupId) &&
+                        Objects.equal(this.permissions, other.permissions);
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(className, ownerId, groupId, permissions);
+        }
+
+        @Override
+        public String toString() {
+            return className + "[" + ownerId + "/" + groupId + "/" + permissions + "]";
+        }
+    }
+
     /**
      * The state of the graph traversal. Various rules apply:
      * <ol>
@@ -366,34 +698,64 @@ public class GraphTraversal {
      *   <li>An instance may be in {@link #included} or {@link #deleted} only if it is in {@link #cached}.</li>
      *   <li>An instance is inserted into {@link #queue} only once.</li>
      *   <li>{@link #queue} contains exactly the instances that are in {@link #included} or {@link #deleted}.</li>
+     *   <li>{@link #toReview} contains exactly the instances that are in {@link #toProcess} and {@link #cached}
+     *       but not in {@link #findIfLast}.</li>
+     *   <li>{@link #toCache} contains exactly the instances that are in {@link #toProcess} but not in {@link #cached}.</li>
      * </ol>
      * @author m.t.b.carroll@dundee.ac.uk
      * @since 5.1.0
      */
     private static class Planning {
         /* process state */
-        final Set<CI> toProcess = new HashSet<CI>();
-        final Set<CI> included = new HashSet<CI>();
-        final Set<CI> deleted = new HashSet<CI>();
-        final Set<CI> outside = new HashSet<CI>();
+        final CISet toProcess = new WorkingSet();
+        final CISet included = new CISet();
+        final CISet deleted = new CISet();
+        final CISet outside = new CISet();
         /* orphan checks */
-        final Set<CI> findIfLast = new HashSet<CI>();
+        final CISet findIfLast = new WorkingSet();
         final Map<CI, Boolean> foundIfLast = new HashMap<CI, Boolean>();
         /* links */
         final Map<CI, CI> aliases = new HashMap<CI, CI>();
-        final Set<CI> cached = new HashSet<CI>();
-        final SetMultimap<CPI, CI> forwardLinksCached = HashMultimap.create();
-        final SetMultimap<CPI, CI> backwardLinksCached = HashMultimap.create();
-        final SetMultimap<CI, CI> befores = HashMultimap.create();
-        final SetMultimap<CI, CI> afters = HashMultimap.create();
+        final CISet cached = new WorkingSet();
+        final CPIMultimap forwardLinksCached = new CPIMultimap();
+        final CPIMultimap backwardLinksCached = new CPIMultimap();
+        final CIMultimap befores = new CIMultimap();
+        final CIMultimap afters = new CIMultimap();
         final Map<CI, Set<CI>> blockedBy = new HashMap<CI, Set<CI>>();
         /* permissions, unused for system users */
         final Map<CI, ome.model.internal.Details> detailsNoted = new HashMap<CI, ome.model.internal.Details>();
-        final Set<CI> mayUpdate = new HashSet<CI>();
-        final Set<CI> mayDelete = new HashSet<CI>();
-        final Set<CI> mayChmod = new HashSet<CI>();
-        final Set<CI> owns = new HashSet<CI>();
-        final Set<CI> overrides = new HashSet<CI>();
+        final CISet mayUpdate = new CISet();
+        final CISet mayDelete = new CISet();
+        final CISet mayChmod = new CISet();
+        final CISet owns = new CISet();
+        final CISet overrides = new CISet();
+        final Map<PermissionsKey, Set<Ability>> abilitiesByDetails = new HashMap<PermissionsKey, Set<Ability>>();
+        /* derived from the working sets as they change, not to be modified directly */
+        final CISet toReview = new CISet();
+        final CISet toCache = new CISet();
+
+        /**
+         * A set whose changes are reflected in {@link Planning#toReview} and {@link Planning#toCache}.
+         * @author m.t.b.carroll@dundee.ac.uk
+         * @since 5.2.3
+         */
+        private class WorkingSet extends CISet {
+            @Override
+            void changed(long key) {
+                final boolean isToProcess = toProcess.keys.contains(key);
+                final boolean isCached = cached.keys.contains(key);
+                if (isToProcess && isCached && !findIfLast.keys.contains(key)) {
+                    toReview.keys.add(key);
+                } else {
+                    toReview.keys.remove(key);
+                }
+                if (isToProcess && !isCached) {
+                    toCache.keys.add(key);
+                } else {
+                    toCache.keys.remove(key);
+                }
+            }
+        }
     }
 
     /**
@@ -465,6 +827,10 @@ public class GraphTraversal {
     private final Planning planning;
     private final GraphPolicy policy;
     private final Processor processor;
+    /* timings of the phases of planning */
+    private final Timer detailsTimer;
+    private final Timer linksTimer;
+    private final Timer permissionsTimer;
 
     /**
      * Construct a new instance of a graph traversal manager.
@@ -488,6 +854,10 @@ public class GraphTraversal {
         this.planning = new Planning();
         this.policy = policy;
         this.processor = log.isDebugEnabled() ? debugWrap(processor) : processor;
+        final Metrics metrics = graphPathBean.getMetrics();
+        this.detailsTimer = metrics.timer(this, "findObjectDetails");
+        this.linksTimer = metrics.timer(this, "queryLinks");
+        this.permissionsTimer = metrics.timer(this, "checkPermissions");
     }
 
     /**
@@ -514,7 +884,7 @@ public class GraphTraversal {
         } else {
             /* act as if the target objects have no links and no rules match them */
             for (final CI targetObject : targetSet) {
-                planning.blockedBy.put(targetObject, new HashSet<CI>());
+                planning.blockedBy.put(targetObject, new CISet());
             }
         }
         progress.add(Milestone.PLANNED);
@@ -564,7 +934,7 @@ public class GraphTraversal {
         } else {
             /* act as if the target objects have no links and no rules match them */
             for (final CI targetObject : targetSet) {
-                planning.blockedBy.put(targetObject, new HashSet<CI>());
+                planning.blockedBy.put(targetObject, new CISet());
             }
         }
         progress.add(Milestone.PLANNED);
@@ -588,50 +958,45 @@ public class GraphTraversal {
      */
     private void planOperation(Session session) throws GraphException {
         /* track state to guarantee progress in reprocessing objects whose orphan status is relevant */
-        Set<CI> optimisticReprocess = null;
+        CISet optimisticReprocess = null;
         /* set of not-last objects after latest review */
         Set<CI> isNotLast = null;
         while (true) {
             /* process any pending objects */
             while (!(planning.toProcess.isEmpty() && planning.findIfLast.isEmpty())) {
                 /* first process any cached objects that do not await orphan status determination */
-                final Set<CI> toProcess = new HashSet<CI>(planning.toProcess);
-                toProcess.retainAll(planning.cached);
-                toProcess.removeAll(planning.findIfLast);
-                if (!toProcess.isEmpty()) {
-                    if (optimisticReprocess != null && !Sets.difference(planning.toProcess, optimisticReprocess).isEmpty()) {
+                if (!planning.toReview.isEmpty()) {
+                    if (optimisticReprocess != null && !optimisticReprocess.containsAll(planning.toProcess)) {
                         /* processing something beyond optimistic suggestion, so circumstances have changed */
                         optimisticReprocess = null;
                     }
-                    for (final CI nextObject : toProcess) {
+                    /* reviewing objects changes toReview so iterate over a snapshot */
+                    for (final CI nextObject : new CISet(planning.toReview)) {
                         reviewObject(nextObject, false);
                     }
                     continue;
                 }
                 /* if none of the above exist, then fill the cache */
-                final Set<CI> toCache = new HashSet<CI>(planning.toProcess);
-                toCache.removeAll(planning.cached);
-                if (!toCache.isEmpty()) {
+                if (!planning.toCache.isEmpty()) {
                     optimisticReprocess = null;
-                    cache(session, toCache);
+                    cache(session, new CISet(planning.toCache));
                     continue;
                 }
                 /* try processing the findIfLast in case of any changes */
                 if (!planning.toProcess.isEmpty()) {
-                    final Set<CI> previousToProcess = new HashSet<CI>(planning.toProcess);
-                    final Set<CI> previousFindIfLast = new HashSet<CI>(planning.findIfLast);
+                    final CISet previousToProcess = new CISet(planning.toProcess);
+                    final CISet previousFindIfLast = new CISet(planning.findIfLast);
                     for (final CI nextObject : previousToProcess) {
                         reviewObject(nextObject, false);
                     }
                     /* This condition is tricky. We do want to reprocess objects that are suggested for such, while
                      * avoiding an infinite loop that comes of such processing not resolving any orphan status. */
-                    if (!Sets.symmetricDifference(previousFindIfLast, planning.findIfLast).isEmpty() ||
-                            (optimisticReprocess == null ||
-                             !Sets.symmetricDifference(planning.toProcess, optimisticReprocess).isEmpty()) &&
-                            !Sets.symmetricDifference(previousToProcess, planning.toProcess).isEmpty()) {
-                        optimisticReprocess = new HashSet<CI>(planning.toProcess);
+                    if (!previousFindIfLast.equals(planning.findIfLast) ||
+                            (optimisticReprocess == null || !optimisticReprocess.equals(planning.toProcess)) &&
+                            !previousToProcess.equals(planning.toProcess)) {
+                        optimisticReprocess = new CISet(planning.toProcess);
                         continue;
-                    }   
+                    }
                 }
                 /* if no other processing or caching is needed, then deem outstanding objects orphans */
                 optimisticReprocess = null;
@@ -696,24 +1061,42 @@ public class GraphTraversal {
         }
 
         if (!eventContext.isCurrentUserAdmin()) {
-            /* allowLoad ensures that BasicEventContext.groupPermissionsMap is populated */
-            aclVoter.allowLoad(session, objectInstance.getClass(), objectDetails, object.id);
-
-            if (aclVoter.allowUpdate(objectInstance, objectDetails)) {
-                planning.mayUpdate.add(object);
-            }
-            if (aclVoter.allowDelete(objectInstance, objectDetails)) {
-                planning.mayDelete.add(object);
-            }
-            if (objectInstance instanceof ExperimenterGroup) {
-                final ExperimenterGroup loadedGroup = (ExperimenterGroup) session.load(ExperimenterGroup.class, object.id);
-                if (aclVoter.allowChmod(loadedGroup)) {
-                    planning.mayChmod.add(object);
+            final Timer.Context timer = permissionsTimer.time();
+            try {
+                /* the voter decides on updating and deleting by the class and details, not the ID, so instances share decisions */
+                final PermissionsKey permissionsKey = new PermissionsKey(object.className, objectDetails);
+                Set<Ability> abilities = planning.abilitiesByDetails.get(permissionsKey);
+                if (abilities == null) {
+                    /* allowLoad ensures that BasicEventContext.groupPermissionsMap is populated */
+                    aclVoter.allowLoad(session, objectInstance.getClass(), objectDetails, object.id);
+
+                    abilities = EnumSet.noneOf(Ability.class);
+                    if (aclVoter.allowUpdate(objectInstance, objectDetails)) {
+                        abilities.add(Ability.UPDATE);
+                    }
+                    if (aclVoter.allowDelete(objectInstance, objectDetails)) {
+                        abilities.add(Ability.DELETE);
+                    }
+                    planning.abilitiesByDetails.put(permissionsKey, abilities);
                 }
-            }
-            final Experimenter objectOwner = objectDetails.getOwner();
-            if (objectOwner != null && eventContext.getCurrentUserId().equals(objectOwner.getId())) {
-                planning.owns.add(object);
+                if (abilities.contains(Ability.UPDATE)) {
+                    planning.mayUpdate.add(object);
+                }
+                if (abilities.contains(Ability.DELETE)) {
+                    planning.mayDelete.add(object);
+                }
+                if (objectInstance instanceof ExperimenterGroup) {
+                    final ExperimenterGroup loadedGroup = (ExperimenterGroup) session.load(ExperimenterGroup.class, object.id);
+                    if (aclVoter.allowChmod(loadedGroup)) {
+                        planning.mayChmod.add(object);
+                    }
+                }
+                final Experimenter objectOwner = objectDetails.getOwner();
+                if (objectOwner != null && eventContext.getCurrentUserId().equals(objectOwner.getId())) {
+                    planning.owns.add(object);
+                }
+            } finally {
+                timer.stop();
             }
         }
 
@@ -743,69 +1126,78 @@ public class GraphTraversal {
         }
 
         if (!idsToQuery.isEmpty()) {
-            boolean subclassesQueried = false;
-
-            if (!NO_SUBCLASS_QUERY.contains(className)) {
-                try {
-                    /* determine the class of persisted objects without loading them */
-                    final String rootQuery = "SELECT r.id, TYPE(r) FROM " + className + " r WHERE r.id IN (:ids)";
-                    for (final List<Long> idsBatch : Iterables.partition(idsToQuery, BATCH_SIZE)) {
-                        for (final Object[] result :
-                            (List<Object[]>) session.createQuery(rootQuery).setParameterList("ids", idsBatch).list()) {
-                            final Long id = (Long) result[0];
-                            final Class<? extends IObject> objectClass = (Class<? extends IObject>) result[1];
-                            final CI object = new CI(objectClass.getName(), id);
-                            objectsById.put(object.id, object);
-                            planning.aliases.put(new CI(className, object.id), object);
+            final List<Object[]> detailsResults = new ArrayList<Object[]>(idsToQuery.size());
+            final Timer.Context timer = detailsTimer.time();
+            try {
+                boolean subclassesQueried = false;
+
+                if (!NO_SUBCLASS_QUERY.contains(className)) {
+                    try {
+                        /* determine the class of persisted objects without loading them */
+                        final String rootQuery = "SELECT r.id, TYPE(r) FROM " + className + " r WHERE r.id IN (:ids)";
+                        for (final List<Long> idsBatch : Iterables.partition(idsToQuery, BATCH_SIZE)) {
+                            for (final Object[] result :
+                                (List<Object[]>) session.createQuery(rootQuery).setParameterList("ids", idsBatch).list()) {
+                                final Long id = (Long) result[0];
+                                final Class<? extends IObject> objectClass = (Class<? extends IObject>) result[1];
+                                final CI object = new CI(objectClass.getName(), id);
+                                objectsById.put(object.id, object);
+                                planning.aliases.put(new CI(className, object.id), object);
+                            }
                         }
+                        subclassesQueried = true;
+                    } catch (NullPointerException | QueryException e) {
+                        NO_SUBCLASS_QUERY.add(className);
                     }
-                    subclassesQueried = true;
-                } catch (NullPointerException | QueryException e) {
-                    NO_SUBCLASS_QUERY.add(className);
                 }
-            }
-            if (!subclassesQueried) {
-                /* the class does not have subclasses to determine */
-                for (final Long id : idsToQuery) {
-                    final CI object = new CI(className, id);
-                    objectsById.put(object.id, object);
-                    planning.aliases.put(object, object);
+                if (!subclassesQueried) {
+                    /* the class does not have subclasses to determine */
+                    for (final Long id : idsToQuery) {
+                        final CI object = new CI(className, id);
+                        objectsById.put(object.id, object);
+                        planning.aliases.put(object, object);
+                    }
                 }
-            }
 
-            /* construct query according to which details may be queried */
-            final Set<String> linkProperties = new HashSet<String>();
-            for (final String superclassName : model.getSuperclassesOfReflexive(className)) {
-                final Set<Entry<String, String>> forwardLinks = model.getLinkedTo(superclassName);
-                for (final Entry<String, String> forwardLink : forwardLinks) {
-                    linkProperties.add(forwardLink.getValue());
+                /* construct query according to which details may be queried */
+                final Set<String> linkProperties = new HashSet<String>();
+                for (final String superclassName : model.getSuperclassesOfReflexive(className)) {
+                    final Set<Entry<String, String>> forwardLinks = model.getLinkedTo(superclassName);
+                    for (final Entry<String, String> forwardLink : forwardLinks) {
+                        linkProperties.add(forwardLink.getValue());
+                    }
                 }
-            }
-            final List<String> soughtProperties = ImmutableList.of("details.owner", "details.group");
-            final List<String> selectTerms = new ArrayList<String>(soughtProperties.size() + 1);
-            selectTerms.add("root.id");
-            for (final String soughtProperty : soughtProperties) {
-                if (linkProperties.contains(soughtProperty)) {
-                    selectTerms.add("root." + soughtProperty);
-                } else {
-                    selectTerms.add("NULLIF(0,0)");  /* a simple NULL doesn't work in Hibernate 3.5 */
+                final List<String> soughtProperties = ImmutableList.of("details.owner", "details.group");
+                final List<String> selectTerms = new ArrayList<String>(soughtProperties.size() + 1);
+                selectTerms.add("root.id");
+                for (final String soughtProperty : soughtProperties) {
+                    if (linkProperties.contains(soughtProperty)) {
+                        selectTerms.add("root." + soughtProperty);
+                    } else {
+                        selectTerms.add("NULLIF(0,0)");  /* a simple NULL doesn't work in Hibernate 3.5 */
+                    }
                 }
-            }
-            selectTerms.add("root.details.permissions");  /* to include among soughtProperties once GraphPathBean knows of it */
-            final String detailsQuery =
-                    "SELECT " + Joiner.on(',').join(selectTerms) + " FROM " + className +" AS root WHERE root.id IN (:ids)";
-
-            /* query and note details of objects */
-            for (final List<Long> idsBatch : Iterables.partition(idsToQuery, BATCH_SIZE)) {
-                final Query hibernateQuery = session.createQuery(detailsQuery).setParameterList("ids", idsBatch);
-                for (final Object[] result : (List<Object[]>) hibernateQuery.list()) {
-                    final ome.model.internal.Details details = ome.model.internal.Details.create();
-                    final Long id = (Long) result[0];
-                    details.setOwner((Experimenter) result[1]);
-                    details.setGroup((ExperimenterGroup) result[2]);
-                    details.setPermissions((Permissions) result[3]);
-                    noteDetails(objectsById.get(id), details);
+                selectTerms.add("root.details.permissions");  /* to include among soughtProperties once GraphPathBean knows of it */
+                final String detailsQuery =
+                        "SELECT " + Joiner.on(',').join(selectTerms) + " FROM " + className +" AS root WHERE root.id IN (:ids)";
+
+                /* query details of objects */
+                for (final List<Long> idsBatch : Iterables.partition(idsToQuery, BATCH_SIZE)) {
+                    final Query hibernateQuery = session.createQuery(detailsQuery).setParameterList("ids", idsBatch);
+                    detailsResults.addAll((List<Object[]>) hibernateQuery.list());
                 }
+            } finally {
+                timer.stop();
+            }
+
+            /* note details of objects */
+            for (final Object[] result : detailsResults) {
+                final ome.model.internal.Details details = ome.model.internal.Details.create();
+                final Long id = (Long) result[0];
+                details.setOwner((Experimenter) result[1]);
+                details.setGroup((ExperimenterGroup) result[2]);
+                details.setPermissions((Permissions) result[3]);
+                noteDetails(objectsById.get(id), details);
             }
         }
 
@@ -863,61 +1255,102 @@ public class GraphTraversal {
     }
 
     /**
-     * Load a specific link property's object relationships into the various cache fields of {@link Planning}.
-     * @param linkProperty the link property being processed
-     * @param query the HQL to query the property's object relationships
+     * Query which linker objects are related to which linked objects.
+     * The query's results give the linker ID then one linked ID for each of the given relationships, which may be {@code null}.
+     * @param query the HQL to query the object relationships
      * @param ids the IDs of the related objects
-     * @return which linker objects are related to which linked objects by the given property
-     * @throws GraphException if the objects could not be converted to unloaded instances
+     * @param linkerToLinkeds the relationships to which to add the query's results, in order of their columns
      */
-    private List<Entry<CI,CI>> getLinksToCache(CP linkProperty, String query, Collection<Long> ids) throws GraphException {
-        final String linkedClassName = getLinkedClass(linkProperty);
-        final boolean propertyIsAccessible = model.isPropertyAccessible(linkProperty.className, linkProperty.propertyName);
-        final SetMultimap<Long, Long> linkerToLinked = HashMultimap.create();
-        for (final List<Long> idsBatch : Iterables.partition(ids, BATCH_SIZE)) {
-            for (final Object[] result : (List<Object[]>) session.createQuery(query).setParameterList("ids", idsBatch).list()) {
-                linkerToLinked.put((Long) result[0], (Long) result[1]);
-            }
-        }
-        final List<Entry<CI,CI>> linkerLinked = new ArrayList<Entry<CI,CI>>();
-        final Map<Long, CI> linkersById = findObjectDetails(linkProperty.className, linkerToLinked.keySet());
-        final Map<Long, CI> linkedsById = findObjectDetails(linkedClassName, new HashSet<Long>(linkerToLinked.values()));
-        for (final Entry<Long, Long> linkerIdLinkedId : linkerToLinked.entries()) {
-            final CI linker = linkersById.get(linkerIdLinkedId.getKey());
-            final CI linked = linkedsById.get(linkerIdLinkedId.getValue());
-            if (!planning.detailsNoted.containsKey(linker)) {
-                log.warn("failed to query for " + linker);
-            } else if (!planning.detailsNoted.containsKey(linked)) {
-                log.warn("failed to query for " + linked);
-            } else {
-                linkerLinked.add(Maps.immutableEntry(linker, linked));
-                if (propertyIsAccessible) {
-                    planning.befores.put(linked, linker);
-                    planning.afters.put(linker, linked);
+    private void queryLinks(String query, Collection<Long> ids, List<SetMultimap<Long, Long>> linkerToLinkeds) {
+        final Timer.Context timer = linksTimer.time();
+        try {
+            for (final List<Long> idsBatch : Iterables.partition(ids, BATCH_SIZE)) {
+                for (final Object[] result : (List<Object[]>) session.createQuery(query).setParameterList("ids", idsBatch).list()) {
+                    final Long linkerId = (Long) result[0];
+                    for (int index = 0; index < linkerToLinkeds.size(); index++) {
+                        final Long linkedId = (Long) result[index + 1];
+                        if (linkedId != null) {
+                            linkerToLinkeds.get(index).put(linkerId, linkedId);
+                        }
+                    }
                 }
-                if (log.isDebugEnabled()) {
-                    log.debug(linkProperty.toCPI(linker.id) + " links to " + linked);
+            }
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Load link properties' object relationships into the various cache fields of {@link Planning}.
+     * The details of the related objects are found with one query per class for all the properties.
+     * @param linkerToLinked which linker objects are related to which linked objects by each link property
+     * @return which linker objects are related to which linked objects by each link property,
+     * omitting any objects whose details could not be found
+     * @throws GraphException if the objects could not be converted to unloaded instances
+     */
+    private Map<CP, List<Entry<CI,CI>>> getLinksToCache(Map<CP, SetMultimap<Long, Long>> linkerToLinked)
+            throws GraphException {
+        /* find the details of all the related objects, class by class */
+        final Map<CP, String> linkedClassNames = new HashMap<CP, String>();
+        final SetMultimap<String, Long> idsToFind = HashMultimap.create();
+        for (final Entry<CP, SetMultimap<Long, Long>> links : linkerToLinked.entrySet()) {
+            final CP linkProperty = links.getKey();
+            final String linkedClassName = getLinkedClass(linkProperty);
+            linkedClassNames.put(linkProperty, linkedClassName);
+            idsToFind.putAll(linkProperty.className, links.getValue().keySet());
+            idsToFind.putAll(linkedClassName, links.getValue().values());
+        }
+        final Map<String, Map<Long, CI>> objectsByClass = new HashMap<String, Map<Long, CI>>();
+        for (final Entry<String, Collection<Long>> classIds : idsToFind.asMap().entrySet()) {
+            objectsByClass.put(classIds.getKey(), findObjectDetails(classIds.getKey(), classIds.getValue()));
+        }
+        /* cache the relationships among the objects */
+        final Map<CP, List<Entry<CI,CI>>> linkerLinkedByProperty = new HashMap<CP, List<Entry<CI,CI>>>();
+        for (final Entry<CP, SetMultimap<Long, Long>> links : linkerToLinked.entrySet()) {
+            final CP linkProperty = links.getKey();
+            final boolean propertyIsAccessible = model.isPropertyAccessible(linkProperty.className, linkProperty.propertyName);
+            final Map<Long, CI> linkersById = objectsByClass.get(linkProperty.className);
+            final Map<Long, CI> linkedsById = objectsByClass.get(linkedClassNames.get(linkProperty));
+            final List<Entry<CI,CI>> linkerLinked = new ArrayList<Entry<CI,CI>>();
+            for (final Entry<Long, Long> linkerIdLinkedId : links.getValue().entries()) {
+                final CI linker = linkersById.get(linkerIdLinkedId.getKey());
+                final CI linked = linkedsById.get(linkerIdLinkedId.getValue());
+                if (!planning.detailsNoted.containsKey(linker)) {
+                    log.warn("failed to query for " + linker);
+                } else if (!planning.detailsNoted.containsKey(linked)) {
+                    log.warn("failed to query for " + linked);
+                } else {
+                    linkerLinked.add(Maps.immutableEntry(linker, linked));
+                    if (propertyIsAccessible) {
+                        planning.befores.put(linked, linker);
+                        planning.afters.put(linker, linked);
+                    }
+                    if (log.isDebugEnabled()) {
+                        log.debug(linkProperty.toCPI(linker.id) + " links to " + linked);
+                    }
                 }
             }
+            linkerLinkedByProperty.put(linkProperty, linkerLinked);
         }
-        return linkerLinked;
+        return linkerLinkedByProperty;
     }
 
     /**
      * Load object instances and their links into the various cache fields of {@link Planning}.
+     * Forward links that are not collections are queried together for each class
+     * so that one query finds all such properties of a batch of objects.
      * @param session a Hibernate session
      * @param toCache the objects to cache
      * @throws GraphException if the objects could not be converted to unloaded instances
      */
     private void cache(Session session, Collection<CI> toCache) throws GraphException {
         /* note which links to query, organized for batch querying */
-        final SetMultimap<CP, Long> forwardLinksWanted = HashMultimap.create();
+        final SetMultimap<String, Long> forwardLinksWanted = HashMultimap.create();
         final SetMultimap<CP, Long> backwardLinksWanted = HashMultimap.create();
         for (final CI inclusionCandidate : toCache) {
             for (final String inclusionCandidateSuperclassName : model.getSuperclassesOfReflexive(inclusionCandidate.className)) {
-                for (final Entry<String, String> forwardLink : model.getLinkedTo(inclusionCandidateSuperclassName)) {
-                    final CP linkProperty = new CP(inclusionCandidateSuperclassName, forwardLink.getValue());
-                    forwardLinksWanted.put(linkProperty, inclusionCandidate.id);
+                if (!model.getLinkedTo(inclusionCandidateSuperclassName).isEmpty()) {
+                    forwardLinksWanted.put(inclusionCandidateSuperclassName, inclusionCandidate.id);
                 }
                 for (final Entry<String, String> backwardLink : model.getLinkedBy(inclusionCandidateSuperclassName)) {
                     final CP linkProperty = new CP(backwardLink.getKey(), backwardLink.getValue());
@@ -925,21 +1358,60 @@ public class GraphTraversal {
                 }
             }
         }
-        /* query and cache forward links */
-        for (final Entry<CP, Collection<Long>> forwardLink : forwardLinksWanted.asMap().entrySet()) {
-            final CP linkProperty = forwardLink.getKey();
-            final String query = "SELECT linker.id, linked.id FROM " + linkProperty.className + " AS linker " +
-                    "JOIN linker." + linkProperty.propertyName + " AS linked WHERE linker.id IN (:ids)";
-            for (final Entry<CI, CI> linkerLinked : getLinksToCache(linkProperty, query, forwardLink.getValue())) {
-                planning.forwardLinksCached.put(linkProperty.toCPI(linkerLinked.getKey().id), linkerLinked.getValue());
+        /* query forward links */
+        final Map<CP, SetMultimap<Long, Long>> forwardLinks = new HashMap<CP, SetMultimap<Long, Long>>();
+        for (final Entry<String, Collection<Long>> forwardLink : forwardLinksWanted.asMap().entrySet()) {
+            final String className = forwardLink.getKey();
+            final List<String> joins = new ArrayList<String>();
+            final List<SetMultimap<Long, Long>> joinedLinks = new ArrayList<SetMultimap<Long, Long>>();
+            for (final Entry<String, String> linkedTo : model.getLinkedTo(className)) {
+                final String propertyName = linkedTo.getValue();
+                final SetMultimap<Long, Long> linkerToLinked = HashMultimap.create();
+                forwardLinks.put(new CP(className, propertyName), linkerToLinked);
+                if (model.getPropertyKind(className, propertyName) == PropertyKind.COLLECTION) {
+                    /* joining collections would multiply the rows so query each separately */
+                    final String query = "SELECT linker.id, linked.id FROM " + className + " AS linker " +
+                            "JOIN linker." + propertyName + " AS linked WHERE linker.id IN (:ids)";
+                    queryLinks(query, forwardLink.getValue(), Collections.singletonList(linkerToLinked));
+                } else {
+                    joins.add(propertyName);
+                    joinedLinks.add(linkerToLinked);
+                }
+            }
+            if (!joins.isEmpty()) {
+                final StringBuilder query = new StringBuilder("SELECT linker.id");
+                for (int index = 0; index < joins.size(); index++) {
+                    query.append(", linked" + index + ".id");
+                }
+                query.append(" FROM " + className + " AS linker");
+                for (int index = 0; index < joins.size(); index++) {
+                    query.append(" LEFT OUTER JOIN linker." + joins.get(index) + " AS linked" + index);
+                }
+                query.append(" WHERE linker.id IN (:ids)");
+                queryLinks(query.toString(), forwardLink.getValue(), joinedLinks);
             }
         }
-        /* query and cache backward links */
+        /* query backward links */
+        final Map<CP, SetMultimap<Long, Long>> backwardLinks = new HashMap<CP, SetMultimap<Long, Long>>();
         for (final Entry<CP, Collection<Long>> backwardLink : backwardLinksWanted.asMap().entrySet()) {
             final CP linkProperty = backwardLink.getKey();
             final String query = "SELECT linker.id, linked.id FROM " + linkProperty.className + " AS linker " +
                     "JOIN linker." + linkProperty.propertyName + " AS linked WHERE linked.id IN (:ids)";
-            for (final Entry<CI, CI> linkerLinked : getLinksToCache(linkProperty, query, backwardLink.getValue())) {
+            final SetMultimap<Long, Long> linkerToLinked = HashMultimap.create();
+            backwardLinks.put(linkProperty, linkerToLinked);
+            queryLinks(query, backwardLink.getValue(), Collections.singletonList(linkerToLinked));
+        }
+        /* cache forward links */
+        for (final Entry<CP, List<Entry<CI, CI>>> forwardLink : getLinksToCache(forwardLinks).entrySet()) {
+            final CP linkProperty = forwardLink.getKey();
+            for (final Entry<CI, CI> linkerLinked : forwardLink.getValue()) {
+                planning.forwardLinksCached.put(linkProperty.toCPI(linkerLinked.getKey().id), linkerLinked.getValue());
+            }
+        }
+        /* cache backward links */
+        for (final Entry<CP, List<Entry<CI, CI>>> backwardLink : getLinksToCache(backwardLinks).entrySet()) {
+            final CP linkProperty = backwardLink.getKey();
+            for (final Entry<CI, CI> linkerLinked : backwardLink.getValue()) {
                 planning.backwardLinksCached.put(linkProperty.toCPI(linkerLinked.getValue().id), linkerLinked.getKey());
             }
         }
@@ -1176,7 +1648,9 @@ public class GraphTraversal {
         final Action chosenAction = getAction(object);
         if ((chosenAction == Action.DELETE || chosenAction == Action.INCLUDE) && !planning.blockedBy.containsKey(object)) {
             final Set<CI> queuedItems = planning.blockedBy.keySet();
-            planning.blockedBy.put(object, new HashSet<CI>(Sets.intersection(planning.befores.get(object), queuedItems)));
+            final Set<CI> blockers = new CISet();
+            blockers.addAll(Sets.intersection(planning.befores.get(object), queuedItems));
+            planning.blockedBy.put(object, blockers);
             for (final CI afterItem : Sets.intersection(planning.afters.get(object), queuedItems)) {
                 planning.blockedBy.get(afterItem).add(object);
             }
@@ -1325,6 +1799,21 @@ public class GraphTraversal {
         if (abilities == null || eventContext.isCurrentUserAdmin()) {
             return;
         }
+        final Timer.Context timer = permissionsTimer.time();
+        try {
+            assertPermissionsUntimed(objects, abilities);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Assert that the user has the given abilities to operate upon the given objects.
+     * @param objects some objects
+     * @param abilities some abilities
+     * @throws GraphException if the user does not have all the abilities to operate upon all of the objects
+     */
+    private void assertPermissionsUntimed(Set<CI> objects, Collection<GraphPolicy.Ability> abilities) throws GraphException {
         objects = Sets.difference(objects, planning.overrides);
         if (abilities.contains(Ability.DELETE)) {
             final Set<CI> violations = Sets.difference(objects, planning.mayDelete);
@@ -1359,7 +1848,7 @@ public class GraphTraversal {
      * @return objects of the given class and IDs
      */
     private static Set<CI> idsToCIs(String className, Collection<Long> ids) {
-        final Set<CI> objects = new HashSet<CI>();
+        final Set<CI> objects = new CISet();
         for (final Long id : ids) {
             objects.add(new CI(className, id));
         }
@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package ome.services.graphs;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of non-negative {@code long} values held in a single open-addressed array, without boxing.
+ * Used by {@link GraphTraversal} for tracking the state of very many model objects.
+ * Removal leaves a marker so that a {@link Cursor} may remove values while iterating.
+ * Not thread-safe.
+ * @author m.t.b.carroll@dundee.ac.uk
+ * @since 5.2.3
+ */
+final class LongHashSet {
+
+    /* marks slots that have never held a value */
+    private static final long FREE = -1;
+
+    /* marks slots whose value was removed */
+    private static final long REMOVED = -2;
+
+    private static final int MINIMUM_CAPACITY = 4;
+
+    private long[] slots;
+    private int size = 0;
+    private int removed = 0;
+
+    /* no occupied slot precedes this index */
+    private int firstOccupied = 0;
+
+    /**
+     * An iterator over the values of the set.
+     * @author m.t.b.carroll@dundee.ac.uk
+     * @since 5.2.3
+     */
+    final class Cursor {
+        private final long[] iterated = slots;
+        private int next = -1;
+        private int current = -1;
+
+        private Cursor() {
+            advance();
+        }
+
+        private void advance() {
+            do {
+                next++;
+            } while (next < iterated.length && iterated[next] < 0);
+        }
+
+        /**
+         * @return if {@link #next()} may be called
+         */
+        boolean hasNext() {
+            return next < iterated.length;
+        }
+
+        /**
+         * @return the next value from the set
+         */
+        long next() {
+            if (iterated != slots) {
+                throw new IllegalStateException("set was resized during iteration");
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            advance();
+            return iterated[current];
+        }
+
+        /**
+         * Remove from the set the value last returned by {@link #next()}.
+         */
+        void remove() {
+            if (current < 0 || iterated[current] < 0) {
+                throw new IllegalStateException();
+            }
+            iterated[current] = REMOVED;
+            size--;
+            removed++;
+        }
+    }
+
+    /**
+     * Construct an empty set.
+     */
+    LongHashSet() {
+        this(MINIMUM_CAPACITY / 2);
+    }
+
+    /**
+     * Construct an empty set.
+     * @param expectedSize how many values the set is expected to hold
+     */
+    LongHashSet(int expectedSize) {
+        slots = new long[capacityFor(expectedSize)];
+        Arrays.fill(slots, FREE);
+    }
+
+    /**
+     * Construct a set holding the same values as the given set.
+     * @param other a set to copy
+     */
+    LongHashSet(LongHashSet other) {
+        slots = other.slots.clone();
+        size = other.size;
+        removed = other.removed;
+        firstOccupied = other.firstOccupied;
+    }
+
+    /**
+     * @param expectedSize a number of values
+     * @return a table size that holds that many values at no more than half load
+     */
+    private static int capacityFor(int expectedSize) {
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity < 2 * expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * @param value a value
+     * @return the index of the slot at which to start probing for the value
+     */
+    private int indexOf(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 32;
+        return (int) hash & (slots.length - 1);
+    }
+
+    /**
+     * @param value a value
+     * @return the index of the slot holding the value, or {@code -1} if it is not in the set
+     */
+    private int find(long value) {
+        final int mask = slots.length - 1;
+        for (int index = indexOf(value); ; index = (index + 1) & mask) {
+            final long slot = slots[index];
+            if (slot == value) {
+                return index;
+            } else if (slot == FREE) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * @param value a value
+     * @return if the set contains the value
+     */
+    boolean contains(long value) {
+        return value >= 0 && find(value) >= 0;
+    }
+
+    /**
+     * Add a value to the set.
+     * @param value a non-negative value
+     * @return if the set did not already contain the value
+     */
+    boolean add(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("negative value: " + value);
+        }
+        final int mask = slots.length - 1;
+        int reuse = -1;
+        int index = indexOf(value);
+        for (; ; index = (index + 1) & mask) {
+            final long slot = slots[index];
+            if (slot == value) {
+                return false;
+            } else if (slot == FREE) {
+                break;
+            } else if (slot == REMOVED && reuse < 0) {
+                reuse = index;
+            }
+        }
+        if (reuse >= 0) {
+            index = reuse;
+            removed--;
+        }
+        slots[index] = value;
+        size++;
+        if (index < firstOccupied) {
+            firstOccupied = index;
+        }
+        if (4 * (size + removed) > 3 * slots.length) {
+            resize();
+        }
+        return true;
+    }
+
+    /**
+     * Remove a value from the set.
+     * @param value a value
+     * @return if the set contained the value
+     */
+    boolean remove(long value) {
+        if (value < 0) {
+            return false;
+        }
+        final int index = find(value);
+        if (index < 0) {
+            return false;
+        }
+        slots[index] = REMOVED;
+        size--;
+        removed++;
+        return true;
+    }
+
+    /**
+     * Rehash the values into a table suited to their number, dropping the markers of removed values.
+     */
+    private void resize() {
+        final long[] oldSlots = slots;
+        slots = new long[capacityFor(size)];
+        Arrays.fill(slots, FREE);
+        removed = 0;
+        firstOccupied = 0;
+        final int mask = slots.length - 1;
+        for (final long value : oldSlots) {
+            if (value >= 0) {
+                int index = indexOf(value);
+                while (slots[index] != FREE) {
+                    index = (index + 1) & mask;
+                }
+                slots[index] = value;
+            }
+        }
+    }
+
+    /**
+     * Find any value in the set. Repeatedly finding then removing a value drains the set in linear time.
+     * @return a value from the set, or {@code -1} if the set is empty
+     */
+    long any() {
+        if (size == 0) {
+            return -1;
+        }
+        while (slots[firstOccupied] < 0) {
+            firstOccupied++;
+        }
+        return slots[firstOccupied];
+    }
+
+    /**
+     * @return how many values are in the set
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return if the set is empty
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all the values from the set.
+     */
+    void clear() {
+        if (size + removed > 0) {
+            if (slots.length > MINIMUM_CAPACITY) {
+                slots = new long[MINIMUM_CAPACITY];
+            }
+            Arrays.fill(slots, FREE);
+            size = 0;
+            removed = 0;
+            firstOccupied = 0;
+        }
+    }
+
+    /**
+     * @return a new iterator over the values of the set; the set may not have values added during the iteration
+     */
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * @param other a set
+     * @return if this set contains every value of the other set
+     */
+    boolean containsAll(LongHashSet other) {
+        for (final long value : other.slots) {
+            if (value >= 0 && !contains(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        } else if (object instanceof LongHashSet) {
+            final LongHashSet other = (LongHashSet) object;
+            return size == other.size && containsAll(other);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (final long value : slots) {
+            if (value >= 0) {
+                hash += (int) (value ^ (value >>> 32));
+            }
+        }
+        return hash;
+    }
+}
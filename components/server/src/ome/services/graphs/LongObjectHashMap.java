@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package ome.services.graphs;
+
+import java.util.Arrays;
+
+/**
+ * A map from non-negative {@code long} keys to non-{@code null} values held in open-addressed arrays, without boxing the keys.
+ * Used by {@link GraphTraversal} for indexing the links among very many model objects.
+ * Not thread-safe.
+ * @author m.t.b.carroll@dundee.ac.uk
+ * @since 5.2.3
+ * @param <V> the type of the values
+ */
+final class LongObjectHashMap<V> {
+
+    /* marks slots that have never held a key */
+    private static final long FREE = -1;
+
+    private static final int MINIMUM_CAPACITY = 4;
+
+    private long[] keys;
+    private Object[] values;
+    private int size = 0;
+
+    /**
+     * Construct an empty map.
+     */
+    LongObjectHashMap() {
+        keys = new long[MINIMUM_CAPACITY];
+        values = new Object[MINIMUM_CAPACITY];
+        Arrays.fill(keys, FREE);
+    }
+
+    /**
+     * @param key a key
+     * @return the index of the slot at which to start probing for the key
+     */
+    private int indexOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 32;
+        return (int) hash & (keys.length - 1);
+    }
+
+    /**
+     * @param key a key
+     * @return the value for the key, or {@code null} if the map has none
+     */
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        if (key < 0) {
+            return null;
+        }
+        final int mask = keys.length - 1;
+        for (int index = indexOf(key); ; index = (index + 1) & mask) {
+            final long slot = keys[index];
+            if (slot == key) {
+                return (V) values[index];
+            } else if (slot == FREE) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Set the value for a key.
+     * @param key a non-negative key
+     * @param value a non-{@code null} value
+     * @return the previous value for the key, or {@code null} if the map had none
+     */
+    @SuppressWarnings("unchecked")
+    V put(long key, V value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("negative key: " + key);
+        }
+        if (value == null) {
+            throw new NullPointerException("null value");
+        }
+        final int mask = keys.length - 1;
+        int index = indexOf(key);
+        for (; ; index = (index + 1) & mask) {
+            final long slot = keys[index];
+            if (slot == key) {
+                final V previous = (V) values[index];
+                values[index] = value;
+                return previous;
+            } else if (slot == FREE) {
+                break;
+            }
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+        if (4 * size > 3 * keys.length) {
+            resize();
+        }
+        return null;
+    }
+
+    /**
+     * Rehash the entries into a table of twice the size.
+     */
+    private void resize() {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        Arrays.fill(keys, FREE);
+        final int mask = keys.length - 1;
+        for (int oldIndex = 0; oldIndex < oldKeys.length; oldIndex++) {
+            final long key = oldKeys[oldIndex];
+            if (key != FREE) {
+                int index = indexOf(key);
+                while (keys[index] != FREE) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[oldIndex];
+            }
+        }
+    }
+
+    /**
+     * @return how many keys have values in the map
+     */
+    int size() {
+        return size;
+    }
+}
@@ -6,8 +6,11 @@
 package ome.services.pixeldata;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import ome.api.IQuery;
 import ome.conditions.LockTimeout;
@@ -21,6 +24,9 @@ import ome.parameters.Parameters;
 import ome.services.eventlogs.EventLogLoader;
 import ome.services.util.Executor.SimpleWork;
 import ome.system.ServiceFactory;
+import ome.system.metrics.Counter;
+import ome.system.metrics.Metrics;
+import ome.system.metrics.NullMetrics;
 import ome.util.SqlAction;
 
 import org.hibernate.Session;
@@ -45,6 +51,18 @@ public class PixelDataHandler extends SimpleWork {
 
     protected int reps = 5;
 
+    /**
+     * Ids of the pixels whose pyramid is being created by this process.
+     * Prevents two threads from working on the same image when it is
+     * requested again before its first {@link EventLog} is handled.
+     */
+    private final Set<Long> inProgress =
+            Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+    private Counter inProgressCount;
+
+    private Counter duplicateCount;
+
     /**
      * Spring injector. Sets the number of indexing runs will be made if there
      * is a substantial backlog.
@@ -58,6 +76,17 @@ public class PixelDataHandler extends SimpleWork {
         super("PixelDataHandler", "process");
         this.loader = ll;
         this.pixelsService = pixelsService;
+        setMetrics(new NullMetrics());
+    }
+
+    /**
+     * Spring injector. Counts the pixels being processed and the
+     * {@link EventLog} instances skipped since their pixels were already
+     * being processed.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.inProgressCount = metrics.counter(this, "inProgress");
+        this.duplicateCount = metrics.counter(this, "duplicates");
     }
 
     /**
@@ -79,6 +108,8 @@ public class PixelDataHandler extends SimpleWork {
      */
     @Transactional(readOnly = false)
     public Object doWork(Session session, ServiceFactory sf) {
+        // Picks up images requested again since the last load.
+        loader.refresh();
         List<EventLog> logs = new ArrayList<EventLog>();
         while (logs.size() < this.reps) {
             try {
@@ -102,13 +133,29 @@ public class PixelDataHandler extends SimpleWork {
 
     /**
      * Handles only single elements from the {@link PersistentEventLogLoader}
-     * in order to keep transactions short and safe.
+     * in order to keep transactions short and safe. {@link EventLog}
+     * instances for pixels already being processed by another thread are
+     * skipped.
      *
      * @see <a href="http://trac.openmicroscopy.org/ome/ticket/5814">ticket:5814</a>
      */
     public void handleEventLog(EventLog eventLog, Session session, ServiceFactory sf) {
         final long start = System.currentTimeMillis();
-        final boolean handled = process(eventLog.getEntityId(), sf, session);
+        final Long id = eventLog.getEntityId();
+        if (!inProgress.add(id)) {
+            duplicateCount.inc();
+            log.info(String.format("SKIPPED EventLog:%s(entityId=%s) " +
+                    "already in progress", eventLog.getId(), id));
+            return;
+        }
+        final boolean handled;
+        inProgressCount.inc();
+        try {
+            handled = process(id, sf, session);
+        } finally {
+            inProgress.remove(id);
+            inProgressCount.dec();
+        }
         final String msg = String.format("EventLog:%s(entityId=%s) [%s ms.]",
                 eventLog.getId(), eventLog.getEntityId(),
                 (System.currentTimeMillis() - start));
@@ -8,7 +8,9 @@
 package ome.services.pixeldata;
 
 import java.sql.Timestamp;
+import java.util.ArrayDeque;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +36,7 @@ import ome.services.util.Executor;
 import ome.system.EventContext;
 import ome.system.Principal;
 import ome.system.ServiceFactory;
+import ome.system.metrics.Counter;
 import ome.system.metrics.Metrics;
 import ome.system.metrics.NullMetrics;
 import ome.system.metrics.Timer;
@@ -75,6 +78,12 @@ public class PixelDataThread extends ExecutionThread implements ApplicationListe
 
     private final Timer batchTimer;
 
+    /**
+     * Number of {@link EventLog} instances loaded which are waiting for one
+     * of the {@link #numThreads} threads.
+     */
+    private final Counter pendingCount;
+
     /**
      * Uses default {@link Principal} for processing
      */
@@ -158,6 +167,7 @@ public class PixelDataThread extends ExecutionThread implements ApplicationListe
         this.uuid = uuid;
         this.numThreads = numThreads;
         this.batchTimer = metrics.timer(this, "batch");
+        this.pendingCount = metrics.counter(this, "pending");
     }
 
     /**
@@ -178,6 +188,12 @@ public class PixelDataThread extends ExecutionThread implements ApplicationListe
      * Loads event logs from the {@link PixelDataHandler} processing them
      * all then in a background thread via a {@link ExecutorCompletionService}.
      *
+     * At most {@link #numThreads} event logs are processed at once. As soon
+     * as one completes, the next is submitted, loading more from the
+     * {@link PixelDataHandler} when none are left, so that a single large
+     * image does not hold up the other threads. Loading stops once the
+     * handler returns no more event logs for this run.
+     *
      * {@link #numThreads} variable is also used there, so the value returned
      * <em>should</em> match. In case it isn't, we additionally use an
      * {@link ArrayBlockingQueue} to hold the results.
@@ -190,27 +206,45 @@ public class PixelDataThread extends ExecutionThread implements ApplicationListe
                 new ExecutorCompletionService<Object>(executor.getService(),
                         new ArrayBlockingQueue<Future<Object>>(numThreads));
 
-            @SuppressWarnings("unchecked")
-            List<EventLog> eventLogs = (List<EventLog>)
-                    executor.execute(getPrincipal(), work);
-
-            for (final EventLog log : eventLogs) {
-                ecs.submit(new Callable<Object>(){
-                    @Override
-                    public Object call()
-                        throws Exception
-                    {
-                        return go(log);
+            final Deque<EventLog> pending = new ArrayDeque<EventLog>();
+            boolean more = true;
+            int running = 0;
+            while (more || running > 0 || !pending.isEmpty()) {
+                if (more && pending.isEmpty() && running < numThreads) {
+                    @SuppressWarnings("unchecked")
+                    List<EventLog> eventLogs = (List<EventLog>)
+                            executor.execute(getPrincipal(), work);
+                    more = !eventLogs.isEmpty() &&
+                            !((PixelDataHandler) work).loader.isStopSet();
+                    for (EventLog eventLog : eventLogs) {
+                        pending.add(eventLog);
+                        pendingCount.inc();
                     }
-                });
-            }
+                }
+
+                while (running < numThreads && !pending.isEmpty()) {
+                    final EventLog log = pending.poll();
+                    pendingCount.dec();
+                    ecs.submit(new Callable<Object>(){
+                        @Override
+                        public Object call()
+                            throws Exception
+                        {
+                            return go(log);
+                        }
+                    });
+                    running++;
+                }
+
+                if (running == 0) {
+                    continue;
+                }
 
-            int count = eventLogs.size();
-            while (count > 0) {
                 try {
                     Future<Object> future = ecs.poll(500, TimeUnit.MILLISECONDS);
-                    if (future != null && future.get() != null) {
-                        count--;
+                    if (future != null) {
+                        running--;
+                        future.get();
                     }
                 } catch (ExecutionException ee) {
                     onExecutionException(ee);
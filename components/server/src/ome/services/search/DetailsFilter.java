@@ -0,0 +1,261 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+
+package ome.services.search;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import ome.services.fulltext.FullTextBridge;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.index.TermEnum;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.OpenBitSet;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+
+/**
+ * Lucene {@link Filter} over the details fields stored by
+ * {@link FullTextBridge}, so that {@link FullText} can restrict hits by group,
+ * owner and creation or modification time before any of them are loaded from
+ * the database. All clauses must match for a document to pass.
+ * <p>
+ * Documents which lack the owner or group fields, e.g. those indexed before
+ * those fields were added, are passed through: the {@link org.hibernate.Criteria}
+ * which loads the hits remains responsible for the exact restrictions and for
+ * security. The time fields have always been indexed and so are not passed
+ * through.
+ * </p>
+ *
+ * @since 5.2.3
+ */
+class DetailsFilter extends Filter {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String OWNER = "details.owner.id";
+
+    static final String GROUP = "details.group.id";
+
+    private final List<Clause> clauses = new ArrayList<Clause>();
+
+    /**
+     * @return if no restrictions have been added.
+     */
+    boolean isEmpty() {
+        return clauses.isEmpty();
+    }
+
+    /**
+     * Restricts to documents in any of the given groups, or owned by the given
+     * user in any of the other given groups.
+     *
+     * @param anyOwner
+     *            groups in which all documents are readable.
+     * @param ownerOnly
+     *            groups in which only the user's own documents are readable.
+     * @param userId
+     *            id of the current user.
+     */
+    void readable(Collection<Long> anyOwner, Collection<Long> ownerOnly,
+            long userId) {
+        final Clause open = new TermClause(GROUP, in(anyOwner));
+        if (ownerOnly.isEmpty()) {
+            clauses.add(open);
+        } else {
+            final Clause own = new AndClause(
+                    new TermClause(GROUP, in(ownerOnly)),
+                    new TermClause(OWNER, Predicates.equalTo(Long
+                            .toString(userId))));
+            clauses.add(new OrClause(open, own));
+        }
+    }
+
+    /**
+     * Restricts to documents whose id field equals, or does not equal, the
+     * given id.
+     */
+    void match(String field, long id, boolean equals) {
+        Predicate<String> accept = Predicates.equalTo(Long.toString(id));
+        if (!equals) {
+            accept = Predicates.not(accept);
+        }
+        clauses.add(new TermClause(field, accept));
+    }
+
+    /**
+     * Restricts to documents with a term for the field between the two values
+     * inclusive, either of which may be null for an open range.
+     */
+    void range(String field, String lower, String upper) {
+        clauses.add(new RangeClause(field, lower, upper));
+    }
+
+    @Override
+    public DocIdSet getDocIdSet(IndexReader reader) throws IOException {
+        OpenBitSet bits = null;
+        for (Clause clause : clauses) {
+            if (bits == null) {
+                bits = clause.bits(reader);
+            } else {
+                bits.and(clause.bits(reader));
+            }
+        }
+        if (bits == null) {
+            bits = new OpenBitSet(reader.maxDoc());
+            for (int doc = 0; doc < reader.maxDoc(); doc++) {
+                bits.fastSet(doc);
+            }
+        }
+        return bits;
+    }
+
+    private static Predicate<String> in(Collection<Long> ids) {
+        final Set<String> terms = new HashSet<String>();
+        for (Long id : ids) {
+            terms.add(id.toString());
+        }
+        return Predicates.in(terms);
+    }
+
+    //
+    // Clauses
+    //
+
+    private static abstract class Clause implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        abstract OpenBitSet bits(IndexReader reader) throws IOException;
+    }
+
+    private static class AndClause extends Clause {
+        private final Clause a, b;
+
+        AndClause(Clause a, Clause b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        OpenBitSet bits(IndexReader reader) throws IOException {
+            final OpenBitSet bits = a.bits(reader);
+            bits.and(b.bits(reader));
+            return bits;
+        }
+    }
+
+    private static class OrClause extends Clause {
+        private final Clause a, b;
+
+        OrClause(Clause a, Clause b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        OpenBitSet bits(IndexReader reader) throws IOException {
+            final OpenBitSet bits = a.bits(reader);
+            bits.or(b.bits(reader));
+            return bits;
+        }
+    }
+
+    /**
+     * Matches documents with an accepted term for the field, or with no term
+     * at all for the field.
+     */
+    private static class TermClause extends Clause {
+        private final String field;
+        private final Predicate<String> accept;
+
+        TermClause(String field, Predicate<String> accept) {
+            this.field = field;
+            this.accept = accept;
+        }
+
+        OpenBitSet bits(IndexReader reader) throws IOException {
+            final OpenBitSet bits = new OpenBitSet(reader.maxDoc());
+            final OpenBitSet present = new OpenBitSet(reader.maxDoc());
+            final TermEnum terms = reader.terms(new Term(field, ""));
+            final TermDocs docs = reader.termDocs();
+            try {
+                do {
+                    final Term term = terms.term();
+                    if (term == null || !field.equals(term.field())) {
+                        break;
+                    }
+                    final boolean accepted = accept.apply(term.text());
+                    docs.seek(terms);
+                    while (docs.next()) {
+                        present.fastSet(docs.doc());
+                        if (accepted) {
+                            bits.fastSet(docs.doc());
+                        }
+                    }
+                } while (terms.next());
+            } finally {
+                docs.close();
+                terms.close();
+            }
+            for (int doc = 0; doc < reader.maxDoc(); doc++) {
+                if (!present.fastGet(doc)) {
+                    bits.fastSet(doc);
+                }
+            }
+            return bits;
+        }
+    }
+
+    /**
+     * Matches documents with a term for the field within the range. Only the
+     * terms within the range are visited.
+     */
+    private static class RangeClause extends Clause {
+        private final String field;
+        private final String lower;
+        private final String upper;
+
+        RangeClause(String field, String lower, String upper) {
+            this.field = field;
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        OpenBitSet bits(IndexReader reader) throws IOException {
+            final OpenBitSet bits = new OpenBitSet(reader.maxDoc());
+            final TermEnum terms = reader.terms(new Term(field,
+                    lower == null ? "" : lower));
+            final TermDocs docs = reader.termDocs();
+            try {
+                do {
+                    final Term term = terms.term();
+                    if (term == null || !field.equals(term.field())
+                            || (upper != null && term.text().compareTo(upper) > 0)) {
+                        break;
+                    }
+                    docs.seek(terms);
+                    while (docs.next()) {
+                        bits.fastSet(docs.doc());
+                    }
+                } while (terms.next());
+            } finally {
+                docs.close();
+                terms.close();
+            }
+            return bits;
+        }
+    }
+}
@@ -7,6 +7,7 @@
 
 package ome.services.search;
 
+import java.sql.Timestamp;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -14,14 +15,24 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import ome.api.local.LocalAdmin;
 import ome.conditions.ApiUsageException;
 import ome.model.IAnnotated;
+import ome.model.IGlobal;
+import ome.model.IMutable;
 import ome.model.IObject;
 import ome.model.core.Image;
+import ome.model.internal.Permissions;
+import ome.model.internal.Permissions.Right;
+import ome.model.internal.Permissions.Role;
+import ome.system.EventContext;
+import ome.system.Roles;
 import ome.system.ServiceFactory;
 import ome.util.search.InvalidQueryException;
 import ome.util.search.LuceneQueryBuilder;
@@ -41,6 +52,7 @@ import org.hibernate.search.FullTextQuery;
 import org.hibernate.search.FullTextSession;
 import org.hibernate.search.ProjectionConstants;
 import org.hibernate.search.Search;
+import org.hibernate.search.bridge.builtin.DateBridge;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
 
@@ -70,6 +82,16 @@ public class FullText extends SearchAction {
 
     private final Class<? extends Analyzer> analyzer;
 
+    /**
+     * Index of the first hit of the next page when {@link #paged}.
+     */
+    private int offset = 0;
+
+    /**
+     * Whether hits remain after the last page returned.
+     */
+    private boolean more = false;
+
     /**
      * Constructs a new instance; Builds a Lucence query with the provided
      * arguments and passes it on the Lucene parser
@@ -289,6 +311,94 @@ public class FullText extends SearchAction {
         return criteria;
     }
 
+    /**
+     * Builds a Lucene filter from the current {@link EventContext} and the
+     * owner and time restrictions of the {@link SearchValues}, so that hits
+     * which the {@link Criteria} would reject are, as far as the index knows,
+     * never returned by Lucene. The {@link Criteria} still applies all
+     * restrictions to the hits which remain.
+     *
+     * @return null if no filter is needed.
+     */
+    private DetailsFilter filter(Class<?> cls, ServiceFactory sf) {
+        if (IGlobal.class.isAssignableFrom(cls)) {
+            return null;
+        }
+
+        final DetailsFilter filter = new DetailsFilter();
+
+        readable(filter, sf);
+
+        final OwnerOrGroup oog = new OwnerOrGroup(values.ownedBy);
+        if (oog.needed()) {
+            filter.match(oog.path, oog.id, true);
+        }
+        final OwnerOrGroup noog = new OwnerOrGroup(values.notOwnedBy);
+        if (noog.needed()) {
+            filter.match(noog.path, noog.id, false);
+        }
+
+        // Inclusive to the second, which the Criteria then narrows
+        if (values.createdStart != null || values.createdStop != null) {
+            filter.range("details.creationEvent.time",
+                    timeTerm(values.createdStart),
+                    timeTerm(values.createdStop));
+        }
+        if (IMutable.class.isAssignableFrom(cls)
+                && (values.modifiedStart != null || values.modifiedStop != null)) {
+            filter.range("details.updateEvent.time",
+                    timeTerm(values.modifiedStart),
+                    timeTerm(values.modifiedStop));
+        }
+        return filter.isEmpty() ? null : filter;
+    }
+
+    /**
+     * Mirrors the read restrictions of the security filters: in a single
+     * group, everything in that group unless it is private and the user is
+     * neither an admin nor its owner, in which case only the user's own
+     * objects; across all groups, everything in the user's groups. Objects
+     * in the system and user groups are always readable. Shares are left to
+     * the database.
+     */
+    private void readable(DetailsFilter filter, ServiceFactory sf) {
+        final EventContext ec = ((LocalAdmin) sf.getAdminService())
+                .getEventContextQuiet();
+        if (ec.getCurrentShareId() != null) {
+            return;
+        }
+        final Roles roles = sf.getAdminService().getSecurityRoles();
+        final Set<Long> anyOwner = new HashSet<Long>();
+        final Set<Long> ownerOnly = new HashSet<Long>();
+        anyOwner.add(roles.getSystemGroupId());
+        anyOwner.add(roles.getUserGroupId());
+        final Long groupId = ec.getCurrentGroupId();
+        if (groupId != null && groupId >= 0) {
+            final Permissions perms = ec.getCurrentGroupPermissions();
+            if (ec.isCurrentUserAdmin()
+                    || ec.getLeaderOfGroupsList().contains(groupId)
+                    || perms == null
+                    || perms.isGranted(Role.GROUP, Right.READ)
+                    || perms.isGranted(Role.WORLD, Right.READ)) {
+                anyOwner.add(groupId);
+            } else {
+                ownerOnly.add(groupId);
+            }
+        } else if (ec.isCurrentUserAdmin()) {
+            return;
+        } else {
+            anyOwner.addAll(ec.getMemberOfGroupsList());
+        }
+        filter.readable(anyOwner, ownerOnly, ec.getCurrentUserId());
+    }
+
+    private static String timeTerm(Timestamp time) {
+        if (time == null) {
+            return null;
+        }
+        return DateBridge.DATE_SECOND.objectToString(time);
+    }
+
     /**
      * Allows settings offset and limit on the query. The default implementation
      * calls setProjection with SCORE and ID, which MUST BE the first two
@@ -327,8 +437,20 @@ public class FullText extends SearchAction {
         // Main query
         FullTextQuery ftQuery = session.createFullTextQuery(this.q, cls);
         initializeQuery(ftQuery);
+        final DetailsFilter filter = filter(cls, sf);
+        if (filter != null) {
+            ftQuery.setFilter(filter);
+        }
+        if (paged) {
+            ftQuery.setFirstResult(offset);
+            ftQuery.setMaxResults(values.batchSize);
+        }
         List<?> result = ftQuery.list();
         int totalSize = ftQuery.getResultSize();
+        if (paged) {
+            offset += result.size();
+            more = result.size() > 0 && offset < totalSize;
+        }
 
         if (result.size() == 0) {
             // EARLY EXIT 
@@ -393,6 +515,11 @@ public class FullText extends SearchAction {
         return check975;
     }
 
+    @Override
+    public boolean hasNextPage() {
+        return more;
+    }
+
     public Float getScore(IObject object) {
         Object o = object.retrieve(ProjectionConstants.SCORE);
         if (o instanceof Float) {
@@ -47,6 +47,14 @@ public abstract class SearchAction implements Serializable,
      */
     protected List<IObject> chainedList;
 
+    /**
+     * Whether this action is being run directly by {@link SearchBean}, in
+     * which case it may return its results one batch at a time rather than
+     * all at once. Actions nested in an {@link Intersection} or {@link Union}
+     * are never paged.
+     */
+    protected boolean paged = false;
+
     public SearchAction(SearchValues values) {
         if (values == null) {
             throw new IllegalArgumentException(
@@ -80,6 +88,19 @@ public abstract class SearchAction implements Serializable,
         this.chainedList = chainedList;
     }
 
+    public void setPaged(boolean paged) {
+        this.paged = paged;
+    }
+
+    /**
+     * Returns true if calling {@link #doWork(org.hibernate.Session,
+     * ome.system.ServiceFactory)} again will return the next page of results.
+     * The default implementation returns all results in a single call.
+     */
+    public boolean hasNextPage() {
+        return false;
+    }
+
     protected void ids(Criteria criteria) {
         ids(criteria, null, null);
     }
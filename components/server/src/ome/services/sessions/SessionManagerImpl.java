@@ -10,8 +10,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
@@ -70,6 +72,7 @@ import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.UncategorizedSQLException;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.google.common.collect.Iterables;
 import com.google.common.collect.MapMaker;
 
 /**
@@ -87,7 +90,7 @@ import com.google.common.collect.MapMaker;
  * @author Josh Moore, josh at glencoesoftware.com
  * @since 3.0-Beta3
  */
-public class SessionManagerImpl implements SessionManager, SessionCache.StaleCacheListener,
+public class SessionManagerImpl implements SessionManager, SessionCache.BulkStaleCacheListener,
         ApplicationContextAware, ApplicationListener<ApplicationEvent> {
 
     public final static String GROUP_SUDO_NS = "openmicroscopy.org/security/group-sudo";
@@ -1022,6 +1025,36 @@ public class SessionManagerImpl implements SessionManager, SessionCache.StaleCac
         return createSessionContext(list, ctx);
     }
 
+    /**
+     * Reloads the given sessions together with a few set-based queries
+     * rather than with {@link #reload(SessionContext)} for each. Sessions
+     * whose user or group can no longer be found by the same name are
+     * missing from the returned map, as are sessions which no longer exist.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, SessionContext> reloadAll(
+            final Collection<SessionContext> contexts) {
+        final Map<String, List<Object>> lists = (Map<String, List<Object>>)
+                executor.execute(asroot, new Executor.SimpleWork(this,
+                        "reload", contexts.size()) {
+            @Transactional(readOnly = true)
+            public Object doWork(org.hibernate.Session session,
+                    ServiceFactory sf) {
+                return executeSessionContextLookups(sf, contexts);
+            }
+        });
+        final Map<String, SessionContext> rv =
+                new HashMap<String, SessionContext>();
+        for (final SessionContext ctx : contexts) {
+            final String uuid = ctx.getSession().getUuid();
+            final List<Object> list = lists.get(uuid);
+            if (list != null) {
+                rv.put(uuid, createSessionContext(list, ctx));
+            }
+        }
+        return rv;
+    }
+
     // Executor methods
     // =========================================================================
 
@@ -1418,6 +1451,119 @@ public class SessionManagerImpl implements SessionManager, SessionCache.StaleCac
         }
     }
 
+    /**
+     * Maximum number of ids bound to a single query by
+     * {@link #executeSessionContextLookups(ServiceFactory, Collection)}.
+     */
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+
+    /**
+     * As {@link #executeSessionContextLookup(ServiceFactory, Principal, Session)}
+     * but for many sessions at once, with a query per batch of users, groups,
+     * group memberships and sessions rather than several for each session.
+     * Returns the lists by session uuid, omitting any session for which a
+     * lookup would have failed.
+     */
+    private Map<String, List<Object>> executeSessionContextLookups(
+            ServiceFactory sf, Collection<SessionContext> contexts) {
+
+        final Set<Long> userIds = new HashSet<Long>();
+        final Set<Long> groupIds = new HashSet<Long>();
+        final Set<Long> sessionIds = new HashSet<Long>();
+        for (final SessionContext ctx : contexts) {
+            userIds.add(ctx.getCurrentUserId());
+            groupIds.add(ctx.getCurrentGroupId());
+            sessionIds.add(ctx.getSession().getId());
+        }
+
+        final Map<Long, Experimenter> users = new HashMap<Long, Experimenter>();
+        for (final List<Long> ids : Iterables.partition(userIds,
+                LOOKUP_BATCH_SIZE)) {
+            for (final Experimenter e : sf.getQueryService().<Experimenter>
+                    findAllByQuery("select e from Experimenter e "
+                            + "where e.id in (:ids)",
+                            new Parameters().addIds(ids))) {
+                users.put(e.getId(), e);
+            }
+        }
+
+        final Map<Long, ExperimenterGroup> groups =
+                new HashMap<Long, ExperimenterGroup>();
+        for (final List<Long> ids : Iterables.partition(groupIds,
+                LOOKUP_BATCH_SIZE)) {
+            for (final ExperimenterGroup g : sf.getQueryService().
+                    <ExperimenterGroup>findAllByQuery(
+                            "select g from ExperimenterGroup g "
+                            + "where g.id in (:ids)",
+                            new Parameters().addIds(ids))) {
+                groups.put(g.getId(), g);
+            }
+        }
+
+        final Map<Long, List<Long>> memberOf = new HashMap<Long, List<Long>>();
+        final Map<Long, List<Long>> leaderOf = new HashMap<Long, List<Long>>();
+        final Map<Long, List<String>> userRoles =
+                new HashMap<Long, List<String>>();
+        for (final Long userId : users.keySet()) {
+            memberOf.put(userId, new ArrayList<Long>());
+            leaderOf.put(userId, new ArrayList<Long>());
+            userRoles.put(userId, new ArrayList<String>());
+        }
+        for (final List<Long> ids : Iterables.partition(users.keySet(),
+                LOOKUP_BATCH_SIZE)) {
+            for (final Object[] row : sf.getQueryService().projection(
+                    "select e.id, m.parent.id, m.parent.name, m.owner "
+                    + "from Experimenter e join e.groupExperimenterMap m "
+                    + "where e.id in (:ids) order by e.id, index(m)",
+                    new Parameters().addIds(ids))) {
+                final Long userId = (Long) row[0];
+                memberOf.get(userId).add((Long) row[1]);
+                userRoles.get(userId).add((String) row[2]);
+                if (Boolean.TRUE.equals(row[3])) {
+                    leaderOf.get(userId).add((Long) row[1]);
+                }
+            }
+        }
+
+        final Map<Long, Session> sessions = new HashMap<Long, Session>();
+        for (final List<Long> ids : Iterables.partition(sessionIds,
+                LOOKUP_BATCH_SIZE)) {
+            for (final Session s : sf.getQueryService().<Session>
+                    findAllByQuery("select distinct s from Session s "
+                            + "left outer join fetch s.annotationLinks l "
+                            + "left outer join fetch l.child a "
+                            + "where s.id in (:ids)",
+                            new Parameters().addIds(ids))) {
+                sessions.put(s.getId(), s);
+            }
+        }
+
+        final Map<String, List<Object>> rv = new HashMap<String, List<Object>>();
+        for (final SessionContext ctx : contexts) {
+            final Experimenter exp = users.get(ctx.getCurrentUserId());
+            final ExperimenterGroup grp = groups.get(ctx.getCurrentGroupId());
+            final Session reloaded = sessions.get(ctx.getSession().getId());
+            if (exp == null || grp == null || reloaded == null
+                    || !exp.getOmeName().equalsIgnoreCase(
+                            ctx.getCurrentUserName())
+                    || !grp.getName().equals(ctx.getCurrentGroupName())) {
+                log.info("No info for " + ctx.getCurrentUserName());
+                continue;
+            }
+            final List<Object> list = new ArrayList<Object>();
+            list.add(exp);
+            list.add(grp);
+            list.add(new ArrayList<Long>(memberOf.get(exp.getId())));
+            list.add(new ArrayList<Long>(leaderOf.get(exp.getId())));
+            list.add(new ArrayList<String>(userRoles.get(exp.getId())));
+            list.add(new Principal(ctx.getCurrentUserName(),
+                    ctx.getCurrentGroupName(), ctx.getCurrentEventType()));
+            list.add(reloaded);
+            rv.put(ctx.getSession().getUuid(), list);
+        }
+        return rv;
+    }
+
     private Share newShare() {
         Share share = new Share();
         share.putAt("#2733", "ALLOW");
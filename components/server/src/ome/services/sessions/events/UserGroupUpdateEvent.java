@@ -5,6 +5,9 @@
 
 package ome.services.sessions.events;
 
+import java.util.Collection;
+import java.util.Set;
+
 import ome.model.meta.Experimenter;
 import ome.model.meta.ExperimenterGroup;
 import ome.model.meta.GroupExperimenterMap;
@@ -12,22 +15,72 @@ import ome.security.SecuritySystem;
 import ome.services.sessions.SessionManager;
 import ome.util.messages.InternalMessage;
 
+import com.google.common.collect.ImmutableSet;
+
 /**
  * {@link InternalMessage} published by the {@link SecuritySystem} when an
  * {@link Experimenter}, {@link ExperimenterGroup}, or
  * {@link GroupExperimenterMap} is inserted or updated.
  * 
- * This signals the {@link SessionManager} to update its cache.
+ * This signals the {@link SessionManager} to update its cache. If the event
+ * names the changed {@link Experimenter}s and {@link ExperimenterGroup}s then
+ * only the sessions of those users or of members of those groups need to be
+ * reloaded, otherwise any session may be affected.
  * 
  * @author Josh Moore, josh at glencoesoftware.com
  * @since 3.0-Beta3
  */
 public class UserGroupUpdateEvent extends InternalMessage {
 
+    private final Set<Long> experimenterIds;
+
+    private final Set<Long> groupIds;
+
+    /**
+     * Signals a change which may affect any session.
+     */
     public UserGroupUpdateEvent(Object source) {
+        this(source, null, null);
+    }
+
+    /**
+     * Signals changes to only the given users and groups.
+     *
+     * @param experimenterIds
+     *            the changed {@link Experimenter}s, or <code>null</code> if
+     *            any session may be affected.
+     * @param groupIds
+     *            the changed {@link ExperimenterGroup}s, or
+     *            <code>null</code> if any session may be affected.
+     */
+    public UserGroupUpdateEvent(Object source,
+            Collection<Long> experimenterIds, Collection<Long> groupIds) {
         super(source);
+        if (experimenterIds == null || groupIds == null) {
+            this.experimenterIds = null;
+            this.groupIds = null;
+        } else {
+            this.experimenterIds = ImmutableSet.copyOf(experimenterIds);
+            this.groupIds = ImmutableSet.copyOf(groupIds);
+        }
+    }
+
+    /**
+     * @return the changed {@link Experimenter}s, or <code>null</code> if any
+     *         session may be affected.
+     */
+    public Set<Long> getExperimenterIds() {
+        return experimenterIds;
+    }
+
+    /**
+     * @return the changed {@link ExperimenterGroup}s, or <code>null</code> if
+     *         any session may be affected.
+     */
+    public Set<Long> getGroupIds() {
+        return groupIds;
     }
 
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
 
 }
@@ -5,7 +5,11 @@
 package ome.services.sessions.state;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -25,6 +29,10 @@ import ome.services.sessions.SessionManager;
 import ome.services.sessions.SessionManagerImpl;
 import ome.services.sessions.events.UserGroupUpdateEvent;
 import ome.system.OmeroContext;
+import ome.system.metrics.Histogram;
+import ome.system.metrics.Metrics;
+import ome.system.metrics.NullMetrics;
+import ome.system.metrics.Timer;
 
 import org.perf4j.StopWatch;
 import org.perf4j.slf4j.Slf4JStopWatch;
@@ -35,7 +43,9 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.MapMaker;
+import com.google.common.collect.Sets;
 
 /**
  * Synchronized and lockable state for the {@link SessionManager}. Maps from
@@ -70,6 +80,25 @@ public class SessionCache implements ApplicationContextAware {
         SessionContext reload(SessionContext context);
     }
 
+    /**
+     * {@link StaleCacheListener} which can reload many sessions at once, for
+     * example with a few set-based queries rather than a few queries for
+     * each session.
+     */
+    public interface BulkStaleCacheListener extends StaleCacheListener {
+
+        /**
+         * Method called with the active sessions in the cache which need to
+         * be reloaded. The returned {@link SessionContext}s, by session uuid,
+         * will be used to replace the current ones. Sessions missing from the
+         * returned map will be removed.
+         *
+         * Any runtime exception can be thrown to show that an update is not
+         * possible for any of the sessions.
+         */
+        Map<String, SessionContext> reloadAll(Collection<SessionContext> contexts);
+    }
+
     /**
      * Container which can be put in a single {@link AtomicReference} instance.
      * Contains all the data for a single session immutably. Therefore any
@@ -166,12 +195,26 @@ public class SessionCache implements ApplicationContextAware {
          */
         final long lastUpdateRequest;
 
+        /**
+         * Users changed by the requests since the last {@link #doUpdate()},
+         * or null if any session may have been affected.
+         */
+        final Set<Long> experimenterIds;
+
+        /**
+         * Groups changed by the requests since the last {@link #doUpdate()},
+         * or null if any session may have been affected.
+         */
+        final Set<Long> groupIds;
+
         /**
          * Initial creation of State, used on cache creation.
          */
         State() {
             this.lastUpdateRun = System.currentTimeMillis();
             this.lastUpdateRequest = this.lastUpdateRun - 1;
+            this.experimenterIds = ImmutableSet.of();
+            this.groupIds = ImmutableSet.of();
         }
 
         /**
@@ -179,11 +222,59 @@ public class SessionCache implements ApplicationContextAware {
          * is received by the cache.
          *
          * Specifies that a new request has occurred, but the old run
-         * is kept.
+         * is kept. The users and groups of the request are added to those
+         * already pending.
          */
-        State(State old, long request) {
+        State(State old, long request, UserGroupUpdateEvent ugue) {
             this.lastUpdateRun = old.lastUpdateRun;
             this.lastUpdateRequest = request;
+            if (ugue == null || ugue.getExperimenterIds() == null
+                    || old.experimenterIds == null) {
+                this.experimenterIds = null;
+                this.groupIds = null;
+            } else {
+                this.experimenterIds = ImmutableSet.copyOf(Sets.union(
+                        old.experimenterIds, ugue.getExperimenterIds()));
+                this.groupIds = ImmutableSet.copyOf(Sets.union(
+                        old.groupIds, ugue.getGroupIds()));
+            }
+        }
+
+        /**
+         * Copy constructor for State, which is used when {@link #doUpdate()}
+         * takes the pending users and groups for reloading.
+         */
+        State(State old) {
+            this.lastUpdateRun = old.lastUpdateRun;
+            this.lastUpdateRequest = old.lastUpdateRequest;
+            this.experimenterIds = ImmutableSet.of();
+            this.groupIds = ImmutableSet.of();
+        }
+
+        /**
+         * Whether or not the given session may have been affected by the
+         * changes to users and groups, i.e. is for one of the users or has
+         * one of the groups as its current group or among its memberships.
+         */
+        boolean affects(SessionContext ctx) {
+            if (experimenterIds == null) {
+                return true;
+            }
+            if (experimenterIds.contains(ctx.getCurrentUserId())) {
+                return true;
+            }
+            if (groupIds.isEmpty()) {
+                return false;
+            }
+            if (groupIds.contains(ctx.getCurrentGroupId())) {
+                return true;
+            }
+            for (Long groupId : ctx.getMemberOfGroupsList()) {
+                if (groupIds.contains(groupId)) {
+                    return true;
+                }
+            }
+            return false;
         }
 
 
@@ -230,6 +321,12 @@ public class SessionCache implements ApplicationContextAware {
      */
     private long forceUpdateInterval = 1800000;
 
+    /**
+     * Time in milliseconds at which {@link #doUpdate()} last reloaded every
+     * session rather than only those affected by the pending changes.
+     */
+    private long lastFullReload = System.currentTimeMillis();
+
     /**
      * Injected {@link CacheManager} used to create various caches.
      */
@@ -253,10 +350,21 @@ public class SessionCache implements ApplicationContextAware {
      */
     private OmeroContext context;
 
+    /**
+     * Time taken to reload the stale sessions in each {@link #doUpdate()}.
+     */
+    private Timer reloadTimer;
+
+    /**
+     * Number of sessions reloaded by each {@link #doUpdate()}.
+     */
+    private Histogram reloadCount;
+
     public SessionCache() {
         final MapMaker mapMaker = new MapMaker();
         sessions = mapMaker.makeMap();
         sessionCallbackMap = mapMaker.makeMap();
+        setMetrics(new NullMetrics());
     }
 
     /**
@@ -281,6 +389,15 @@ public class SessionCache implements ApplicationContextAware {
         this.forceUpdateInterval = milliseconds;
     }
 
+    /**
+     * Inject the {@link Metrics} used to report the time taken and number of
+     * sessions reloaded by {@link #doUpdate()}.
+     */
+    public void setMetrics(Metrics metrics) {
+        this.reloadTimer = metrics.timer(this, "reload");
+        this.reloadCount = metrics.histogram(this, "reloadCount");
+    }
+
     // Accessors
     // ========================================================================
 
@@ -595,8 +712,10 @@ public class SessionCache implements ApplicationContextAware {
             time = ugue.getTimestamp();
         }
 
-        State old = state.get();
-        state.set(new State(old, time));
+        State old;
+        do {
+            old = state.get();
+        } while (!state.compareAndSet(old, new State(old, time, ugue)));
     }
 
     /**
@@ -621,16 +740,36 @@ public class SessionCache implements ApplicationContextAware {
         }
 
         try {
+            // Take the changes requested so far. Any requested while
+            // reloading are left for the next update.
+            State pending;
+            do {
+                pending = state.get();
+            } while (!state.compareAndSet(pending, new State(pending)));
+
+            final long start = System.currentTimeMillis();
+            final boolean full = pending.experimenterIds == null
+                    || start - lastFullReload >= forceUpdateInterval;
+
             final Set<String> ids = sessions.keySet();
             log.info("Synchronizing session cache. Count = " + ids.size());
             final StopWatch sw = new Slf4JStopWatch();
+            final List<String> stale = new ArrayList<String>();
             for (String id : ids) {
-                reload(id);
+                final Data data = getDataOrRemove(id);
+                if (data != null
+                        && (full || pending.affects(data.sessionContext))) {
+                    stale.add(id);
+                }
+            }
+            reload(stale);
+            if (full) {
+                lastFullReload = start;
             }
 
             sw.stop("omero.sessions.synchronization");
-            log.info(String.format("Synchronization took %s ms.",
-                    sw.getElapsedTime()));
+            log.info(String.format("Synchronization took %s ms. Reloaded = %s",
+                    sw.getElapsedTime(), stale.size()));
 
         } catch (Exception e) {
             log.error("Error synchronizing cache", e);
@@ -655,42 +794,121 @@ public class SessionCache implements ApplicationContextAware {
             return;
         }
 
-        Data data = null;
+        final Data data = getDataOrRemove(id);
+        if (data == null) {
+            return;
+        }
+
+        try {
+            SessionContext ctx = data.sessionContext;
+            // May throw an exception
+            SessionContext replacement = listener.reload(ctx);
+            replace(id, data, replacement);
+        } catch (Exception e) {
+            reloadFailed(id, data, e);
+        }
+    }
+
+    /**
+     * Reloads the given sessions, all at once if the
+     * {@link StaleCacheListener} is a {@link BulkStaleCacheListener} and
+     * otherwise one by one as {@link #reload(String)}.
+     */
+    public void reload(Collection<String> ids) {
+
+        final StaleCacheListener listener = staleCacheListener.get();
+        if (listener == null) {
+            log.error("Null stale cache listener!");
+            return;
+        }
+
+        final Timer.Context timer = reloadTimer.time();
         try {
-            data = getDataNullOrThrowOnTimeout(id, false);
+            reloadCount.update(ids.size());
+
+            if (!(listener instanceof BulkStaleCacheListener)) {
+                for (String id : ids) {
+                    reload(id);
+                }
+                return; // EARLY EXIT
+            }
+
+            final Map<String, Data> stale = new LinkedHashMap<String, Data>();
+            final List<SessionContext> contexts = new ArrayList<SessionContext>();
+            for (String id : ids) {
+                final Data data = getDataOrRemove(id);
+                if (data != null) {
+                    stale.put(id, data);
+                    contexts.add(data.sessionContext);
+                }
+            }
+            if (contexts.isEmpty()) {
+                return; // EARLY EXIT
+            }
+
+            Map<String, SessionContext> replacements;
+            try {
+                // May throw an exception
+                replacements = ((BulkStaleCacheListener) listener)
+                        .reloadAll(contexts);
+            } catch (Exception e) {
+                for (Map.Entry<String, Data> entry : stale.entrySet()) {
+                    reloadFailed(entry.getKey(), entry.getValue(), e);
+                }
+                return; // EARLY EXIT
+            }
+
+            for (Map.Entry<String, Data> entry : stale.entrySet()) {
+                replace(entry.getKey(), entry.getValue(),
+                        replacements.get(entry.getKey()));
+            }
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Returns the {@link Data} for the session, first removing the session
+     * if it has timed out or cannot be read.
+     *
+     * @return null if the session was removed.
+     */
+    private Data getDataOrRemove(String id) {
+        try {
+            final Data data = getDataNullOrThrowOnTimeout(id, false);
             if (data == null) {
                 internalRemove(id, "Timeout");
-                return;
             }
+            return data;
         } catch (Exception e) {
             // If an exception occurs here, then something is wrong
             // with the Data instance itself since no DB calls are
             // made. Therefore the instance will be removed.
             log.warn("Removing session on get error of " + id, e);
             internalRemove(id, "Get error");
+            return null;
         }
+    }
 
-        try {
-            SessionContext ctx = data.sessionContext;
-            // May throw an exception
-            SessionContext replacement = listener.reload(ctx);
-            if (replacement == null) {
-                internalRemove(id, "Replacement null");
-            } else {
-                refresh(id, data, replacement);
-            }
-        } catch (Exception e) {
-            // If an exception occurs it MAY be transient, therefore
-            // we count the number of errors that have happened for
-            // this specific instance as described under Data#errors
-            // just to be safe.
-            int count = data.error.incrementAndGet();
-            if (count > Data.MAX_ERROR) {
-                log.warn("Removing session on reload error of " + id, e);
-                internalRemove(id, "Reload error");
-            } else {
-                log.warn(count + "error(s) on reload of " + id, e);
-            }
+    private void replace(String id, Data data, SessionContext replacement) {
+        if (replacement == null) {
+            internalRemove(id, "Replacement null");
+        } else {
+            refresh(id, data, replacement);
+        }
+    }
+
+    private void reloadFailed(String id, Data data, Exception e) {
+        // If an exception occurs it MAY be transient, therefore
+        // we count the number of errors that have happened for
+        // this specific instance as described under Data#errors
+        // just to be safe.
+        int count = data.error.incrementAndGet();
+        if (count > Data.MAX_ERROR) {
+            log.warn("Removing session on reload error of " + id, e);
+            internalRemove(id, "Reload error");
+        } else {
+            log.warn(count + "error(s) on reload of " + id, e);
         }
     }
 
@@ -5,7 +5,11 @@
 
 package ome.services.util;
 
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,7 +37,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.hibernate.Session;
 import org.hibernate.StatelessSession;
-import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.framework.ReflectiveMethodInvocation;
+import org.springframework.aop.framework.adapter.AdvisorAdapterRegistry;
+import org.springframework.aop.framework.adapter.GlobalAdvisorAdapterRegistry;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
 import org.springframework.beans.BeansException;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
@@ -338,6 +345,19 @@ public interface Executor extends ApplicationContextAware {
         final protected ExecutorService service;
         final protected ExecutorService systemService;
 
+        /**
+         * The interceptors built from {@link #advices} which surround every
+         * {@link Work}, followed by the {@link Interceptor}. Built once
+         * rather than as a new proxy for each call.
+         */
+        private volatile List<Object> workInterceptors;
+
+        /**
+         * The transactional interceptors which surround every
+         * {@link SqlWork}.
+         */
+        private volatile List<Object> sqlInterceptors;
+
         public Impl(CurrentDetails principalHolder, SessionFactory factory,
                 SqlAction sqlAction, String[] proxyNames) {
             this(principalHolder, factory, sqlAction, proxyNames,
@@ -363,6 +383,56 @@ public interface Executor extends ApplicationContextAware {
             for (String name : proxyNames) {
                 advices.add((Advice) this.context.getBean(name));
             }
+            this.workInterceptors = null;
+            this.sqlInterceptors = null;
+        }
+
+        /**
+         * Returns the interceptors for {@link #execute(Map, Principal, Work)},
+         * building them on first use.
+         */
+        protected List<Object> getWorkInterceptors() {
+            List<Object> interceptors = workInterceptors;
+            if (interceptors == null) {
+                interceptors = interceptors(advices, new Interceptor(factory));
+                workInterceptors = interceptors;
+            }
+            return interceptors;
+        }
+
+        /**
+         * Returns the interceptors for {@link #executeSql(SqlWork)},
+         * building them on first use.
+         */
+        protected List<Object> getSqlInterceptors() {
+            List<Object> interceptors = sqlInterceptors;
+            if (interceptors == null) {
+                interceptors = interceptors(
+                        Collections.singletonList(advices.get(2))); // TX FIXME
+                sqlInterceptors = interceptors;
+            }
+            return interceptors;
+        }
+
+        /**
+         * Adapts each {@link Advice} to the {@link MethodInterceptor}s which a
+         * {@link org.springframework.aop.framework.ProxyFactory} would apply
+         * for it to every method.
+         */
+        static List<Object> interceptors(List<? extends Advice> advices,
+                Advice...more) {
+            final AdvisorAdapterRegistry registry =
+                GlobalAdvisorAdapterRegistry.getInstance();
+            final List<Object> interceptors = new ArrayList<Object>();
+            for (Advice advice : advices) {
+                interceptors.addAll(Arrays.asList(registry.getInterceptors(
+                        new DefaultPointcutAdvisor(advice))));
+            }
+            for (Advice advice : more) {
+                interceptors.addAll(Arrays.asList(registry.getInterceptors(
+                        new DefaultPointcutAdvisor(advice))));
+            }
+            return Collections.unmodifiableList(interceptors);
         }
 
         public OmeroContext getContext() {
@@ -408,17 +478,9 @@ public interface Executor extends ApplicationContextAware {
                 ((SimpleWork) work).setSqlAction(sqlAction);
             }
 
-            Interceptor i = new Interceptor(factory);
-            ProxyFactory factory = new ProxyFactory();
-            factory.setTarget(work);
-            factory.setInterfaces(new Class[] { Work.class });
-
-            for (Advice advice : advices) {
-                factory.addAdvice(advice);
-            }
-            factory.addAdvice(i);
-
-            Work wrapper = (Work) factory.getProxy();
+            WorkInvocation wrapper = new WorkInvocation(work,
+                    WorkInvocation.DO_WORK, new Object[] { null, isf },
+                    getWorkInterceptors());
 
             // First we guarantee that this will cause one and only
             // login to take place.
@@ -440,7 +502,7 @@ public interface Executor extends ApplicationContextAware {
 
             try {
                 // Arguments will be replaced after hibernate is in effect
-                return wrapper.doWork(null, isf);
+                return wrapper.invoke();
             } finally {
                 if (callContext != null) {
                     this.principalHolder.setContext(null);
@@ -535,12 +597,56 @@ public interface Executor extends ApplicationContextAware {
                                 + "Please have the proper JDBC or data source injected.");
             }
 
-            ProxyFactory factory = new ProxyFactory();
-            factory.setTarget(work);
-            factory.setInterfaces(new Class[] { SqlWork.class });
-            factory.addAdvice(advices.get(2)); // TX FIXME
-            SqlWork wrapper = (SqlWork) factory.getProxy();
-            return wrapper.doWork(this.sqlAction);
+            WorkInvocation wrapper = new WorkInvocation(work,
+                    WorkInvocation.DO_SQL_WORK, new Object[] { this.sqlAction },
+                    getSqlInterceptors());
+            return wrapper.invoke();
+        }
+
+        /**
+         * Invocation of {@link Work#doWork(Session, ServiceFactory)} or
+         * {@link SqlWork#doWork(SqlAction)} through a prebuilt interceptor
+         * chain. The interceptors see the same method, arguments, and target
+         * as they would through a JDK proxy of the work's interface, so that,
+         * for instance, {@link Transactional} annotations on the work are
+         * honored, but no proxy need be created for each call.
+         */
+        static class WorkInvocation extends ReflectiveMethodInvocation {
+
+            final static Method DO_WORK = method(Work.class,
+                    Session.class, ServiceFactory.class);
+
+            final static Method DO_SQL_WORK = method(SqlWork.class,
+                    SqlAction.class);
+
+            private static Method method(Class<?> k, Class<?>...params) {
+                try {
+                    return k.getMethod("doWork", params);
+                } catch (NoSuchMethodException e) {
+                    throw new InternalException("No doWork method on " + k);
+                }
+            }
+
+            WorkInvocation(Object work, Method method, Object[] args,
+                    List<Object> interceptors) {
+                super(work, work, method, args, work.getClass(), interceptors);
+            }
+
+            /**
+             * Proceeds through the interceptors to the work, throwing any
+             * checked exception as a JDK proxy would.
+             */
+            Object invoke() {
+                try {
+                    return proceed();
+                } catch (RuntimeException rt) {
+                    throw rt;
+                } catch (Error err) {
+                    throw err;
+                } catch (Throwable t) {
+                    throw new UndeclaredThrowableException(t);
+                }
+            }
         }
 
         /**
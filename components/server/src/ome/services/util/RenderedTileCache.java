@@ -0,0 +1,346 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+
+package ome.services.util;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ome.model.display.ChannelBinding;
+import ome.model.display.QuantumDef;
+import ome.model.display.RenderingDef;
+import ome.system.metrics.Counter;
+import ome.system.metrics.Metrics;
+import ome.system.metrics.NullMetrics;
+import omeis.providers.re.data.PlaneDef;
+import omeis.providers.re.data.RegionDef;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Compressed planes and tiles rendered by {@link ome.services.RenderingBean},
+ * shared by all rendering engines so that viewers of the same image with the
+ * same settings are served without re-reading, re-quantizing and
+ * re-compressing the pixels. The cache is bounded by the total size of the
+ * compressed tiles and evicts the least recently used first.
+ * <p>
+ * Tiles are keyed by the pixels ID, a hash of the rendering settings which
+ * affect the output, the {@link PlaneDef} including the region and stride,
+ * the resolution level and the compression level. Saving or changing the
+ * settings therefore never requires invalidation: different settings map to
+ * different keys. Writing pixel data does, see {@link #invalidate(long)}.
+ * </p>
+ *
+ * @since 5.2.3
+ */
+public class RenderedTileCache {
+
+    private final static Logger log = LoggerFactory
+            .getLogger(RenderedTileCache.class);
+
+    /**
+     * Identifies a rendered tile.
+     */
+    public static class Key {
+
+        final long pixelsId;
+
+        final HashCode settings;
+
+        final int slice, x, y, z, t, stride, resolutionLevel;
+
+        final int regionX, regionY, regionWidth, regionHeight;
+
+        final float compression;
+
+        Key(long pixelsId, HashCode settings, PlaneDef pd,
+                int resolutionLevel, float compression) {
+            this.pixelsId = pixelsId;
+            this.settings = settings;
+            this.slice = pd.getSlice();
+            this.x = pd.getX();
+            this.y = pd.getY();
+            this.z = pd.getZ();
+            this.t = pd.getT();
+            this.stride = Math.max(pd.getStride(), 0);
+            this.resolutionLevel = resolutionLevel;
+            this.compression = compression;
+            final RegionDef region = pd.getRegion();
+            if (region == null) {
+                regionX = regionY = regionWidth = regionHeight = -1;
+            } else {
+                regionX = region.getX();
+                regionY = region.getY();
+                regionWidth = region.getWidth();
+                regionHeight = region.getHeight();
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key k = (Key) o;
+            return pixelsId == k.pixelsId && settings.equals(k.settings)
+                    && slice == k.slice && x == k.x && y == k.y && z == k.z
+                    && t == k.t && stride == k.stride
+                    && resolutionLevel == k.resolutionLevel
+                    && regionX == k.regionX && regionY == k.regionY
+                    && regionWidth == k.regionWidth
+                    && regionHeight == k.regionHeight
+                    && Float.compare(compression, k.compression) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(pixelsId, settings, slice, x, y, z, t,
+                    stride, resolutionLevel, regionX, regionY, regionWidth,
+                    regionHeight, compression);
+        }
+    }
+
+    /**
+     * Least recently used tiles, bounded by their total size;
+     * <code>null</code> if caching is disabled.
+     */
+    private volatile Cache<Key, byte[]> cache;
+
+    /**
+     * The number of tiles in {@link #cache} of each pixels, so that writes to
+     * other pixels need not scan it. Counted up by
+     * {@link #put(Key, byte[], long)} and down as the cache removes tiles,
+     * including those it evicts. Guarded by <code>this</code>.
+     */
+    private final Map<Long, Integer> cachedPixels = new HashMap<Long, Integer>();
+
+    /**
+     * Incremented on every invalidation so that a rendering racing a write
+     * to the pixels does not cache what it rendered.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private Counter cacheHits;
+
+    private Counter cacheMisses;
+
+    public RenderedTileCache() {
+        setMetrics(new NullMetrics());
+    }
+
+    /**
+     * Sets the maximum total size of the tiles kept in memory.
+     *
+     * @param cacheSize the size in bytes, 0 disables caching.
+     */
+    public synchronized void setCacheSize(long cacheSize) {
+        cachedPixels.clear();
+        if (cacheSize <= 0) {
+            cache = null;
+            return;
+        }
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(cacheSize)
+                .weigher(new Weigher<Key, byte[]>() {
+                    public int weigh(Key key, byte[] tile) {
+                        return tile.length;
+                    }
+                })
+                .removalListener(new RemovalListener<Key, byte[]>() {
+                    public void onRemoval(
+                            RemovalNotification<Key, byte[]> notification) {
+                        removed(notification.getKey());
+                    }
+                })
+                .build();
+        log.info("Caching up to " + cacheSize + " bytes of rendered tiles");
+    }
+
+    public void setMetrics(Metrics metrics) {
+        this.cacheHits = metrics.counter(this, "cacheHits");
+        this.cacheMisses = metrics.counter(this, "cacheMisses");
+    }
+
+    /**
+     * @return if tiles are cached at all.
+     */
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * @return the proportion of lookups which were hits, or 0 if there have
+     *         been none.
+     */
+    public double getHitRatio() {
+        final long hits = cacheHits.getCount();
+        final long total = hits + cacheMisses.getCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Builds the key for a tile.
+     *
+     * @param pixelsId the ID of the pixels rendered.
+     * @param def the active rendering settings.
+     * @param pd the plane or region rendered.
+     * @param resolutionLevel the resolution level rendered.
+     * @param compression the compression level of the tile.
+     * @return See above.
+     */
+    public Key key(long pixelsId, RenderingDef def, PlaneDef pd,
+            int resolutionLevel, float compression) {
+        return new Key(pixelsId, hash(def), pd, resolutionLevel, compression);
+    }
+
+    /**
+     * Hashes the settings which affect the rendered output. The settings of
+     * inactive channels are left out so that they do not split the cache.
+     *
+     * @param def the active rendering settings.
+     * @return See above.
+     */
+    static HashCode hash(RenderingDef def) {
+        final Hasher hasher = Hashing.sha1().newHasher();
+        hasher.putUnencodedChars(def.getModel().getValue());
+        final QuantumDef qd = def.getQuantization();
+        hasher.putInt(qd.getCdStart()).putInt(qd.getCdEnd())
+                .putInt(qd.getBitResolution());
+        final List<ChannelBinding> bindings = def.collectWaveRendering(null);
+        for (ChannelBinding cb : bindings) {
+            if (!cb.getActive()) {
+                hasher.putBoolean(false);
+                continue;
+            }
+            hasher.putBoolean(true);
+            hasher.putUnencodedChars(cb.getFamily().getValue());
+            hasher.putDouble(cb.getCoefficient());
+            hasher.putDouble(cb.getInputStart());
+            hasher.putDouble(cb.getInputEnd());
+            hasher.putBoolean(cb.getNoiseReduction());
+            hasher.putInt(cb.getRed()).putInt(cb.getGreen())
+                    .putInt(cb.getBlue()).putInt(cb.getAlpha());
+            final String lut = cb.getLookupTable();
+            hasher.putBoolean(lut != null);
+            if (lut != null) {
+                hasher.putUnencodedChars(lut);
+            }
+        }
+        return hasher.hash();
+    }
+
+    /**
+     * Returns the cached tile for the key, counting hits and misses.
+     * Callers must not modify the array returned.
+     *
+     * @param key the tile's key.
+     * @return See above or <code>null</code> on a miss.
+     */
+    public byte[] get(Key key) {
+        final Cache<Key, byte[]> cache = this.cache;
+        if (cache == null) {
+            return null;
+        }
+        final byte[] tile = cache.getIfPresent(key);
+        if (tile != null) {
+            cacheHits.inc();
+        } else {
+            cacheMisses.inc();
+        }
+        return tile;
+    }
+
+    /**
+     * @return the value to pass to {@link #put(Key, byte[], long)} for a tile
+     *         about to be rendered.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Caches a tile unless any pixels have been written since
+     * <code>since</code> was obtained from {@link #generation()}. The array
+     * must not be modified afterwards.
+     *
+     * @param key the tile's key.
+     * @param tile the compressed tile.
+     * @param since the generation before the tile was rendered.
+     */
+    public synchronized void put(Key key, byte[] tile, long since) {
+        final Cache<Key, byte[]> cache = this.cache;
+        if (cache == null) {
+            return;
+        }
+        if (generation.get() == since) {
+            final Integer count = cachedPixels.get(key.pixelsId);
+            cachedPixels.put(key.pixelsId, count == null ? 1 : count + 1);
+            // Replacing a tile counts it down again.
+            cache.put(key, tile);
+        }
+    }
+
+    /**
+     * Counts down the tiles of the pixels of a tile removed from the cache.
+     * Called by the cache on the thread which caused the removal, after it
+     * has released its own locks.
+     */
+    private synchronized void removed(Key key) {
+        if (key == null) {
+            return;
+        }
+        final Integer count = cachedPixels.get(key.pixelsId);
+        if (count == null) {
+            return; // of a cache since replaced
+        }
+        if (count > 1) {
+            cachedPixels.put(key.pixelsId, count - 1);
+        } else {
+            cachedPixels.remove(key.pixelsId);
+        }
+    }
+
+    /**
+     * @return the number of pixels with tiles in the cache.
+     */
+    synchronized int cachedPixelsCount() {
+        return cachedPixels.size();
+    }
+
+    /**
+     * Discards the cached tiles of pixels whose data has been written.
+     *
+     * @param pixelsId the ID of the pixels.
+     */
+    public synchronized void invalidate(long pixelsId) {
+        generation.incrementAndGet();
+        final Cache<Key, byte[]> cache = this.cache;
+        if (cache != null && cachedPixels.containsKey(pixelsId)) {
+            final Iterator<Key> keys = cache.asMap().keySet().iterator();
+            while (keys.hasNext()) {
+                if (keys.next().pixelsId == pixelsId) {
+                    keys.remove();
+                }
+            }
+            cachedPixels.remove(pixelsId);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+package ome.tools.hibernate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Interceptor;
+import org.hibernate.jdbc.Batcher;
+import org.hibernate.jdbc.BatcherFactory;
+import org.hibernate.jdbc.BatchingBatcher;
+import org.hibernate.jdbc.ConnectionManager;
+import org.hibernate.jdbc.Expectation;
+import org.hibernate.jdbc.NonBatchingBatcher;
+
+/**
+ * Hibernate {@link BatcherFactory}, configured as
+ * <code>hibernate.jdbc.factory_class</code>, whose batchers only group
+ * statements into JDBC batches of <code>hibernate.jdbc.batch_size</code>
+ * while the current thread is within {@link #setBatching(boolean)
+ * a batching scope}, such as the saving of an import's graph. Elsewhere each
+ * statement is executed when it is added, as by Hibernate's
+ * {@link NonBatchingBatcher}, so that a failing statement is reported with
+ * its own exception rather than as a {@link java.sql.BatchUpdateException}.
+ *
+ * @since 5.2.3
+ */
+public class ScopedBatcherFactory implements BatcherFactory {
+
+    private final static ThreadLocal<Boolean> batching = new ThreadLocal<Boolean>();
+
+    private final static AtomicLong batches = new AtomicLong();
+
+    private final static AtomicLong batchedStatements = new AtomicLong();
+
+    /**
+     * Sets if the statements of the current thread are batched.
+     *
+     * @return the previous setting, to be restored at the end of the scope.
+     */
+    public static boolean setBatching(boolean batch) {
+        final boolean previous = isBatching();
+        if (batch) {
+            batching.set(Boolean.TRUE);
+        } else {
+            batching.remove();
+        }
+        return previous;
+    }
+
+    /**
+     * @return if the statements of the current thread are batched.
+     */
+    public static boolean isBatching() {
+        return batching.get() != null;
+    }
+
+    /**
+     * @return the number of JDBC batches executed so far.
+     */
+    public static long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * @return the number of statements executed in JDBC batches so far.
+     */
+    public static long getBatchedStatements() {
+        return batchedStatements.get();
+    }
+
+    public Batcher createBatcher(ConnectionManager connectionManager,
+            Interceptor interceptor) {
+        if (connectionManager.getFactory().getSettings().getJdbcBatchSize() < 1) {
+            return new NonBatchingBatcher(connectionManager, interceptor);
+        }
+        return new ScopedBatcher(connectionManager, interceptor);
+    }
+
+    /**
+     * Batches statements only within a batching scope. A batch already
+     * begun is always completed as a batch.
+     */
+    static class ScopedBatcher extends BatchingBatcher {
+
+        private boolean pending = false;
+
+        ScopedBatcher(ConnectionManager connectionManager,
+                Interceptor interceptor) {
+            super(connectionManager, interceptor);
+        }
+
+        @Override
+        public void addToBatch(Expectation expectation) throws SQLException,
+                HibernateException {
+            if (pending || isBatching()) {
+                pending = true;
+                batchedStatements.incrementAndGet();
+                super.addToBatch(expectation);
+            } else {
+                final PreparedStatement statement = getStatement();
+                final int rowCount = statement.executeUpdate();
+                expectation.verifyOutcome(rowCount, statement, 0);
+            }
+        }
+
+        @Override
+        protected void doExecuteBatch(PreparedStatement ps)
+                throws SQLException, HibernateException {
+            if (pending) {
+                pending = false;
+                batches.incrementAndGet();
+            }
+            super.doExecuteBatch(ps);
+        }
+    }
+}
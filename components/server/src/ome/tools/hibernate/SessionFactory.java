@@ -9,9 +9,13 @@ package ome.tools.hibernate;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
+import ome.conditions.InternalException;
+import ome.model.IObject;
 import ome.util.SqlAction;
 import ome.util.TableIdGenerator;
 
@@ -57,6 +61,9 @@ public class SessionFactory implements MethodInterceptor {
 
     private final org.hibernate.SessionFactory factory;
 
+    private final Map<String, TableIdGenerator> generators =
+            new HashMap<String, TableIdGenerator>();
+
     public SessionFactory(org.hibernate.SessionFactory factory, SqlAction isolatedSqlAction) {
         this.factory = factory;
         for (Object k : this.factory.getAllClassMetadata().keySet()) {
@@ -64,11 +71,27 @@ public class SessionFactory implements MethodInterceptor {
                 ((SessionFactoryImpl) factory).getIdentifierGenerator((String)k);
             if (ig instanceof TableIdGenerator) {
                 ((TableIdGenerator) ig).setSqlAction(isolatedSqlAction);
+                generators.put((String) k, (TableIdGenerator) ig);
             }
         }
 
     }
 
+    /**
+     * Returns the next id for the given model class from the same
+     * {@link TableIdGenerator} block that Hibernate uses when saving, so
+     * that an id can be handed out before the object itself is written.
+     * @param k a model class
+     * @return a new unique id for an instance of the class
+     */
+    public long nextId(Class<? extends IObject> k) {
+        final TableIdGenerator generator = generators.get(k.getName());
+        if (generator == null) {
+            throw new InternalException("No id generator for " + k.getName());
+        }
+        return (Long) generator.generate(null, null);
+    }
+
     /**
      * Returns a session active for the current thread. The returned
      * instance will be wrapped with AOP to prevent certain usage.
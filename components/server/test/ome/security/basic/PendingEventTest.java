@@ -0,0 +1,136 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+
+package ome.security.basic;
+
+import java.sql.Timestamp;
+
+import ome.model.enums.EventType;
+import ome.model.internal.Permissions;
+import ome.model.meta.Event;
+import ome.model.meta.Experimenter;
+import ome.model.meta.ExperimenterGroup;
+import ome.model.meta.Session;
+import ome.security.SystemTypes;
+import ome.services.sessions.stats.NullSessionStats;
+import ome.system.Principal;
+import ome.system.Roles;
+import ome.system.SimpleEventContext;
+import ome.util.SqlAction;
+
+import org.jmock.Mock;
+import org.jmock.MockObjectTestCase;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Checks that an {@link Event} given an id by
+ * {@link CurrentDetails#setPendingEvent(Event, long)} is written by the
+ * {@link OmeroInterceptor} before the first statement which modifies the
+ * database, and only then.
+ *
+ * @since 5.2.3
+ */
+@Test(groups = "unit")
+public class PendingEventTest extends MockObjectTestCase {
+
+    static final long EVENT_ID = 42L;
+
+    Mock sql;
+
+    CurrentDetails cd;
+
+    OmeroInterceptor oi;
+
+    @Override
+    @BeforeMethod
+    protected void setUp() throws Exception {
+        super.setUp();
+        sql = mock(SqlAction.class);
+        cd = new CurrentDetails();
+        cd.login(new BasicEventContext(new Principal("session"),
+                new NullSessionStats()) {
+            {
+                cuId = 2L;
+                cgId = 3L;
+            }
+        });
+        oi = new OmeroInterceptor(new Roles(), new SystemTypes(), null, cd,
+                new TokenHolder(), new NullSessionStats());
+        oi.setSqlAction((SqlAction) sql.proxy());
+        cd.setPendingEvent(event(), EVENT_ID);
+    }
+
+    @Override
+    @AfterMethod
+    protected void tearDown() throws Exception {
+        super.verify();
+        cd.logout();
+        super.tearDown();
+    }
+
+    private Event event() {
+        Event e = new Event();
+        e.setType(new EventType("User"));
+        e.setTime(new Timestamp(System.currentTimeMillis()));
+        e.getDetails().setPermissions(Permissions.READ_ONLY);
+        e.setExperimenter(new Experimenter(2L, false));
+        e.setExperimenterGroup(new ExperimenterGroup(3L, false));
+        e.setSession(new Session(1L, false));
+        return e;
+    }
+
+    private void expectSave() {
+        sql.expects(once()).method("insertEvent")
+                .with(new org.jmock.core.Constraint[] { eq(EVENT_ID),
+                        ANYTHING, ANYTHING, eq(2L), eq(3L), eq(1L),
+                        eq("User") }).will(returnValue(1));
+        sql.expects(once()).method("prepareSession")
+                .with(eq(EVENT_ID), eq(2L), eq(3L));
+    }
+
+    public void testReadsDoNotSaveTheEvent() {
+        // Any call on the mock would fail as unexpected.
+        oi.onPrepareStatement("select e from Event e");
+        oi.onPrepareStatement("select i.id from image i where i.name = 'update'");
+        assertTrue(cd.isEventPending());
+    }
+
+    public void testPendingEventIdIsNotReported() {
+        assertNull(cd.getCurrentEventContext().getCurrentEventId());
+        // as sent to clients, which map null to -1
+        assertNull(new SimpleEventContext(cd.getCurrentEventContext())
+                .getCurrentEventId());
+        // the event itself has its id for the foreign keys of new rows
+        assertEquals(Long.valueOf(EVENT_ID), cd.getEvent().getId());
+    }
+
+    public void testFirstWriteSavesTheEventOnce() {
+        expectSave();
+        oi.onPrepareStatement("insert into image (id, creation_id) values (?, ?)");
+        assertFalse(cd.isEventPending());
+        assertEquals(Long.valueOf(EVENT_ID),
+                cd.getCurrentEventContext().getCurrentEventId());
+        // Later statements, e.g. further batched inserts, do not save again.
+        oi.onPrepareStatement("insert into image (id, creation_id) values (?, ?)");
+        oi.onPrepareStatement("update image set name=? where id=?");
+    }
+
+    public void testCommentedWriteSavesTheEvent() {
+        expectSave();
+        oi.onPrepareStatement("/* insert ome.model.core.Image */ "
+                + "insert into image (id) values (?)");
+        assertFalse(cd.isEventPending());
+    }
+
+    public void testDeleteSavesTheEvent() {
+        expectSave();
+        oi.onPrepareStatement("delete from image where id=?");
+        assertFalse(cd.isEventPending());
+    }
+}
@@ -5,6 +5,7 @@
 
 package ome.server.itests;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -173,6 +174,36 @@ public class ThumbnailServiceTest extends AbstractManagedContextTest {
         assertTrue(before.length != after.length);
     }
 
+    @Test
+    public void testThumbnailSetLargerThanThumbnailExecutor()
+        throws Exception {
+        loginNewUser();
+        // More than the thumbnail threads and queue can hold at once so that
+        // some thumbnails are created on the calling thread.
+        Set<Long> pixelsIds = new HashSet<Long>();
+        for (int i = 0; i < 12; i++) {
+            pixelsIds.add(makePixels().getId());
+        }
+        ThumbnailStore tb = this.factory.createThumbnailService();
+        // Thumbnails created on the thumbnail executor must be returned
+        // under the ID of their own Pixels set, one entry for each.
+        Map<Long, byte[]> created = tb.getThumbnailSet(96, 96, pixelsIds);
+        assertEquals(pixelsIds, created.keySet());
+        Map<Long, byte[]> cached = tb.getThumbnailSet(96, 96, pixelsIds);
+        assertEquals(pixelsIds, cached.keySet());
+        for (Long pixelsId : pixelsIds) {
+            assertNotNull(created.get(pixelsId));
+            assertTrue(Arrays.equals(
+                    created.get(pixelsId), cached.get(pixelsId)));
+        }
+        Map<Long, byte[]> longestSide =
+                tb.getThumbnailByLongestSideSet(64, pixelsIds);
+        assertEquals(pixelsIds, longestSide.keySet());
+        for (Long pixelsId : pixelsIds) {
+            assertNotNull(longestSide.get(pixelsId));
+        }
+    }
+
     @Test(groups = {"ticket:3161"})
     public void testTicket3161ThreeUserView() throws Exception {
         Experimenter e1 = loginNewUser();
@@ -0,0 +1,111 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+package ome.server.itests.details;
+
+import java.util.List;
+
+import ome.model.IObject;
+import ome.model.containers.Dataset;
+import ome.model.core.Image;
+import ome.model.meta.Event;
+import ome.model.meta.EventLog;
+import ome.model.meta.Experimenter;
+import ome.parameters.Parameters;
+import ome.server.itests.AbstractManagedContextTest;
+
+import org.testng.annotations.Test;
+
+/**
+ * The {@link Event} of a write call is only written to the database before
+ * the first statement of the call which modifies it.
+ *
+ * @since 5.2.3
+ */
+@Test(groups = "integration")
+public class DeferredEventTest extends AbstractManagedContextTest {
+
+    private long countEvents(long sessionId) {
+        List<Object[]> rv = iQuery.projection(
+                "select count(e) from Event e where e.session.id = :id",
+                new Parameters().addId(sessionId));
+        return (Long) rv.get(0)[0];
+    }
+
+    private long sessionId() {
+        return securitySystem.getEventContext().getCurrentSessionId();
+    }
+
+    public void testWriteCallWhichWritesNothingSavesNoEvent() throws Exception {
+        loginRoot();
+        final long sessionId = sessionId();
+        final long before = countEvents(sessionId);
+        iUpdate.saveArray(new IObject[0]);
+        iUpdate.flush();
+        assertEquals(before, countEvents(sessionId));
+    }
+
+    public void testEventIsSavedBeforeTheBatchedInsertsReferencingIt()
+            throws Exception {
+        loginRoot();
+        final long sessionId = sessionId();
+        final long before = countEvents(sessionId);
+
+        // Enough rows of several tables for the inserts to be batched and
+        // ordered by table.
+        Dataset ds = new Dataset("deferred event");
+        Image[] images = new Image[60];
+        for (int i = 0; i < images.length; i++) {
+            images[i] = new_Image("deferred event " + i);
+            ds.linkImage(images[i]);
+        }
+        IObject[] saved = iUpdate.saveAndReturnArray(images);
+
+        final Long eventId = ((Image) saved[0]).getDetails()
+                .getCreationEvent().getId();
+        assertNotNull(eventId);
+        for (IObject obj : saved) {
+            assertEquals(eventId, obj.getDetails().getCreationEvent().getId());
+            assertEquals(eventId, obj.getDetails().getUpdateEvent().getId());
+        }
+        Event event = iQuery.get(Event.class, eventId);
+        assertEquals(sessionId, event.getSession().getId().longValue());
+        assertEquals(before + 1, countEvents(sessionId));
+    }
+
+    public void testEventOfCallAfterOneWhichWroteNothing() throws Exception {
+        loginRoot();
+        final long sessionId = sessionId();
+        final long before = countEvents(sessionId);
+        iUpdate.saveArray(new IObject[0]);
+        Image image = iUpdate.saveAndReturnObject(new_Image("deferred event"));
+        Event event = iQuery.get(Event.class,
+                image.getDetails().getCreationEvent().getId());
+        assertNotNull(event);
+        assertEquals(before + 1, countEvents(sessionId));
+    }
+
+    public void testEventOfLogsOfCallWhichOnlyWritesThroughSql()
+            throws Exception {
+        final Experimenter user = loginNewUser();
+        loginRoot();
+        final long sessionId = sessionId();
+        final long before = countEvents(sessionId);
+        // The password is changed by SQL, then a PASSWORD log is added.
+        iAdmin.changeUserPassword(user.getOmeName(), "deferred event");
+
+        final List<EventLog> logs = iQuery.findAllByQuery(
+                "select el from EventLog el join fetch el.event "
+                + "where el.action = 'PASSWORD' and el.entityId = :id",
+                new Parameters().addId(user.getId()));
+        assertEquals(1, logs.size());
+        assertEquals(sessionId, logs.get(0).getEvent().getSession().getId()
+                .longValue());
+        assertEquals(before + 1, countEvents(sessionId));
+        assertTrue(iAdmin.checkPassword(user.getOmeName(), "deferred event",
+                false));
+    }
+}
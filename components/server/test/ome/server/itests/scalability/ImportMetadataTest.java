@@ -5,12 +5,21 @@
 package ome.server.itests.scalability;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import ome.formats.OMEROMetadataStore;
 import ome.model.IObject;
+import ome.model.core.Image;
+import ome.model.core.Pixels;
+import ome.model.fs.Fileset;
+import ome.model.fs.FilesetJobLink;
 import ome.parameters.Parameters;
 import ome.server.itests.AbstractManagedContextTest;
 import ome.testing.ObjectFactory;
+import ome.tools.hibernate.ScopedBatcherFactory;
+import ome.util.SqlAction;
 
 import org.perf4j.StopWatch;
 import org.perf4j.slf4j.Slf4JStopWatch;
@@ -40,6 +49,64 @@ public class ImportMetadataTest extends AbstractManagedContextTest {
         sw.stop();
     }
 
+    /**
+     * The import graph is saved with JDBC batches, and the Pixels returned
+     * are the saved ones. Other saves are not batched.
+     */
+    @Test
+    public void testSaveToDBBatchesInserts() throws Exception {
+        loginRoot();
+        Fileset fs = new Fileset();
+        fs.setTemplatePrefix(uuid() + "/");
+        fs = iUpdate.saveAndReturnObject(fs);
+        final FilesetJobLink link = new FilesetJobLink();
+        link.link(new Fileset(fs.getId(), false), null);
+
+        final OMEROMetadataStore store = new OMEROMetadataStore(factory,
+                (SqlAction) applicationContext.getBean("simpleSqlAction"));
+        final int count = 20;
+        for (int i = 0; i < count; i++) {
+            Image image = ObjectFactory.createPixelGraphWithChannels(null, 3)
+                    .getImage();
+            Map<String, Integer> indexes = new LinkedHashMap<String, Integer>();
+            indexes.put("imageIndex", i);
+            store.updateObject("Image:" + i, image, indexes);
+        }
+
+        final long batches = ScopedBatcherFactory.getBatches();
+        final long batched = ScopedBatcherFactory.getBatchedStatements();
+        StopWatch sw = new Slf4JStopWatch("test.import.saveToDB");
+        final List<Pixels> pixels = store.saveToDB(link);
+        sw.stop();
+        final long newBatches = ScopedBatcherFactory.getBatches() - batches;
+        final long newBatched = ScopedBatcherFactory.getBatchedStatements()
+                - batched;
+        assertFalse(ScopedBatcherFactory.isBatching());
+        // At least the images, pixels, channels and planes were batched,
+        // with several statements per batch.
+        assertTrue(newBatched >= count * (2 + 3 + 3));
+        assertTrue(newBatches > 0);
+        assertTrue(newBatched > 2 * newBatches);
+
+        assertEquals(count, pixels.size());
+        for (Pixels p : pixels) {
+            assertNotNull(p.getId());
+            Pixels saved = iQuery.findByQuery("select p from Pixels p "
+                    + "join fetch p.image i join fetch i.fileset "
+                    + "where p.id = :id", new Parameters().addId(p.getId()));
+            assertEquals(p.getImage().getId(), saved.getImage().getId());
+            assertEquals(fs.getId(), saved.getImage().getFileset().getId());
+            assertEquals(3, iQuery.projection(
+                    "select c.id from Channel c where c.pixels.id = :id",
+                    new Parameters().addId(p.getId())).size());
+        }
+
+        // An ordinary save is not batched.
+        iUpdate.saveAndReturnIds(data());
+        assertEquals(batched + newBatched,
+                ScopedBatcherFactory.getBatchedStatements());
+    }
+
     public void testMerge() {
         StopWatch sw = new Slf4JStopWatch("test.import.merge");
         iUpdate.saveAndReturnArray(data());
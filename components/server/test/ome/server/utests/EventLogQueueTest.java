@@ -59,6 +59,10 @@ public class EventLogQueueTest extends MockObjectTestCase {
                results.clear();
                return copy;
             }
+            @Override
+            protected List<Object[]> lookup(long current) {
+               return lookup();
+            }
         };
         sqlMock = mock(SqlAction.class);
         sqlMock.setDefaultStub(new DefaultResultStub());
@@ -172,6 +176,43 @@ public class EventLogQueueTest extends MockObjectTestCase {
         assertFalse(q.hasNext());
     }
 
+    @Test
+    public void testRepeatedNotPrioritizedByDefault() {
+        results.add(project(1, "PIXELDATA", 1));
+        results.add(project(2, "PIXELDATA", 2));
+        assertTrue(q.hasNext());
+        match(fields("objId", 1L));
+        match(fields("objId", 2L));
+    }
+
+    @Test
+    public void testRepeatedPrioritized() {
+        q.setPrioritizeRepeated(true);
+        results.add(project(1, "PIXELDATA", 1));
+        results.add(project(2, "PIXELDATA", 2));
+        assertTrue(q.hasNext());
+        match(fields("objId", 2L));
+        match(fields("objId", 1L));
+    }
+
+    @Test
+    public void testRefreshPromotesQueued() {
+        q.setPrioritizeRepeated(true);
+        results.add(project(1, "PIXELDATA", 1));
+        results.add(project(2, "PIXELDATA", 1));
+        results.add(project(3, "PIXELDATA", 1));
+        assertTrue(q.hasNext());
+        match(fields("objId", 1L));
+        // Requested again while still queued
+        results.add(project(3, "PIXELDATA", 1));
+        results.add(project(4, "PIXELDATA", 1));
+        q.refresh();
+        match(fields("objId", 3L));
+        match(fields("objId", 2L));
+        match(fields("objId", 4L));
+        assertFalse(q.hasNext());
+    }
+
     @Test
     public void testStopSet() {
         q.addEventLog(Project.class, 1L);
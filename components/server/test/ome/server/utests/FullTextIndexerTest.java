@@ -0,0 +1,177 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+package ome.server.utests;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import ome.model.IObject;
+import ome.model.containers.Dataset;
+import ome.model.core.Image;
+import ome.model.meta.EventLog;
+import ome.services.eventlogs.EventLogLoader;
+import ome.services.fulltext.FullTextIndexer;
+import ome.system.metrics.DefaultMetrics;
+
+import org.hibernate.Session;
+import org.hibernate.search.FullTextSession;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests how the {@link FullTextIndexer} collapses a batch of
+ * {@link EventLog}s and loads the entities to index in bulk.
+ *
+ * @since 5.2.3
+ */
+@Test(groups = { "query", "fulltext" })
+public class FullTextIndexerTest extends TestCase {
+
+    static final String IMAGE = Image.class.getName();
+
+    static final String DATASET = Dataset.class.getName();
+
+    ListLogLoader loader;
+
+    DefaultMetrics metrics;
+
+    /** The logs passed to each call of handleEventLogs. */
+    List<List<EventLog>> handled;
+
+    /** The ids passed to each call of load. */
+    List<List<Long>> loaded;
+
+    RecordingIndexer indexer;
+
+    @BeforeMethod
+    public void setup() {
+        loader = new ListLogLoader();
+        metrics = new DefaultMetrics();
+        handled = new ArrayList<List<EventLog>>();
+        loaded = new ArrayList<List<Long>>();
+        indexer = new RecordingIndexer(loader, metrics);
+    }
+
+    private EventLog log(String type, long id, String action) {
+        EventLog el = new EventLog();
+        el.setEntityType(type);
+        el.setEntityId(id);
+        el.setAction(action);
+        loader.logs.add(el);
+        return el;
+    }
+
+    public void testLastActionForEachEntityWins() throws Exception {
+        log(IMAGE, 1L, "INSERT");
+        log(IMAGE, 1L, "UPDATE");
+        EventLog image2 = log(IMAGE, 2L, "INSERT");
+        log(IMAGE, 2L, "PIXELDATA");
+        EventLog image1 = log(IMAGE, 1L, "DELETE");
+        EventLog dataset1 = log(DATASET, 1L, "INSERT");
+
+        assertEquals(6, indexer.doIndexing(null));
+        assertEquals(1, handled.size());
+        List<EventLog> logs = handled.get(0);
+        assertEquals(3, logs.size());
+        // in the order of each entity's last log
+        assertSame(image2, logs.get(0));
+        assertSame(image1, logs.get(1));
+        assertSame(dataset1, logs.get(2));
+        assertEquals(2, metrics.counter(indexer, "collapsed").getCount());
+    }
+
+    public void testDeleteThenReinsertIndexes() throws Exception {
+        log(IMAGE, 1L, "INSERT");
+        log(IMAGE, 1L, "DELETE");
+        EventLog reinsert = log(IMAGE, 1L, "REINDEX");
+
+        indexer.doIndexing(null);
+        assertEquals(1, handled.get(0).size());
+        assertSame(reinsert, handled.get(0).get(0));
+        assertEquals(2, metrics.counter(indexer, "collapsed").getCount());
+    }
+
+    public void testBulkLoadIsChunked() throws Exception {
+        final int size = 2 * FullTextIndexer.BULK_LOAD_SIZE + 1;
+        List<Long> ids = new ArrayList<Long>(size);
+        for (long id = 1; id <= size; id++) {
+            ids.add(id);
+        }
+        Map<Long, IObject> found = indexer.get(ids);
+
+        assertEquals(3, loaded.size());
+        assertEquals(FullTextIndexer.BULK_LOAD_SIZE, loaded.get(0).size());
+        assertEquals(FullTextIndexer.BULK_LOAD_SIZE, loaded.get(1).size());
+        assertEquals(1, loaded.get(2).size());
+        assertEquals(Long.valueOf(size), loaded.get(2).get(0));
+        // repeated rows are found once, missing entities not at all
+        assertEquals(size - size / 10, found.size());
+        assertFalse(found.containsKey(10L));
+        assertEquals(Long.valueOf(11L), found.get(11L).getId());
+    }
+
+    public void testBulkLoadOfExactlyOneChunk() throws Exception {
+        List<Long> ids = new ArrayList<Long>();
+        for (long id = 1; id <= FullTextIndexer.BULK_LOAD_SIZE; id++) {
+            ids.add(id);
+        }
+        indexer.get(ids);
+        assertEquals(1, loaded.size());
+    }
+
+    /**
+     * Records the batches it is given to handle and the ids it queries,
+     * every tenth of which is missing.
+     */
+    private class RecordingIndexer extends FullTextIndexer {
+
+        RecordingIndexer(EventLogLoader ll, DefaultMetrics metrics) {
+            super(ll, metrics);
+        }
+
+        Map<Long, IObject> get(List<Long> ids) {
+            return get(null, Image.class, ids);
+        }
+
+        @Override
+        protected void handleEventLogs(FullTextSession session,
+                Collection<EventLog> eventLogs) {
+            handled.add(new ArrayList<EventLog>(eventLogs));
+        }
+
+        @Override
+        protected List<?> load(Session session, Class type, List<Long> ids) {
+            loaded.add(new ArrayList<Long>(ids));
+            List<IObject> rows = new ArrayList<IObject>();
+            for (Long id : ids) {
+                if (id % 10 != 0) {
+                    Image image = new Image(id, false);
+                    rows.add(image);
+                    rows.add(image); // as from a fetch join
+                }
+            }
+            return rows;
+        }
+    }
+
+    private static class ListLogLoader extends EventLogLoader {
+        public final List<EventLog> logs = new ArrayList<EventLog>();
+
+        @Override
+        protected EventLog query() {
+            return logs.size() < 1 ? null : logs.remove(0);
+        }
+
+        @Override
+        public long more() {
+            return 0;
+        }
+    }
+}
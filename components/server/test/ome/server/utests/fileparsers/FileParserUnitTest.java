@@ -8,15 +8,26 @@ package ome.server.utests.fileparsers;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import junit.framework.TestCase;
+import ome.io.nio.OriginalFilesService;
+import ome.model.core.OriginalFile;
+import ome.services.fulltext.FileParser;
+import ome.services.fulltext.FileParserPool;
 import ome.services.fulltext.PdfParser;
+import ome.services.messages.ParserOpenFileMessage;
 import ome.services.messages.RegisterServiceCleanupMessage;
 import ome.system.OmeroContext;
 
+import org.apache.commons.io.FileUtils;
 import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationListener;
 import org.springframework.util.ResourceUtils;
@@ -46,6 +57,180 @@ public class FileParserUnitTest extends TestCase {
         list.clear();
     }
 
+    @Test
+    public void testPdfParseInPoolIsCachedByHash() throws Exception {
+        File abc123 = ResourceUtils
+                .getFile("classpath:ome/server/utests/fileparsers/ABC123.pdf");
+        File root = File.createTempFile("FileParserUnitTest", "");
+        root.delete();
+        try {
+            OriginalFilesService files = new OriginalFilesService(
+                    root.getAbsolutePath());
+            File copy = new File(files.getFilesPath(1L));
+            FileUtils.copyFile(abc123, copy);
+
+            PdfParser parser = new PdfParser();
+            parser.setApplicationContext(new OmeroContext(
+                    "classpath:ome/server/utests/fileparsers/config.xml"));
+            parser.setMaxFileSize(abc123.length());
+            Map<String, FileParser> parsers = Collections
+                    .<String, FileParser> singletonMap("application/pdf", parser);
+            FileParserPool pool = new FileParserPool(files, parsers, 2,
+                    60000L, 1000L);
+            pool.setMaxFileSize(abc123.length());
+
+            OriginalFile file = pdf(1L, abc123.length());
+            pool.prefetch(file);
+            assertEquals("ABC123", firstLine(pool.parse(file)));
+            pool.release();
+
+            // The same content under another id is not parsed again.
+            copy.delete();
+            assertEquals("ABC123", firstLine(pool.parse(pdf(2L, abc123.length()))));
+        } finally {
+            FileUtils.deleteDirectory(root);
+            for (RegisterServiceCleanupMessage cleanup : list) {
+                cleanup.close();
+            }
+            list.clear();
+        }
+    }
+
+    @Test
+    public void testPoolPrefetchIsBoundedBySize() throws Exception {
+        File root = File.createTempFile("FileParserUnitTest", "");
+        root.delete();
+        try {
+            OriginalFilesService files = new OriginalFilesService(
+                    root.getAbsolutePath());
+            FileUtils.writeStringToFile(new File(files.getFilesPath(1L)), "one");
+            FileUtils.writeStringToFile(new File(files.getFilesPath(2L)), "two");
+
+            final AtomicInteger parsed = new AtomicInteger();
+            FileParser parser = new FileParser() {
+                @Override
+                public Iterable<Reader> doParse(File file) throws Exception {
+                    parsed.incrementAndGet();
+                    return wrap(Collections.<Reader> singletonList(
+                            new FileReader(file)).iterator());
+                }
+            };
+            parser.setMaxFileSize(3L);
+            Map<String, FileParser> parsers = Collections
+                    .<String, FileParser> singletonMap("text/plain", parser);
+            FileParserPool pool = new FileParserPool(files, parsers, 2,
+                    60000L, 0L);
+            pool.setMaxFileSize(3L);
+            // Room for the text of one file only.
+            pool.setMaxPrefetchSize(3L);
+
+            OriginalFile one = text(1L);
+            OriginalFile two = text(2L);
+            pool.prefetch(one);
+            pool.prefetch(two);
+            assertEquals("one", firstLine(pool.parse(one)));
+            // Waits for any worker still parsing.
+            pool.release();
+            assertEquals(1, parsed.get());
+
+            // Taking the text frees its reservation.
+            pool.prefetch(two);
+            assertEquals("two", firstLine(pool.parse(two)));
+            pool.release();
+            assertEquals(2, parsed.get());
+        } finally {
+            FileUtils.deleteDirectory(root);
+        }
+    }
+
+    @Test
+    public void testPoolClosesFilesOpenedByItsParses() throws Exception {
+        File root = File.createTempFile("FileParserUnitTest", "");
+        root.delete();
+        try {
+            OriginalFilesService files = new OriginalFilesService(
+                    root.getAbsolutePath());
+            FileUtils.writeStringToFile(new File(files.getFilesPath(1L)), "one");
+            FileUtils.writeStringToFile(new File(files.getFilesPath(2L)), "two");
+
+            final AtomicReference<FileParserPool> poolRef =
+                    new AtomicReference<FileParserPool>();
+            final List<Thread> parsedBy = new ArrayList<Thread>();
+            final List<Object> closed = new ArrayList<Object>();
+            FileParser parser = new FileParser() {
+                @Override
+                public Iterable<Reader> doParse(final File file) throws Exception {
+                    synchronized (parsedBy) {
+                        parsedBy.add(Thread.currentThread());
+                    }
+                    // As published to the context by e.g. an encrypted PDF,
+                    // which closing the reader does not clean up.
+                    poolRef.get().onApplicationEvent(
+                            new ParserOpenFileMessage(this, file) {
+                                @Override
+                                public void close() {
+                                    synchronized (closed) {
+                                        closed.add(resource);
+                                    }
+                                }
+                            });
+                    return wrap(Collections.<Reader> singletonList(
+                            new FileReader(file)).iterator());
+                }
+            };
+            parser.setMaxFileSize(3L);
+            Map<String, FileParser> parsers = Collections
+                    .<String, FileParser> singletonMap("text/plain", parser);
+            FileParserPool pool = new FileParserPool(files, parsers, 2,
+                    60000L, 0L);
+            poolRef.set(pool);
+            pool.setMaxFileSize(3L);
+
+            OriginalFile one = text(1L);
+            pool.prefetch(one);
+            assertEquals("one", firstLine(pool.parse(one)));
+            pool.release();
+            assertEquals(1, closed.size());
+            assertEquals(new File(files.getFilesPath(1L)), closed.get(0));
+
+            // A file which was not prefetched is streamed on the caller's
+            // thread, its files left to the indexer's ParserSession.
+            assertEquals("two", firstLine(pool.parse(text(2L))));
+            pool.release();
+            assertEquals(2, parsedBy.size());
+            assertNotSame(Thread.currentThread(), parsedBy.get(0));
+            assertSame(Thread.currentThread(), parsedBy.get(1));
+            assertEquals(1, closed.size());
+        } finally {
+            FileUtils.deleteDirectory(root);
+        }
+    }
+
+    private static OriginalFile text(long id) {
+        OriginalFile file = new OriginalFile();
+        file.setId(id);
+        file.setMimetype("text/plain");
+        file.setSize(3L);
+        return file;
+    }
+
+    private static OriginalFile pdf(long id, long size) {
+        OriginalFile file = new OriginalFile();
+        file.setId(id);
+        file.setMimetype("application/pdf");
+        file.setSize(size);
+        file.setHash("abc123");
+        return file;
+    }
+
+    private static String firstLine(Iterable<Reader> text) throws Exception {
+        StringBuffer sb = new StringBuffer();
+        for (Reader reader : text) {
+            sb.append(new BufferedReader(reader).readLine());
+        }
+        return sb.toString();
+    }
+
     public static class Closer implements ApplicationListener {
 
         public void onApplicationEvent(ApplicationEvent arg0) {
@@ -6,9 +6,13 @@
 package ome.server.utests.sessions;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CyclicBarrier;
 
@@ -23,12 +27,14 @@ import ome.conditions.RemovedSessionException;
 import ome.conditions.SessionException;
 import ome.conditions.SessionTimeoutException;
 import ome.model.internal.Permissions;
+import ome.model.meta.Experimenter;
 import ome.model.meta.ExperimenterGroup;
 import ome.model.meta.Session;
 import ome.services.sessions.SessionCallback;
 import ome.services.sessions.SessionContext;
 import ome.services.sessions.SessionContextImpl;
 import ome.services.sessions.events.UserGroupUpdateEvent;
+import ome.services.sessions.state.SessionCache.BulkStaleCacheListener;
 import ome.services.sessions.state.SessionCache.StaleCacheListener;
 import ome.services.sessions.state.SessionCache;
 import ome.services.sessions.stats.NullSessionStats;
@@ -378,6 +384,27 @@ public class SessionCacheTest extends TestCase {
         assertTrue(internal.isKeyInCache(s.getUuid()));
     }
 
+    public void testUserUpdateReloadsOnlyThatUsersSessions() throws Exception {
+        initCache();
+        final BulkNoOpStaleCacheListener listener = new BulkNoOpStaleCacheListener();
+        cache.setStaleCacheListener(listener);
+        final Session s1 = sess();
+        s1.getDetails().setOwner(new Experimenter(1L, false));
+        final Session s2 = sess();
+        s2.getDetails().setOwner(new Experimenter(2L, false));
+        cache.putSession(s1.getUuid(), sc(s1));
+        cache.putSession(s2.getUuid(), sc(s2));
+
+        cache.updateEvent(new UserGroupUpdateEvent(this,
+                Collections.singleton(2L), Collections.<Long>emptySet()));
+        cache.doUpdate();
+
+        assertEquals(1, listener.reloaded.size());
+        assertEquals(s2.getUuid(), listener.reloaded.get(0));
+        assertNotNull(cache.getSessionContext(s1.getUuid()));
+        assertNotNull(cache.getSessionContext(s2.getUuid()));
+    }
+
     // Helpers
     // ====================
 
@@ -451,6 +478,30 @@ public class SessionCacheTest extends TestCase {
         }
     }
 
+    private final class BulkNoOpStaleCacheListener implements BulkStaleCacheListener {
+
+        final List<String> reloaded = new ArrayList<String>();
+
+        public void prepareReload() {
+            // noop
+        }
+
+        public SessionContext reload(SessionContext context) {
+            reloaded.add(context.getSession().getUuid());
+            return context;
+        }
+
+        public Map<String, SessionContext> reloadAll(
+                Collection<SessionContext> contexts) {
+            final Map<String, SessionContext> rv = new HashMap<String, SessionContext>();
+            for (SessionContext context : contexts) {
+                reloaded.add(context.getSession().getUuid());
+                rv.put(context.getSession().getUuid(), context);
+            }
+            return rv;
+        }
+    }
+
     private final class ThrowsStaleCacheListener implements StaleCacheListener {
         public void prepareReload() {
             // noop.
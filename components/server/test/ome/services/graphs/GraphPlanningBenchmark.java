@@ -0,0 +1,334 @@
+/*
+ * Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package ome.services.graphs;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
+
+import ome.services.graphs.GraphTraversal.CI;
+import ome.services.graphs.GraphTraversal.CIMultimap;
+import ome.services.graphs.GraphTraversal.CISet;
+import ome.services.graphs.GraphTraversal.CPI;
+import ome.services.graphs.GraphTraversal.CPIMultimap;
+
+/**
+ * Measures the time taken to build and work through the planning state of {@link GraphTraversal} for a synthetic screen of
+ * about a million model objects, and reports the heap that the state retains. The compact state used by
+ * {@link GraphTraversal} is compared with the boxed state of hash sets and multimaps that it replaced.
+ * <p>
+ * Run with <code>ant benchmark -DBENCHMARK=GraphPlanningBenchmark</code>.
+ * </p>
+ * @author m.t.b.carroll@dundee.ac.uk
+ * @since 5.2.3
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class GraphPlanningBenchmark {
+
+    /* the number of each kind of object beneath its parent */
+    private static final int PLATES = 10;
+    private static final int WELLS_PER_PLATE = 11112;
+    private static final int ROIS_PER_IMAGE = 2;
+    private static final int SHAPES_PER_ROI = 2;
+
+    /**
+     * A link between model objects, from linker to linked by the named property.
+     * @author m.t.b.carroll@dundee.ac.uk
+     * @since 5.2.3
+     */
+    private static final class Link {
+        final String linkerClass;
+        final long linkerId;
+        final String property;
+        final String linkedClass;
+        final long linkedId;
+
+        Link(String linkerClass, long linkerId, String property, String linkedClass, long linkedId) {
+            this.linkerClass = linkerClass;
+            this.linkerId = linkerId;
+            this.property = property;
+            this.linkedClass = linkedClass;
+            this.linkedId = linkedId;
+        }
+    }
+
+    /**
+     * The synthetic screen: a plate has wells, a well has a sample of an image, an image has ROIs, an ROI has shapes.
+     * @author m.t.b.carroll@dundee.ac.uk
+     * @since 5.2.3
+     */
+    @State(Scope.Benchmark)
+    public static class Graph {
+        final List<String> classNames = new ArrayList<String>();
+        final List<Long> ids = new ArrayList<Long>();
+        final List<Link> links = new ArrayList<Link>();
+
+        private long nextId = 1;
+
+        private long add(String className) {
+            final long id = nextId++;
+            classNames.add(className);
+            ids.add(id);
+            return id;
+        }
+
+        private void link(String linkerClass, long linkerId, String property, String linkedClass, long linkedId) {
+            links.add(new Link(linkerClass, linkerId, property, linkedClass, linkedId));
+        }
+
+        @Setup
+        public void setup() {
+            final long screenId = add("ome.model.screen.Screen");
+            for (int plate = 0; plate < PLATES; plate++) {
+                final long plateId = add("ome.model.screen.Plate");
+                final long screenLinkId = add("ome.model.screen.ScreenPlateLink");
+                link("ome.model.screen.ScreenPlateLink", screenLinkId, "parent", "ome.model.screen.Screen", screenId);
+                link("ome.model.screen.ScreenPlateLink", screenLinkId, "child", "ome.model.screen.Plate", plateId);
+                for (int well = 0; well < WELLS_PER_PLATE; well++) {
+                    final long wellId = add("ome.model.screen.Well");
+                    link("ome.model.screen.Well", wellId, "plate", "ome.model.screen.Plate", plateId);
+                    final long sampleId = add("ome.model.screen.WellSample");
+                    link("ome.model.screen.WellSample", sampleId, "well", "ome.model.screen.Well", wellId);
+                    final long imageId = add("ome.model.core.Image");
+                    link("ome.model.screen.WellSample", sampleId, "image", "ome.model.core.Image", imageId);
+                    for (int roi = 0; roi < ROIS_PER_IMAGE; roi++) {
+                        final long roiId = add("ome.model.roi.Roi");
+                        link("ome.model.roi.Roi", roiId, "image", "ome.model.core.Image", imageId);
+                        for (int shape = 0; shape < SHAPES_PER_ROI; shape++) {
+                            final long shapeId = add("ome.model.roi.Rectangle");
+                            link("ome.model.roi.Rectangle", shapeId, "roi", "ome.model.roi.Roi", roiId);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Notes the heap used before each measurement and reports the heap retained by the planning state it built.
+     * @author m.t.b.carroll@dundee.ac.uk
+     * @since 5.2.3
+     */
+    @State(Scope.Thread)
+    public static class Retained {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private long before;
+        Object planning;
+
+        private long usedAfterGC() {
+            for (int i = 0; i < 3; i++) {
+                System.gc();
+            }
+            return memory.getHeapMemoryUsage().getUsed();
+        }
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            planning = null;
+            before = usedAfterGC();
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            final long retained = usedAfterGC() - before;
+            System.out.println();
+            System.out.println("planning state retains " + (retained >> 20) + " MB");
+            planning = null;
+        }
+    }
+
+    /**
+     * The planning state held by {@link GraphTraversal}.
+     */
+    private static final class CompactPlanning {
+        final CISet toProcess = new CISet();
+        final CISet cached = new CISet();
+        final CISet included = new CISet();
+        final CPIMultimap forwardLinksCached = new CPIMultimap();
+        final CPIMultimap backwardLinksCached = new CPIMultimap();
+        final CIMultimap befores = new CIMultimap();
+        final CIMultimap afters = new CIMultimap();
+    }
+
+    /**
+     * Builds the compact planning state for the graph then includes every object by draining {@link CompactPlanning#toProcess}.
+     * @param graph the synthetic graph
+     * @param retained where to leave the planning state for measurement
+     * @return the number of links reviewed
+     */
+    @Benchmark
+    public long compact(Graph graph, Retained retained) {
+        final CompactPlanning planning = new CompactPlanning();
+        for (int index = 0; index < graph.ids.size(); index++) {
+            final CI object = new CI(graph.classNames.get(index), graph.ids.get(index));
+            planning.cached.add(object);
+            planning.toProcess.add(object);
+        }
+        for (final Link link : graph.links) {
+            final CI linker = new CI(link.linkerClass, link.linkerId);
+            final CI linked = new CI(link.linkedClass, link.linkedId);
+            planning.forwardLinksCached.put(new CPI(link.linkerClass, link.property, link.linkerId), linked);
+            planning.backwardLinksCached.put(new CPI(link.linkerClass, link.property, link.linkedId), linker);
+            planning.befores.put(linked, linker);
+            planning.afters.put(linker, linked);
+        }
+        long reviewed = 0;
+        CI object;
+        while ((object = planning.toProcess.any()) != null) {
+            planning.toProcess.remove(object);
+            planning.included.add(object);
+            reviewed += planning.befores.get(object).size() + planning.afters.get(object).size();
+        }
+        retained.planning = planning;
+        return reviewed;
+    }
+
+    /**
+     * A tuple of class name and boxed instance ID, hashed as {@link GraphTraversal} used to.
+     */
+    private static final class BoxedCI {
+        final String className;
+        final Long id;
+
+        BoxedCI(String className, Long id) {
+            this.className = className;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (object instanceof BoxedCI) {
+                final BoxedCI other = (BoxedCI) object;
+                return this.id.equals(other.id) && this.className.equals(other.className);
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getClass(), className, id);
+        }
+    }
+
+    /**
+     * A tuple of class name, property name and boxed instance ID, hashed as {@link GraphTraversal} used to.
+     */
+    private static final class BoxedCPI {
+        final String className;
+        final String propertyName;
+        final Long id;
+
+        BoxedCPI(String className, String propertyName, Long id) {
+            this.className = className;
+            this.propertyName = propertyName;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (object instanceof BoxedCPI) {
+                final BoxedCPI other = (BoxedCPI) object;
+                return this.id.equals(other.id) && this.className.equals(other.className) &&
+                        this.propertyName.equals(other.propertyName);
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getClass(), className, propertyName, id);
+        }
+    }
+
+    /**
+     * The planning state that {@link GraphTraversal} used to hold.
+     */
+    private static final class BoxedPlanning {
+        final Set<BoxedCI> toProcess = new HashSet<BoxedCI>();
+        final Set<BoxedCI> cached = new HashSet<BoxedCI>();
+        final Set<BoxedCI> included = new HashSet<BoxedCI>();
+        final SetMultimap<BoxedCPI, BoxedCI> forwardLinksCached = HashMultimap.create();
+        final SetMultimap<BoxedCPI, BoxedCI> backwardLinksCached = HashMultimap.create();
+        final SetMultimap<BoxedCI, BoxedCI> befores = HashMultimap.create();
+        final SetMultimap<BoxedCI, BoxedCI> afters = HashMultimap.create();
+    }
+
+    /**
+     * Builds the boxed planning state for the graph then includes every object, copying {@link BoxedPlanning#toProcess} to
+     * iterate over it as {@link GraphTraversal} used to.
+     * @param graph the synthetic graph
+     * @param retained where to leave the planning state for measurement
+     * @return the number of links reviewed
+     */
+    @Benchmark
+    public long boxed(Graph graph, Retained retained) {
+        final BoxedPlanning planning = new BoxedPlanning();
+        for (int index = 0; index < graph.ids.size(); index++) {
+            final BoxedCI object = new BoxedCI(graph.classNames.get(index), graph.ids.get(index));
+            planning.cached.add(object);
+            planning.toProcess.add(object);
+        }
+        for (final Link link : graph.links) {
+            final BoxedCI linker = new BoxedCI(link.linkerClass, link.linkerId);
+            final BoxedCI linked = new BoxedCI(link.linkedClass, link.linkedId);
+            planning.forwardLinksCached.put(new BoxedCPI(link.linkerClass, link.property, link.linkerId), linked);
+            planning.backwardLinksCached.put(new BoxedCPI(link.linkerClass, link.property, link.linkedId), linker);
+            planning.befores.put(linked, linker);
+            planning.afters.put(linker, linked);
+        }
+        long reviewed = 0;
+        final Set<BoxedCI> toProcess = new HashSet<BoxedCI>(planning.toProcess);
+        toProcess.retainAll(planning.cached);
+        for (final BoxedCI object : toProcess) {
+            planning.toProcess.remove(object);
+            planning.included.add(object);
+            reviewed += planning.befores.get(object).size() + planning.afters.get(object).size();
+        }
+        retained.planning = planning;
+        return reviewed;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package ome.services.graphs;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Checks that {@link LongHashSet} behaves as a {@link HashSet} of the same values.
+ * @author m.t.b.carroll@dundee.ac.uk
+ * @since 5.2.3
+ */
+@Test(groups = "unit")
+public class LongHashSetTest {
+
+    /**
+     * @param set a set
+     * @return the values of the set found by iterating over it
+     */
+    private static Set<Long> iterate(LongHashSet set) {
+        final Set<Long> values = new HashSet<Long>();
+        final LongHashSet.Cursor cursor = set.cursor();
+        while (cursor.hasNext()) {
+            Assert.assertTrue(values.add(cursor.next()));
+        }
+        return values;
+    }
+
+    /**
+     * Test random additions and removals against a {@link HashSet}, including removals that leave many markers.
+     */
+    @Test
+    public void testRandomOperations() {
+        final Random random = new Random(123);
+        final LongHashSet set = new LongHashSet();
+        final Set<Long> expected = new HashSet<Long>();
+        for (int i = 0; i < 100000; i++) {
+            final long value = random.nextInt(2000);
+            if (random.nextBoolean()) {
+                Assert.assertEquals(set.add(value), expected.add(value));
+            } else {
+                Assert.assertEquals(set.remove(value), expected.remove(value));
+            }
+            Assert.assertEquals(set.size(), expected.size());
+        }
+        for (long value = 0; value < 2000; value++) {
+            Assert.assertEquals(set.contains(value), expected.contains(value));
+        }
+        Assert.assertEquals(iterate(set), expected);
+        Assert.assertEquals(new LongHashSet(set), set);
+    }
+
+    /**
+     * Test removing values while iterating.
+     */
+    @Test
+    public void testCursorRemove() {
+        final LongHashSet set = new LongHashSet();
+        for (long value = 0; value < 1000; value++) {
+            set.add(value);
+        }
+        final LongHashSet.Cursor cursor = set.cursor();
+        while (cursor.hasNext()) {
+            if (cursor.next() % 2 == 0) {
+                cursor.remove();
+            }
+        }
+        Assert.assertEquals(set.size(), 500);
+        for (final long value : iterate(set)) {
+            Assert.assertEquals(value % 2, 1);
+        }
+    }
+
+    /**
+     * Test draining the set by repeatedly removing any value.
+     */
+    @Test
+    public void testDrain() {
+        final LongHashSet set = new LongHashSet();
+        for (long value = 0; value < 1000; value++) {
+            set.add(value * 7919);
+        }
+        int drained = 0;
+        long value;
+        while ((value = set.any()) >= 0) {
+            Assert.assertTrue(set.remove(value));
+            drained++;
+            if (drained == 500) {
+                /* values added before the earliest occupied slot must still be found */
+                set.add(3);
+            }
+        }
+        Assert.assertEquals(drained, 1001);
+        Assert.assertTrue(set.isEmpty());
+    }
+
+    /**
+     * Test that negative values are not accepted.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeValue() {
+        new LongHashSet().add(-5);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+
+package ome.services.search;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Checks which documents pass a {@link DetailsFilter}.
+ *
+ * @since 5.2.3
+ */
+@Test(groups = "unit")
+public class DetailsFilterTest {
+
+    private static final String TIME = "details.creationEvent.time";
+
+    private IndexReader reader;
+
+    /**
+     * Documents 0 to 3 as (owner, group, time); document 4 has none of the
+     * details fields, as if indexed before they were added.
+     */
+    @BeforeMethod
+    public void setup() throws Exception {
+        Directory directory = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(directory,
+                new WhitespaceAnalyzer(), IndexWriter.MaxFieldLength.UNLIMITED);
+        addDocument(writer, "2", "3", "20160101000000");
+        addDocument(writer, "5", "3", "20160201000000");
+        addDocument(writer, "2", "7", "20160301000000");
+        addDocument(writer, "5", "7", "20160401000000");
+        writer.addDocument(new Document());
+        writer.close();
+        reader = IndexReader.open(directory);
+    }
+
+    @AfterMethod
+    public void teardown() throws Exception {
+        reader.close();
+    }
+
+    private void addDocument(IndexWriter writer, String owner, String group,
+            String time) throws Exception {
+        Document d = new Document();
+        d.add(new Field(DetailsFilter.OWNER, owner, Field.Store.YES,
+                Field.Index.NOT_ANALYZED));
+        d.add(new Field(DetailsFilter.GROUP, group, Field.Store.YES,
+                Field.Index.NOT_ANALYZED));
+        d.add(new Field(TIME, time, Field.Store.YES, Field.Index.NOT_ANALYZED));
+        writer.addDocument(d);
+    }
+
+    private Set<Integer> docs(DetailsFilter filter) throws Exception {
+        Set<Integer> docs = new HashSet<Integer>();
+        DocIdSetIterator it = filter.getDocIdSet(reader).iterator();
+        while (it.next()) {
+            docs.add(it.doc());
+        }
+        return docs;
+    }
+
+    private static Set<Integer> set(Integer... docs) {
+        return new HashSet<Integer>(Arrays.asList(docs));
+    }
+
+    public void testReadableGroups() throws Exception {
+        DetailsFilter filter = new DetailsFilter();
+        filter.readable(Collections.singleton(3L),
+                Collections.<Long> emptySet(), 2L);
+        Assert.assertEquals(docs(filter), set(0, 1, 4));
+    }
+
+    public void testReadableOwnerOnlyInPrivateGroup() throws Exception {
+        DetailsFilter filter = new DetailsFilter();
+        filter.readable(Collections.singleton(3L), Collections.singleton(7L),
+                5L);
+        Assert.assertEquals(docs(filter), set(0, 1, 3, 4));
+    }
+
+    public void testOwnedByAndNotOwnedBy() throws Exception {
+        DetailsFilter filter = new DetailsFilter();
+        filter.match(DetailsFilter.OWNER, 2L, true);
+        Assert.assertEquals(docs(filter), set(0, 2, 4));
+
+        filter = new DetailsFilter();
+        filter.match(DetailsFilter.GROUP, 3L, false);
+        Assert.assertEquals(docs(filter), set(2, 3, 4));
+    }
+
+    public void testRangeIsInclusiveAndExcludesMissingTimes() throws Exception {
+        DetailsFilter filter = new DetailsFilter();
+        filter.range(TIME, "20160201000000", "20160301000000");
+        Assert.assertEquals(docs(filter), set(1, 2));
+
+        filter = new DetailsFilter();
+        filter.range(TIME, null, "20160201000000");
+        Assert.assertEquals(docs(filter), set(0, 1));
+    }
+
+    public void testClausesCombine() throws Exception {
+        DetailsFilter filter = new DetailsFilter();
+        filter.match(DetailsFilter.OWNER, 5L, true);
+        filter.range(TIME, "20160301000000", null);
+        Assert.assertEquals(docs(filter), set(3));
+    }
+}
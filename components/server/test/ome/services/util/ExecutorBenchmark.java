@@ -0,0 +1,122 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+
+package ome.services.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import ome.services.util.Executor.Impl.WorkInvocation;
+import ome.system.ServiceFactory;
+
+import org.aopalliance.aop.Advice;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+
+/**
+ * Compares wrapping each {@link Executor.Work} in a new
+ * {@link ProxyFactory} proxy, as {@link Executor.Impl} once did, with
+ * invoking it through the prebuilt interceptor chain which
+ * {@link Executor.Impl} now uses. The chain has as many pass-through
+ * interceptors as the "statelessInterceptors" list, followed by one which
+ * replaces the session argument as {@link Executor.Impl.Interceptor} does.
+ * <p>
+ * Run with <code>ant benchmark -DBENCHMARK=ExecutorBenchmark</code>.
+ * </p>
+ *
+ * @since 5.2.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ExecutorBenchmark {
+
+    /** Number of advices in the "statelessInterceptors" list. */
+    private final static int ADVICES = 5;
+
+    static class PassThrough implements MethodInterceptor {
+        public Object invoke(MethodInvocation mi) throws Throwable {
+            return mi.proceed();
+        }
+    }
+
+    static class InjectSession implements MethodInterceptor {
+        public Object invoke(MethodInvocation mi) throws Throwable {
+            mi.getArguments()[0] = null;
+            return mi.proceed();
+        }
+    }
+
+    static class CountingWork implements Executor.Work<Long> {
+        long count = 0;
+
+        public String description() {
+            return "benchmark";
+        }
+
+        public Long doWork(Session session, ServiceFactory sf) {
+            return ++count;
+        }
+    }
+
+    private List<Advice> advices;
+
+    private List<Object> interceptors;
+
+    private CountingWork work;
+
+    @Setup
+    public void setup() {
+        advices = new ArrayList<Advice>();
+        for (int i = 0; i < ADVICES; i++) {
+            advices.add(new PassThrough());
+        }
+        interceptors = Executor.Impl.interceptors(advices, new InjectSession());
+        work = new CountingWork();
+    }
+
+    /**
+     * The former path: a new proxy for every call.
+     */
+    @Benchmark
+    public Object proxyPerCall() {
+        ProxyFactory factory = new ProxyFactory();
+        factory.setTarget(work);
+        factory.setInterfaces(new Class[] { Executor.Work.class });
+        for (Advice advice : advices) {
+            factory.addAdvice(advice);
+        }
+        factory.addAdvice(new InjectSession());
+        Executor.Work wrapper = (Executor.Work) factory.getProxy();
+        return wrapper.doWork(null, null);
+    }
+
+    /**
+     * The current path: a new invocation through the cached chain.
+     */
+    @Benchmark
+    public Object cachedChain() {
+        return new WorkInvocation(work, WorkInvocation.DO_WORK,
+                new Object[] { null, null }, interceptors).invoke();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+
+package ome.services.util;
+
+import ome.model.display.ChannelBinding;
+import ome.model.display.QuantumDef;
+import ome.model.display.RenderingDef;
+import ome.model.enums.Family;
+import ome.model.enums.RenderingModel;
+import ome.services.util.RenderedTileCache.Key;
+import ome.system.metrics.DefaultMetrics;
+import omeis.providers.re.data.PlaneDef;
+import omeis.providers.re.data.RegionDef;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Checks the keys and invalidation of {@link RenderedTileCache}.
+ *
+ * @since 5.2.3
+ */
+@Test(groups = "unit")
+public class RenderedTileCacheTest {
+
+    private RenderedTileCache cache;
+
+    private DefaultMetrics metrics;
+
+    private RenderingDef def;
+
+    @BeforeMethod
+    public void setup() {
+        metrics = new DefaultMetrics();
+        cache = new RenderedTileCache();
+        cache.setMetrics(metrics);
+        cache.setCacheSize(1024 * 1024);
+        def = new RenderingDef();
+        def.setModel(new RenderingModel("rgb"));
+        QuantumDef qd = new QuantumDef();
+        qd.setCdStart(0);
+        qd.setCdEnd(255);
+        qd.setBitResolution(255);
+        def.setQuantization(qd);
+        for (int c = 0; c < 2; c++) {
+            ChannelBinding cb = new ChannelBinding();
+            cb.setFamily(new Family("linear"));
+            cb.setCoefficient(1.0);
+            cb.setNoiseReduction(false);
+            cb.setInputStart(0.0);
+            cb.setInputEnd(100.0);
+            cb.setActive(true);
+            cb.setRed(255);
+            cb.setGreen(0);
+            cb.setBlue(0);
+            cb.setAlpha(255);
+            def.addChannelBinding(cb);
+        }
+    }
+
+    private Key key(long pixelsId, PlaneDef pd) {
+        return cache.key(pixelsId, def, pd, -1, 0.85f);
+    }
+
+    private PlaneDef plane(int z) {
+        PlaneDef pd = new PlaneDef(PlaneDef.XY, 0);
+        pd.setZ(z);
+        return pd;
+    }
+
+    private long count(String name) {
+        return metrics.counter(cache, name).getCount();
+    }
+
+    public void testHitAndMiss() {
+        Assert.assertNull(cache.get(key(1, plane(0))));
+        cache.put(key(1, plane(0)), new byte[] { 1 }, cache.generation());
+        Assert.assertEquals(cache.get(key(1, plane(0))), new byte[] { 1 });
+        Assert.assertNull(cache.get(key(1, plane(1))));
+        Assert.assertEquals(count("cacheHits"), 1);
+        Assert.assertEquals(count("cacheMisses"), 2);
+        Assert.assertEquals(cache.getHitRatio(), 1.0 / 3, 1e-9);
+    }
+
+    public void testChangedSettingsMiss() {
+        cache.put(key(1, plane(0)), new byte[] { 1 }, cache.generation());
+        def.getChannelBinding(0).setInputEnd(50.0);
+        Assert.assertNull(cache.get(key(1, plane(0))));
+        def.getChannelBinding(0).setInputEnd(100.0);
+        Assert.assertNotNull(cache.get(key(1, plane(0))));
+    }
+
+    public void testInactiveChannelSettingsIgnored() {
+        def.getChannelBinding(1).setActive(false);
+        cache.put(key(1, plane(0)), new byte[] { 1 }, cache.generation());
+        def.getChannelBinding(1).setInputEnd(50.0);
+        Assert.assertNotNull(cache.get(key(1, plane(0))));
+    }
+
+    public void testRegionAndCompressionInKey() {
+        PlaneDef pd = plane(0);
+        pd.setRegion(new RegionDef(0, 0, 256, 256));
+        cache.put(key(1, pd), new byte[] { 1 }, cache.generation());
+        Assert.assertNull(cache.get(key(1, plane(0))));
+        Assert.assertNull(cache.get(cache.key(1, def, pd, -1, 0.5f)));
+        Assert.assertNull(cache.get(cache.key(1, def, pd, 1, 0.85f)));
+        PlaneDef same = plane(0);
+        same.setRegion(new RegionDef(0, 0, 256, 256));
+        Assert.assertNotNull(cache.get(key(1, same)));
+    }
+
+    public void testInvalidateOnlyThatPixels() {
+        cache.put(key(1, plane(0)), new byte[] { 1 }, cache.generation());
+        cache.put(key(2, plane(0)), new byte[] { 2 }, cache.generation());
+        cache.invalidate(1);
+        Assert.assertNull(cache.get(key(1, plane(0))));
+        Assert.assertNotNull(cache.get(key(2, plane(0))));
+    }
+
+    public void testEvictedPixelsAreForgotten() {
+        cache.put(key(1, plane(0)), new byte[] { 1 }, cache.generation());
+        cache.put(key(2, plane(0)), new byte[] { 2 }, cache.generation());
+        // Replacing a tile does not count it twice.
+        cache.put(key(1, plane(0)), new byte[] { 3 }, cache.generation());
+        Assert.assertEquals(cache.cachedPixelsCount(), 2);
+        // A tile larger than the cache replaces then is evicted at once.
+        cache.put(key(1, plane(0)), new byte[2 * 1024 * 1024],
+                cache.generation());
+        Assert.assertNull(cache.get(key(1, plane(0))));
+        Assert.assertEquals(cache.cachedPixelsCount(), 1);
+        Assert.assertNotNull(cache.get(key(2, plane(0))));
+    }
+
+    public void testInvalidateForgetsPixels() {
+        cache.put(key(1, plane(0)), new byte[] { 1 }, cache.generation());
+        cache.put(key(1, plane(1)), new byte[] { 1 }, cache.generation());
+        Assert.assertEquals(cache.cachedPixelsCount(), 1);
+        cache.invalidate(1);
+        Assert.assertEquals(cache.cachedPixelsCount(), 0);
+    }
+
+    public void testWriteWhileRenderingNotCached() {
+        long since = cache.generation();
+        cache.invalidate(1);
+        cache.put(key(1, plane(0)), new byte[] { 1 }, since);
+        Assert.assertNull(cache.get(key(1, plane(0))));
+    }
+
+    public void testDisabled() {
+        cache.setCacheSize(0);
+        Assert.assertFalse(cache.isEnabled());
+        cache.put(key(1, plane(0)), new byte[] { 1 }, cache.generation());
+        Assert.assertNull(cache.get(key(1, plane(0))));
+        Assert.assertEquals(count("cacheMisses"), 0);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+package omeis.providers.re.utests;
+
+import ome.model.core.Pixels;
+import ome.model.display.ChannelBinding;
+import ome.model.enums.PixelsType;
+import omeis.providers.re.data.PlaneDef;
+import omeis.providers.re.quantum.Quantization_8_16_bit;
+import omeis.providers.re.quantum.QuantumStrategy;
+
+import org.perf4j.LoggingStopWatch;
+import org.perf4j.StopWatch;
+import org.testng.annotations.Test;
+
+/**
+ * Checks that the table used by the rendering fast path maps every value of
+ * the pixels type exactly as {@link QuantumStrategy#quantize(double)} does.
+ */
+public class TestPixelsTypeLUT extends BaseRenderingTest
+{
+	private void assertTable(QuantumStrategy qs, int offset) throws Exception
+	{
+		byte[] table = ((Quantization_8_16_bit) qs).getPixelsTypeLUT();
+		assertNotNull(table);
+		for (int i = 0; i < table.length; i++)
+		{
+			assertEquals(qs.quantize(i + offset), table[i] & 0xFF);
+		}
+	}
+
+	private QuantumStrategy createStrategy(String type, int bitSize,
+			double start, double end)
+	{
+		PixelsType pixelsType = new PixelsType();
+		pixelsType.setValue(type);
+		pixelsType.setBitSize(bitSize);
+		Pixels p = createDummyPixels(pixelsType, data);
+		ChannelBinding cb = settings.getChannelBinding(0);
+		QuantumStrategy qs =
+			new Quantization_8_16_bit(settings.getQuantization(), p);
+		qs.setExtent(start, end);
+		qs.setMapping(cb.getFamily(), cb.getCoefficient(),
+				cb.getNoiseReduction());
+		qs.setWindow(start, end);
+		return qs;
+	}
+
+	@Test
+	public void testUnsigned16BitTable() throws Exception
+	{
+		QuantumStrategy qs = quantumFactory.getStrategy(
+				settings.getQuantization(), pixels);
+		assertTable(qs, 0);
+	}
+
+	@Test
+	public void testSigned16BitTable() throws Exception
+	{
+		assertTable(createStrategy("int16", 16, -1000, 1000), -0x8000);
+	}
+
+	@Test
+	public void testUnsigned8BitTable() throws Exception
+	{
+		assertTable(createStrategy("uint8", 8, 10, 200), 0);
+	}
+
+	@Test
+	public void testSigned8BitTable() throws Exception
+	{
+		assertTable(createStrategy("int8", 8, -100, 100), -0x80);
+	}
+
+	@Test
+	public void testTableRebuiltOnWindowChange() throws Exception
+	{
+		QuantumStrategy qs = createStrategy("uint16", 16, 0, 1000);
+		byte[] before = ((Quantization_8_16_bit) qs).getPixelsTypeLUT();
+		qs.setWindow(500, 600);
+		assertNotSame(before,
+				((Quantization_8_16_bit) qs).getPixelsTypeLUT());
+		assertTable(qs, 0);
+	}
+
+	@Test(timeOut=30000)
+	public void testRenderAsPackedInt() throws Exception
+	{
+		PlaneDef def = new PlaneDef(PlaneDef.XY, 0);
+		for (int i = 0; i < RUN_COUNT; i++)
+		{
+			StopWatch stopWatch =
+				new LoggingStopWatch("testPixelsTypeLUTRenderAsPackedInt");
+			renderer.renderAsPackedInt(def, pixelBuffer);
+			stopWatch.stop();
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ *   Copyright (C) 2016 University of Dundee & Open Microscopy Environment.
+ *   All rights reserved.
+ *
+ *   Use is subject to license terms supplied in LICENSE.txt
+ */
+package omeis.providers.re.utests;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import omeis.providers.re.data.PlaneDef;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ * Checks that planes split into uneven row bands and rendered on a shared,
+ * bounded executor are complete and identical to the same plane rendered on
+ * a single thread.
+ */
+public class TestRenderingExecutor extends BaseRenderingTest
+{
+	private final ExecutorService single = Executors.newFixedThreadPool(1);
+
+	private final ExecutorService shared = Executors.newFixedThreadPool(4);
+
+	@Override
+	protected int getSizeY()
+	{
+		// Prime, so that the bands cannot all be the same height.
+		return 1021;
+	}
+
+	@AfterClass
+	public void shutdown()
+	{
+		single.shutdown();
+		shared.shutdown();
+	}
+
+	@Test(timeOut=30000)
+	public void testRenderAsPackedIntOnSharedExecutor() throws Exception
+	{
+		PlaneDef def = new PlaneDef(PlaneDef.XY, 0);
+		renderer.setRenderingExecutor(single);
+		int[] expected = renderer.renderAsPackedInt(def, pixelBuffer);
+		renderer.setRenderingExecutor(shared);
+		for (int i = 0; i < RUN_COUNT; i++)
+		{
+			int[] actual = renderer.renderAsPackedInt(def, pixelBuffer);
+			assertTrue(Arrays.equals(expected, actual));
+		}
+		for (int pixel : expected)
+		{
+			// Every rendered pixel has its alpha set.
+			assertEquals(0xFF000000, pixel & 0xFF000000);
+		}
+	}
+
+	@Test(timeOut=30000)
+	public void testRenderAsPackedIntOnDefaultExecutor() throws Exception
+	{
+		PlaneDef def = new PlaneDef(PlaneDef.XY, 0);
+		renderer.setRenderingExecutor(single);
+		int[] expected = renderer.renderAsPackedInt(def, pixelBuffer);
+		renderer.setRenderingExecutor(null);
+		int[] actual = renderer.renderAsPackedInt(def, pixelBuffer);
+		assertTrue(Arrays.equals(expected, actual));
+	}
+}